@@ -1,40 +1,103 @@
 package ch.hsr.i.jvector.components;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.media.j3d.Shape3D;
 
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public abstract class Component3D implements Component, GeometryStore.Handle {
 
-public abstract class Component3D implements Component {
-	
 	public static enum ComponentType {
 		POINT, LINE, PLANE
 	}
-	
+
+	/**
+	 * the id of the last created component
+	 */
+	private static final AtomicLong lastId = new AtomicLong();
+
+	private final long id = lastId.incrementAndGet();
+
 	private ComponentType cType;
 	protected AppearanceType aType = AppearanceType.NORMAL;
-	
-	public Component3D(ComponentType type) {
+
+	/**
+	 * the store which holds the parameters of this component
+	 */
+	protected GeometryStore store;
+
+	/**
+	 * the index of this component in the store, -1 once released
+	 */
+	protected int index = -1;
+
+	public Component3D(ComponentType type, GeometryStore store) {
 		this.cType = type;
+		this.store = store;
 	}
-	
+
 	@Override
 	public ComponentType getType() {
 		return cType;
 	}
-	
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
 	@Override
 	public AppearanceType getAppearanceType() {
 		return aType;
 	}
-	
+
 	@Override
-	public abstract Shape3D getShape(AppearanceType type); 
-		
-	
+	public abstract Shape3D getShape(AppearanceType type);
+
+
 	@Override
 	public abstract void setAppearance(AppearanceType type);
-	
-	
+
+	@Override
+	public abstract void updateShape();
+
+	@Override
+	public void setStoreIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Returns the index of this component in its store.
+	 *
+	 * @return the index or -1 if this component was released
+	 */
+	public int getStoreIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the store which holds the parameters of this component.
+	 *
+	 * @return the store
+	 */
+	public GeometryStore getStore() {
+		return store;
+	}
+
+	@Override
+	public void release() {
+		if(index >= 0) {
+			removeFromStore();
+			index = -1;
+		}
+	}
+
+	/**
+	 * Removes the entry of this component from the store.
+	 */
+	protected abstract void removeFromStore();
 
 }
@@ -1,5 +1,8 @@
 package ch.hsr.i.jvector.components;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.media.j3d.Appearance;
 import javax.media.j3d.ColoringAttributes;
 import javax.media.j3d.LineAttributes;
@@ -7,16 +10,91 @@ import javax.media.j3d.PointAttributes;
 import javax.media.j3d.PolygonAttributes;
 import javax.media.j3d.TransparencyAttributes;
 import javax.vecmath.Color3f;
+import javax.vecmath.Color4f;
 
 import ch.hsr.i.jvector.components.Component3D.ComponentType;
 
+/**
+ * The appearances of the components. There is one shared appearance per component type and appearance
+ * type, created when it is first requested, so all shapes of a kind use the same node components and
+ * Java3D can draw them in one render bin. User-defined styles are registered once by name and shared the
+ * same way.
+ * <p>
+ * The appearances have no write capabilities, Java3D refuses to change them once they are live. They must
+ * not be changed before either, since every shape of their kind would change with them.
+ */
 public class ComponentAppearance {
 
 	public static enum AppearanceType {
 		NORMAL, INTERSECTION, HIGHLIGHTED1, HIGHLIGHTED2 
 	}
 	
-	public static Appearance getAppearance(ComponentType cType, AppearanceType aType) {
+	private static final Appearance[][] appearances = new Appearance[ComponentType.values().length][AppearanceType.values().length];
+	private static final Map<String, Appearance> styles = new HashMap<String, Appearance>();
+	
+	/**
+	 * Returns the shared appearance of a component type and an appearance type.
+	 * 
+	 * @param cType - the type of the component
+	 * @param aType - the type of the appearance
+	 * @return the appearance, must not be changed
+	 */
+	public static synchronized Appearance getAppearance(ComponentType cType, AppearanceType aType) {
+		Appearance appearance = appearances[cType.ordinal()][aType.ordinal()];
+		if(appearance == null) {
+			appearance = createAppearance(cType, aType);
+			appearances[cType.ordinal()][aType.ordinal()] = appearance;
+		}
+		return appearance;
+	}
+	
+	/**
+	 * Registers a style, which is shared by all shapes drawn with it.
+	 * 
+	 * @param name - the name of the style
+	 * @param cType - the type of the components drawn with the style
+	 * @param color - the colour
+	 * @param transparency - the transparency between 0 (opaque) and 1
+	 * @param size - the size of points or the width of lines in pixels, ignored for planes
+	 * @return the appearance of the style, must not be changed
+	 * @throws IllegalArgumentException if a style with the name is registered already
+	 */
+	public static synchronized Appearance registerStyle(String name, ComponentType cType, Color3f color, float transparency, float size) {
+		if(styles.containsKey(name)) {
+			throw new IllegalArgumentException("the style " + name + " is registered already");
+		}
+		Appearance appearance = new Appearance();
+		switch(cType) {
+		
+		case POINT:
+			appearance.setPointAttributes(new PointAttributes(size, true));
+			break;
+			
+		case LINE:
+			appearance.setLineAttributes(new LineAttributes(size, LineAttributes.PATTERN_SOLID, true));
+			break;
+			
+		case PLANE:
+			appearance.setPolygonAttributes(new PolygonAttributes(PolygonAttributes.POLYGON_FILL, PolygonAttributes.CULL_NONE, 1000.0f));
+			break;
+		}
+		appearance.setColoringAttributes(new ColoringAttributes(new Color3f(color), ColoringAttributes.NICEST));
+		appearance.setTransparencyAttributes(new TransparencyAttributes(TransparencyAttributes.NICEST, transparency));
+		styles.put(name, appearance);
+		return appearance;
+	}
+	
+	/**
+	 * Returns the appearance of a registered style.
+	 * 
+	 * @param name - the name of the style
+	 * @return the appearance, must not be changed, or null if no style has the name
+	 */
+	public static synchronized Appearance getStyle(String name) {
+		return styles.get(name);
+	}
+	
+	private static Appearance createAppearance(ComponentType cType, AppearanceType aType) {
 		
 		switch (aType) {
 		
@@ -37,6 +115,20 @@ public class ComponentAppearance {
 		}
 	}
 	
+	/**
+	 * Returns the colour of an appearance with its opacity as alpha, for shapes which are coloured per vertex.
+	 * 
+	 * @param cType - the type of the component
+	 * @param aType - the type of the appearance
+	 * @return a new colour
+	 */
+	public static Color4f getColor(ComponentType cType, AppearanceType aType) {
+		Appearance appearance = getAppearance(cType, aType);
+		Color3f color = new Color3f();
+		appearance.getColoringAttributes().getColor(color);
+		return new Color4f(color.x, color.y, color.z, 1 - appearance.getTransparencyAttributes().getTransparency());
+	}
+	
 	private static Appearance getNormalAppearance(ComponentType cType) {
 		Appearance normal = new Appearance();
 		ColoringAttributes color;
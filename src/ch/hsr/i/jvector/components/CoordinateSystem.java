@@ -20,6 +20,8 @@ package ch.hsr.i.jvector.components;
 
 import javax.media.j3d.Appearance;
 import javax.media.j3d.ColoringAttributes;
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryUpdater;
 import javax.media.j3d.LineArray;
 import javax.media.j3d.LineAttributes;
 import javax.media.j3d.Shape3D;
@@ -30,6 +32,15 @@ import javax.vecmath.Point3d;
 import ch.hsr.i.jvector.interfaces.CoordSystem;
 import ch.hsr.i.jvector.logic.DrawComponents;
 
+/**
+ * The axes and the grid of the scene. The grid is one <code>LineArray</code> which references its float
+ * coordinates, a new grid is written into a second array and the arrays are swapped, so the grid is
+ * regenerated in place and the shape stays in the scene. Writing the grid may run on a background thread
+ * while the current grid is drawn.
+ * <p>
+ * The grid either covers the whole scene or a window around a point, which is used to draw a grid whose
+ * spacing and extent follow the view.
+ */
 public class CoordinateSystem implements CoordSystem {
 
 	private int bound = DrawComponents.RADIUS;
@@ -39,11 +50,6 @@ public class CoordinateSystem implements CoordSystem {
 	 */
 	private double offset = 1.0;
 
-	/**
-	 * the number of lines (per half of an axis) which make up the grid
-	 */
-	private int scaleMax = (int) Math.round((bound / offset) - offset);
-
 	/**
 	 * This enum values indicates the plane that is spanned by two axes.
 	 */
@@ -53,6 +59,33 @@ public class CoordinateSystem implements CoordSystem {
 	
 	private static LineAttributes lineAttrAxis = new LineAttributes(2.0f, LineAttributes.PATTERN_SOLID, true);
 	
+	/**
+	 * the coordinates of the drawn grid and the coordinates written for the next grid, a fresh array which
+	 * no geometry references yet
+	 */
+	private float[] gridCoords, preparedCoords;
+	
+	/**
+	 * the number of vertices of the drawn grid
+	 */
+	private int gridVertices;
+	
+	/**
+	 * the offset and the number of vertices of the prepared coordinates, -1 vertices if none are prepared
+	 */
+	private double preparedOffset;
+	private int preparedVertices = -1;
+	
+	/**
+	 * the first and the last multiple of the offset with a line on every axis, and the coordinates where
+	 * the lines along the axis start and end, used while a grid is written
+	 */
+	private final int[] first = new int[3], last = new int[3];
+	private final float[] low = new float[3], high = new float[3];
+	
+	private LineArray grid;
+	private Shape3D gridShape;
+	
 	/**
 	 * Creates a Coordinate System object with default grid offset (1.0).
 	 * 
@@ -70,6 +103,10 @@ public class CoordinateSystem implements CoordSystem {
 		this.offset = offset;
 	}
 	
+	public synchronized double getGridOffset() {
+		return offset;
+	}
+	
 	@Override
 	/**
 	 * Returns a <code>Shape3D</code> object of the x axis. Color is by default red.
@@ -147,11 +184,18 @@ public class CoordinateSystem implements CoordSystem {
 	
 	@Override
 	/**
-	 * Get Grid with defined Appearance
+	 * Get Grid with defined Appearance. The shape is created once, a new offset changes its geometry.
 	 * 
 	 * @return the <code>Shape3D</code> object of the grid lines
 	 */
-	public Shape3D getGridShape() {
+	public synchronized Shape3D getGridShape() {
+		
+		if(gridShape != null) {
+			return gridShape;
+		}
+		if(gridCoords == null) {
+			setGridOffset(offset);
+		}
 		
 		Color3f black = new Color3f(0f, 0f, 0f);
 
@@ -163,50 +207,219 @@ public class CoordinateSystem implements CoordSystem {
 		appGrid.setColoringAttributes(colorAttrGrid);
 		appGrid.setTransparencyAttributes(transpAttrGrid);
 		
-		return new Shape3D(getGrid(), appGrid);
+		grid = createGrid();
+		gridShape = new Shape3D(grid, appGrid);
+		gridShape.setCapability(Shape3D.ALLOW_GEOMETRY_WRITE);
+		return gridShape;
 	}
 	
-	private LineArray getGrid() {
-
-		LineArray grid = new LineArray(3 * 4 * scaleMax, LineArray.COORDINATES);
+	/**
+	 * Regenerates the grid with the offset.
+	 * 
+	 * @param the offset for the grid
+	 */
+	public synchronized void setGridOffset(double offset) {
+		prepareGrid(offset);
+		updateGrid();
+	}
+	
+	/**
+	 * Writes the grid with the offset without changing the drawn grid, for example on a background thread.
+	 * The grid is written into a new array, the renderer may still read the arrays of earlier grids.
+	 * 
+	 * @param the offset for the grid
+	 */
+	public synchronized void prepareGrid(double offset) {
+		
+		checkOffset(offset);
+		
+		// the lines on the positive half of every axis across the whole scene
+		for(int axis = 0; axis < 3; axis++) {
+			first[axis] = 1;
+			last[axis] = getScaleMax(offset);
+			low[axis] = -bound;
+			high[axis] = bound;
+		}
+		writeGrid(offset);
+	}
+	
+	/**
+	 * Writes the grid in the window around the point without changing the drawn grid. The window is
+	 * clipped to the scene, its lines are on the multiples of the offset.
+	 * 
+	 * @param offset - the offset for the grid
+	 * @param x, y, z - the centre of the window
+	 * @param extent - half of the width of the window
+	 */
+	public synchronized void prepareGrid(double offset, double x, double y, double z, double extent) {
+		
+		checkOffset(offset);
+		
+		double[] center = { x, y, z };
+		int lines = (int) Math.floor(bound / offset);
+		for(int axis = 0; axis < 3; axis++) {
+			first[axis] = (int) Math.max(Math.ceil((center[axis] - extent) / offset), -lines);
+			last[axis] = (int) Math.min(Math.floor((center[axis] + extent) / offset), lines);
+			low[axis] = (float) Math.max(center[axis] - extent, -bound);
+			high[axis] = (float) Math.min(center[axis] + extent, bound);
+		}
+		writeGrid(offset);
+	}
+	
+	/**
+	 * Draws the grid written by <code>prepareGrid</code>, on the thread which changes the scene. The
+	 * geometry is changed to reference the prepared array, a new geometry is only created if the grid has
+	 * grown.
+	 */
+	public synchronized void updateGrid() {
+		
+		if(preparedVertices < 0) {
+			return;
+		}
+		
+		final float[] coords = preparedCoords;
+		preparedCoords = null;
+		gridCoords = coords;
+		offset = preparedOffset;
+		gridVertices = preparedVertices;
+		preparedVertices = -1;
+		
+		if(grid == null) {
+			return;
+		}
+		if(grid.getVertexCount() < coords.length / 3) {
+			grid = createGrid();
+			gridShape.setGeometry(grid);
+			return;
+		}
+		final int vertices = gridVertices;
+		grid.updateData(new GeometryUpdater() {
+			@Override
+			public void updateData(Geometry geometry) {
+				LineArray array = (LineArray) geometry;
+				array.setCoordRefFloat(coords);
+				array.setValidVertexCount(vertices);
+			}
+		});
+	}
+	
+	/**
+	 * Returns the number of vertices of the drawn grid.
+	 */
+	public synchronized int getGridVertexCount() {
+		return gridVertices;
+	}
+	
+	/**
+	 * a geometry referencing the coordinates of the drawn grid
+	 */
+	private LineArray createGrid() {
 
-		grid.setCoordinates(0, getGridSection(GridSection.XY));
-		grid.setCoordinates(4 * scaleMax, getGridSection(GridSection.XZ));
-		grid.setCoordinates(8 * scaleMax, getGridSection(GridSection.YZ));
+		LineArray grid = new LineArray(gridCoords.length / 3, LineArray.COORDINATES | LineArray.BY_REFERENCE);
+		grid.setCapability(LineArray.ALLOW_REF_DATA_WRITE);
+		grid.setCapability(LineArray.ALLOW_COUNT_WRITE);
+		grid.setCapability(LineArray.ALLOW_COUNT_READ);
+		grid.setCoordRefFloat(gridCoords);
+		grid.setValidVertexCount(gridVertices);
 
 		return grid;
 	}
 	
-	private Point3d[] getGridSection(GridSection gridSection) {
-
-		Point3d[] points = new Point3d[4 * scaleMax];
+	private static void checkOffset(double offset) {
+		if(!(offset > 0)) {
+			throw new IllegalArgumentException("the offset must be positive");
+		}
+	}
+	
+	/**
+	 * the number of lines per half of an axis which stay inside the bound
+	 */
+	private int getScaleMax(double offset) {
+		return Math.max(0, (int) Math.round((bound / offset) - offset));
+	}
+	
+	/**
+	 * writes the lines between first and last into the prepared coordinates
+	 */
+	private void writeGrid(double offset) {
+		
+		int vertices = 0;
+		for(int axis = 0; axis < 3; axis++) {
+			for(int along = 0; along < 3; along++) {
+				if(along != axis) {
+					vertices += 2 * getNumLines(axis, along);
+				}
+			}
+		}
+		
+		// the drawn array may still be read, even after the geometry was changed, so it is never reused;
+		// the array keeps the length of the drawn one unless the grid grows, a line array has at least one line
+		int length = 3 * vertices;
+		preparedCoords = new float[Math.max(Math.max(length, 3 * 2), gridCoords == null ? 0 : gridCoords.length)];
+		
+		int o = writeGridSection(GridSection.XY, preparedCoords, 0, offset);
+		o = writeGridSection(GridSection.XZ, preparedCoords, o, offset);
+		writeGridSection(GridSection.YZ, preparedCoords, o, offset);
+		
+		preparedOffset = offset;
+		preparedVertices = vertices;
+	}
+	
+	/**
+	 * the number of lines on the axis which run along the other axis, without the line on the axis itself,
+	 * none if the window does not reach the plane of the two axes
+	 */
+	private int getNumLines(int axis, int along) {
+		int other = 3 - axis - along;
+		if(first[axis] > last[axis] || low[along] > high[along] || low[other] > 0 || high[other] < 0) {
+			return 0;
+		}
+		return last[axis] - first[axis] + (first[axis] <= 0 && last[axis] >= 0 ? 0 : 1);
+	}
+	
+	/**
+	 * writes the lines of the section from the index o of the coordinates on
+	 * 
+	 * @return the index after the lines
+	 */
+	private int writeGridSection(GridSection gridSection, float[] coords, int o, double offset) {
 
 		switch (gridSection) {
 		case XY:
-			for (int i = 0, k = 1; i < points.length; i += 4, k++) {
-				points[i] = new Point3d(k * offset, -bound, 0.0f);
-				points[i + 1] = new Point3d(k * offset, bound, 0.0f);
-				points[i + 2] = new Point3d(-bound, k * offset, 0.0f);
-				points[i + 3] = new Point3d(bound, k * offset, 0.0f);
-			}
-			break;
+			o = writeLines(coords, o, offset, 0, 1);
+			return writeLines(coords, o, offset, 1, 0);
 		case XZ:
-			for (int i = 0, k = 1; i < points.length; i += 4, k++) {
-				points[i] = new Point3d(k * offset, 0.0f, -bound);
-				points[i + 1] = new Point3d(k * offset, 0.0f, bound);
-				points[i + 2] = new Point3d(-bound, 0.0f, k * offset);
-				points[i + 3] = new Point3d(bound, 0.0f, k * offset);
-			}
-			break;
-		case YZ:
-			for (int i = 0, k = 1; i < points.length; i += 4, k++) {
-				points[i] = new Point3d(0.0f, k * offset, -bound);
-				points[i + 1] = new Point3d(0.0f, k * offset, bound);
-				points[i + 2] = new Point3d(0.0f, bound, k * offset);
-				points[i + 3] = new Point3d(0.0f, -bound, k * offset);
+			o = writeLines(coords, o, offset, 0, 2);
+			return writeLines(coords, o, offset, 2, 0);
+		default:
+			o = writeLines(coords, o, offset, 1, 2);
+			return writeLines(coords, o, offset, 2, 1);
+		}
+	}
+	
+	/**
+	 * writes the lines on the multiples of the offset on the axis, which run along the other axis
+	 */
+	private int writeLines(float[] coords, int o, double offset, int axis, int along) {
+		
+		if(getNumLines(axis, along) == 0) {
+			return o;
+		}
+		int other = 3 - axis - along;
+		for(int k = first[axis]; k <= last[axis]; k++) {
+			if(k == 0) {
+				// the axis is drawn by itself
+				continue;
 			}
-			break;
+			float v = (float) (k * offset);
+			coords[o + axis] = v;
+			coords[o + along] = low[along];
+			coords[o + other] = 0.0f;
+			coords[o + 3 + axis] = v;
+			coords[o + 3 + along] = high[along];
+			coords[o + 3 + other] = 0.0f;
+			o += 6;
 		}
-		return points;
+		return o;
 	}
 }
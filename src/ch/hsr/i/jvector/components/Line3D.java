@@ -18,9 +18,6 @@
 
 package ch.hsr.i.jvector.components;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-
 import javax.media.j3d.LineArray;
 import javax.media.j3d.Shape3D;
 import javax.vecmath.Point3d;
@@ -29,32 +26,31 @@ import javax.vecmath.Vector3d;
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.exceptions.NoIntersectionException;
 import ch.hsr.i.jvector.exceptions.NoLineException;
-import ch.hsr.i.jvector.exceptions.NoMatrixException;
 import ch.hsr.i.jvector.exceptions.NoPointOnSphereException;
-import ch.hsr.i.jvector.exceptions.NoIntersectionException.StateNoIntersection;
 import ch.hsr.i.jvector.exceptions.NoLineException.StateNoLine;
 import ch.hsr.i.jvector.interfaces.Line;
 import ch.hsr.i.jvector.interfaces.Plane;
 import ch.hsr.i.jvector.interfaces.Point;
-import ch.hsr.i.jvector.util.Matrix;
+import ch.hsr.i.jvector.logic.CanonicalIndex;
+import ch.hsr.i.jvector.logic.Distances;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
 import ch.hsr.i.jvector.util.Utils;
 
 public class Line3D extends Component3D implements Line {
-
-	/**
-	 * Stores the parameters for this line in the form: [x;y;z] + k * [rx;ry;rz] > [x,y,z,rx,ry,rz].
-	 */
-	private double[] line = new double[6]; 
 	
 	/**
-	 * the points for this line on the sphere
+	 * the shape object of this line, created when it is first requested
 	 */
-	private Point3d[] points = new Point3d[2];
+	private Shape3D shape;
 	
 	/**
-	 * the shape object of this line
+	 * the renderer which draws this line in a batch, the batch and the index of this line in it
 	 */
-	private Shape3D shape;
+	LineRenderer renderer;
+	LineRenderer.Batch renderBatch;
+	int renderIndex = -1;
 	
 	/**
 	 * Creates a Line3D object with the two points.
@@ -65,33 +61,20 @@ public class Line3D extends Component3D implements Line {
 	 */
 	public Line3D(Point3d p1, Point3d p2) throws NoLineException {
 		
-		super(ComponentType.LINE);
+		super(ComponentType.LINE, GeometryStore.getDefault());
 		
 		if(p1.equals(p2)) {
 			throw new NoLineException(StateNoLine.SAME_POINT_TWICE);
 		}
 		
 		try {
-			points = Utils.getPointsOnSphere(p1, p2, 0);
+			Utils.getPointsOnSphere(p1, p2, 0);
 		} catch (NoPointOnSphereException e) {
 			throw new NoLineException(StateNoLine.OTHER_REASON, e.getMessage());
 		}
 		
-		// point on the line
-		line[0] = p1.x;
-		line[1] = p1.y;
-		line[2] = p1.z;
-		
-		// direction vector
-		line[3] = p2.x - p1.x;
-		line[4] = p2.y - p1.y;
-		line[5] = p2.z - p2.z;
-		
-		LineArray line = new LineArray(2, LineArray.COORDINATES);
-		line.setCoordinates(0, points);
-		shape = new Shape3D(line);
-		shape.setAppearanceOverrideEnable(true);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		// point on the line and direction vector
+		index = store.addLine(this, p1.x, p1.y, p1.z, p2.x - p1.x, p2.y - p1.y, p2.z - p1.z);
 	}
 	
 	/**
@@ -102,52 +85,78 @@ public class Line3D extends Component3D implements Line {
 	 * @throws NoLineException in case the line could not be created
 	 */
 	public Line3D(Vector3d p, Vector3d d) throws NoLineException {
+		this(p.x, p.y, p.z, d.x, d.y, d.z, GeometryStore.getDefault());
+	}
+	
+	/**
+	 * Creates a Line3D object in the given store from a point on the line and the direction of the line.
+	 * 
+	 * @param x, y, z - the point on the line
+	 * @param rx, ry, rz - the direction of the line
+	 * @param store - the store which holds the parameters
+	 * @throws NoLineException in case the line could not be created
+	 */
+	public Line3D(double x, double y, double z, double rx, double ry, double rz, GeometryStore store) throws NoLineException {
 		
-		super(ComponentType.LINE);
+		super(ComponentType.LINE, store);
 		
-		if(Utils.isLinearDependent(p, d)) {
+		if(rx == 0.0 && ry == 0.0 && rz == 0.0) {
 			throw new NoLineException(StateNoLine.NO_LINEAR_INDEP_DIR_VECTORS);
 		}
 		
 		// two points on the line
-		Point3d p1 = new Point3d(p.x, p.y, p.z);
-		Point3d p2 = new Point3d(p.x + d.x, p.y + d.y, p.z + d.z);
+		Point3d p1 = new Point3d(x, y, z);
+		Point3d p2 = new Point3d(x + rx, y + ry, z + rz);
 		
 		try {
-			points = Utils.getPointsOnSphere(p1, p2, 0);
+			Utils.getPointsOnSphere(p1, p2, 0);
 		} catch (NoPointOnSphereException e) {
 			throw new NoLineException(StateNoLine.OTHER_REASON, e.getMessage());
 		}
 		
-		// point on the line
-		line[0] = p.x;
-		line[1] = p.y;
-		line[2] = p.z;
-		
-		// direction vector
-		line[3] = d.x;
-		line[4] = d.y;
-		line[5] = d.z;
-		
-		LineArray line = new LineArray(2, LineArray.COORDINATES);
-		line.setCoordinates(0, points);
-		shape = new Shape3D(line);
-		shape.setAppearanceOverrideEnable(true);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		index = store.addLine(this, x, y, z, rx, ry, rz);
 	}
 
 	@Override
+	/**
+	 * Returns the two points where this line leaves the bounding sphere.
+	 * 
+	 * @return the points of this line on the sphere
+	 */
 	public Point3d[] getPoints() {
-		return points;
+		Point3d p1 = getPointOnLine();
+		Point3d p2 = new Point3d(p1.x + getLineParameter(3), p1.y + getLineParameter(4), p1.z + getLineParameter(5));
+		try {
+			return Utils.getPointsOnSphere(p1, p2, 0);
+		} catch (NoPointOnSphereException e) {
+			Point3d[] points = {p1, p2};
+			return points;
+		}
 	}
 	
 	@Override
 	public double[] getLineParameters() {
+		double[] line = new double[GeometryStore.LINE_COLUMNS];
+		for(int i = 0; i < line.length; i++) {
+			line[i] = store.getLineValue(index, i);
+		}
 		return line;
 	}
 	
+	@Override
+	public double getLineParameter(int column) {
+		return store.getLineValue(index, column);
+	}
+	
 	@Override
 	public Shape3D getShape(AppearanceType type) {	
+		if(shape == null) {
+			LineArray line = new LineArray(2, LineArray.COORDINATES);
+			line.setCoordinates(0, getPoints());
+			shape = new Shape3D(line);
+			shape.setAppearanceOverrideEnable(true);
+			shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		}
 		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.LINE, type));
 		aType = type;
 		return shape;
@@ -155,24 +164,39 @@ public class Line3D extends Component3D implements Line {
 	
 	@Override
 	public void setAppearance(AppearanceType type) {
-		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.LINE, type));
+		if(shape != null) {
+			shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.LINE, type));
+		}
+		if(renderer != null) {
+			renderer.setAppearance(this, type);
+		}
 		aType = type;
 	}
 	
+	@Override
+	public void updateShape() {
+		if(shape != null && index >= 0) {
+			((LineArray) shape.getGeometry()).setCoordinates(0, getPoints());
+		}
+		if(renderer != null && index >= 0) {
+			renderer.update(this);
+		}
+	}
+	
 	@Override
 	public Vector3d getDirection() {
-		double x = line[3];
-		double y = line[4];
-		double z = line[5];
+		double x = getLineParameter(3);
+		double y = getLineParameter(4);
+		double z = getLineParameter(5);
 		
 		return new Vector3d(x, y, z);
 	}
 	
 	@Override
 	public Point3d getPointOnLine() {
-		double x = line[0];
-		double y = line[1];
-		double z = line[2];
+		double x = getLineParameter(0);
+		double y = getLineParameter(1);
+		double z = getLineParameter(2);
 		
 		return new Point3d(x, y, z);
 	}
@@ -189,7 +213,7 @@ public class Line3D extends Component3D implements Line {
 		Vector3d v1 = getDirection();
 		Vector3d v2 = line.getDirection();
 		
-		return round(v1.angle(v2));
+		return v1.angle(v2);
 	}
 
 	@Override
@@ -199,30 +223,30 @@ public class Line3D extends Component3D implements Line {
 
 	@Override
 	public double getDistance(Point point) {
-		
-		// point
-		Vector3d q = new Vector3d(point.getPoint());
-		
-		// line vectors
-		Vector3d p = new Vector3d(points[0]);
-		Vector3d u = getDirection();
-		
-		q.sub(p);
-		
-		// ! note the step above! p is subtracted from q, so q is not the original vector anymore!!
-		double lambda = q.dot(u) / u.dot(u);
-		
-		double x = p.x + lambda * u.x;
-		double y = p.y + lambda * u.y;
-		double z = p.z + lambda * u.z;
-		
-		Vector3d r = new Vector3d(x, y, z);
-		return round(r.length());
+		return Distances.pointLine(getLineParameter(0), getLineParameter(1), getLineParameter(2),
+				getLineParameter(3), getLineParameter(4), getLineParameter(5),
+				point.getX(), point.getY(), point.getZ());
+	}
+	
+	@Override
+	public IntersectionType intersect(Line line, double[] result) {
+		return IntersectionKernel.lineLine(
+				getLineParameter(0), getLineParameter(1), getLineParameter(2),
+				getLineParameter(3), getLineParameter(4), getLineParameter(5),
+				line.getLineParameter(0), line.getLineParameter(1), line.getLineParameter(2),
+				line.getLineParameter(3), line.getLineParameter(4), line.getLineParameter(5),
+				result, 0);
+	}
+	
+	@Override
+	public IntersectionType intersect(Plane plane, double[] result) {
+		return plane.intersect(this, result);
 	}
 	
 	@Override
 	/**
-	 * Computes the intersection of this and the given line.
+	 * Computes the intersection of this and the given line. The point has a store of its own, so it is
+	 * reclaimed once it is no longer used.
 	 * 
 	 * @param the line with which to compute the intersection
 	 * @throws NoIntersectionException in case the lines have no intersection
@@ -230,62 +254,14 @@ public class Line3D extends Component3D implements Line {
 	 */
 	public Point getIntersection(Line line) throws NoIntersectionException {
 		
-		if(Utils.isLinearDependent(getDirection(), line.getDirection())) {
-			if(getPointOnLine().equals(line.getPointOnLine())) {
-				throw new NoIntersectionException(StateNoIntersection.COLLINEAR);
-			} else {
-				throw new NoIntersectionException(StateNoIntersection.PARALLEL);
-			}
-		}
-		
-		Vector3d v1 = new Vector3d(getPointOnLine());
-		v1.sub(new Vector3d(line.getPointOnLine()));
-		
-		Vector3d v2 = new Vector3d();
-		v2.cross(getDirection(), line.getDirection());
-		
-		if(v1.dot(v2) != 0) {
-			throw new NoIntersectionException(StateNoIntersection.SKEW);
-		}
-		
-		// CALCULATE INTERSECTION
-		double[] l1 = getLineParameters();
-		double[] l2 = line.getLineParameters();
-		
-		double[][] system = new double[3][3];
-		
-		// first equation
-		system[0][0] = l1[3];
-		system[0][1] = -l2[3];
-		system[0][2] = l2[0] - l1[0];
-		
-		// second equation
-		system[1][0] = l1[4];
-		system[1][1] = -l2[4];
-		system[1][2] = l2[1] - l1[1];
-		
-		// third equation
-		system[2][0] = l1[5];
-		system[2][1] = -l2[5];
-		system[2][2] = l2[2] - l1[2];
+		double[] result = new double[3];
+		IntersectionType type = intersect(line, result);
 		
-		Matrix m = null;
-		
-		try {
-			m = new Matrix(system);
-		} catch (NoMatrixException e) {
-			e.printStackTrace();
+		if(!type.isIntersection()) {
+			throw new NoIntersectionException(type.getState());
 		}
 		
-		m = Utils.rref(m);
-		
-		double factor = m.getValue(0, 2);
-		
-		double x = l1[0] + factor * l1[3];
-		double y = l1[1] + factor * l1[4];
-		double z = l1[2] + factor * l1[5];
-		
-		return new Point3D(new Point3d(x, y, z));
+		return new Point3D(result[0], result[1], result[2], new GeometryStore(1));
 	}
 
 	@Override
@@ -295,18 +271,24 @@ public class Line3D extends Component3D implements Line {
 	
 	@Override
 	public boolean equals(Object o) {
-		Line3D line;
-		try {
-			line = (Line3D)o;
-		} catch (ClassCastException e) {
+		if(!(o instanceof Line3D)) {
 			return false;
 		}
-		return Arrays.equals(line.getLineParameters(), this.line);
+		return CanonicalIndex.isSameLine(this, (Line3D) o);
+	}
+	
+	/**
+	 * Two lines which are equal within the tolerance have the same hash code, except in the rare case
+	 * described in <code>CanonicalIndex.hashCode</code>. Use a <code>CanonicalIndex</code> to find all
+	 * equal lines.
+	 */
+	@Override
+	public int hashCode() {
+		return CanonicalIndex.hashCode(this);
 	}
 	
-	private double round(double value) {
-		BigDecimal bg = new BigDecimal(value);
-		bg = bg.setScale(3, BigDecimal.ROUND_HALF_UP);
-		return bg.doubleValue();
+	@Override
+	protected void removeFromStore() {
+		store.removeLine(index);
 	}
 }
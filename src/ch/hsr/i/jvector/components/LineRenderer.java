@@ -0,0 +1,350 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.media.j3d.BranchGroup;
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.GeometryUpdater;
+import javax.media.j3d.LineArray;
+import javax.media.j3d.Shape3D;
+import javax.vecmath.Point3d;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+
+/**
+ * Draws lines in batches instead of one shape per line. All lines of an appearance type share one
+ * <code>LineArray</code> whose coordinates are a float array referenced by the geometry, which grows
+ * by doubling. Lines are added, moved and removed by editing the array in a <code>GeometryUpdater</code>,
+ * a removed line is replaced by the last line of its batch.
+ * <p>
+ * Every drawn line knows its batch and its index in the batch, so a line is highlighted by moving it to
+ * the batch of the new appearance type, and a picked vertex is mapped back to its line.
+ */
+public class LineRenderer {
+
+	/**
+	 * the number of lines a batch has room for when it is created
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final BranchGroup branchGroup = new BranchGroup();
+	private final Batch[] batches = new Batch[AppearanceType.values().length];
+
+	public LineRenderer() {
+		for(AppearanceType type : AppearanceType.values()) {
+			batches[type.ordinal()] = new Batch(type);
+			branchGroup.addChild(batches[type.ordinal()].shape);
+		}
+	}
+
+	/**
+	 * Returns the branch group with the shapes of the batches, add it once to the scene.
+	 *
+	 * @return the branch group
+	 */
+	public BranchGroup getBranchGroup() {
+		return branchGroup;
+	}
+
+	/**
+	 * Returns the number of drawn lines.
+	 */
+	public int size() {
+		int size = 0;
+		for(int i = 0; i < batches.length; i++) {
+			size += batches[i].size;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of drawn lines with the appearance type.
+	 */
+	public int size(AppearanceType type) {
+		return batches[type.ordinal()].size;
+	}
+
+	/**
+	 * Returns true if the line is drawn by this renderer.
+	 */
+	public boolean contains(Line3D line) {
+		return line.renderer == this;
+	}
+
+	/**
+	 * Draws the line with the given appearance.
+	 *
+	 * @param line - the line, which must not be drawn by a renderer
+	 * @param type - the appearance of the line
+	 */
+	public void add(Line3D line, AppearanceType type) {
+		add(Collections.singletonList(line), type);
+	}
+
+	/**
+	 * Draws the lines with the given appearance, the batch is edited once.
+	 *
+	 * @param lines - the lines, none must be drawn by a renderer
+	 * @param type - the appearance of the lines
+	 */
+	public void add(Collection<? extends Line3D> lines, AppearanceType type) {
+		for(Line3D line : lines) {
+			if(line.renderer != null) {
+				throw new IllegalArgumentException("the line is drawn already");
+			}
+		}
+		batches[type.ordinal()].add(new ArrayList<Line3D>(lines));
+	}
+
+	/**
+	 * Stops drawing the line.
+	 *
+	 * @param the line drawn by this renderer
+	 */
+	public void remove(Line3D line) {
+		checkDrawn(line);
+		line.renderBatch.remove(line);
+	}
+
+	/**
+	 * Moves the line to the batch of the appearance type.
+	 *
+	 * @param line - the line drawn by this renderer
+	 * @param type - the new appearance of the line
+	 */
+	public void setAppearance(Line3D line, AppearanceType type) {
+		checkDrawn(line);
+		if(line.renderBatch.type != type) {
+			line.renderBatch.remove(line);
+			batches[type.ordinal()].add(Collections.singletonList(line));
+		}
+	}
+
+	/**
+	 * Writes the current points of the line into its batch.
+	 *
+	 * @param the line drawn by this renderer
+	 */
+	public void update(Line3D line) {
+		update(Collections.singletonList(line));
+	}
+
+	/**
+	 * Writes the current points of the lines into their batches, every batch is edited once.
+	 *
+	 * @param the lines drawn by this renderer
+	 */
+	public void update(Collection<? extends Line3D> lines) {
+		List<List<Line3D>> byBatch = new ArrayList<List<Line3D>>(batches.length);
+		for(int i = 0; i < batches.length; i++) {
+			byBatch.add(new ArrayList<Line3D>());
+		}
+		for(Line3D line : lines) {
+			checkDrawn(line);
+			byBatch.get(line.renderBatch.type.ordinal()).add(line);
+		}
+		for(int i = 0; i < batches.length; i++) {
+			if(!byBatch.get(i).isEmpty()) {
+				batches[i].update(byBatch.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Stops drawing all lines.
+	 */
+	public void removeAll() {
+		for(int i = 0; i < batches.length; i++) {
+			batches[i].clear();
+		}
+	}
+
+	/**
+	 * Returns the line at the index of the batch of the appearance type.
+	 *
+	 * @param type - the appearance type
+	 * @param index - the index in [0, size(type))
+	 * @return the line
+	 */
+	public Line3D getLine(AppearanceType type, int index) {
+		Batch batch = batches[type.ordinal()];
+		if(index < 0 || index >= batch.size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + batch.size);
+		}
+		return batch.lines[index];
+	}
+
+	/**
+	 * Returns the line of a picked vertex, for example from a <code>PickIntersection</code>.
+	 *
+	 * @param shape - the picked shape
+	 * @param vertex - the index of the picked vertex in the geometry of the shape
+	 * @return the line or null if the shape is not a batch of this renderer
+	 */
+	public Line3D getPickedLine(Shape3D shape, int vertex) {
+		for(int i = 0; i < batches.length; i++) {
+			if(batches[i].shape == shape && vertex >= 0 && vertex / 2 < batches[i].size) {
+				return batches[i].lines[vertex / 2];
+			}
+		}
+		return null;
+	}
+
+	private void checkDrawn(Line3D line) {
+		if(line.renderer != this) {
+			throw new IllegalArgumentException("the line is not drawn by this renderer");
+		}
+	}
+
+	/**
+	 * the lines of one appearance type and their shape
+	 */
+	class Batch {
+
+		final AppearanceType type;
+		final Shape3D shape;
+
+		LineArray array;
+		float[] coords;
+		Line3D[] lines;
+		int size;
+
+		Batch(AppearanceType type) {
+			this.type = type;
+			lines = new Line3D[INITIAL_CAPACITY];
+			coords = new float[6 * INITIAL_CAPACITY];
+			array = createArray();
+
+			shape = new Shape3D(array, ComponentAppearance.getAppearance(ComponentType.LINE, type));
+			shape.setCapability(Shape3D.ALLOW_GEOMETRY_READ);
+			shape.setCapability(Shape3D.ALLOW_GEOMETRY_WRITE);
+		}
+
+		/**
+		 * a geometry referencing the current coordinates
+		 */
+		private LineArray createArray() {
+			LineArray array = new LineArray(2 * lines.length, GeometryArray.COORDINATES | GeometryArray.BY_REFERENCE);
+			array.setCapability(GeometryArray.ALLOW_REF_DATA_READ);
+			array.setCapability(GeometryArray.ALLOW_REF_DATA_WRITE);
+			array.setCapability(GeometryArray.ALLOW_COUNT_WRITE);
+			array.setCapability(GeometryArray.ALLOW_INTERSECT);
+			array.setCoordRefFloat(coords);
+			array.setValidVertexCount(2 * size);
+			return array;
+		}
+
+		/**
+		 * makes room for the lines, a larger geometry replaces the current one
+		 */
+		private void ensureCapacity(int capacity) {
+			if(capacity <= lines.length) {
+				return;
+			}
+			int grown = Math.max(capacity, 2 * lines.length);
+			lines = Arrays.copyOf(lines, grown);
+			coords = Arrays.copyOf(coords, 6 * grown);
+			array = createArray();
+			shape.setGeometry(array);
+		}
+
+		void add(final List<Line3D> added) {
+			ensureCapacity(size + added.size());
+			array.updateData(new GeometryUpdater() {
+				@Override
+				public void updateData(Geometry geometry) {
+					for(int i = 0; i < added.size(); i++) {
+						Line3D line = added.get(i);
+						line.renderer = LineRenderer.this;
+						line.renderBatch = Batch.this;
+						line.renderIndex = size;
+						lines[size] = line;
+						write(size);
+						size++;
+					}
+				}
+			});
+			array.setValidVertexCount(2 * size);
+		}
+
+		void remove(final Line3D line) {
+			array.updateData(new GeometryUpdater() {
+				@Override
+				public void updateData(Geometry geometry) {
+					int index = line.renderIndex;
+					size--;
+					if(index != size) {
+						lines[index] = lines[size];
+						lines[index].renderIndex = index;
+						System.arraycopy(coords, 6 * size, coords, 6 * index, 6);
+					}
+					lines[size] = null;
+				}
+			});
+			array.setValidVertexCount(2 * size);
+			line.renderer = null;
+			line.renderBatch = null;
+			line.renderIndex = -1;
+		}
+
+		void update(final List<Line3D> updated) {
+			array.updateData(new GeometryUpdater() {
+				@Override
+				public void updateData(Geometry geometry) {
+					for(int i = 0; i < updated.size(); i++) {
+						write(updated.get(i).renderIndex);
+					}
+				}
+			});
+		}
+
+		void clear() {
+			for(int i = 0; i < size; i++) {
+				lines[i].renderer = null;
+				lines[i].renderBatch = null;
+				lines[i].renderIndex = -1;
+				lines[i] = null;
+			}
+			size = 0;
+			array.setValidVertexCount(0);
+		}
+
+		/**
+		 * writes the points of the line at the index where it leaves the bounding sphere
+		 */
+		private void write(int index) {
+			Point3d[] points = lines[index].getPoints();
+			int o = 6 * index;
+			coords[o] = (float) points[0].x;
+			coords[o + 1] = (float) points[0].y;
+			coords[o + 2] = (float) points[0].z;
+			coords[o + 3] = (float) points[1].x;
+			coords[o + 4] = (float) points[1].y;
+			coords[o + 5] = (float) points[1].z;
+		}
+	}
+}
@@ -18,9 +18,9 @@
 
 package ch.hsr.i.jvector.components;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.GeometryUpdater;
 import javax.media.j3d.QuadArray;
 import javax.media.j3d.Shape3D;
 import javax.vecmath.Point3d;
@@ -29,33 +29,30 @@ import javax.vecmath.Vector3d;
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.exceptions.NoIntersectionException;
 import ch.hsr.i.jvector.exceptions.NoLineException;
-import ch.hsr.i.jvector.exceptions.NoMatrixException;
 import ch.hsr.i.jvector.exceptions.NoPlaneException;
 import ch.hsr.i.jvector.exceptions.NoPointOnSphereException;
-import ch.hsr.i.jvector.exceptions.NoIntersectionException.StateNoIntersection;
 import ch.hsr.i.jvector.exceptions.NoPlaneException.StateNoPlane;
 import ch.hsr.i.jvector.interfaces.Line;
 import ch.hsr.i.jvector.interfaces.Plane;
 import ch.hsr.i.jvector.interfaces.Point;
-import ch.hsr.i.jvector.util.Matrix;
+import ch.hsr.i.jvector.logic.CanonicalIndex;
+import ch.hsr.i.jvector.logic.Distances;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
 import ch.hsr.i.jvector.util.Utils;
 
 public class Plane3D extends Component3D implements Plane {
 	
 	/**
-	 * Stores the parameters for this plane in the form: Ax + Bx + Cz + D = 0 > [A, B, C, D].
-	 */
-	private double[] plane = new double[4];
-	
-	/**
-	 * the points for this plane on the sphere
+	 * the shape object of this plane, created when it is first requested
 	 */
-	private Point3d[] points = new Point3d[4];
+	private Shape3D shape;
 	
 	/**
-	 * the shape object of this plane
+	 * the corners of the shape, referenced by its geometry
 	 */
-	private Shape3D shape;
+	private float[] coords;
 	
 	/**
 	 * Creates a plane from a point on the plane and two direction vectors. Notice vector1 and vector2 have to
@@ -68,7 +65,7 @@ public class Plane3D extends Component3D implements Plane {
 	 */
 	public Plane3D(Point3d point, Vector3d vector1, Vector3d vector2) throws NoPlaneException {
 		
-		super(ComponentType.PLANE);
+		super(ComponentType.PLANE, GeometryStore.getDefault());
 		
 		if( Utils.isLinearDependent(vector1, vector2) ) {
 			throw new NoPlaneException(StateNoPlane.NO_LINEAR_INDEP_DIR_VECTORS);
@@ -78,20 +75,7 @@ public class Plane3D extends Component3D implements Plane {
 		crossP.cross(vector1, vector2);
 		crossP.normalize();
 		
-		plane[0] = crossP.x;
-		plane[1] = crossP.y;
-		plane[2] = crossP.z;
-		plane[3] = -(point.x * crossP.x + point.y * crossP.y + point.z * crossP.z);
-		
-		Point3d randomPoint1 = new Point3d( 1, 1, -((plane[0] + plane[1] + plane[3]) / plane[2]));
-		Point3d randomPoint2 = new Point3d( 2, 2, -((2 * plane[0] + 2 * plane[1] + plane[3]) / plane[2]));
-		points = calculate4Points(randomPoint1, randomPoint2, 0.07);
-		
-		QuadArray plane = new QuadArray(4, QuadArray.COORDINATES);
-		plane.setCoordinates(0, points);
-		shape = new Shape3D(plane);
-		shape.setAppearanceOverrideEnable(true);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		index = store.addPlane(this, crossP.x, crossP.y, crossP.z, -(point.x * crossP.x + point.y * crossP.y + point.z * crossP.z));
 	}
 	
 	/**
@@ -103,27 +87,26 @@ public class Plane3D extends Component3D implements Plane {
 	 * @throws NoPlaneException in case the plane could not be created
 	 */
 	public Plane3D(Vector3d vector, double lambda) throws NoPlaneException {
+		this(vector.x, vector.y, vector.z, -lambda, GeometryStore.getDefault());
+	}
+	
+	/**
+	 * Creates a plane in the given store from its parameters > Ax + By + Cz + D = 0.
+	 * 
+	 * @param a, b, c - the normal vector of the plane
+	 * @param d - the constant which defines the position of the plane
+	 * @param store - the store which holds the parameters
+	 * @throws NoPlaneException in case the plane could not be created
+	 */
+	public Plane3D(double a, double b, double c, double d, GeometryStore store) throws NoPlaneException {
 		
-		super(ComponentType.PLANE);
+		super(ComponentType.PLANE, store);
 		
-		if(vector.length() == 0.0) {
+		if(a == 0.0 && b == 0.0 && c == 0.0) {
 			throw new NoPlaneException(StateNoPlane.NO_NORMAL_VECTOR);
 		}
 		
-		plane[0] = vector.x;
-		plane[1] = vector.y;
-		plane[2] = vector.z;
-		plane[3] = -lambda;
-		
-		Point3d randomPoint1 = new Point3d( 1, 1, -((plane[0] + plane[1] + plane[3]) / plane[2]));
-		Point3d randomPoint2 = new Point3d( 2, 2, -((2 * plane[0] + 2 * plane[1] + plane[3]) / plane[2]));
-		points = calculate4Points(randomPoint1, randomPoint2, 0.07);
-		
-		QuadArray plane = new QuadArray(4, QuadArray.COORDINATES);
-		plane.setCoordinates(0, points);
-		shape = new Shape3D(plane);
-		shape.setAppearanceOverrideEnable(true);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		index = store.addPlane(this, a, b, c, d);
 	}
 	
 	/**
@@ -136,7 +119,7 @@ public class Plane3D extends Component3D implements Plane {
 	 */
 	public Plane3D(Point3d p1, Point3d p2, Point3d p3) throws NoPlaneException {
 		
-		super(ComponentType.PLANE);
+		super(ComponentType.PLANE, GeometryStore.getDefault());
 		
 		if(p1.equals(p2) || p1.equals(p3) || p2.equals(p3) ) {
 			throw new NoPlaneException(StateNoPlane.SAME_POINT_TWICE);
@@ -153,48 +136,23 @@ public class Plane3D extends Component3D implements Plane {
 		crossP.cross(vector1, vector2);
 		crossP.normalize();
 		
-		plane[0] = crossP.x;
-		plane[1] = crossP.y;
-		plane[2] = crossP.z;
-		plane[3] = -(p1.x * crossP.x + p1.y * crossP.y + p1.z * crossP.z);
-		
-		points = calculate4Points(p1, p2, 0.07);
-		
-		QuadArray plane = new QuadArray(4, QuadArray.COORDINATES);
-		plane.setCoordinates(0, points);
-		shape = new Shape3D(plane);
-		shape.setAppearanceOverrideEnable(true);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
-		
-		//TODO: if method calculate4Points() is ok replace.
-		//calculate the points on the sphere
-//		try {
-//			Point3d[] points1 = Utils.getPointsOnSphere(p1, p2, 0.07);
-//			points[0] = points1[0];
-//			points[2] = points1[1];
-//		} catch (NoPointOnSphereException e) {
-//			// TODO: exception handling when points not on sphere
-//		}
-//		
-//		Vector3d crossP2 = new Vector3d();
-//		crossP2.cross(vector1, new Vector3d(p2));
-//		
-//		Point3d tmpPoint = new Point3d(p1.x + crossP2.x, p1.y + crossP2.y, p1.z + crossP2.z);
-//		
-//		try {
-//			Point3d[] points2 = Utils.getPointsOnSphere(p1, tmpPoint, 0.07);
-//			points[1] = points2[0];
-//			points[3] = points2[1];			
-//		} catch (NoPointOnSphereException e) {
-//			// TODO exception handling when points not on sphere
-//		}		
+		index = store.addPlane(this, crossP.x, crossP.y, crossP.z, -(p1.x * crossP.x + p1.y * crossP.y + p1.z * crossP.z));
 	}
 	
 	@Override
 	public double[] getPlaneParameters() {
+		double[] plane = new double[GeometryStore.PLANE_COLUMNS];
+		for(int i = 0; i < plane.length; i++) {
+			plane[i] = store.getPlaneValue(index, i);
+		}
 		return plane;
 	}
 	
+	@Override
+	public double getPlaneParameter(int column) {
+		return store.getPlaneValue(index, column);
+	}
+	
 	@Override
 	/**
 	 * Get plane with default appearance.
@@ -203,6 +161,19 @@ public class Plane3D extends Component3D implements Plane {
 	 */
 	public Shape3D getShape(AppearanceType type) {
 		
+		if(shape == null) {
+			coords = new float[12];
+			writeCoordinates();
+			QuadArray plane = new QuadArray(4, GeometryArray.COORDINATES | GeometryArray.BY_REFERENCE);
+			plane.setCapability(GeometryArray.ALLOW_REF_DATA_READ);
+			plane.setCapability(GeometryArray.ALLOW_REF_DATA_WRITE);
+			plane.setCoordRefFloat(coords);
+			shape = new Shape3D(plane);
+			shape.setCapability(Shape3D.ALLOW_GEOMETRY_READ);
+			shape.setAppearanceOverrideEnable(true);
+			shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		}
+		
 		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.PLANE, type));
 		aType = type;
 		
@@ -211,13 +182,42 @@ public class Plane3D extends Component3D implements Plane {
 	
 	@Override
 	public void setAppearance(AppearanceType type) {
-		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.PLANE, type));
+		if(shape != null) {
+			shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.PLANE, type));
+		}
 		aType = type;
 	}
 	
+	/**
+	 * Writes the current corners into the geometry of the shape, which may be live.
+	 */
+	@Override
+	public void updateShape() {
+		if(shape != null && index >= 0) {
+			((GeometryArray) shape.getGeometry()).updateData(new GeometryUpdater() {
+				@Override
+				public void updateData(Geometry geometry) {
+					writeCoordinates();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * writes the corners of the plane into the coordinates
+	 */
+	private void writeCoordinates() {
+		Point3d[] points = calculate4Points(0.07);
+		for(int i = 0; i < points.length; i++) {
+			coords[3 * i] = (float) points[i].x;
+			coords[3 * i + 1] = (float) points[i].y;
+			coords[3 * i + 2] = (float) points[i].z;
+		}
+	}
+	
 	@Override
 	public Vector3d getNormalVector() {
-		Vector3d normalVector = new Vector3d(plane[0], plane[1], plane[2]);
+		Vector3d normalVector = new Vector3d(getPlaneParameter(0), getPlaneParameter(1), getPlaneParameter(2));
 		return normalVector;
 	}
 
@@ -232,7 +232,7 @@ public class Plane3D extends Component3D implements Plane {
 		
 		double phi = nE1.angle(nE2);
 		
-		return round(phi);
+		return phi;
 	}
 
 	@Override
@@ -243,80 +243,67 @@ public class Plane3D extends Component3D implements Plane {
 		
 		double phi = (Math.PI / 2) - nE1.angle(lineDir);
 		
-		return round(phi);
+		return phi;
 	}
 
 	@Override
 	public double getDistance(Point point) {
-		
-		Point3d p = point.getPoint();
-		
-		double d = Math.abs( (plane[0] * p.x + plane[1] * p.y + plane[2] * p.z + plane[3]) / Math.sqrt(Math.pow(plane[0], 2) + Math.pow(plane[1],2) + Math.pow(plane[2],2)) ); 
-		
-		return round(d);
+		return Distances.pointPlane(getPlaneParameter(0), getPlaneParameter(1), getPlaneParameter(2), getPlaneParameter(3),
+				point.getX(), point.getY(), point.getZ());
+	}
+
+	@Override
+	public IntersectionType intersect(Line line, double[] result) {
+		return IntersectionKernel.linePlane(
+				line.getLineParameter(0), line.getLineParameter(1), line.getLineParameter(2),
+				line.getLineParameter(3), line.getLineParameter(4), line.getLineParameter(5),
+				getPlaneParameter(0), getPlaneParameter(1), getPlaneParameter(2), getPlaneParameter(3),
+				result, 0);
+	}
+	
+	@Override
+	public IntersectionType intersect(Plane plane, double[] result) {
+		return IntersectionKernel.planePlane(
+				getPlaneParameter(0), getPlaneParameter(1), getPlaneParameter(2), getPlaneParameter(3),
+				plane.getPlaneParameter(0), plane.getPlaneParameter(1), plane.getPlaneParameter(2), plane.getPlaneParameter(3),
+				result, 0);
 	}
 
+	/**
+	 * Computes the intersection point of the line and this plane. The point has a store of its own, so
+	 * it is reclaimed once it is no longer used.
+	 */
 	@Override
 	public Point getIntersection(Line line) throws NoIntersectionException {
 		
-		double[] lineParams = line.getLineParameters();
-		double t = 0.0;
-		
-		double numerator = (- plane[3] - (new Vector3d(lineParams[0], lineParams[1], lineParams[2])).dot(getNormalVector()) );
-		double denominator = line.getDirection().dot(getNormalVector());
+		double[] result = new double[3];
+		IntersectionType type = intersect(line, result);
 		
-		if(denominator == 0.0 && numerator == 0.0) {
-			throw new NoIntersectionException(StateNoIntersection.LINE_IN_PLANE);
+		if(!type.isIntersection()) {
+			throw new NoIntersectionException(type.getState());
 		}
-		else if(denominator == 0.0) {
-			throw new NoIntersectionException(StateNoIntersection.PARALLEL);
-		} else {
-			t = numerator / denominator;
-		}
-		
-		double x = lineParams[0] + t * lineParams[3];
-		double y = lineParams[1] + t * lineParams[4];
-		double z = lineParams[2] + t * lineParams[5];
 		
-		return new Point3D(new Point3d(x, y, z));
+		return new Point3D(result[0], result[1], result[2], new GeometryStore(1));
 	}
 
+	/**
+	 * Computes the intersection line of the plane and this plane. The line has a store of its own, so
+	 * it is reclaimed once it is no longer used.
+	 */
 	@Override
 	public Line getIntersection(Plane plane) throws NoIntersectionException {
-
-		if(Utils.isLinearDependent(getNormalVector(), plane.getNormalVector())) {
-			if(this.plane[3] == plane.getPlaneParameters()[3]) {
-				throw new NoIntersectionException(StateNoIntersection.CONGRUENT);
-			} else {
-				throw new NoIntersectionException(StateNoIntersection.PARALLEL);
-			}
-		}
-		
-		// direction of the intersection line
-		Vector3d direction = new Vector3d();
-		direction.cross(getNormalVector(), plane.getNormalVector());
-		
-		// point on the intersection line
-		double[][] system = new double[2][4];
-		system[0] = this.plane;
-		system[1] = plane.getPlaneParameters();
 		
-		Matrix m = null;
+		double[] result = new double[6];
+		IntersectionType type = intersect(plane, result);
 		
-		try {
-			m = new Matrix(system);
-		} catch (NoMatrixException e) {
-			e.printStackTrace();
+		if(!type.isIntersection()) {
+			throw new NoIntersectionException(type.getState());
 		}
 		
-		m = Utils.rref(m);
-		
-		Vector3d point = new Vector3d(new Point3d(m.getValue(0, 3), m.getValue(1, 3), 0));
-		
 		Line3D intersection = null;
 		
 		try {
-			intersection = new Line3D(point, direction);
+			intersection = new Line3D(result[0], result[1], result[2], result[3], result[4], result[5], new GeometryStore(1));
 		} catch (NoLineException e) {
 			e.printStackTrace();
 		}
@@ -326,13 +313,55 @@ public class Plane3D extends Component3D implements Plane {
 	
 	@Override
 	public boolean equals(Object o) {
-		Plane3D plane;
-		try {
-			plane = (Plane3D)o;
-		} catch (ClassCastException e) {
+		if(!(o instanceof Plane3D)) {
 			return false;
 		}
-		return Arrays.equals(plane.getPlaneParameters(), this.plane);
+		return CanonicalIndex.isSamePlane(this, (Plane3D) o);
+	}
+	
+	/**
+	 * Two planes which are equal within the tolerance have the same hash code, except in the rare case
+	 * described in <code>CanonicalIndex.hashCode</code>. Use a <code>CanonicalIndex</code> to find all
+	 * equal planes.
+	 */
+	@Override
+	public int hashCode() {
+		return CanonicalIndex.hashCode(this);
+	}
+	
+	@Override
+	protected void removeFromStore() {
+		store.removePlane(index);
+	}
+	
+	/**
+	 * Calculates the corners of the quad which shows this plane. Two points on the plane are taken by
+	 * solving the plane equation for the coordinate with the largest normal component.
+	 * 
+	 * @param the scale of the quad relative to the bounding sphere
+	 * @return the four corners of the quad
+	 */
+	private Point3d[] calculate4Points(double scale) {
+		
+		double a = getPlaneParameter(0);
+		double b = getPlaneParameter(1);
+		double c = getPlaneParameter(2);
+		double d = getPlaneParameter(3);
+		
+		Point3d p1, p2;
+		
+		if(Math.abs(c) >= Math.abs(a) && Math.abs(c) >= Math.abs(b)) {
+			p1 = new Point3d( 1, 1, -((a + b + d) / c));
+			p2 = new Point3d( 2, 2, -((2 * a + 2 * b + d) / c));
+		} else if(Math.abs(b) >= Math.abs(a)) {
+			p1 = new Point3d( 1, -((a + c + d) / b), 1);
+			p2 = new Point3d( 2, -((2 * a + 2 * c + d) / b), 2);
+		} else {
+			p1 = new Point3d( -((b + c + d) / a), 1, 1);
+			p2 = new Point3d( -((2 * b + 2 * c + d) / a), 2, 2);
+		}
+		
+		return calculate4Points(p1, p2, scale);
 	}
 	
 	private Point3d[] calculate4Points(Point3d p1, Point3d p2, double scale) {
@@ -364,10 +393,4 @@ public class Plane3D extends Component3D implements Plane {
 		
 		return points;		
 	}
-	
-	private double round(double value) {
-		BigDecimal bg = new BigDecimal(value);
-		bg = bg.setScale(3, BigDecimal.ROUND_HALF_UP);
-		return bg.doubleValue();
-	}
 }
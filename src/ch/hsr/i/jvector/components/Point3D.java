@@ -18,38 +18,68 @@
 
 package ch.hsr.i.jvector.components;
 
-import java.math.BigDecimal;
-
 import javax.media.j3d.PointArray;
 import javax.media.j3d.Shape3D;
 import javax.vecmath.Point3d;
-import javax.vecmath.Vector3d;
 
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.interfaces.Line;
 import ch.hsr.i.jvector.interfaces.Plane;
 import ch.hsr.i.jvector.interfaces.Point;
+import ch.hsr.i.jvector.logic.CanonicalIndex;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.util.Tolerance;
 
 public class Point3D extends Component3D implements Point {
 	
-	private Point3d point = new Point3d();
+	/**
+	 * the shape object of this point, created when it is first requested
+	 */
 	private Shape3D shape;
 	
+	/**
+	 * the renderer which draws this point and the index of this point in its geometry
+	 */
+	PointRenderer renderer;
+	int renderIndex = -1;
+	
 	public Point3D(Point3d point) { 
+		this(point.x, point.y, point.z, GeometryStore.getDefault());
+	}
+	
+	/**
+	 * Creates a point with the given coordinates in the given store.
+	 * 
+	 * @param x - the x coordinate
+	 * @param y - the y coordinate
+	 * @param z - the z coordinate
+	 * @param store - the store which holds the coordinates
+	 */
+	public Point3D(double x, double y, double z, GeometryStore store) { 
 		
-		super(ComponentType.POINT);
-		
-		this.point = point;
+		super(ComponentType.POINT, store);
 		
-		PointArray pa = new PointArray(1, PointArray.COORDINATES);
-		pa.setCoordinate(0, this.point);
-		shape = new Shape3D(pa);
-		shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		index = store.addPoint(this, x, y, z);
 	}
 
 	@Override
 	public Point3d getPoint() {
-		return point;
+		return new Point3d(getX(), getY(), getZ());
+	}
+	
+	@Override
+	public double getX() {
+		return store.getPointValue(index, GeometryStore.X);
+	}
+	
+	@Override
+	public double getY() {
+		return store.getPointValue(index, GeometryStore.Y);
+	}
+	
+	@Override
+	public double getZ() {
+		return store.getPointValue(index, GeometryStore.Z);
 	}
 	
 	@Override
@@ -60,6 +90,13 @@ public class Point3D extends Component3D implements Point {
 	 */
 	public Shape3D getShape(AppearanceType type) {
 		
+		if(shape == null) {
+			PointArray pa = new PointArray(1, PointArray.COORDINATES);
+			pa.setCoordinate(0, getPoint());
+			shape = new Shape3D(pa);
+			shape.setCapability(Shape3D.ALLOW_APPEARANCE_WRITE);
+		}
+		
 		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.POINT, type));
 		aType = type;
 		
@@ -68,14 +105,29 @@ public class Point3D extends Component3D implements Point {
 	
 	@Override
 	public void setAppearance(AppearanceType type) {
-		shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.POINT, type));
+		if(shape != null) {
+			shape.setAppearance(ComponentAppearance.getAppearance(ComponentType.POINT, type));
+		}
+		if(renderer != null) {
+			renderer.setAppearance(this, type);
+		}
 		aType = type;
 	}
 	
+	@Override
+	public void updateShape() {
+		if(shape != null && index >= 0) {
+			((PointArray) shape.getGeometry()).setCoordinate(0, getPoint());
+		}
+		if(renderer != null && index >= 0) {
+			renderer.update(this);
+		}
+	}
+	
 	@Override
 	/**
 	 * Returns true if the Object o is of type Point3D and all of its point data members (x, y, z) are
-	 * equal to the corresponding data members in this Point3D.
+	 * equal to the corresponding data members in this Point3D within the default <code>Tolerance</code>.
 	 * 
 	 * @override equals in class <code>java.lang.Object</code>
 	 * @param <code>o</code> - the Object with which the comparison is made 
@@ -88,14 +140,25 @@ public class Point3D extends Component3D implements Point {
 		} catch (ClassCastException e) {
 			return false;
 		}
-		return point.equals(p.getPoint());
+		Tolerance tolerance = Tolerance.getDefault();
+		return tolerance.isEqual(getX(), p.getX()) && tolerance.isEqual(getY(), p.getY()) && tolerance.isEqual(getZ(), p.getZ());
+	}
+
+	/**
+	 * Two points which are equal within the tolerance have the same hash code, except in the rare case
+	 * described in <code>CanonicalIndex.hashCode</code>.
+	 */
+	@Override
+	public int hashCode() {
+		return CanonicalIndex.hashCode(this);
 	}
 
 	@Override
 	public double getDistance(Point point) {
-		Point3d p2 = point.getPoint();
-		Vector3d d = new Vector3d(p2.x - this.point.x, p2.y - this.point.y, p2.z - this.point.z);
-		return round(d.length());
+		double dx = point.getX() - getX();
+		double dy = point.getY() - getY();
+		double dz = point.getZ() - getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
 	}
 
 	@Override
@@ -108,9 +171,8 @@ public class Point3D extends Component3D implements Point {
 		return plane.getDistance(this);
 	}
 	
-	private double round(double value) {
-		BigDecimal bg = new BigDecimal(value);
-		bg = bg.setScale(3, BigDecimal.ROUND_HALF_UP);
-		return bg.doubleValue();
+	@Override
+	protected void removeFromStore() {
+		store.removePoint(index);
 	}
 }
@@ -0,0 +1,321 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.media.j3d.Appearance;
+import javax.media.j3d.BranchGroup;
+import javax.media.j3d.ColoringAttributes;
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.GeometryUpdater;
+import javax.media.j3d.PointArray;
+import javax.media.j3d.PointAttributes;
+import javax.media.j3d.Shape3D;
+import javax.media.j3d.TransparencyAttributes;
+import javax.vecmath.Color4f;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+
+/**
+ * Draws all points as one <code>PointArray</code> with a colour per vertex. The coordinates and the
+ * colours are float arrays referenced by the geometry, which grow by doubling. The appearance of a point
+ * is its colour, so highlighting a point writes four floats and leaves the appearance of the shape and
+ * the render bins of Java3D alone. A removed point is replaced by the last point.
+ * <p>
+ * All points share one point size, the appearance types differ in colour and opacity only.
+ */
+public class PointRenderer {
+
+	/**
+	 * the number of points the arrays have room for when they are created
+	 */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * the size of all points in pixels
+	 */
+	private static final float POINT_SIZE = 12.0f;
+
+	private final BranchGroup branchGroup = new BranchGroup();
+	private final Shape3D shape;
+
+	/**
+	 * the colour of every appearance type as red, green, blue and alpha
+	 */
+	private final float[][] colors = new float[AppearanceType.values().length][4];
+
+	private PointArray array;
+	private float[] coords;
+	private float[] vertexColors;
+	private Point3D[] points;
+	private int size;
+
+	public PointRenderer() {
+		for(AppearanceType type : AppearanceType.values()) {
+			Color4f color = ComponentAppearance.getColor(ComponentType.POINT, type);
+			color.get(colors[type.ordinal()]);
+		}
+
+		points = new Point3D[INITIAL_CAPACITY];
+		coords = new float[3 * INITIAL_CAPACITY];
+		vertexColors = new float[4 * INITIAL_CAPACITY];
+		array = createArray();
+
+		Appearance appearance = new Appearance();
+		appearance.setPointAttributes(new PointAttributes(POINT_SIZE, true));
+		appearance.setColoringAttributes(new ColoringAttributes(0, 0, 0, ColoringAttributes.NICEST));
+		// the alpha of the vertices is blended
+		appearance.setTransparencyAttributes(new TransparencyAttributes(TransparencyAttributes.NICEST, 0f));
+
+		shape = new Shape3D(array, appearance);
+		shape.setCapability(Shape3D.ALLOW_GEOMETRY_READ);
+		shape.setCapability(Shape3D.ALLOW_GEOMETRY_WRITE);
+		branchGroup.addChild(shape);
+	}
+
+	/**
+	 * Returns the branch group with the shape of the points, add it once to the scene.
+	 *
+	 * @return the branch group
+	 */
+	public BranchGroup getBranchGroup() {
+		return branchGroup;
+	}
+
+	/**
+	 * Returns the number of drawn points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if the point is drawn by this renderer.
+	 */
+	public boolean contains(Point3D point) {
+		return point.renderer == this;
+	}
+
+	/**
+	 * Draws the point with the given appearance.
+	 *
+	 * @param point - the point, which must not be drawn by a renderer
+	 * @param type - the appearance of the point
+	 */
+	public void add(Point3D point, AppearanceType type) {
+		add(Collections.singletonList(point), type);
+	}
+
+	/**
+	 * Draws the points with the given appearance, the arrays are edited once.
+	 *
+	 * @param points - the points, none must be drawn by a renderer
+	 * @param type - the appearance of the points
+	 */
+	public void add(Collection<? extends Point3D> points, final AppearanceType type) {
+		for(Point3D point : points) {
+			if(point.renderer != null) {
+				throw new IllegalArgumentException("the point is drawn already");
+			}
+		}
+
+		final List<Point3D> added = new ArrayList<Point3D>(points);
+		ensureCapacity(size + added.size());
+		array.updateData(new GeometryUpdater() {
+			@Override
+			public void updateData(Geometry geometry) {
+				for(int i = 0; i < added.size(); i++) {
+					Point3D point = added.get(i);
+					point.renderer = PointRenderer.this;
+					point.renderIndex = size;
+					PointRenderer.this.points[size] = point;
+					writeCoordinates(size);
+					writeColor(size, type);
+					size++;
+				}
+			}
+		});
+		array.setValidVertexCount(size);
+	}
+
+	/**
+	 * Stops drawing the point.
+	 *
+	 * @param the point drawn by this renderer
+	 */
+	public void remove(final Point3D point) {
+		checkDrawn(point);
+		array.updateData(new GeometryUpdater() {
+			@Override
+			public void updateData(Geometry geometry) {
+				int index = point.renderIndex;
+				size--;
+				if(index != size) {
+					points[index] = points[size];
+					points[index].renderIndex = index;
+					System.arraycopy(coords, 3 * size, coords, 3 * index, 3);
+					System.arraycopy(vertexColors, 4 * size, vertexColors, 4 * index, 4);
+				}
+				points[size] = null;
+			}
+		});
+		array.setValidVertexCount(size);
+		point.renderer = null;
+		point.renderIndex = -1;
+	}
+
+	/**
+	 * Colours the point according to the appearance type.
+	 *
+	 * @param point - the point drawn by this renderer
+	 * @param type - the new appearance of the point
+	 */
+	public void setAppearance(final Point3D point, final AppearanceType type) {
+		checkDrawn(point);
+		array.updateData(new GeometryUpdater() {
+			@Override
+			public void updateData(Geometry geometry) {
+				writeColor(point.renderIndex, type);
+			}
+		});
+	}
+
+	/**
+	 * Writes the current coordinates of the point.
+	 *
+	 * @param the point drawn by this renderer
+	 */
+	public void update(Point3D point) {
+		update(Collections.singletonList(point));
+	}
+
+	/**
+	 * Writes the current coordinates of the points, the arrays are edited once.
+	 *
+	 * @param the points drawn by this renderer
+	 */
+	public void update(Collection<? extends Point3D> points) {
+		for(Point3D point : points) {
+			checkDrawn(point);
+		}
+		final List<Point3D> updated = new ArrayList<Point3D>(points);
+		array.updateData(new GeometryUpdater() {
+			@Override
+			public void updateData(Geometry geometry) {
+				for(int i = 0; i < updated.size(); i++) {
+					writeCoordinates(updated.get(i).renderIndex);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops drawing all points.
+	 */
+	public void removeAll() {
+		for(int i = 0; i < size; i++) {
+			points[i].renderer = null;
+			points[i].renderIndex = -1;
+			points[i] = null;
+		}
+		size = 0;
+		array.setValidVertexCount(0);
+	}
+
+	/**
+	 * Returns the point at the index of the geometry.
+	 *
+	 * @param the index in [0, size())
+	 * @return the point
+	 */
+	public Point3D getPoint(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		return points[index];
+	}
+
+	/**
+	 * Returns the point of a picked vertex, for example from a <code>PickIntersection</code>.
+	 *
+	 * @param shape - the picked shape
+	 * @param vertex - the index of the picked vertex in the geometry of the shape
+	 * @return the point or null if the shape is not the shape of this renderer
+	 */
+	public Point3D getPickedPoint(Shape3D shape, int vertex) {
+		if(shape == this.shape && vertex >= 0 && vertex < size) {
+			return points[vertex];
+		}
+		return null;
+	}
+
+	private void checkDrawn(Point3D point) {
+		if(point.renderer != this) {
+			throw new IllegalArgumentException("the point is not drawn by this renderer");
+		}
+	}
+
+	/**
+	 * a geometry referencing the current arrays
+	 */
+	private PointArray createArray() {
+		PointArray array = new PointArray(points.length, GeometryArray.COORDINATES | GeometryArray.COLOR_4 | GeometryArray.BY_REFERENCE);
+		array.setCapability(GeometryArray.ALLOW_REF_DATA_READ);
+		array.setCapability(GeometryArray.ALLOW_REF_DATA_WRITE);
+		array.setCapability(GeometryArray.ALLOW_COUNT_WRITE);
+		array.setCapability(GeometryArray.ALLOW_INTERSECT);
+		array.setCoordRefFloat(coords);
+		array.setColorRefFloat(vertexColors);
+		array.setValidVertexCount(size);
+		return array;
+	}
+
+	/**
+	 * makes room for the points, a larger geometry replaces the current one
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity <= points.length) {
+			return;
+		}
+		int grown = Math.max(capacity, 2 * points.length);
+		points = Arrays.copyOf(points, grown);
+		coords = Arrays.copyOf(coords, 3 * grown);
+		vertexColors = Arrays.copyOf(vertexColors, 4 * grown);
+		array = createArray();
+		shape.setGeometry(array);
+	}
+
+	private void writeCoordinates(int index) {
+		Point3D point = points[index];
+		coords[3 * index] = (float) point.getX();
+		coords[3 * index + 1] = (float) point.getY();
+		coords[3 * index + 2] = (float) point.getZ();
+	}
+
+	private void writeColor(int index, AppearanceType type) {
+		System.arraycopy(colors[type.ordinal()], 0, vertexColors, 4 * index, 4);
+	}
+}
@@ -8,7 +8,7 @@ public class NoMatrixException extends Exception {
 	 * defines the reasons why no intersection is found
 	 */
 	public enum StateNoMatrix {
-		NUM_ROW_ELEMENTS_DIFF
+		NUM_ROW_ELEMENTS_DIFF, NOT_SQUARE, SINGULAR, DIMENSION_MISMATCH
 	}
 
 	public NoMatrixException(StateNoMatrix state) {
@@ -23,6 +23,12 @@ public class NoMatrixException extends Exception {
 		switch (state) {
 		case NUM_ROW_ELEMENTS_DIFF:
 			return "The number of row elements is not always the same.";
+		case NOT_SQUARE:
+			return "The matrix is not square.";
+		case SINGULAR:
+			return "The matrix is singular.";
+		case DIMENSION_MISMATCH:
+			return "The dimensions of the matrices do not match.";
 		default:
 			return "Error.";
 		}
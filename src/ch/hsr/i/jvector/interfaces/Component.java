@@ -9,6 +9,14 @@ public interface Component {
 	
 	public ComponentType getType();
 	
+	/**
+	 * Returns the identity of this component. It is unique among all components created in this
+	 * program run and never changes, not even if the parameters of the component change.
+	 * 
+	 * @return the id
+	 */
+	public long getId();
+	
 	/**
 	 * Returns the Shape3D object of this component
 	 * 
@@ -29,5 +37,17 @@ public interface Component {
 	 * @param the type of appearance you wish to set
 	 */
 	public void setAppearance(AppearanceType type);
+	
+	/**
+	 * Moves the geometry of the shape to the current parameters of this component. The shape must
+	 * not be live, for example because its branch group is detached. Released components are skipped.
+	 */
+	public void updateShape();
+
+	/**
+	 * Releases the parameters of this component from its geometry store. The component must not
+	 * be used for calculations afterwards.
+	 */
+	public void release();
 
 }
@@ -24,6 +24,7 @@ import javax.vecmath.Vector3d;
 
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.exceptions.NoIntersectionException;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
 
 public interface Line extends Component {
 	
@@ -38,9 +39,17 @@ public interface Line extends Component {
 	 * Returns the parameters for this line. The returned array contains of 6 elements, whereas the
 	 * first three are a point on the line and second three show the direction of the line.
 	 * 
-	 * @return the parameters for this line 
+	 * @return a new array with the parameters for this line 
 	 */
 	public double[] getLineParameters();
+	
+	/**
+	 * Returns one parameter of this line without creating an array.
+	 * 
+	 * @param the index of the parameter in [x, y, z, rx, ry, rz]
+	 * @return the parameter value
+	 */
+	public double getLineParameter(int index);
 		
 	/**
 	 * Returns the Shape3D object of this line. Note that this shape object is implicit
@@ -82,6 +91,26 @@ public interface Line extends Component {
 	 */
 	public Point getIntersection(Plane plane) throws NoIntersectionException;
 	
+	/**
+	 * Computes the intersection of this and the given line without throwing an exception. In case
+	 * of <code>IntersectionType.POINT</code> the coordinates are written to result[0] .. result[2].
+	 * 
+	 * @param the line with which to compute the intersection
+	 * @param the buffer for the intersection point, at least of length 3
+	 * @return the kind of the result
+	 */
+	public IntersectionType intersect(Line line, double[] result);
+	
+	/**
+	 * Computes the intersection of this line and the given plane without throwing an exception. In case
+	 * of <code>IntersectionType.POINT</code> the coordinates are written to result[0] .. result[2].
+	 * 
+	 * @param the plane with which to compute the intersection
+	 * @param the buffer for the intersection point, at least of length 3
+	 * @return the kind of the result
+	 */
+	public IntersectionType intersect(Plane plane, double[] result);
+	
 	/**
 	 * Returns the angle in radians between this line and the line parameter; the return value
 	 * is constrained to the range [0,PI].
@@ -23,6 +23,7 @@ import javax.vecmath.Vector3d;
 
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.exceptions.NoIntersectionException;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
 
 public interface Plane extends Component {
 	
@@ -30,10 +31,18 @@ public interface Plane extends Component {
 	 * Returns the parameters for this plane. The returned array contains of 4 elements, whereas these
 	 * elements are equal to  the parameters of Ax + By + Cz + D = 0 > [A, B, C, D].
 	 * 
-	 * @return the parameters for this plane 
+	 * @return a new array with the parameters for this plane 
 	 */
 	public double[] getPlaneParameters();
 	
+	/**
+	 * Returns one parameter of this plane without creating an array.
+	 * 
+	 * @param the index of the parameter in [A, B, C, D]
+	 * @return the parameter value
+	 */
+	public double getPlaneParameter(int index);
+	
 	/**
 	 * Returns the Shape3D object of this plane. Note that this shape object is implicit
 	 * coupled with its appearance.
@@ -67,6 +76,27 @@ public interface Plane extends Component {
 	 */
 	public Line getIntersection(Plane plane) throws NoIntersectionException;
 	
+	/**
+	 * Computes the intersection of this plane and the given line without throwing an exception. In case
+	 * of <code>IntersectionType.POINT</code> the coordinates are written to result[0] .. result[2].
+	 * 
+	 * @param the line with which to compute the intersection
+	 * @param the buffer for the intersection point, at least of length 3
+	 * @return the kind of the result
+	 */
+	public IntersectionType intersect(Line line, double[] result);
+	
+	/**
+	 * Computes the line of intersection of this and the given plane without throwing an exception. In
+	 * case of <code>IntersectionType.LINE</code> the line parameters [x, y, z, rx, ry, rz] are written
+	 * to result[0] .. result[5].
+	 * 
+	 * @param the plane with which to compute the line of intersection
+	 * @param the buffer for the line parameters, at least of length 6
+	 * @return the kind of the result
+	 */
+	public IntersectionType intersect(Plane plane, double[] result);
+	
 	/**
 	 * Returns the angle in radians between this plane and the plane parameter; the return value
 	 * is constrained to the range [0,PI].
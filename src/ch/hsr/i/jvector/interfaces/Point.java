@@ -43,12 +43,33 @@ public interface Point extends Component {
 	public Shape3D getShape(AppearanceType type);
 	
 	/**
-	 * Returns the <code>Point3d</code> object of this point.
+	 * Returns a new <code>Point3d</code> object with the coordinates of this point.
 	 * 
 	 * @return the <code>Point3d</code> object of this point
 	 */
 	public Point3d getPoint();
 	
+	/**
+	 * Returns the x coordinate of this point.
+	 * 
+	 * @return the x coordinate
+	 */
+	public double getX();
+	
+	/**
+	 * Returns the y coordinate of this point.
+	 * 
+	 * @return the y coordinate
+	 */
+	public double getY();
+	
+	/**
+	 * Returns the z coordinate of this point.
+	 * 
+	 * @return the z coordinate
+	 */
+	public double getZ();
+	
 	/**
 	 * Returns the distance between this point and the point parameter. 
 	 * 
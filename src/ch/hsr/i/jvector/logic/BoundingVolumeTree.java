@@ -0,0 +1,298 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import ch.hsr.i.jvector.interfaces.Component;
+
+/**
+ * Dynamic bounding volume hierarchy of axis aligned boxes. A new leaf is inserted next to the node
+ * where it increases the surface of the tree least, and the tree is kept balanced with rotations
+ * like an AVL tree, so adding and removing a leaf costs O(log n). A component may have several leaves,
+ * for example the pieces of a long segment.
+ */
+class BoundingVolumeTree {
+
+	static class Node {
+		double minX, minY, minZ, maxX, maxY, maxZ;
+		Node parent, left, right;
+		int height;
+
+		/**
+		 * the component and its shape, only set for leaves
+		 */
+		Component comp;
+		double[] shape;
+
+		boolean isLeaf() {
+			return left == null;
+		}
+
+		/**
+		 * squared distance of the point to the box of this node
+		 */
+		double getDistanceSquared(double x, double y, double z) {
+			double dx = Math.max(0, Math.max(minX - x, x - maxX));
+			double dy = Math.max(0, Math.max(minY - y, y - maxY));
+			double dz = Math.max(0, Math.max(minZ - z, z - maxZ));
+			return dx * dx + dy * dy + dz * dz;
+		}
+
+		boolean overlaps(double[] box) {
+			return minX <= box[3] && maxX >= box[0] && minY <= box[4] && maxY >= box[1] && minZ <= box[5] && maxZ >= box[2];
+		}
+	}
+
+	private Node root;
+	private final IdentityHashMap<Component, ArrayList<Node>> leaves = new IdentityHashMap<Component, ArrayList<Node>>();
+
+	Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * the number of components, not leaves
+	 */
+	int size() {
+		return leaves.size();
+	}
+
+	boolean contains(Component comp) {
+		return leaves.containsKey(comp);
+	}
+
+	void clear() {
+		root = null;
+		leaves.clear();
+	}
+
+	/**
+	 * Adds a leaf for a component with its bounding box [minX, minY, minZ, maxX, maxY, maxZ] and its shape.
+	 */
+	void add(Component comp, double[] box, double[] shape) {
+
+		ArrayList<Node> nodes = leaves.get(comp);
+		if(nodes == null) {
+			nodes = new ArrayList<Node>(1);
+			leaves.put(comp, nodes);
+		}
+
+		Node leaf = new Node();
+		leaf.comp = comp;
+		leaf.shape = shape;
+		leaf.minX = box[0];
+		leaf.minY = box[1];
+		leaf.minZ = box[2];
+		leaf.maxX = box[3];
+		leaf.maxY = box[4];
+		leaf.maxZ = box[5];
+		nodes.add(leaf);
+
+		if(root == null) {
+			root = leaf;
+			return;
+		}
+
+		// find the best sibling
+		Node node = root;
+		while(!node.isLeaf()) {
+			double area = getArea(node);
+			double combined = getCombinedArea(node, leaf);
+
+			// cost of a new parent for this node and the leaf, and the increase of all parents
+			double cost = 2 * combined;
+			double inheritance = 2 * (combined - area);
+
+			double costLeft = getDescendCost(node.left, leaf) + inheritance;
+			double costRight = getDescendCost(node.right, leaf) + inheritance;
+
+			if(cost < costLeft && cost < costRight) {
+				break;
+			}
+			node = costLeft < costRight ? node.left : node.right;
+		}
+
+		Node parent = new Node();
+		parent.parent = node.parent;
+		parent.left = node;
+		parent.right = leaf;
+		if(node.parent == null) {
+			root = parent;
+		} else if(node.parent.left == node) {
+			node.parent.left = parent;
+		} else {
+			node.parent.right = parent;
+		}
+		node.parent = parent;
+		leaf.parent = parent;
+
+		refit(parent);
+	}
+
+	/**
+	 * Removes all leaves of the component.
+	 */
+	boolean remove(Component comp) {
+
+		ArrayList<Node> nodes = leaves.remove(comp);
+		if(nodes == null) {
+			return false;
+		}
+		for(int i = 0; i < nodes.size(); i++) {
+			removeLeaf(nodes.get(i));
+		}
+		return true;
+	}
+
+	private void removeLeaf(Node leaf) {
+
+		if(leaf == root) {
+			root = null;
+			return;
+		}
+
+		Node parent = leaf.parent;
+		Node grandParent = parent.parent;
+		Node sibling = parent.left == leaf ? parent.right : parent.left;
+
+		if(grandParent == null) {
+			root = sibling;
+			sibling.parent = null;
+		} else {
+			if(grandParent.left == parent) {
+				grandParent.left = sibling;
+			} else {
+				grandParent.right = sibling;
+			}
+			sibling.parent = grandParent;
+			refit(grandParent);
+		}
+	}
+
+	/**
+	 * balances and updates the boxes and heights from the node up to the root
+	 */
+	private void refit(Node node) {
+		while(node != null) {
+			node = balance(node);
+			update(node);
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * rotates the node if one subtree is more than one level higher than the other one and returns
+	 * the node which is now at the position of the given node
+	 */
+	private Node balance(Node a) {
+
+		if(a.isLeaf() || a.height < 2) {
+			return a;
+		}
+
+		Node b = a.left;
+		Node c = a.right;
+		int difference = c.height - b.height;
+
+		if(difference > 1) {
+			return rotate(a, c, b);
+		} else if(difference < -1) {
+			return rotate(a, b, c);
+		}
+		return a;
+	}
+
+	/**
+	 * lifts the higher child up, a keeps the lower child and the lower child of the higher child
+	 */
+	private Node rotate(Node a, Node high, Node low) {
+
+		Node f = high.left;
+		Node g = high.right;
+
+		// the higher child takes the place of a
+		high.parent = a.parent;
+		if(a.parent == null) {
+			root = high;
+		} else if(a.parent.left == a) {
+			a.parent.left = high;
+		} else {
+			a.parent.right = high;
+		}
+
+		a.parent = high;
+		Node keep, move;
+		if(f.height > g.height) {
+			keep = f;
+			move = g;
+		} else {
+			keep = g;
+			move = f;
+		}
+
+		high.left = a;
+		high.right = keep;
+		keep.parent = high;
+
+		a.left = low;
+		a.right = move;
+		low.parent = a;
+		move.parent = a;
+
+		update(a);
+		update(high);
+		return high;
+	}
+
+	private static void update(Node node) {
+		if(node.isLeaf()) {
+			node.height = 0;
+			return;
+		}
+		Node l = node.left, r = node.right;
+		node.minX = Math.min(l.minX, r.minX);
+		node.minY = Math.min(l.minY, r.minY);
+		node.minZ = Math.min(l.minZ, r.minZ);
+		node.maxX = Math.max(l.maxX, r.maxX);
+		node.maxY = Math.max(l.maxY, r.maxY);
+		node.maxZ = Math.max(l.maxZ, r.maxZ);
+		node.height = 1 + Math.max(l.height, r.height);
+	}
+
+	private static double getDescendCost(Node child, Node leaf) {
+		if(child.isLeaf()) {
+			return getCombinedArea(child, leaf);
+		}
+		return getCombinedArea(child, leaf) - getArea(child);
+	}
+
+	private static double getArea(Node n) {
+		double dx = n.maxX - n.minX, dy = n.maxY - n.minY, dz = n.maxZ - n.minZ;
+		return dx * dy + dy * dz + dz * dx;
+	}
+
+	private static double getCombinedArea(Node a, Node b) {
+		double dx = Math.max(a.maxX, b.maxX) - Math.min(a.minX, b.minX);
+		double dy = Math.max(a.maxY, b.maxY) - Math.min(a.minY, b.minY);
+		double dz = Math.max(a.maxZ, b.maxZ) - Math.min(a.minZ, b.minZ);
+		return dx * dy + dy * dz + dz * dx;
+	}
+}
@@ -0,0 +1,390 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.interfaces.Point;
+import ch.hsr.i.jvector.util.Tolerance;
+
+/**
+ * Finds components which describe the same geometric object in constant time. Every component is
+ * reduced to a canonical form which does not depend on how it was created:
+ * <ul>
+ * <li>a point > [x, y, z]</li>
+ * <li>a line > [ux, uy, uz, cx, cy, cz], the unit direction with a positive leading component and the
+ * point of the line closest to the origin</li>
+ * <li>a plane > [nx, ny, nz, d], the unit normal with a positive leading component and the distance
+ * to the origin along this normal</li>
+ * </ul>
+ * The canonical values are put into buckets of a grid. Two values are the same if they are equal
+ * according to the default <code>Tolerance</code> relative to max(1, |value|). The buckets are as wide
+ * as this tolerance, linear up to 1 and logarithmic beyond, so a search only has to look into the bucket
+ * of the value and into a neighbouring bucket if the value is close to a border. The buckets are derived
+ * from the default tolerance when the index is created. The index is not thread safe.
+ */
+public class CanonicalIndex {
+
+	/**
+	 * the width of a bucket in tolerances, larger than the range a search looks at
+	 */
+	private static final double BUCKET_WIDTH = 5;
+
+	/**
+	 * the width of a bucket of <code>hashCode(Component)</code> in tolerances, wide so that two equal
+	 * values rarely fall into different buckets
+	 */
+	private static final double HASH_WIDTH = 1e6;
+
+	private static final int MAX_DIMENSIONS = 6;
+
+	private final HashMap<Long, ArrayList<Entry>> buckets = new HashMap<Long, ArrayList<Entry>>();
+	private final IdentityHashMap<Component, Entry> entries = new IdentityHashMap<Component, Entry>();
+
+	private final double[] key = new double[MAX_DIMENSIONS];
+	private final long[] low = new long[MAX_DIMENSIONS];
+	private final long[] high = new long[MAX_DIMENSIONS];
+	private final long[] cell = new long[MAX_DIMENSIONS];
+
+	/**
+	 * two canonical forms per thread for the static comparisons, which are called by equals
+	 */
+	private static final ThreadLocal<double[][]> scratch = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[2][MAX_DIMENSIONS];
+		}
+	};
+
+	/**
+	 * the tolerance of a value up to 1, the tolerance of a larger value is this times the value
+	 */
+	private final double unit;
+
+	public CanonicalIndex() {
+		unit = getUnit(Tolerance.getDefault());
+	}
+
+	private static class Entry {
+		Component comp;
+		double[] key;
+		long bucket;
+	}
+
+	/**
+	 * Adds a component to the index. A component which is already in the index is not added again.
+	 *
+	 * @param the component
+	 */
+	public void add(Component comp) {
+
+		if(entries.containsKey(comp)) {
+			return;
+		}
+
+		int n = getCanonicalForm(comp, key);
+
+		Entry entry = new Entry();
+		entry.comp = comp;
+		entry.key = new double[n];
+		System.arraycopy(key, 0, entry.key, 0, n);
+
+		for(int i = 0; i < n; i++) {
+			cell[i] = getBucket(key[i], unit, BUCKET_WIDTH);
+		}
+		entry.bucket = hash(comp.getType(), cell, n);
+
+		ArrayList<Entry> bucket = buckets.get(entry.bucket);
+		if(bucket == null) {
+			bucket = new ArrayList<Entry>(1);
+			buckets.put(entry.bucket, bucket);
+		}
+		bucket.add(entry);
+		entries.put(comp, entry);
+	}
+
+	/**
+	 * Removes a component from the index.
+	 *
+	 * @param the component
+	 * @return true if the component was in the index
+	 */
+	public boolean remove(Component comp) {
+
+		Entry entry = entries.remove(comp);
+		if(entry == null) {
+			return false;
+		}
+
+		ArrayList<Entry> bucket = buckets.get(entry.bucket);
+		bucket.remove(entry);
+		if(bucket.isEmpty()) {
+			buckets.remove(entry.bucket);
+		}
+		return true;
+	}
+
+	/**
+	 * Re-inserts a component whose parameters have changed.
+	 *
+	 * @param the component
+	 */
+	public void update(Component comp) {
+		if(remove(comp)) {
+			add(comp);
+		}
+	}
+
+	public void clear() {
+		buckets.clear();
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns a component of the index which describes the same point, line or plane as the given
+	 * component. The component itself is not returned.
+	 *
+	 * @param the component to look for
+	 * @return the same component of the index or null
+	 */
+	public Component find(Component comp) {
+
+		int n = getCanonicalForm(comp, key);
+		Tolerance tolerance = Tolerance.getDefault();
+
+		// range of buckets which may contain an equal value, the bucket itself and at most one neighbour
+		for(int i = 0; i < n; i++) {
+			double epsilon = 2 * (tolerance.getAbsolute() + tolerance.getRelative() * Math.max(1.0, Math.abs(key[i])));
+			low[i] = getBucket(key[i] - epsilon, unit, BUCKET_WIDTH);
+			high[i] = getBucket(key[i] + epsilon, unit, BUCKET_WIDTH);
+			cell[i] = low[i];
+		}
+
+		while(true) {
+
+			ArrayList<Entry> bucket = buckets.get(hash(comp.getType(), cell, n));
+			if(bucket != null) {
+				for(int j = 0; j < bucket.size(); j++) {
+					Entry entry = bucket.get(j);
+					if(entry.comp != comp && entry.comp.getType() == comp.getType() && isSame(key, entry.key, n)) {
+						return entry.comp;
+					}
+				}
+			}
+
+			// next combination of buckets, almost always there is only one
+			int i = 0;
+			while(i < n && cell[i] == high[i]) {
+				cell[i] = low[i];
+				i++;
+			}
+			if(i == n) {
+				return null;
+			}
+			cell[i]++;
+		}
+	}
+
+	/**
+	 * Returns true if a component in the index describes the same point, line or plane.
+	 *
+	 * @param the component to look for
+	 * @return true if there is such a component
+	 */
+	public boolean contains(Component comp) {
+		return find(comp) != null;
+	}
+
+	/**
+	 * Returns true if the two lines are the same line.
+	 */
+	public static boolean isSameLine(Line line1, Line line2) {
+		double[][] keys = scratch.get();
+		canonicalLine(line1, keys[0]);
+		canonicalLine(line2, keys[1]);
+		return isSame(keys[0], keys[1], 6);
+	}
+
+	/**
+	 * Returns true if the two planes are the same plane.
+	 */
+	public static boolean isSamePlane(Plane plane1, Plane plane2) {
+		double[][] keys = scratch.get();
+		canonicalPlane(plane1, keys[0]);
+		canonicalPlane(plane2, keys[1]);
+		return isSame(keys[0], keys[1], 4);
+	}
+
+	/**
+	 * Returns a hash code of the point, line or plane which agrees with the comparisons within the
+	 * default <code>Tolerance</code>: the canonical form is put into the buckets of a grid whose buckets are
+	 * a million tolerances wide, like the buckets of the index. Two equal components get different hash
+	 * codes only if a value is within the tolerance of a border, which is rare but possible.
+	 *
+	 * @param the component
+	 * @return the hash code
+	 */
+	public static int hashCode(Component comp) {
+		double[] key = scratch.get()[0];
+		int n = getCanonicalForm(comp, key);
+		double unit = getUnit(Tolerance.getDefault());
+		long hash = comp.getType().ordinal();
+		for(int i = 0; i < n; i++) {
+			hash = hash * 0x9E3779B97F4A7C15L + getBucket(key[i], unit, HASH_WIDTH);
+		}
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Writes the canonical form of the line to out[0] .. out[5] > [ux, uy, uz, cx, cy, cz].
+	 */
+	public static void canonicalLine(Line line, double[] out) {
+
+		double rx = line.getLineParameter(3);
+		double ry = line.getLineParameter(4);
+		double rz = line.getLineParameter(5);
+
+		double inverse = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz);
+		if(getLeadingSign(rx, ry, rz) < 0) {
+			inverse = -inverse;
+		}
+
+		double ux = rx * inverse;
+		double uy = ry * inverse;
+		double uz = rz * inverse;
+
+		double x = line.getLineParameter(0);
+		double y = line.getLineParameter(1);
+		double z = line.getLineParameter(2);
+
+		// p - (p . u) * u
+		double t = x * ux + y * uy + z * uz;
+
+		out[0] = ux;
+		out[1] = uy;
+		out[2] = uz;
+		out[3] = x - t * ux;
+		out[4] = y - t * uy;
+		out[5] = z - t * uz;
+	}
+
+	/**
+	 * Writes the canonical form of the plane to out[0] .. out[3] > [nx, ny, nz, d].
+	 */
+	public static void canonicalPlane(Plane plane, double[] out) {
+
+		double a = plane.getPlaneParameter(0);
+		double b = plane.getPlaneParameter(1);
+		double c = plane.getPlaneParameter(2);
+
+		double inverse = 1.0 / Math.sqrt(a * a + b * b + c * c);
+		if(getLeadingSign(a, b, c) < 0) {
+			inverse = -inverse;
+		}
+
+		out[0] = a * inverse;
+		out[1] = b * inverse;
+		out[2] = c * inverse;
+		out[3] = plane.getPlaneParameter(3) * inverse;
+	}
+
+	/**
+	 * writes the canonical form of the component to out and returns the number of values
+	 */
+	private static int getCanonicalForm(Component comp, double[] out) {
+		if(comp.getType() == ComponentType.LINE) {
+			canonicalLine((Line) comp, out);
+			return 6;
+		} else if(comp.getType() == ComponentType.PLANE) {
+			canonicalPlane((Plane) comp, out);
+			return 4;
+		} else {
+			Point point = (Point) comp;
+			out[0] = point.getX();
+			out[1] = point.getY();
+			out[2] = point.getZ();
+			return 3;
+		}
+	}
+
+	/**
+	 * the sign of the first component of the vector which is not zero relative to its length
+	 */
+	private static double getLeadingSign(double x, double y, double z) {
+		Tolerance tolerance = Tolerance.getDefault();
+		double length = Math.sqrt(x * x + y * y + z * z);
+		if(!tolerance.isZero(x, length)) {
+			return x;
+		} else if(!tolerance.isZero(y, length)) {
+			return y;
+		}
+		return z;
+	}
+
+	private static boolean isSame(double[] key1, double[] key2, int n) {
+		Tolerance tolerance = Tolerance.getDefault();
+		for(int i = 0; i < n; i++) {
+			double magnitude = Math.max(1.0, Math.max(Math.abs(key1[i]), Math.abs(key2[i])));
+			if(!tolerance.isZero(key1[i] - key2[i], magnitude)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * the tolerance of a value up to 1
+	 */
+	private static double getUnit(Tolerance tolerance) {
+		return tolerance.getAbsolute() + tolerance.getRelative();
+	}
+
+	/**
+	 * the bucket of a value, the values are counted in tolerances: linear up to 1, where the tolerance
+	 * is constant, and logarithmic beyond, where it grows with the value
+	 */
+	private static long getBucket(double value, double unit, double width) {
+		double magnitude = Math.abs(value);
+		double scaled;
+		if(magnitude <= 1.0) {
+			scaled = value / unit;
+		} else {
+			scaled = Math.copySign(1.0 + Math.log(magnitude), value) / unit;
+		}
+		return (long) Math.floor(scaled / width);
+	}
+
+	private static long hash(ComponentType type, long[] cell, int n) {
+		long hash = type.ordinal();
+		for(int i = 0; i < n; i++) {
+			hash = hash * 0x9E3779B97F4A7C15L + cell[i];
+		}
+		return hash;
+	}
+}
@@ -1,14 +1,67 @@
 package ch.hsr.i.jvector.logic;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Observable;
+import java.util.Set;
 
 import ch.hsr.i.jvector.components.Component3D.ComponentType;
 import ch.hsr.i.jvector.interfaces.Component;
 
 public class ComponentsList extends Observable {
 	
+	/**
+	 * The argument passed to the observers, it tells which components were added or removed.
+	 */
+	public static class Change {
+		
+		public static enum ChangeType {
+			ADDED, REMOVED, CLEARED, REPLACED, TRANSFORMED
+		}
+		
+		private ChangeType type;
+		private List<Component> components;
+		
+		public Change(ChangeType type, List<Component> components) {
+			this.type = type;
+			this.components = components;
+		}
+		
+		public ChangeType getType() {
+			return type;
+		}
+		
+		/**
+		 * Returns the added, removed or transformed components. Empty for <code>CLEARED</code>, the new
+		 * content for <code>REPLACED</code>.
+		 * 
+		 * @return the components, must not be changed
+		 */
+		public List<Component> getComponents() {
+			return components;
+		}
+	}
+	
 	private ArrayList<Component> compList;
+	
+	/**
+	 * finds components which describe the same point, line or plane
+	 */
+	private CanonicalIndex canonicalIndex = new CanonicalIndex();
+	
+	/**
+	 * answers the spatial queries on the components
+	 */
+	private SpatialIndex spatialIndex = new SpatialIndex(DrawComponents.RADIUS);
+	
+	/**
+	 * true if the indices are out of date because all components were transformed, they are rebuilt
+	 * when they are used next
+	 */
+	private boolean stale;
 
 	public ComponentsList() {
 		compList = new ArrayList<Component>();
@@ -19,25 +72,145 @@ public class ComponentsList extends Observable {
 	
 	public void add(Component comp) {
 		compList.add(comp);
+		if (!stale) {
+			canonicalIndex.add(comp);
+			spatialIndex.add(comp);
+		}
 		
 		setChanged();
-		notifyObservers();
+		notifyObservers(new Change(Change.ChangeType.ADDED, Collections.singletonList(comp)));
 	}
 	
+	/**
+	 * Appends the components to this list, the observers are notified once.
+	 * 
+	 * @param the components to append
+	 */
+	public void addBatch(Collection<? extends Component> comps) {
+		compList.ensureCapacity(compList.size() + comps.size());
+		for (Component comp : comps) {
+			compList.add(comp);
+			if (!stale) {
+				canonicalIndex.add(comp);
+				spatialIndex.add(comp);
+			}
+		}
+		
+		setChanged();
+		notifyObservers(new Change(Change.ChangeType.ADDED, new ArrayList<Component>(comps)));
+	}
+	
+	/**
+	 * Replaces the components of this list, the indices are rebuilt when they are used next.
+	 * 
+	 * @param the new components
+	 */
 	public void addAll(ArrayList<Component> compList) {
 		this.compList = compList;
+		stale = true;
 		
 		System.gc();
 		
 		setChanged();
-		notifyObservers();
+		notifyObservers(new Change(Change.ChangeType.REPLACED, Collections.unmodifiableList(compList)));
 	}
 	
 	public void remove(int index) {
-		compList.remove(index);
+		Component comp = compList.remove(index);
+		if (!stale) {
+			canonicalIndex.remove(comp);
+			spatialIndex.remove(comp);
+		}
 		
 		setChanged();
-		notifyObservers();
+		notifyObservers(new Change(Change.ChangeType.REMOVED, Collections.singletonList(comp)));
+	}
+	
+	/**
+	 * Removes the components from this list in one pass over the list, the observers are notified once.
+	 * Removing k components costs O(n + k) instead of O(k * n) for removing them one by one.
+	 * 
+	 * @param the components to remove, components which are not in this list are ignored
+	 * @return the removed components in the order of this list
+	 */
+	public List<Component> removeBatch(Collection<? extends Component> comps) {
+		if (comps.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Set<Component> removing = Collections.newSetFromMap(new IdentityHashMap<Component, Boolean>());
+		removing.addAll(comps);
+		
+		ArrayList<Component> removed = new ArrayList<Component>(removing.size());
+		int kept = 0;
+		for (int i = 0; i < compList.size(); i++) {
+			Component comp = compList.get(i);
+			if (removing.contains(comp)) {
+				removed.add(comp);
+				if (!stale) {
+					canonicalIndex.remove(comp);
+					spatialIndex.remove(comp);
+				}
+			} else {
+				compList.set(kept++, comp);
+			}
+		}
+		compList.subList(kept, compList.size()).clear();
+		if (removed.isEmpty()) {
+			return removed;
+		}
+		
+		setChanged();
+		notifyObservers(new Change(Change.ChangeType.REMOVED, Collections.<Component>unmodifiableList(removed)));
+		return removed;
+	}
+	
+	/**
+	 * Applies the transformation to all components of this list, the observers are notified once. The
+	 * indices are rebuilt when they are used next.
+	 * 
+	 * @param the transformation
+	 */
+	public void transform(GeometryTransform transform) {
+		transform.apply(compList);
+		stale = true;
+		
+		setChanged();
+		notifyObservers(new Change(Change.ChangeType.TRANSFORMED, new ArrayList<Component>(compList)));
+	}
+	
+	/**
+	 * Applies the transformation to the given components of this list, the observers are notified once.
+	 * 
+	 * @param the transformation
+	 * @param the components, each at most once
+	 */
+	public void transform(GeometryTransform transform, Collection<? extends Component> comps) {
+		transform.apply(comps);
+		
+		if (!stale) {
+			for (Component comp : comps) {
+				canonicalIndex.update(comp);
+				spatialIndex.update(comp);
+			}
+		}
+		
+		setChanged();
+		notifyObservers(new Change(Change.ChangeType.TRANSFORMED, new ArrayList<Component>(comps)));
+	}
+	
+	/**
+	 * Returns the index of the component in this list.
+	 * 
+	 * @param the component
+	 * @return the index or -1 if the component is not in this list
+	 */
+	public int indexOf(Component comp) {
+		for (int i = 0; i < compList.size(); i++) {
+			if (compList.get(i) == comp) {
+				return i;
+			}
+		}
+		return -1;
 	}
 	
 	public int size() {
@@ -48,15 +221,57 @@ public class ComponentsList extends Observable {
 		return compList.get(index);
 	}
 	
+	/**
+	 * Returns a component of this list which describes the same point, line or plane as the given
+	 * component, no matter how the two components were created.
+	 * 
+	 * @param the component to look for
+	 * @return the same component of this list or null
+	 */
+	public Component findEqual(Component comp) {
+		updateIndices();
+		return canonicalIndex.find(comp);
+	}
+	
+	/**
+	 * Returns the spatial index over the components of this list. The index is updated by this list,
+	 * use it for queries only.
+	 * 
+	 * @return the spatial index
+	 */
+	public SpatialIndex getSpatialIndex() {
+		updateIndices();
+		return spatialIndex;
+	}
+	
+	/**
+	 * rebuilds the indices if they are out of date
+	 */
+	private void updateIndices() {
+		if (!stale) {
+			return;
+		}
+		canonicalIndex.clear();
+		spatialIndex.clear();
+		for (int i = 0; i < compList.size(); i++) {
+			canonicalIndex.add(compList.get(i));
+			spatialIndex.add(compList.get(i));
+		}
+		stale = false;
+	}
+	
 	public boolean isEmpty() {
 		return compList.isEmpty();
 	}
 	
 	public void clear() {
 		compList.clear();
+		canonicalIndex.clear();
+		spatialIndex.clear();
+		stale = false;
 		
 		setChanged();
-		notifyObservers();
+		notifyObservers(new Change(Change.ChangeType.CLEARED, Collections.<Component>emptyList()));
 	}
 	
 	public ArrayList<Component> deepClone() {
@@ -82,12 +297,12 @@ public class ComponentsList extends Observable {
 	}
 	
 	public void removeAll() {
-		for(int i = 0; i < compList.size(); i++) {
-			compList.remove(i);
-			i--;
-		}
+		compList.clear();
+		canonicalIndex.clear();
+		spatialIndex.clear();
+		stale = false;
 		
 		setChanged();
-		notifyObservers();
+		notifyObservers(new Change(Change.ChangeType.CLEARED, Collections.<Component>emptyList()));
 	}
 }
@@ -0,0 +1,675 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Convex hull of a set of points computed with Quickhull. The points are split into chunks whose hulls
+ * are computed in parallel, the vertices of two neighbouring chunk hulls are merged by computing the hull
+ * of their union and the hull of the remaining vertices is the result. Every hull starts from the same
+ * initial tetrahedron of four extreme points, so the points inside of it are discarded right away and no
+ * chunk is ever degenerate. Faces and outside sets are kept in int and double arrays, no objects are
+ * created per point.
+ * <p>
+ * The hull is triangulated, its facets are counterclockwise seen from outside. Points which are closer
+ * than a tolerance derived from the magnitude of the coordinates to a facet are treated as inside, so
+ * coplanar facets may be split into several triangles.
+ */
+public class ConvexHull {
+
+	/**
+	 * chunks of up to this many points are not split anymore
+	 */
+	private static final int SEQUENTIAL_POINTS = 1 << 15;
+
+	/**
+	 * the points as [x, y, z] one after the other
+	 */
+	private final double[] coords;
+
+	private final int size;
+
+	/**
+	 * points which are closer to a facet are not outside of it
+	 */
+	private final double epsilon;
+
+	/**
+	 * the indices of the points of the initial tetrahedron
+	 */
+	private final int[] simplex = new int[4];
+
+	/**
+	 * three point indices per facet
+	 */
+	private int[] facets;
+
+	/**
+	 * the normalized plane of each facet > Ax + By + Cz + D = 0, the normal points outwards
+	 */
+	private double[] planes;
+
+	private int numFacets;
+
+	/**
+	 * Computes the hull of the first n points of the given columns. The arrays are copied.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @throws IllegalArgumentException if the points are all in one plane
+	 */
+	public ConvexHull(double[] xs, double[] ys, double[] zs, int n) {
+		this(xs, ys, zs, n, true);
+	}
+
+	/**
+	 * Computes the hull of the first n points of the given columns. The arrays are copied.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param parallel - whether the chunks are computed in parallel
+	 * @throws IllegalArgumentException if the points are all in one plane
+	 */
+	public ConvexHull(double[] xs, double[] ys, double[] zs, int n, boolean parallel) {
+
+		if(xs.length < n || ys.length < n || zs.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		this.size = n;
+		this.coords = new double[3 * n];
+
+		double maxX = 0, maxY = 0, maxZ = 0;
+		for(int i = 0; i < n; i++) {
+			coords[3 * i] = xs[i];
+			coords[3 * i + 1] = ys[i];
+			coords[3 * i + 2] = zs[i];
+			maxX = Math.max(maxX, Math.abs(xs[i]));
+			maxY = Math.max(maxY, Math.abs(ys[i]));
+			maxZ = Math.max(maxZ, Math.abs(zs[i]));
+		}
+		this.epsilon = 3 * Math.ulp(1.0) * (maxX + maxY + maxZ);
+
+		findSimplex();
+
+		int[] candidates = new int[n];
+		for(int i = 0; i < n; i++) {
+			candidates[i] = i;
+		}
+
+		HullTask task = new HullTask(candidates, 0, n);
+		if(parallel && n > SEQUENTIAL_POINTS) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+
+		Builder builder = new Builder(candidates, 0, task.count);
+		builder.build();
+		builder.writeFacets();
+	}
+
+	/**
+	 * Computes the hull of all points of the store, the point i is the point with store index i.
+	 *
+	 * @param the store
+	 * @throws IllegalArgumentException if the points are all in one plane
+	 */
+	public ConvexHull(GeometryStore store) {
+		this(store.getPointColumn(GeometryStore.X), store.getPointColumn(GeometryStore.Y),
+				store.getPointColumn(GeometryStore.Z), store.getNumPoints());
+	}
+
+	/**
+	 * Returns the number of points the hull was computed of.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a coordinate of a point.
+	 *
+	 * @param index - the index of the point
+	 * @param column - GeometryStore.X, Y or Z
+	 */
+	public double getCoordinate(int index, int column) {
+		return coords[3 * index + column];
+	}
+
+	public int getNumFacets() {
+		return numFacets;
+	}
+
+	/**
+	 * Returns the facets as three point indices each, counterclockwise seen from outside.
+	 *
+	 * @return a new array of 3 * getNumFacets() indices
+	 */
+	public int[] getFacets() {
+		return Arrays.copyOf(facets, 3 * numFacets);
+	}
+
+	/**
+	 * Returns the supporting plane of each facet as A, B, C, D with Ax + By + Cz + D = 0. The normal
+	 * (A, B, C) has length one and points outwards.
+	 *
+	 * @return a new array of 4 * getNumFacets() values
+	 */
+	public double[] getPlanes() {
+		return Arrays.copyOf(planes, GeometryStore.PLANE_COLUMNS * numFacets);
+	}
+
+	/**
+	 * Returns the points which are corners of at least one facet.
+	 *
+	 * @return a new array of point indices in ascending order
+	 */
+	public int[] getVertices() {
+		int[] sorted = getFacets();
+		Arrays.sort(sorted);
+		int count = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(count == 0 || sorted[count - 1] != sorted[i]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, count);
+	}
+
+	/**
+	 * Returns the tolerance below which a point is not outside of a facet.
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * Returns true if the point is inside of the hull or closer than the tolerance to it.
+	 */
+	public boolean contains(double x, double y, double z) {
+		for(int f = 0; f < numFacets; f++) {
+			int o = GeometryStore.PLANE_COLUMNS * f;
+			if(planes[o] * x + planes[o + 1] * y + planes[o + 2] * z + planes[o + 3] > epsilon) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * two points far apart, the point farthest from their line and the point farthest from the plane of
+	 * the three
+	 */
+	private void findSimplex() {
+
+		if(size < 4) {
+			throw new IllegalArgumentException("the points do not span a volume");
+		}
+
+		// the extreme points along the axes
+		int[] min = new int[3], max = new int[3];
+		for(int i = 1; i < size; i++) {
+			for(int a = 0; a < 3; a++) {
+				if(coords[3 * i + a] < coords[3 * min[a] + a]) {
+					min[a] = i;
+				}
+				if(coords[3 * i + a] > coords[3 * max[a] + a]) {
+					max[a] = i;
+				}
+			}
+		}
+
+		int axis = 0;
+		for(int a = 1; a < 3; a++) {
+			if(coords[3 * max[a] + a] - coords[3 * min[a] + a] > coords[3 * max[axis] + axis] - coords[3 * min[axis] + axis]) {
+				axis = a;
+			}
+		}
+		int p0 = min[axis], p1 = max[axis];
+		if(coords[3 * p1 + axis] - coords[3 * p0 + axis] <= epsilon) {
+			throw new IllegalArgumentException("the points do not span a volume");
+		}
+
+		// farthest from the line p0 p1
+		double ux = coords[3 * p1] - coords[3 * p0];
+		double uy = coords[3 * p1 + 1] - coords[3 * p0 + 1];
+		double uz = coords[3 * p1 + 2] - coords[3 * p0 + 2];
+		double length = Math.sqrt(ux * ux + uy * uy + uz * uz);
+		ux /= length;
+		uy /= length;
+		uz /= length;
+
+		int p2 = -1;
+		double max2 = 0;
+		for(int i = 0; i < size; i++) {
+			double dx = coords[3 * i] - coords[3 * p0];
+			double dy = coords[3 * i + 1] - coords[3 * p0 + 1];
+			double dz = coords[3 * i + 2] - coords[3 * p0 + 2];
+			double cx = uy * dz - uz * dy, cy = uz * dx - ux * dz, cz = ux * dy - uy * dx;
+			double d = cx * cx + cy * cy + cz * cz;
+			if(d > max2) {
+				max2 = d;
+				p2 = i;
+			}
+		}
+		if(p2 < 0 || Math.sqrt(max2) <= epsilon) {
+			throw new IllegalArgumentException("the points do not span a volume");
+		}
+
+		// farthest from the plane p0 p1 p2
+		double vx = coords[3 * p2] - coords[3 * p0];
+		double vy = coords[3 * p2 + 1] - coords[3 * p0 + 1];
+		double vz = coords[3 * p2 + 2] - coords[3 * p0 + 2];
+		double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+		length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		nx /= length;
+		ny /= length;
+		nz /= length;
+
+		int p3 = -1;
+		double max3 = 0;
+		for(int i = 0; i < size; i++) {
+			double d = Math.abs(nx * (coords[3 * i] - coords[3 * p0]) + ny * (coords[3 * i + 1] - coords[3 * p0 + 1])
+					+ nz * (coords[3 * i + 2] - coords[3 * p0 + 2]));
+			if(d > max3) {
+				max3 = d;
+				p3 = i;
+			}
+		}
+		if(p3 < 0 || max3 <= epsilon) {
+			throw new IllegalArgumentException("the points do not span a volume");
+		}
+
+		simplex[0] = p0;
+		simplex[1] = p1;
+		simplex[2] = p2;
+		simplex[3] = p3;
+	}
+
+	/**
+	 * Reduces the candidates in [from, to) to the vertices of their hull, which are written to the
+	 * beginning of the range. The points of the initial tetrahedron are not counted.
+	 */
+	private class HullTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] candidates;
+		private final int from;
+		private final int to;
+
+		/**
+		 * the number of vertices at the beginning of the range after the task is done
+		 */
+		int count;
+
+		HullTask(int[] candidates, int from, int to) {
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from <= SEQUENTIAL_POINTS) {
+				Builder builder = new Builder(candidates, from, to - from);
+				builder.build();
+				count = builder.writeVertices();
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			HullTask left = new HullTask(candidates, from, middle);
+			HullTask right = new HullTask(candidates, middle, to);
+			invokeAll(left, right);
+
+			System.arraycopy(candidates, middle, candidates, from + left.count, right.count);
+			count = left.count + right.count;
+
+			// only worth it if the chunks had many inner points, otherwise the union is hardly smaller
+			if(count <= (to - from) / 2) {
+				Builder builder = new Builder(candidates, from, count);
+				builder.build();
+				count = builder.writeVertices();
+			}
+		}
+	}
+
+	/**
+	 * Sequential Quickhull over a range of candidates. The local index of a candidate is its position in
+	 * the range, the points of the initial tetrahedron follow at count to count + 3. A facet has the
+	 * corners v0, v1, v2 and the edge e goes from ve to ve+1, the neighbour e is the facet across it.
+	 */
+	private class Builder {
+
+		private final int[] candidates;
+		private final int from;
+		private final int count;
+
+		private int capacity = 64;
+		private int[] vertices = new int[3 * capacity];
+		private int[] neighbours = new int[3 * capacity];
+		private double[] faces = new double[4 * capacity];
+
+		/**
+		 * the first point of the outside set of each facet or -1
+		 */
+		private int[] outside = new int[capacity];
+		private boolean[] deleted = new boolean[capacity];
+		private int[] marks = new int[capacity];
+		private int numFaces, mark;
+
+		/**
+		 * the next point in the same outside set or -1
+		 */
+		private final int[] next;
+
+		/**
+		 * the coordinates of the candidates and the tetrahedron by their local index
+		 */
+		private final double[] localCoords;
+
+		/**
+		 * facets which got outside points, they are processed last in first out
+		 */
+		private final IntList pending = new IntList();
+
+		private final IntList visible = new IntList();
+		private final IntList horizon = new IntList();
+		private final IntList stack = new IntList();
+
+		Builder(int[] candidates, int from, int count) {
+			this.candidates = candidates;
+			this.from = from;
+			this.count = count;
+			this.next = new int[count];
+			this.localCoords = new double[3 * (count + 4)];
+			for(int i = 0; i < count + 4; i++) {
+				System.arraycopy(coords, 3 * point(i), localCoords, 3 * i, 3);
+			}
+		}
+
+		/**
+		 * the index of the point with the given local index
+		 */
+		private int point(int local) {
+			return local < count ? candidates[from + local] : simplex[local - count];
+		}
+
+		private double distance(int face, int i) {
+			int p = 3 * i;
+			int o = 4 * face;
+			return faces[o] * localCoords[p] + faces[o + 1] * localCoords[p + 1] + faces[o + 2] * localCoords[p + 2] + faces[o + 3];
+		}
+
+		void build() {
+
+			// the tetrahedron, every face oriented so that the fourth point is below it
+			int s = count;
+			addOrientedFace(s, s + 1, s + 2, s + 3);
+			addOrientedFace(s, s + 1, s + 3, s + 2);
+			addOrientedFace(s, s + 2, s + 3, s + 1);
+			addOrientedFace(s + 1, s + 2, s + 3, s);
+			for(int f = 0; f < 4; f++) {
+				for(int e = 0; e < 3; e++) {
+					for(int g = 0; g < 4; g++) {
+						if(g != f && findEdge(g, vertices[3 * f + (e + 1) % 3], vertices[3 * f + e]) >= 0) {
+							neighbours[3 * f + e] = g;
+						}
+					}
+				}
+			}
+
+			for(int i = 0; i < count; i++) {
+				if(!isSimplex(i)) {
+					assign(i, 0, 4);
+				}
+			}
+
+			while(pending.size > 0) {
+				int face = pending.values[--pending.size];
+				if(!deleted[face] && outside[face] >= 0) {
+					addPoint(farthest(face), face);
+				}
+			}
+		}
+
+		private boolean isSimplex(int local) {
+			int p = candidates[from + local];
+			return p == simplex[0] || p == simplex[1] || p == simplex[2] || p == simplex[3];
+		}
+
+		/**
+		 * adds the point to the outside set of the first facet in [first, end) it is outside of, points
+		 * which are not outside of any of them are inside of the hull
+		 */
+		private void assign(int local, int first, int end) {
+			for(int f = first; f < end; f++) {
+				if(!deleted[f] && distance(f, local) > epsilon) {
+					if(outside[f] < 0) {
+						pending.add(f);
+					}
+					next[local] = outside[f];
+					outside[f] = local;
+					return;
+				}
+			}
+		}
+
+		private int farthest(int face) {
+			int best = outside[face];
+			double max = distance(face, best);
+			for(int i = next[best]; i >= 0; i = next[i]) {
+				double d = distance(face, i);
+				if(d > max) {
+					max = d;
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		private void addPoint(int eye, int face) {
+
+			// the facets which see the point, the horizon edges are found in counterclockwise order
+			mark++;
+			visible.size = 0;
+			horizon.size = 0;
+			stack.size = 0;
+			marks[face] = mark;
+			visible.add(face);
+			push(face, 0, 3);
+
+			while(stack.size > 0) {
+				int top = stack.size - 3;
+				int f = stack.values[top];
+				if(stack.values[top + 2] == 0) {
+					stack.size = top;
+					continue;
+				}
+				int e = stack.values[top + 1];
+				stack.values[top + 1] = (e + 1) % 3;
+				stack.values[top + 2]--;
+
+				int n = neighbours[3 * f + e];
+				if(marks[n] == mark) {
+					continue;
+				}
+				if(distance(n, eye) > epsilon) {
+					marks[n] = mark;
+					visible.add(n);
+					int back = findEdge(n, vertices[3 * f + (e + 1) % 3], vertices[3 * f + e]);
+					push(n, (back + 1) % 3, 2);
+				} else {
+					horizon.add(f);
+					horizon.add(e);
+				}
+			}
+
+			// a cone of new facets from the horizon to the point
+			int first = numFaces;
+			int h = horizon.size / 2;
+			for(int i = 0; i < h; i++) {
+				int f = horizon.values[2 * i], e = horizon.values[2 * i + 1];
+				int a = vertices[3 * f + e], b = vertices[3 * f + (e + 1) % 3];
+				int n = neighbours[3 * f + e];
+				int created = addFace(a, b, eye);
+				neighbours[3 * created] = n;
+				neighbours[3 * n + findEdge(n, b, a)] = created;
+				neighbours[3 * created + 1] = first + (i + 1) % h;
+				neighbours[3 * created + 2] = first + (i + h - 1) % h;
+			}
+
+			// the outside points of the removed facets go to the new ones or are inside now
+			for(int i = 0; i < visible.size; i++) {
+				int f = visible.values[i];
+				deleted[f] = true;
+				int p = outside[f];
+				outside[f] = -1;
+				while(p >= 0) {
+					int following = next[p];
+					if(p != eye) {
+						assign(p, first, numFaces);
+					}
+					p = following;
+				}
+			}
+		}
+
+		private void push(int face, int edge, int edges) {
+			stack.add(face);
+			stack.add(edge);
+			stack.add(edges);
+		}
+
+		/**
+		 * the edge of the facet which goes from a to b or -1
+		 */
+		private int findEdge(int face, int a, int b) {
+			for(int e = 0; e < 3; e++) {
+				if(vertices[3 * face + e] == a && vertices[3 * face + (e + 1) % 3] == b) {
+					return e;
+				}
+			}
+			return -1;
+		}
+
+		private void addOrientedFace(int a, int b, int c, int below) {
+			int face = addFace(a, b, c);
+			if(distance(face, below) > 0) {
+				numFaces--;
+				addFace(a, c, b);
+			}
+		}
+
+		private int addFace(int a, int b, int c) {
+
+			if(numFaces == capacity) {
+				capacity *= 2;
+				vertices = Arrays.copyOf(vertices, 3 * capacity);
+				neighbours = Arrays.copyOf(neighbours, 3 * capacity);
+				faces = Arrays.copyOf(faces, 4 * capacity);
+				outside = Arrays.copyOf(outside, capacity);
+				deleted = Arrays.copyOf(deleted, capacity);
+				marks = Arrays.copyOf(marks, capacity);
+			}
+
+			int face = numFaces++;
+			vertices[3 * face] = a;
+			vertices[3 * face + 1] = b;
+			vertices[3 * face + 2] = c;
+			outside[face] = -1;
+			deleted[face] = false;
+			marks[face] = 0;
+
+			int pa = 3 * a, pb = 3 * b, pc = 3 * c;
+			double ux = localCoords[pb] - localCoords[pa], uy = localCoords[pb + 1] - localCoords[pa + 1], uz = localCoords[pb + 2] - localCoords[pa + 2];
+			double vx = localCoords[pc] - localCoords[pa], vy = localCoords[pc + 1] - localCoords[pa + 1], vz = localCoords[pc + 2] - localCoords[pa + 2];
+			double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if(length > 0) {
+				nx /= length;
+				ny /= length;
+				nz /= length;
+			}
+
+			// through the centroid, which is more accurate than through one of the corners
+			double cx = (localCoords[pa] + localCoords[pb] + localCoords[pc]) / 3;
+			double cy = (localCoords[pa + 1] + localCoords[pb + 1] + localCoords[pc + 1]) / 3;
+			double cz = (localCoords[pa + 2] + localCoords[pb + 2] + localCoords[pc + 2]) / 3;
+			faces[4 * face] = nx;
+			faces[4 * face + 1] = ny;
+			faces[4 * face + 2] = nz;
+			faces[4 * face + 3] = -(nx * cx + ny * cy + nz * cz);
+			return face;
+		}
+
+		/**
+		 * writes the vertices of the hull except the points of the tetrahedron to the beginning of the
+		 * range of candidates
+		 *
+		 * @return the number of vertices
+		 */
+		int writeVertices() {
+			boolean[] used = new boolean[count];
+			for(int f = 0; f < numFaces; f++) {
+				if(!deleted[f]) {
+					for(int k = 0; k < 3; k++) {
+						if(vertices[3 * f + k] < count) {
+							used[vertices[3 * f + k]] = true;
+						}
+					}
+				}
+			}
+			int written = 0;
+			for(int i = 0; i < count; i++) {
+				if(used[i]) {
+					candidates[from + written++] = candidates[from + i];
+				}
+			}
+			return written;
+		}
+
+		void writeFacets() {
+			int alive = 0;
+			for(int f = 0; f < numFaces; f++) {
+				if(!deleted[f]) {
+					alive++;
+				}
+			}
+			facets = new int[3 * alive];
+			planes = new double[GeometryStore.PLANE_COLUMNS * alive];
+			numFacets = 0;
+			for(int f = 0; f < numFaces; f++) {
+				if(!deleted[f]) {
+					for(int k = 0; k < 3; k++) {
+						facets[3 * numFacets + k] = point(vertices[3 * f + k]);
+					}
+					System.arraycopy(faces, 4 * f, planes, GeometryStore.PLANE_COLUMNS * numFacets, 4);
+					numFacets++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+
+/**
+ * Distances of many points to one plane or line. The points are given as separate coordinate arrays
+ * (for example the columns of a <code>GeometryStore</code>) and the distances are written to an output
+ * array. The length of the normal or the direction is inverted once per call, the loops only use
+ * multiplications and additions on the arrays and contain no branches, so the JIT compiler can
+ * translate them to vector instructions.
+ */
+public class Distances {
+
+	/**
+	 * Computes the distances of the first n points to the plane. The columns of a store are longer than
+	 * the number of its points, so n is given explicitly.
+	 *
+	 * @param plane - the plane
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param out - the array the distances are written to, at least n long
+	 */
+	public static void distances(Plane plane, double[] xs, double[] ys, double[] zs, int n, double[] out) {
+		checkLength(xs, ys, zs, n, out);
+		distances(plane.getPlaneParameter(0), plane.getPlaneParameter(1), plane.getPlaneParameter(2), plane.getPlaneParameter(3),
+				xs, ys, zs, 0, n, out);
+	}
+
+	/**
+	 * Computes the distances of the first n points to the line.
+	 *
+	 * @param line - the line
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param out - the array the distances are written to, at least n long
+	 */
+	public static void distances(Line line, double[] xs, double[] ys, double[] zs, int n, double[] out) {
+		checkLength(xs, ys, zs, n, out);
+		distances(line.getLineParameter(0), line.getLineParameter(1), line.getLineParameter(2),
+				line.getLineParameter(3), line.getLineParameter(4), line.getLineParameter(5),
+				xs, ys, zs, 0, n, out);
+	}
+
+	private static void checkLength(double[] xs, double[] ys, double[] zs, int n, double[] out) {
+		if(xs.length < n || ys.length < n || zs.length < n || out.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+	}
+
+	/**
+	 * Computes the distances of the points from index <code>from</code> to <code>to</code> (exclusive)
+	 * to the plane Ax + By + Cz + D = 0 and writes them to out[from] .. out[to - 1].
+	 */
+	public static void distances(double a, double b, double c, double d,
+								 double[] xs, double[] ys, double[] zs, int from, int to, double[] out) {
+
+		double inverse = 1.0 / Math.sqrt(a * a + b * b + c * c);
+
+		// normalized plane
+		double na = a * inverse;
+		double nb = b * inverse;
+		double nc = c * inverse;
+		double nd = d * inverse;
+
+		for(int i = from; i < to; i++) {
+			out[i] = Math.abs(na * xs[i] + nb * ys[i] + nc * zs[i] + nd);
+		}
+	}
+
+	/**
+	 * Computes the signed distances of the points from index <code>from</code> to <code>to</code> (exclusive)
+	 * to the plane Ax + By + Cz + D = 0. The distance is positive on the side the normal points to.
+	 */
+	public static void signedDistances(double a, double b, double c, double d,
+									   double[] xs, double[] ys, double[] zs, int from, int to, double[] out) {
+
+		double inverse = 1.0 / Math.sqrt(a * a + b * b + c * c);
+
+		// normalized plane
+		double na = a * inverse;
+		double nb = b * inverse;
+		double nc = c * inverse;
+		double nd = d * inverse;
+
+		for(int i = from; i < to; i++) {
+			out[i] = na * xs[i] + nb * ys[i] + nc * zs[i] + nd;
+		}
+	}
+
+	/**
+	 * Computes the distances of the points from index <code>from</code> to <code>to</code> (exclusive)
+	 * to the line [x, y, z, rx, ry, rz] and writes them to out[from] .. out[to - 1].
+	 */
+	public static void distances(double x, double y, double z, double rx, double ry, double rz,
+								 double[] xs, double[] ys, double[] zs, int from, int to, double[] out) {
+
+		double inverse = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz);
+
+		// normalized direction
+		double ux = rx * inverse;
+		double uy = ry * inverse;
+		double uz = rz * inverse;
+
+		// |(q - p) x u|
+		for(int i = from; i < to; i++) {
+			double wx = xs[i] - x;
+			double wy = ys[i] - y;
+			double wz = zs[i] - z;
+			double cx = wy * uz - wz * uy;
+			double cy = wz * ux - wx * uz;
+			double cz = wx * uy - wy * ux;
+			out[i] = Math.sqrt(cx * cx + cy * cy + cz * cz);
+		}
+	}
+
+	/**
+	 * Returns the distance of a point to the plane Ax + By + Cz + D = 0.
+	 */
+	public static double pointPlane(double a, double b, double c, double d, double x, double y, double z) {
+		return Math.abs(a * x + b * y + c * z + d) / Math.sqrt(a * a + b * b + c * c);
+	}
+
+	/**
+	 * Returns the distance of a point to the line [px, py, pz, rx, ry, rz].
+	 */
+	public static double pointLine(double px, double py, double pz, double rx, double ry, double rz,
+								   double x, double y, double z) {
+
+		double wx = x - px;
+		double wy = y - py;
+		double wz = z - pz;
+
+		double cx = wy * rz - wz * ry;
+		double cy = wz * rx - wx * rz;
+		double cz = wx * ry - wy * rx;
+
+		return Math.sqrt((cx * cx + cy * cy + cz * cz) / (rx * rx + ry * ry + rz * rz));
+	}
+}
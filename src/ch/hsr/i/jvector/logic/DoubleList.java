@@ -0,0 +1,45 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Arrays;
+
+/**
+ * A growing list of doubles without boxing. The values and the size are used directly by the algorithms
+ * of this package, setting the size to 0 clears the list.
+ */
+class DoubleList {
+
+	double[] values = new double[16];
+	int size;
+
+	void add(double value) {
+		if(size == values.length) {
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * a new array with the values of this list
+	 */
+	double[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+}
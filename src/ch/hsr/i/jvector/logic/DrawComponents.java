@@ -18,14 +18,29 @@
 
 package ch.hsr.i.jvector.logic;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+
 import javax.media.j3d.BranchGroup;
+import javax.media.j3d.Appearance;
+import javax.media.j3d.IndexedTriangleArray;
+import javax.media.j3d.PointArray;
+import javax.media.j3d.PointAttributes;
+import javax.media.j3d.Shape3D;
+import javax.vecmath.Color3f;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 import ch.hsr.i.jvector.components.CoordinateSystem;
 import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.LineRenderer;
 import ch.hsr.i.jvector.components.Plane3D;
 import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.components.PointRenderer;
+import ch.hsr.i.jvector.components.ComponentAppearance;
 import ch.hsr.i.jvector.components.Component3D.ComponentType;
 import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
 import ch.hsr.i.jvector.exceptions.NoIntersectionException;
@@ -37,6 +52,7 @@ import ch.hsr.i.jvector.interfaces.Plane;
 import ch.hsr.i.jvector.interfaces.Point;
 import ch.hsr.i.jvector.ui.main.JVector;
 import ch.hsr.i.jvector.ui.util.MessageBox;
+import ch.hsr.i.jvector.util.Tolerance;
 
 public class DrawComponents {
 	
@@ -45,6 +61,11 @@ public class DrawComponents {
 	 */
 	public static int RADIUS = 800;
 	
+	/**
+	 * the number of query results kept in the cache
+	 */
+	public static final int QUERY_CACHE_SIZE = 4096;
+	
 	/**
 	 * the current coordinate system object
 	 */
@@ -53,12 +74,30 @@ public class DrawComponents {
 	private BranchGroup objectRoot, compBranchGroup;
 	private ComponentsList compObjectList;
 	
+	/**
+	 * draws the lines in batches and the points in one geometry, the planes have a branch group of their own
+	 */
+	private LineRenderer lineRenderer = new LineRenderer();
+	private PointRenderer pointRenderer = new PointRenderer();
+	private IdentityHashMap<Component, BranchGroup> branchGroups = new IdentityHashMap<Component, BranchGroup>();
+	
+	/**
+	 * keeps the intersections up to date, null if switched off
+	 */
+	private IntersectionMaintainer maintainer;
+	
+	/**
+	 * remembers the results of distance, angle and intersection queries
+	 */
+	private QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+	
 	public DrawComponents(BranchGroup objectRoot, ComponentsList compObjectList) {
 		this.objectRoot = objectRoot;
 		this.compObjectList = compObjectList;
+		compObjectList.addObserver(queryCache);
 		compBranchGroup = new BranchGroup();
 		
-		BranchGroup[] branchgroups = { gridBranchGroup, compBranchGroup };
+		BranchGroup[] branchgroups = { gridBranchGroup, compBranchGroup, lineRenderer.getBranchGroup(), pointRenderer.getBranchGroup(), hullBranchGroup, inlierBranchGroup };
 		for (BranchGroup bg: branchgroups) {
 			bg.setCapability(BranchGroup.ALLOW_DETACH);
 			bg.setCapability(BranchGroup.ALLOW_CHILDREN_EXTEND);
@@ -127,19 +166,72 @@ public class DrawComponents {
 	
 	private BranchGroup gridBranchGroup = new BranchGroup();
 	
+	/**
+	 * the branch group of the grid shape, which is created once and regenerated in place
+	 */
+	private BranchGroup grid;
+	private boolean gridAdded;
+	
+	/**
+	 * chooses the spacing and the window of the grid from the view, also the lock of the grid
+	 */
+	private GridLevelOfDetail gridDetail = new GridLevelOfDetail(1);
+	
 	/**
 	 * Add grid with certain offset.
 	 * 
 	 * @param the desired offset of the raster
 	 */
 	public void addGrid(int offset) {
-		cs = new CoordinateSystem(offset);
-		
-		BranchGroup grid = new BranchGroup();
-		grid.setCapability(BranchGroup.ALLOW_DETACH);
-		grid.addChild(cs.getGridShape());
-		gridBranchGroup.addChild(grid);
-		
+		prepareGrid(offset);
+		addPreparedGrid();
+	}
+	
+	/**
+	 * Writes the grid with the offset without changing the scene, may be called on a background thread.
+	 * The offset is the spacing of the grid at level 0, zooming out multiplies it by powers of ten.
+	 * 
+	 * @param the desired offset of the raster
+	 */
+	public void prepareGrid(int offset) {
+		synchronized (gridDetail) {
+			gridDetail.setOffset(offset);
+			cs.prepareGrid(gridDetail.getSpacing(), gridDetail.getCenterX(), gridDetail.getCenterY(), gridDetail.getCenterZ(),
+					gridDetail.getExtent());
+		}
+	}
+	
+	/**
+	 * Adapts the grid to a view. Only when the view crosses a level of detail or leaves the window of
+	 * the grid, the grid is regenerated around the point the view looks at.
+	 * 
+	 * @param distance - the distance between the view and the point it looks at
+	 * @param center - the point the view looks at
+	 */
+	public void updateGridView(double distance, Point3d center) {
+		synchronized (gridDetail) {
+			if (gridDetail.update(distance, center.x, center.y, center.z)) {
+				cs.prepareGrid(gridDetail.getSpacing(), gridDetail.getCenterX(), gridDetail.getCenterY(), gridDetail.getCenterZ(),
+						gridDetail.getExtent());
+				cs.updateGrid();
+			}
+		}
+	}
+	
+	/**
+	 * Adds the grid written by <code>prepareGrid</code> or changes the drawn grid to it.
+	 */
+	public void addPreparedGrid() {
+		cs.updateGrid();
+		if (grid == null) {
+			grid = new BranchGroup();
+			grid.setCapability(BranchGroup.ALLOW_DETACH);
+			grid.addChild(cs.getGridShape());
+		}
+		if (!gridAdded) {
+			gridBranchGroup.addChild(grid);
+			gridAdded = true;
+		}
 	}
 	
 	/**
@@ -147,6 +239,7 @@ public class DrawComponents {
 	 */
 	public void removeGrid() {
 		gridBranchGroup.removeAllChildren();
+		gridAdded = false;
 	}
 	
 	// *********	
@@ -162,11 +255,9 @@ public class DrawComponents {
 		Point3D point = new Point3D(p);
 		if(!isInUniverse(point)) {
 			compObjectList.add(point);
-			BranchGroup pointBG = new BranchGroup();
-			pointBG.setCapability(BranchGroup.ALLOW_DETACH);
-			pointBG.addChild(point.getShape(type));
-			compBranchGroup.addChild(pointBG);
+			draw(point, type);
 		} else {
+			point.release();
 			MessageBox.InfoBox("Already drawn", "The Point is already drawn.");
 		}
 	}
@@ -175,16 +266,16 @@ public class DrawComponents {
 		if (p1 == p2) {
 			MessageBox.InfoBox("", "Same Points.");
 		} else {
-			MessageBox.InfoBox("", "The distance between the two points is: " +  p1.getDistance(p2));
+			MessageBox.InfoBox("", "The distance between the two points is: " +  format(queryCache.getDistance(p1, p2)));
 		}
 	}
 	
 	public void getDistance(Point point, Line line) {		
-		MessageBox.InfoBox("", "The shortest distance between the the point and  the line is: " +  point.getDistance(line));
+		MessageBox.InfoBox("", "The shortest distance between the the point and  the line is: " +  format(queryCache.getDistance(point, line)));
 	}
 	
 	public void getDistance(Point point, Plane plane) {		
-		MessageBox.InfoBox("", "The shortest distance between the the point and  the plane is: " +  point.getDistance(plane));
+		MessageBox.InfoBox("", "The shortest distance between the the point and  the plane is: " +  format(queryCache.getDistance(point, plane)));
 	}
 	
 	// ********	
@@ -203,11 +294,9 @@ public class DrawComponents {
 			line = new Line3D(v1, v2);
 			if(!isInUniverse(line)) {
 				compObjectList.add(line);
-				BranchGroup lineBG = new BranchGroup();
-				lineBG.setCapability(BranchGroup.ALLOW_DETACH);
-				lineBG.addChild(line.getShape(type));
-				compBranchGroup.addChild(lineBG);
+				draw(line, type);
 			} else {
+				line.release();
 				MessageBox.InfoBox("Already drawn", "The Line is already drawn.");
 			}
 		} catch (NoLineException e) {
@@ -227,11 +316,9 @@ public class DrawComponents {
 			line = new Line3D(p1, p2);
 			if(!isInUniverse(line)) {
 				compObjectList.add(line);
-				BranchGroup lineBG = new BranchGroup();
-				lineBG.setCapability(BranchGroup.ALLOW_DETACH);
-				lineBG.addChild(line.getShape(type));
-				compBranchGroup.addChild(lineBG);
+				draw(line, type);
 			} else {
+				line.release();
 				MessageBox.InfoBox("Already drawn", "The Line is already drawn.");
 			}
 		} catch (NoLineException e) {
@@ -249,10 +336,8 @@ public class DrawComponents {
 		if (line1 == line2) {
 			MessageBox.InfoBox("", "Same line.");
 		} else {
-			Point point;
 			try {
-				point = line1.getIntersection(line2);
-				addPoint(point.getPoint(), AppearanceType.INTERSECTION);
+				addPoint(queryCache.getIntersection(line1, line2), AppearanceType.INTERSECTION);
 			} catch (NoIntersectionException e) {
 				MessageBox.InfoBox("These lines do not intersect.", e.getMessage());
 			}
@@ -266,10 +351,8 @@ public class DrawComponents {
 	 * @param plane
 	 */
 	public void getIntersection(Line line, Plane plane) {
-		Point point;
 		try {
-			point = line.getIntersection(plane);
-			addPoint(point.getPoint(), AppearanceType.INTERSECTION);
+			addPoint(queryCache.getIntersection(line, plane), AppearanceType.INTERSECTION);
 		} catch (NoIntersectionException e) {
 			MessageBox.InfoBox("These objects do not intersect.", e.getMessage());
 		}		
@@ -279,12 +362,12 @@ public class DrawComponents {
 		if (line1 == line2) {
 			MessageBox.InfoBox("", "Same Line.");
 		} else {
-			MessageBox.InfoBox("", "The angle between the two lines is: " +  line1.getAngle(line2));
+			MessageBox.InfoBox("", "The angle between the two lines is: " +  format(queryCache.getAngle(line1, line2)));
 		}
 	}
 	
 	public void getAngle(Line line, Plane plane) {		
-		MessageBox.InfoBox("", "The angle between the line and the plane is: " +  line.getAngle(plane));
+		MessageBox.InfoBox("", "The angle between the line and the plane is: " +  format(queryCache.getAngle(line, plane)));
 	}
 	
 	// *********	
@@ -304,11 +387,9 @@ public class DrawComponents {
 			plane = new Plane3D(point1, point2, point3);
 			if(!isInUniverse(plane)) {
 				compObjectList.add( plane);
-				BranchGroup planeBG = new BranchGroup();
-				planeBG.setCapability(BranchGroup.ALLOW_DETACH);
-				planeBG.addChild(plane.getShape(type));
-				compBranchGroup.addChild(planeBG);
+				draw(plane, type);
 			} else {
+				plane.release();
 				MessageBox.InfoBox("Already drawn", "The Plane is already drawn.");
 			}
 		} catch (NoPlaneException e) {
@@ -329,11 +410,9 @@ public class DrawComponents {
 			plane = new Plane3D(point, vector1, vector2);
 			if(!isInUniverse(plane)) {
 				compObjectList.add(plane);
-				BranchGroup planeBG = new BranchGroup();
-				planeBG.setCapability(BranchGroup.ALLOW_DETACH);
-				planeBG.addChild(plane.getShape(type));
-				compBranchGroup.addChild(planeBG);
+				draw(plane, type);
 			} else {
+				plane.release();
 				MessageBox.InfoBox("Already drawn", "The Plane is already drawn.");
 			}
 		} catch (NoPlaneException e) {
@@ -353,11 +432,9 @@ public class DrawComponents {
 			plane = new Plane3D(vector, lambda);
 			if(!isInUniverse(plane)) {
 				compObjectList.add(plane);
-				BranchGroup planeBG = new BranchGroup();
-				planeBG.setCapability(BranchGroup.ALLOW_DETACH);
-				planeBG.addChild(plane.getShape(type));
-				compBranchGroup.addChild(planeBG);
+				draw(plane, type);
 			} else {
+				plane.release();
 				MessageBox.InfoBox("Already drawn", "The Plane is already drawn.");
 			}
 		} catch (NoPlaneException e) {
@@ -375,10 +452,9 @@ public class DrawComponents {
 		if (p1 == p2) {
 			MessageBox.InfoBox("", "Same Plane.");
 		} else {
-			Line line;
 			try {
-				line = p1.getIntersection(p2);
-				addLine(new Vector3d(line.getPointOnLine()), line.getDirection(), AppearanceType.INTERSECTION);
+				Vector3d[] line = queryCache.getIntersection(p1, p2);
+				addLine(line[0], line[1], AppearanceType.INTERSECTION);
 			} catch (NoIntersectionException e) {
 				MessageBox.InfoBox("These planes do not intersect.", e.getMessage());
 			}
@@ -389,7 +465,504 @@ public class DrawComponents {
 		if (plane1 == plane2) {
 			MessageBox.InfoBox("", "Same Plane.");
 		} else {
-			MessageBox.InfoBox("", "The angle between the planes is: " +  plane1.getAngle(plane2));
+			MessageBox.InfoBox("", "The angle between the planes is: " +  format(queryCache.getAngle(plane1, plane2)));
+		}
+	}
+	
+	// *****************	
+	// * INTERSECTIONS *
+	// *****************
+	
+	/**
+	 * Creates a sweep over all lines and planes of the scene. The sweep can be run in another thread.
+	 * 
+	 * @return the sweep
+	 */
+	public IntersectionSweep createIntersectionSweep() {
+		return new IntersectionSweep(compObjectList.deepClone(), RADIUS);
+	}
+	
+	/**
+	 * Adds the intersections found by a sweep into the scene in one batch. Intersections which are
+	 * already drawn or found twice are skipped.
+	 * 
+	 * @param the result of the sweep
+	 * @return the number of added components
+	 */
+	public int addIntersections(IntersectionSweep.Result result) {
+		ArrayList<Component> added = new ArrayList<Component>();
+		CanonicalIndex batchIndex = new CanonicalIndex();
+		GeometryStore store = GeometryStore.getDefault();
+		
+		double[] points = result.getPoints();
+		for (int i = 0; i < result.getNumPoints(); i++) {
+			Point3D point = new Point3D(points[3*i], points[3*i + 1], points[3*i + 2], store);
+			addToBatch(point, added, batchIndex);
+		}
+		
+		double[] lines = result.getLines();
+		for (int i = 0; i < result.getNumLines(); i++) {
+			int o = i * GeometryStore.LINE_COLUMNS;
+			try {
+				Line3D line = new Line3D(lines[o], lines[o + 1], lines[o + 2], lines[o + 3], lines[o + 4], lines[o + 5], store);
+				addToBatch(line, added, batchIndex);
+			} catch (NoLineException e) {
+				// the direction of an intersection line is never zero
+			}
+		}
+		
+		compObjectList.addBatch(added);
+		drawAll(added, AppearanceType.INTERSECTION);
+		return added.size();
+	}
+	
+	/**
+	 * Sets whether the intersections of the lines and planes are kept up to date while components are
+	 * added and removed. Switching it on computes the intersections of the current scene.
+	 * 
+	 * @param true to maintain the intersections
+	 */
+	public void setMaintainIntersections(boolean maintain) {
+		if (maintain && maintainer == null) {
+			maintainer = new IntersectionMaintainer(compObjectList, RADIUS, new IntersectionMaintainer.Listener() {
+				@Override
+				public void intersectionAdded(Component comp) {
+					compObjectList.add(comp);
+					draw(comp, AppearanceType.INTERSECTION);
+				}
+				
+				@Override
+				public void intersectionsRemoved(List<Component> comps) {
+					remove(comps);
+				}
+			});
+		} else if (!maintain && maintainer != null) {
+			maintainer.dispose();
+			maintainer = null;
+		}
+	}
+	
+	public boolean isMaintainIntersections() {
+		return maintainer != null;
+	}
+	
+	/**
+	 * Returns the cache of the distance, angle and intersection queries, for example for its statistics.
+	 * 
+	 * @return the query cache
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+	
+	// ***************	
+	// * CONVEX HULL *
+	// ***************
+	
+	private BranchGroup hullBranchGroup = new BranchGroup();
+	
+	/**
+	 * Copies the coordinates of the points of the scene, for example to compute their convex hull in
+	 * another thread.
+	 * 
+	 * @return the x, y and z coordinates of the points in the order of the list
+	 */
+	public double[][] getPointCoordinates() {
+		return getPointCoordinates(compObjectList.deepClone());
+	}
+	
+	/**
+	 * Copies the coordinates of the points among the given components.
+	 * 
+	 * @param the components, lines and planes are skipped
+	 * @return the x, y and z coordinates of the points in the order of the components
+	 */
+	public static double[][] getPointCoordinates(Collection<? extends Component> comps) {
+		int n = 0;
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.POINT) {
+				n++;
+			}
+		}
+		double[][] coords = new double[3][n];
+		int i = 0;
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.POINT) {
+				Point point = (Point) comp;
+				coords[0][i] = point.getX();
+				coords[1][i] = point.getY();
+				coords[2][i] = point.getZ();
+				i++;
+			}
+		}
+		return coords;
+	}
+	
+	/**
+	 * Draws the facets of a convex hull as one triangle geometry. A hull drawn before is replaced.
+	 * 
+	 * @param the hull
+	 */
+	public void addConvexHull(ConvexHull hull) {
+		int[] vertices = hull.getVertices();
+		int[] facets = hull.getFacets();
+		
+		double[] coords = new double[3 * vertices.length];
+		for (int i = 0; i < vertices.length; i++) {
+			coords[3*i] = hull.getCoordinate(vertices[i], GeometryStore.X);
+			coords[3*i + 1] = hull.getCoordinate(vertices[i], GeometryStore.Y);
+			coords[3*i + 2] = hull.getCoordinate(vertices[i], GeometryStore.Z);
+		}
+		// the facets refer to the points, the geometry only has the vertices
+		for (int i = 0; i < facets.length; i++) {
+			facets[i] = Arrays.binarySearch(vertices, facets[i]);
+		}
+		
+		IndexedTriangleArray triangles = new IndexedTriangleArray(vertices.length, IndexedTriangleArray.COORDINATES, facets.length);
+		triangles.setCoordinates(0, coords);
+		triangles.setCoordinateIndices(0, facets);
+		Shape3D shape = new Shape3D(triangles, ComponentAppearance.getAppearance(ComponentType.PLANE, AppearanceType.NORMAL));
+		
+		BranchGroup hullBG = new BranchGroup();
+		hullBG.setCapability(BranchGroup.ALLOW_DETACH);
+		hullBG.addChild(shape);
+		removeConvexHull();
+		hullBranchGroup.addChild(hullBG);
+	}
+	
+	/**
+	 * Adds the planes of the facets of a convex hull into the scene in one batch. Facets in the same plane
+	 * give one plane, planes which are already drawn are skipped.
+	 * 
+	 * @param the hull
+	 * @return the number of added planes
+	 */
+	public int addSupportingPlanes(ConvexHull hull) {
+		ArrayList<Component> added = new ArrayList<Component>();
+		CanonicalIndex batchIndex = new CanonicalIndex();
+		GeometryStore store = GeometryStore.getDefault();
+		
+		double[] planes = hull.getPlanes();
+		for (int i = 0; i < hull.getNumFacets(); i++) {
+			int o = i * GeometryStore.PLANE_COLUMNS;
+			try {
+				Plane3D plane = new Plane3D(planes[o], planes[o + 1], planes[o + 2], planes[o + 3], store);
+				addToBatch(plane, added, batchIndex);
+			} catch (NoPlaneException e) {
+				// the normal of a facet is never zero
+			}
+		}
+		
+		compObjectList.addBatch(added);
+		drawAll(added, AppearanceType.NORMAL);
+		return added.size();
+	}
+	
+	/**
+	 * Removes the drawn convex hull.
+	 */
+	public void removeConvexHull() {
+		hullBranchGroup.removeAllChildren();
+	}
+	
+	// *******************	
+	// * PLANE DETECTION *
+	// *******************
+	
+	/**
+	 * the colours of the inliers of the detected planes, repeated if there are more planes
+	 */
+	private static final Color3f[] INLIER_COLORS = { new Color3f(0.9f, 0.1f, 0.1f), new Color3f(0.1f, 0.6f, 0.1f),
+		new Color3f(0.1f, 0.2f, 0.9f), new Color3f(0.9f, 0.6f, 0.0f), new Color3f(0.6f, 0.1f, 0.8f), new Color3f(0.0f, 0.7f, 0.7f) };
+	
+	private BranchGroup inlierBranchGroup = new BranchGroup();
+	
+	/**
+	 * Adds planes found by a <code>PlaneDetector</code> into the scene in one batch and draws their inliers
+	 * in one colour per plane. Inliers drawn before are replaced.
+	 * 
+	 * @param detections - the detected planes
+	 * @param points - the x, y and z coordinates of the points the planes were detected in
+	 * @return the number of added planes
+	 */
+	public int addDetectedPlanes(List<PlaneDetector.Detection> detections, double[][] points) {
+		ArrayList<Component> added = new ArrayList<Component>();
+		CanonicalIndex batchIndex = new CanonicalIndex();
+		GeometryStore store = GeometryStore.getDefault();
+		
+		int numInliers = 0;
+		for (PlaneDetector.Detection detection : detections) {
+			double[] p = detection.getPlane();
+			try {
+				addToBatch(new Plane3D(p[0], p[1], p[2], p[3], store), added, batchIndex);
+			} catch (NoPlaneException e) {
+				// the normal of a detected plane is never zero
+			}
+			numInliers += detection.getNumInliers();
+		}
+		
+		compObjectList.addBatch(added);
+		drawAll(added, AppearanceType.NORMAL);
+		
+		removeInliers();
+		if (numInliers > 0) {
+			// one geometry with a colour per point for all inliers
+			float[] coords = new float[3 * numInliers];
+			float[] colors = new float[3 * numInliers];
+			int o = 0;
+			for (int d = 0; d < detections.size(); d++) {
+				Color3f color = INLIER_COLORS[d % INLIER_COLORS.length];
+				int[] inliers = detections.get(d).getInliers();
+				for (int i = 0; i < inliers.length; i++, o += 3) {
+					coords[o] = (float) points[0][inliers[i]];
+					coords[o + 1] = (float) points[1][inliers[i]];
+					coords[o + 2] = (float) points[2][inliers[i]];
+					colors[o] = color.x;
+					colors[o + 1] = color.y;
+					colors[o + 2] = color.z;
+				}
+			}
+			PointArray inlierArray = new PointArray(numInliers, PointArray.COORDINATES | PointArray.COLOR_3);
+			inlierArray.setCoordinates(0, coords);
+			inlierArray.setColors(0, colors);
+			
+			Appearance appearance = new Appearance();
+			appearance.setPointAttributes(new PointAttributes(3.0f, false));
+			
+			BranchGroup inlierBG = new BranchGroup();
+			inlierBG.setCapability(BranchGroup.ALLOW_DETACH);
+			inlierBG.addChild(new Shape3D(inlierArray, appearance));
+			inlierBranchGroup.addChild(inlierBG);
+		}
+		return added.size();
+	}
+	
+	/**
+	 * Removes the drawn inliers of the detected planes.
+	 */
+	public void removeInliers() {
+		inlierBranchGroup.removeAllChildren();
+	}
+	
+	// ***********	
+	// * FITTING *
+	// ***********
+	
+	/**
+	 * Fits a plane to all points of the scene and adds it into the scene.
+	 */
+	public void fitPlane() {
+		fitPlane(compObjectList.deepClone());
+	}
+	
+	/**
+	 * Fits a plane to the points among the components in one pass and adds it into the scene.
+	 * 
+	 * @param the components, lines and planes are skipped
+	 */
+	public void fitPlane(Collection<? extends Component> comps) {
+		PointFit fit = fitPoints(comps);
+		try {
+			addFitted(fit.fitPlane(GeometryStore.getDefault()), "Plane", fit.getPlaneError());
+		} catch (NoPlaneException e) {
+			MessageBox.InfoBox("Not a Plane", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Fits a line to all points of the scene and adds it into the scene.
+	 */
+	public void fitLine() {
+		fitLine(compObjectList.deepClone());
+	}
+	
+	/**
+	 * Fits a line to the points among the components in one pass and adds it into the scene.
+	 * 
+	 * @param the components, lines and planes are skipped
+	 */
+	public void fitLine(Collection<? extends Component> comps) {
+		PointFit fit = fitPoints(comps);
+		try {
+			addFitted(fit.fitLine(GeometryStore.getDefault()), "Line", fit.getLineError());
+		} catch (NoLineException e) {
+			MessageBox.InfoBox("Not a Line", e.getMessage());
+		}
+	}
+	
+	private static PointFit fitPoints(Collection<? extends Component> comps) {
+		PointFit fit = new PointFit();
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.POINT) {
+				Point point = (Point) comp;
+				fit.add(point.getX(), point.getY(), point.getZ());
+			}
+		}
+		return fit;
+	}
+	
+	private void addFitted(Component comp, String name, double error) {
+		if (!isInUniverse(comp)) {
+			compObjectList.add(comp);
+			draw(comp, AppearanceType.NORMAL);
+			MessageBox.InfoBox("", "The root mean square distance of the points to the " + name.toLowerCase() + " is: " + format(error));
+		} else {
+			comp.release();
+			MessageBox.InfoBox("Already drawn", "The " + name + " is already drawn.");
+		}
+	}
+	
+	// ***************	
+	// * HALF-SPACES *
+	// ***************
+	
+	/**
+	 * Returns the points of the scene which are inside the region bounded by all planes of the scene.
+	 * 
+	 * @return the points below or on every plane
+	 */
+	public List<Point> findPointsInside() {
+		return findPointsInside(compObjectList.deepClone());
+	}
+	
+	/**
+	 * Returns the points of the scene which are inside the region bounded by the planes among the given
+	 * components. A point is inside a plane if <code>Ax + By + Cz + D</code> is not positive.
+	 * 
+	 * @param the components, points and lines are skipped
+	 * @return the points below or on every plane
+	 */
+	public List<Point> findPointsInside(Collection<? extends Component> comps) {
+		ArrayList<Plane> planes = new ArrayList<Plane>();
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.PLANE) {
+				planes.add((Plane) comp);
+			}
+		}
+		
+		ArrayList<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < compObjectList.size(); i++) {
+			if (compObjectList.get(i).getType() == ComponentType.POINT) {
+				points.add((Point) compObjectList.get(i));
+			}
+		}
+		
+		double[][] coords = getPointCoordinates(points);
+		HalfSpaceClassifier classifier = new HalfSpaceClassifier(coords[0], coords[1], coords[2], points.size());
+		int[] inside = HalfSpaceClassifier.toIndices(classifier.classify(planes).insideAll());
+		
+		ArrayList<Point> result = new ArrayList<Point>(inside.length);
+		for (int i = 0; i < inside.length; i++) {
+			result.add(points.get(inside[i]));
+		}
+		return result;
+	}
+	
+	// *************	
+	// * TRANSFORM *
+	// *************
+	
+	/**
+	 * Applies the transformation to all components of the scene.
+	 * 
+	 * @param the transformation
+	 */
+	public void transform(GeometryTransform transform) {
+		transform(transform, null);
+	}
+	
+	/**
+	 * Applies the transformation to the given components or to all if null. The geometries are edited in
+	 * place, the points and every batch of lines once, so the scene graph is not changed. The convex hull
+	 * and the inliers no longer fit and are removed.
+	 * 
+	 * @param the transformation
+	 * @param the components of the scene or null
+	 */
+	public void transform(GeometryTransform transform, Collection<? extends Component> comps) {
+		if (comps == null) {
+			comps = compObjectList.deepClone();
+			compObjectList.transform(transform);
+		} else {
+			compObjectList.transform(transform, comps);
+		}
+		// derived intersections may have been retracted in the meantime, their shapes are skipped
+		ArrayList<Line3D> lines = new ArrayList<Line3D>();
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.PLANE) {
+				comp.updateShape();
+			} else if (comp.getType() == ComponentType.LINE) {
+				if (lineRenderer.contains((Line3D) comp)) {
+					lines.add((Line3D) comp);
+				}
+			} else if (pointRenderer.contains((Point3D) comp)) {
+				points.add((Point3D) comp);
+			}
+		}
+		// the geometries are live, every one is edited once
+		lineRenderer.update(lines);
+		pointRenderer.update(points);
+		
+		removeConvexHull();
+		removeInliers();
+	}
+	
+	/**
+	 * draws a component which was added to the list
+	 */
+	private void draw(Component comp, AppearanceType type) {
+		if (comp.getType() == ComponentType.LINE) {
+			lineRenderer.add((Line3D) comp, type);
+		} else if (comp.getType() == ComponentType.POINT) {
+			pointRenderer.add((Point3D) comp, type);
+		} else {
+			BranchGroup compBG = new BranchGroup();
+			compBG.setCapability(BranchGroup.ALLOW_DETACH);
+			compBG.addChild(comp.getShape(type));
+			compBranchGroup.addChild(compBG);
+			branchGroups.put(comp, compBG);
+		}
+	}
+	
+	/**
+	 * draws components which were added to the list, the lines and the points are added at once
+	 */
+	private void drawAll(Collection<? extends Component> comps, AppearanceType type) {
+		ArrayList<Line3D> lines = new ArrayList<Line3D>();
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		for (Component comp : comps) {
+			if (comp.getType() == ComponentType.LINE) {
+				lines.add((Line3D) comp);
+			} else if (comp.getType() == ComponentType.POINT) {
+				points.add((Point3D) comp);
+			} else {
+				draw(comp, type);
+			}
+		}
+		lineRenderer.add(lines, type);
+		pointRenderer.add(points, type);
+	}
+	
+	/**
+	 * removes the shape of a component from the scene
+	 */
+	private void erase(Component comp) {
+		if (comp.getType() == ComponentType.LINE) {
+			lineRenderer.remove((Line3D) comp);
+		} else if (comp.getType() == ComponentType.POINT) {
+			pointRenderer.remove((Point3D) comp);
+		} else {
+			compBranchGroup.removeChild(branchGroups.remove(comp));
+		}
+	}
+	
+	private void addToBatch(Component comp, ArrayList<Component> added, CanonicalIndex batchIndex) {
+		if (isInUniverse(comp) || batchIndex.contains(comp)) {
+			comp.release();
+		} else {
+			batchIndex.add(comp);
+			added.add(comp);
 		}
 	}
 	
@@ -399,34 +972,51 @@ public class DrawComponents {
 	 * @param the index of the component to remove
 	 */
 	public void remove(int index) {
+		Component comp = compObjectList.get(index);
 		compObjectList.remove(index);
-		compBranchGroup.removeChild(index);
+		erase(comp);
+		comp.release();
+	}
+	
+	/**
+	 * Removes the components which are in the scene, the list is compacted once.
+	 * 
+	 * @param the components to remove
+	 */
+	public void remove(Collection<? extends Component> comps) {
+		for (Component comp : compObjectList.removeBatch(comps)) {
+			erase(comp);
+			comp.release();
+		}
 	}
 	
 	/**
 	 * Removes all components
 	 */
 	public void removeAll() {
+		for(int i = 0; i < compObjectList.size(); i++) {
+			compObjectList.get(i).release();
+		}
 		compObjectList.removeAll();
 		compBranchGroup.removeAllChildren();
+		branchGroups.clear();
+		lineRenderer.removeAll();
+		pointRenderer.removeAll();
+		removeConvexHull();
+		removeInliers();
+	}
+	
+	/**
+	 * Rounds a result for the output in a message box.
+	 * 
+	 * @param the calculated value
+	 * @return the value rounded according to the default tolerance
+	 */
+	private String format(double value) {
+		return Tolerance.getDefault().format(value);
 	}
 	
 	private boolean isInUniverse(Component comp) {
-		for(int i=0;i<compObjectList.size();i++) {
-			if(comp.getType() == ComponentType.POINT && compObjectList.get(i).getType() == ComponentType.POINT) {
-				if(((Point)comp).equals((Point)compObjectList.get(i))) {
-					return true;
-				}
-			} else if(comp.getType() == ComponentType.LINE && compObjectList.get(i).getType() == ComponentType.LINE) {
-				if(((Line)comp).equals((Line)compObjectList.get(i))) {
-					return true;
-				}
-			} else if(comp.getType() == ComponentType.PLANE && compObjectList.get(i).getType() == ComponentType.PLANE) {
-				if(((Plane)comp).equals((Plane)compObjectList.get(i))) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return compObjectList.findEqual(comp) != null;
 	}
 }
@@ -0,0 +1,295 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Arrays;
+
+/**
+ * Stores the parameters of all points, lines and planes in packed primitive columns (struct of arrays).
+ * Every component only keeps its index into the store. The columns of each kind are dense: when a
+ * component is released the last entry is moved into the free slot and its owner is told about its
+ * new index. Note that the arrays returned by the <code>get...Column</code> methods are replaced when
+ * the store grows, so they have to be fetched again after adding components.
+ * <p>
+ * All methods are synchronized, so a reader never sees a column which a concurrent add has replaced.
+ * The column arrays themselves are not guarded, bulk readers must not run concurrently with adds.
+ */
+public class GeometryStore {
+
+	/**
+	 * column indices of a point > [x, y, z]
+	 */
+	public static final int X = 0, Y = 1, Z = 2;
+
+	/**
+	 * column indices of a line > [x, y, z, rx, ry, rz]
+	 */
+	public static final int RX = 3, RY = 4, RZ = 5;
+
+	/**
+	 * column indices of a plane > [A, B, C, D]
+	 */
+	public static final int A = 0, B = 1, C = 2, D = 3;
+
+	public static final int POINT_COLUMNS = 3, LINE_COLUMNS = 6, PLANE_COLUMNS = 4;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * the store used by the components if no other store is given
+	 */
+	private static final GeometryStore defaultStore = new GeometryStore();
+
+	/**
+	 * An object which owns an entry in the store. The owner is notified whenever its entry is moved.
+	 */
+	public interface Handle {
+
+		/**
+		 * Sets the new index of the entry of this handle.
+		 *
+		 * @param the new index
+		 */
+		public void setStoreIndex(int index);
+	}
+
+	private final Table points;
+	private final Table lines;
+	private final Table planes;
+
+	public GeometryStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a store with room for the given number of components of each kind.
+	 *
+	 * @param the initial capacity, at least 1
+	 */
+	public GeometryStore(int initialCapacity) {
+		if(initialCapacity < 1) {
+			throw new IllegalArgumentException("the capacity must be positive: " + initialCapacity);
+		}
+		points = new Table(POINT_COLUMNS, initialCapacity);
+		lines = new Table(LINE_COLUMNS, initialCapacity);
+		planes = new Table(PLANE_COLUMNS, initialCapacity);
+	}
+
+	/**
+	 * Returns the store used by the components if no other store is given.
+	 *
+	 * @return the default store
+	 */
+	public static GeometryStore getDefault() {
+		return defaultStore;
+	}
+
+	// *********
+	// * POINT *
+	// *********
+
+	/**
+	 * Adds a point to the store.
+	 *
+	 * @return the index of the new point
+	 */
+	public synchronized int addPoint(Handle owner, double x, double y, double z) {
+		int index = points.allocate(owner);
+		double[][] c = points.columns;
+		c[X][index] = x;
+		c[Y][index] = y;
+		c[Z][index] = z;
+		return index;
+	}
+
+	public synchronized void removePoint(int index) {
+		points.release(index);
+	}
+
+	public synchronized int getNumPoints() {
+		return points.size;
+	}
+
+	public synchronized double getPointValue(int index, int column) {
+		return points.columns[column][index];
+	}
+
+	public synchronized void setPointValue(int index, int column, double value) {
+		points.columns[column][index] = value;
+	}
+
+	/**
+	 * Returns the column array of the points, valid for the indices [0, getNumPoints()).
+	 *
+	 * @param the column > X, Y or Z
+	 * @return the column array
+	 */
+	public synchronized double[] getPointColumn(int column) {
+		return points.columns[column];
+	}
+
+	public synchronized Handle getPointOwner(int index) {
+		return points.owners[index];
+	}
+
+	// ********
+	// * LINE *
+	// ********
+
+	/**
+	 * Adds a line to the store.
+	 *
+	 * @return the index of the new line
+	 */
+	public synchronized int addLine(Handle owner, double x, double y, double z, double rx, double ry, double rz) {
+		int index = lines.allocate(owner);
+		double[][] c = lines.columns;
+		c[X][index] = x;
+		c[Y][index] = y;
+		c[Z][index] = z;
+		c[RX][index] = rx;
+		c[RY][index] = ry;
+		c[RZ][index] = rz;
+		return index;
+	}
+
+	public synchronized void removeLine(int index) {
+		lines.release(index);
+	}
+
+	public synchronized int getNumLines() {
+		return lines.size;
+	}
+
+	public synchronized double getLineValue(int index, int column) {
+		return lines.columns[column][index];
+	}
+
+	public synchronized void setLineValue(int index, int column, double value) {
+		lines.columns[column][index] = value;
+	}
+
+	/**
+	 * Returns the column array of the lines, valid for the indices [0, getNumLines()).
+	 *
+	 * @param the column > X, Y, Z, RX, RY or RZ
+	 * @return the column array
+	 */
+	public synchronized double[] getLineColumn(int column) {
+		return lines.columns[column];
+	}
+
+	public synchronized Handle getLineOwner(int index) {
+		return lines.owners[index];
+	}
+
+	// *********
+	// * PLANE *
+	// *********
+
+	/**
+	 * Adds a plane to the store.
+	 *
+	 * @return the index of the new plane
+	 */
+	public synchronized int addPlane(Handle owner, double a, double b, double c, double d) {
+		int index = planes.allocate(owner);
+		double[][] col = planes.columns;
+		col[A][index] = a;
+		col[B][index] = b;
+		col[C][index] = c;
+		col[D][index] = d;
+		return index;
+	}
+
+	public synchronized void removePlane(int index) {
+		planes.release(index);
+	}
+
+	public synchronized int getNumPlanes() {
+		return planes.size;
+	}
+
+	public synchronized double getPlaneValue(int index, int column) {
+		return planes.columns[column][index];
+	}
+
+	public synchronized void setPlaneValue(int index, int column, double value) {
+		planes.columns[column][index] = value;
+	}
+
+	/**
+	 * Returns the column array of the planes, valid for the indices [0, getNumPlanes()).
+	 *
+	 * @param the column > A, B, C or D
+	 * @return the column array
+	 */
+	public synchronized double[] getPlaneColumn(int column) {
+		return planes.columns[column];
+	}
+
+	public synchronized Handle getPlaneOwner(int index) {
+		return planes.owners[index];
+	}
+
+	/**
+	 * A dense set of columns of equal length together with the owner of each row.
+	 */
+	private static class Table {
+
+		private double[][] columns;
+		private Handle[] owners;
+		private int size = 0;
+
+		private Table(int numColumns, int capacity) {
+			columns = new double[numColumns][capacity];
+			owners = new Handle[capacity];
+		}
+
+		private int allocate(Handle owner) {
+			if(size == owners.length) {
+				int capacity = owners.length * 2;
+				for(int i = 0; i < columns.length; i++) {
+					columns[i] = Arrays.copyOf(columns[i], capacity);
+				}
+				owners = Arrays.copyOf(owners, capacity);
+			}
+			owners[size] = owner;
+			return size++;
+		}
+
+		private void release(int index) {
+			if(index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+			}
+
+			int last = --size;
+
+			// move the last entry into the free slot to keep the columns dense
+			if(index != last) {
+				for(int i = 0; i < columns.length; i++) {
+					columns[i][index] = columns[i][last];
+				}
+				owners[index] = owners[last];
+				owners[index].setStoreIndex(index);
+			}
+			owners[last] = null;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.vecmath.Matrix3d;
+import javax.vecmath.Matrix4d;
+
+import ch.hsr.i.jvector.components.Component3D;
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.exceptions.NoMatrixException.StateNoMatrix;
+import ch.hsr.i.jvector.interfaces.Component;
+
+/**
+ * An affine transformation which is applied in place to the parameters of the components in a
+ * <code>GeometryStore</code>. Points and the points on the lines are mapped by the whole matrix, the
+ * directions of the lines by its linear part only, and the normals of the planes by the inverse transpose
+ * of the linear part. A transformed normal keeps the length it had before.
+ * <p>
+ * The rows of the store are transformed in parallel. The components are not notified, the caller must
+ * update whatever depends on their parameters, see <code>ComponentsList.transform</code>.
+ */
+public class GeometryTransform {
+
+	/**
+	 * ranges below this size are transformed in the current thread
+	 */
+	private static final int SEQUENTIAL_ROWS = 1 << 14;
+
+	/**
+	 * the linear part row by row and the translation
+	 */
+	private final double m00, m01, m02, m10, m11, m12, m20, m21, m22, tx, ty, tz;
+
+	/**
+	 * the inverse transpose of the linear part
+	 */
+	private final double n00, n01, n02, n10, n11, n12, n20, n21, n22;
+
+	private boolean parallel = true;
+
+	/**
+	 * Creates the transformation for the given matrix.
+	 *
+	 * @param the matrix, its last row must be (0, 0, 0, 1)
+	 * @throws NoMatrixException if the linear part of the matrix is singular
+	 */
+	public GeometryTransform(Matrix4d matrix) throws NoMatrixException {
+
+		if(matrix.m30 != 0 || matrix.m31 != 0 || matrix.m32 != 0 || matrix.m33 != 1) {
+			throw new IllegalArgumentException("the matrix is not affine");
+		}
+
+		Matrix3d linear = new Matrix3d();
+		matrix.getRotationScale(linear);
+		double det = linear.determinant();
+		if(det == 0 || Double.isNaN(det) || Double.isInfinite(det)) {
+			throw new NoMatrixException(StateNoMatrix.SINGULAR);
+		}
+
+		m00 = linear.m00; m01 = linear.m01; m02 = linear.m02;
+		m10 = linear.m10; m11 = linear.m11; m12 = linear.m12;
+		m20 = linear.m20; m21 = linear.m21; m22 = linear.m22;
+		tx = matrix.m03; ty = matrix.m13; tz = matrix.m23;
+
+		// the inverse transpose is the cofactor matrix divided by the determinant
+		n00 = (m11 * m22 - m12 * m21) / det;
+		n01 = (m12 * m20 - m10 * m22) / det;
+		n02 = (m10 * m21 - m11 * m20) / det;
+		n10 = (m02 * m21 - m01 * m22) / det;
+		n11 = (m00 * m22 - m02 * m20) / det;
+		n12 = (m01 * m20 - m00 * m21) / det;
+		n20 = (m01 * m12 - m02 * m11) / det;
+		n21 = (m02 * m10 - m00 * m12) / det;
+		n22 = (m00 * m11 - m01 * m10) / det;
+	}
+
+	/**
+	 * Sets whether large stores are transformed in parallel, the default is true.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Transforms all points, lines and planes of the store.
+	 *
+	 * @param the store
+	 */
+	public void apply(GeometryStore store) {
+		apply(store, ComponentType.POINT, null, store.getNumPoints());
+		apply(store, ComponentType.LINE, null, store.getNumLines());
+		apply(store, ComponentType.PLANE, null, store.getNumPlanes());
+	}
+
+	/**
+	 * Transforms the given components. The components may be in different stores, but none must be
+	 * released or given twice.
+	 *
+	 * @param the components
+	 */
+	public void apply(Collection<? extends Component> comps) {
+
+		Map<GeometryStore, IntList[]> rows = new IdentityHashMap<GeometryStore, IntList[]>();
+		for(Component comp : comps) {
+			Component3D c = (Component3D) comp;
+			IntList[] lists = rows.get(c.getStore());
+			if(lists == null) {
+				lists = new IntList[] { new IntList(), new IntList(), new IntList() };
+				rows.put(c.getStore(), lists);
+			}
+			lists[c.getType().ordinal()].add(c.getStoreIndex());
+		}
+
+		for(Map.Entry<GeometryStore, IntList[]> entry : rows.entrySet()) {
+			IntList[] lists = entry.getValue();
+			apply(entry.getKey(), ComponentType.POINT, lists[ComponentType.POINT.ordinal()]);
+			apply(entry.getKey(), ComponentType.LINE, lists[ComponentType.LINE.ordinal()]);
+			apply(entry.getKey(), ComponentType.PLANE, lists[ComponentType.PLANE.ordinal()]);
+		}
+	}
+
+	private void apply(GeometryStore store, ComponentType type, IntList list) {
+		if(list.size > 0) {
+			apply(store, type, list.values, list.size);
+		}
+	}
+
+	/**
+	 * transforms the rows [0, n) of the table or the first n of the given rows
+	 */
+	private void apply(GeometryStore store, ComponentType type, int[] rows, int n) {
+
+		double[][] columns;
+		switch(type) {
+		case POINT:
+			columns = new double[GeometryStore.POINT_COLUMNS][];
+			for(int i = 0; i < columns.length; i++) {
+				columns[i] = store.getPointColumn(i);
+			}
+			break;
+		case LINE:
+			columns = new double[GeometryStore.LINE_COLUMNS][];
+			for(int i = 0; i < columns.length; i++) {
+				columns[i] = store.getLineColumn(i);
+			}
+			break;
+		default:
+			columns = new double[GeometryStore.PLANE_COLUMNS][];
+			for(int i = 0; i < columns.length; i++) {
+				columns[i] = store.getPlaneColumn(i);
+			}
+			break;
+		}
+
+		TransformTask task = new TransformTask(type, columns, rows, 0, n);
+		if(parallel && n > SEQUENTIAL_ROWS) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+	}
+
+	private void transformPoints(double[][] c, int[] rows, int from, int to) {
+		double[] xs = c[GeometryStore.X], ys = c[GeometryStore.Y], zs = c[GeometryStore.Z];
+		for(int k = from; k < to; k++) {
+			int i = rows == null ? k : rows[k];
+			double x = xs[i], y = ys[i], z = zs[i];
+			xs[i] = m00 * x + m01 * y + m02 * z + tx;
+			ys[i] = m10 * x + m11 * y + m12 * z + ty;
+			zs[i] = m20 * x + m21 * y + m22 * z + tz;
+		}
+	}
+
+	private void transformLines(double[][] c, int[] rows, int from, int to) {
+		transformPoints(c, rows, from, to);
+		double[] rxs = c[GeometryStore.RX], rys = c[GeometryStore.RY], rzs = c[GeometryStore.RZ];
+		for(int k = from; k < to; k++) {
+			int i = rows == null ? k : rows[k];
+			double rx = rxs[i], ry = rys[i], rz = rzs[i];
+			rxs[i] = m00 * rx + m01 * ry + m02 * rz;
+			rys[i] = m10 * rx + m11 * ry + m12 * rz;
+			rzs[i] = m20 * rx + m21 * ry + m22 * rz;
+		}
+	}
+
+	private void transformPlanes(double[][] c, int[] rows, int from, int to) {
+		double[] as = c[GeometryStore.A], bs = c[GeometryStore.B], cs = c[GeometryStore.C], ds = c[GeometryStore.D];
+		for(int k = from; k < to; k++) {
+			int i = rows == null ? k : rows[k];
+			double a = as[i], b = bs[i], cc = cs[i];
+			double na = n00 * a + n01 * b + n02 * cc;
+			double nb = n10 * a + n11 * b + n12 * cc;
+			double nc = n20 * a + n21 * b + n22 * cc;
+
+			double scale = Math.sqrt((a * a + b * b + cc * cc) / (na * na + nb * nb + nc * nc));
+			na *= scale;
+			nb *= scale;
+			nc *= scale;
+
+			as[i] = na;
+			bs[i] = nb;
+			cs[i] = nc;
+			// a point x on the old plane is moved to A x + t on the new plane
+			ds[i] = ds[i] * scale - (na * tx + nb * ty + nc * tz);
+		}
+	}
+
+	private class TransformTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ComponentType type;
+		private final double[][] columns;
+		private final int[] rows;
+		private final int from;
+		private final int to;
+
+		TransformTask(ComponentType type, double[][] columns, int[] rows, int from, int to) {
+			this.type = type;
+			this.columns = columns;
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from <= SEQUENTIAL_ROWS) {
+				switch(type) {
+				case POINT:
+					transformPoints(columns, rows, from, to);
+					break;
+				case LINE:
+					transformLines(columns, rows, from, to);
+					break;
+				case PLANE:
+					transformPlanes(columns, rows, from, to);
+					break;
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new TransformTask(type, columns, rows, from, middle), new TransformTask(type, columns, rows, middle, to));
+		}
+	}
+}
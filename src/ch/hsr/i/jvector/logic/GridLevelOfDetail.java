@@ -0,0 +1,186 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+/**
+ * Chooses the spacing and the window of the grid from the distance between the view and the point it
+ * looks at. Every level of detail multiplies the spacing by ten, the level is chosen such that the
+ * view is between <code>DETAIL_DISTANCE</code> and ten times that many grid spacings away. The window
+ * has <code>WINDOW_LINES</code> lines on every side of its centre, so the number of lines stays the same
+ * at every zoom level.
+ * <p>
+ * The level only changes once the distance has passed the border between two levels by a part of a
+ * level, and the window only follows the view once its centre has moved a part of the window away, so a
+ * view moving around a border does not regenerate the grid with every frame.
+ */
+public class GridLevelOfDetail {
+
+	/**
+	 * the distance in grid spacings at which a level starts
+	 */
+	public static final double DETAIL_DISTANCE = 20;
+	
+	/**
+	 * the number of grid lines on every side of the centre of the window
+	 */
+	public static final int WINDOW_LINES = 160;
+	
+	/**
+	 * the part of a level, in decades of the distance, by which the distance passes a border before the
+	 * level changes
+	 */
+	private static final double HYSTERESIS = 0.15;
+	
+	/**
+	 * the part of the extent by which the view moves before the window follows
+	 */
+	private static final double WINDOW_SLACK = 0.25;
+	
+	/**
+	 * the levels are limited so the spacing stays well inside the range of a float
+	 */
+	private static final int MIN_LEVEL = -6, MAX_LEVEL = 6;
+
+	private double offset;
+	private int level;
+	private double centerX, centerY, centerZ;
+	
+	/**
+	 * the last view, valid is false before the first one
+	 */
+	private boolean valid;
+	private double distance;
+	private double viewX, viewY, viewZ;
+	
+	/**
+	 * Creates the level of detail of a grid with the offset at level 0.
+	 * 
+	 * @param the offset between two grid lines at level 0
+	 */
+	public GridLevelOfDetail(double offset) {
+		setOffset(offset);
+	}
+	
+	/**
+	 * Sets the offset between two grid lines at level 0, the level and the window are chosen again for
+	 * the last view.
+	 * 
+	 * @param the offset
+	 */
+	public void setOffset(double offset) {
+		if(!(offset > 0)) {
+			throw new IllegalArgumentException("the offset must be positive");
+		}
+		this.offset = offset;
+		if(valid) {
+			level = getLevel(distance);
+			moveWindow(viewX, viewY, viewZ);
+		}
+	}
+	
+	public double getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * Chooses the level and the window for the view.
+	 * 
+	 * @param distance - the distance between the view and the point it looks at
+	 * @param x, y, z - the point the view looks at
+	 * @return true if the level or the window has changed and the grid must be regenerated
+	 */
+	public boolean update(double distance, double x, double y, double z) {
+		
+		boolean changed = false;
+		double decades = getDecades(distance);
+		if(!valid || decades < level - HYSTERESIS || decades > level + 1 + HYSTERESIS) {
+			int newLevel = getLevel(distance);
+			changed = !valid || newLevel != level;
+			level = newLevel;
+		}
+		
+		double slack = WINDOW_SLACK * getExtent();
+		if(changed || Math.abs(x - centerX) > slack || Math.abs(y - centerY) > slack || Math.abs(z - centerZ) > slack) {
+			moveWindow(x, y, z);
+			changed = true;
+		}
+		
+		valid = true;
+		this.distance = distance;
+		viewX = x;
+		viewY = y;
+		viewZ = z;
+		return changed;
+	}
+	
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Returns the offset between two grid lines at the current level.
+	 */
+	public double getSpacing() {
+		return offset * Math.pow(10, level);
+	}
+	
+	/**
+	 * Returns half of the width of the window.
+	 */
+	public double getExtent() {
+		return WINDOW_LINES * getSpacing();
+	}
+	
+	public double getCenterX() {
+		return centerX;
+	}
+	
+	public double getCenterY() {
+		return centerY;
+	}
+	
+	public double getCenterZ() {
+		return centerZ;
+	}
+	
+	/**
+	 * the distance in decades of DETAIL_DISTANCE grid offsets
+	 */
+	private double getDecades(double distance) {
+		return Math.log10(distance / (offset * DETAIL_DISTANCE));
+	}
+	
+	private int getLevel(double distance) {
+		double decades = getDecades(distance);
+		if(Double.isNaN(decades)) {
+			return 0;
+		}
+		return (int) Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, Math.floor(decades)));
+	}
+	
+	/**
+	 * centres the window on the grid line next to the point
+	 */
+	private void moveWindow(double x, double y, double z) {
+		double spacing = getSpacing();
+		centerX = Math.rint(x / spacing) * spacing;
+		centerY = Math.rint(y / spacing) * spacing;
+		centerZ = Math.rint(z / spacing) * spacing;
+	}
+}
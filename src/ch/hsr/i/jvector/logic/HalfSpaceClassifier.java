@@ -0,0 +1,385 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.util.Tolerance;
+
+/**
+ * Classifies many points against many planes by the sign of <code>Ax + By + Cz + D</code>. The result of
+ * every plane is packed into two bitsets, one for the points above and one for the points below the
+ * plane, so the points inside a convex region are found with a few word operations per 64 points.
+ * A point is on a plane if the value is zero according to the tolerance, relative to the magnitude of the
+ * terms of the sum.
+ * <p>
+ * The points are classified in tiles which fit into the first level cache, every tile is tested against
+ * all planes before the next one is loaded. The tiles are spread over the common fork/join pool.
+ */
+public class HalfSpaceClassifier {
+
+	/**
+	 * the number of 64 bit words of points in a tile
+	 */
+	private static final int TILE_WORDS = 16;
+
+	/**
+	 * ranges below this number of words are classified in the current thread
+	 */
+	private static final int SEQUENTIAL_WORDS = 1 << 8;
+
+	private final double[] xs, ys, zs;
+	private final int size;
+
+	private Tolerance tolerance = Tolerance.getDefault();
+	private boolean parallel = true;
+
+	/**
+	 * The bitsets of a classification, bit i of word i / 64 stands for the point i.
+	 */
+	public static class Classification {
+
+		private final int numPoints;
+		private final int numPlanes;
+		private final long[][] above, below;
+
+		Classification(int numPoints, int numPlanes) {
+			this.numPoints = numPoints;
+			this.numPlanes = numPlanes;
+			int words = getNumWords(numPoints);
+			above = new long[numPlanes][words];
+			below = new long[numPlanes][words];
+		}
+
+		public int getNumPoints() {
+			return numPoints;
+		}
+
+		public int getNumPlanes() {
+			return numPlanes;
+		}
+
+		/**
+		 * Returns the sign of the point with respect to the plane.
+		 *
+		 * @return 1 if the point is above, -1 if it is below and 0 if it is on the plane
+		 */
+		public int getSign(int point, int plane) {
+			if(isSet(above[plane], point)) {
+				return 1;
+			}
+			return isSet(below[plane], point) ? -1 : 0;
+		}
+
+		/**
+		 * Returns the points where <code>Ax + By + Cz + D</code> is positive.
+		 *
+		 * @return the bitset, must not be changed
+		 */
+		public long[] getAbove(int plane) {
+			return above[plane];
+		}
+
+		/**
+		 * Returns the points where <code>Ax + By + Cz + D</code> is negative.
+		 *
+		 * @return the bitset, must not be changed
+		 */
+		public long[] getBelow(int plane) {
+			return below[plane];
+		}
+
+		/**
+		 * Returns the points inside the half-space of the plane, which are the points below or on it.
+		 *
+		 * @return a new bitset
+		 */
+		public long[] getInside(int plane) {
+			return insideAll(plane);
+		}
+
+		/**
+		 * Returns the points inside all half-spaces, the points of the convex region bounded by the planes.
+		 *
+		 * @return a new bitset
+		 */
+		public long[] insideAll() {
+			return insideAll(allPlanes());
+		}
+
+		/**
+		 * Returns the points inside the half-spaces of all the given planes.
+		 *
+		 * @return a new bitset
+		 */
+		public long[] insideAll(int... planes) {
+			long[] result = new long[getNumWords(numPoints)];
+			for(int w = 0; w < result.length; w++) {
+				long outside = 0;
+				for(int p = 0; p < planes.length; p++) {
+					outside |= above[planes[p]][w];
+				}
+				result[w] = ~outside;
+			}
+			clearTail(result);
+			return result;
+		}
+
+		/**
+		 * Returns the points inside at least one of the half-spaces.
+		 *
+		 * @return a new bitset
+		 */
+		public long[] insideAny() {
+			return insideAny(allPlanes());
+		}
+
+		/**
+		 * Returns the points inside the half-space of at least one of the given planes.
+		 *
+		 * @return a new bitset
+		 */
+		public long[] insideAny(int... planes) {
+			long[] result = new long[getNumWords(numPoints)];
+			if(planes.length == 0) {
+				return result;
+			}
+			for(int w = 0; w < result.length; w++) {
+				long outside = ~0L;
+				for(int p = 0; p < planes.length; p++) {
+					outside &= above[planes[p]][w];
+				}
+				result[w] = ~outside;
+			}
+			clearTail(result);
+			return result;
+		}
+
+		private int[] allPlanes() {
+			int[] planes = new int[numPlanes];
+			for(int p = 0; p < numPlanes; p++) {
+				planes[p] = p;
+			}
+			return planes;
+		}
+
+		/**
+		 * clears the bits after the last point
+		 */
+		private void clearTail(long[] bits) {
+			int used = numPoints & 63;
+			if(used != 0) {
+				bits[bits.length - 1] &= (1L << used) - 1;
+			}
+		}
+	}
+
+	/**
+	 * Creates a classifier for the first n points of the given columns. The arrays are not copied, they
+	 * must not change while the classifier is used.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 */
+	public HalfSpaceClassifier(double[] xs, double[] ys, double[] zs, int n) {
+
+		if(xs.length < n || ys.length < n || zs.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		this.size = n;
+	}
+
+	/**
+	 * Creates a classifier for all points of the store, the point i is the point with store index i.
+	 *
+	 * @param the store, its points must not change while the classifier is used
+	 */
+	public HalfSpaceClassifier(GeometryStore store) {
+		this(store.getPointColumn(GeometryStore.X), store.getPointColumn(GeometryStore.Y),
+				store.getPointColumn(GeometryStore.Z), store.getNumPoints());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sets the tolerance which decides when a point is on a plane, the default tolerance is used otherwise.
+	 */
+	public void setTolerance(Tolerance tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	public Tolerance getTolerance() {
+		return tolerance;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Classifies the points against the planes.
+	 *
+	 * @param the planes
+	 * @return the bitsets of the planes in the order of the list
+	 */
+	public Classification classify(List<? extends Plane> planes) {
+		double[] parameters = new double[GeometryStore.PLANE_COLUMNS * planes.size()];
+		for(int p = 0; p < planes.size(); p++) {
+			System.arraycopy(planes.get(p).getPlaneParameters(), 0, parameters, GeometryStore.PLANE_COLUMNS * p, GeometryStore.PLANE_COLUMNS);
+		}
+		return classify(parameters, planes.size());
+	}
+
+	/**
+	 * Classifies the points against the first m planes of the array, for example the facets of a
+	 * <code>ConvexHull</code>.
+	 *
+	 * @param planes - the parameters of the planes, A, B, C and D of every plane
+	 * @param m - the number of planes
+	 * @return the bitsets of the planes
+	 */
+	public Classification classify(double[] planes, int m) {
+
+		if(planes.length < GeometryStore.PLANE_COLUMNS * m) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		Classification result = new Classification(size, m);
+		ClassifyTask task = new ClassifyTask(planes, result, 0, getNumWords(size));
+		if(parallel && getNumWords(size) > SEQUENTIAL_WORDS) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of points in the bitset.
+	 */
+	public static int count(long[] bits) {
+		int count = 0;
+		for(int w = 0; w < bits.length; w++) {
+			count += Long.bitCount(bits[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the points in the bitset in ascending order.
+	 */
+	public static int[] toIndices(long[] bits) {
+		int[] indices = new int[count(bits)];
+		int k = 0;
+		for(int w = 0; w < bits.length; w++) {
+			long word = bits[w];
+			while(word != 0) {
+				indices[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return indices;
+	}
+
+	public static boolean isSet(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static int getNumWords(int n) {
+		return (n + 63) >>> 6;
+	}
+
+	/**
+	 * classifies the words [from, to) tile by tile
+	 */
+	private void classify(double[] planes, Classification result, int from, int to) {
+
+		double absolute = tolerance.getAbsolute(), relative = tolerance.getRelative();
+
+		for(int tile = from; tile < to; tile += TILE_WORDS) {
+			int tileEnd = Math.min(tile + TILE_WORDS, to);
+
+			for(int p = 0; p < result.numPlanes; p++) {
+				double a = planes[4 * p], b = planes[4 * p + 1], c = planes[4 * p + 2], d = planes[4 * p + 3];
+				double ma = Math.abs(a), mb = Math.abs(b), mc = Math.abs(c);
+				double md = absolute + relative * Math.abs(d);
+				long[] above = result.above[p], below = result.below[p];
+
+				for(int w = tile; w < tileEnd; w++) {
+					int base = w << 6;
+					int end = Math.min(64, size - base);
+					long up = 0, down = 0;
+					for(int j = 0; j < end; j++) {
+						double x = xs[base + j], y = ys[base + j], z = zs[base + j];
+						double value = a * x + b * y + c * z + d;
+						double epsilon = md + relative * (ma * Math.abs(x) + mb * Math.abs(y) + mc * Math.abs(z));
+						// the sign bits of the differences, without a branch on the unpredictable sign of the value
+						up |= (Double.doubleToRawLongBits(epsilon - value) >>> 63) << j;
+						down |= (Double.doubleToRawLongBits(value + epsilon) >>> 63) << j;
+					}
+					above[w] = up;
+					below[w] = down;
+				}
+			}
+		}
+	}
+
+	private class ClassifyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] planes;
+		private final Classification result;
+		private final int from;
+		private final int to;
+
+		ClassifyTask(double[] planes, Classification result, int from, int to) {
+			this.planes = planes;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from <= SEQUENTIAL_WORDS) {
+				classify(planes, result, from, to);
+				return;
+			}
+
+			// split at a tile border
+			int middle = from + ((to - from) / (2 * TILE_WORDS)) * TILE_WORDS;
+			invokeAll(new ClassifyTask(planes, result, from, middle), new ClassifyTask(planes, result, middle, to));
+		}
+	}
+}
@@ -0,0 +1,322 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+
+/**
+ * Intersects every line of a set with every plane of another set. The lines are packed as
+ * [x, y, z, rx, ry, rz] and the planes as [A, B, C, D] one after the other in a <code>double[]</code>.
+ * The N x M grid of pairs is split into tiles which are small enough that their lines and planes stay
+ * in the cache, and the tiles are processed in parallel. The results are either written to primitive
+ * arrays or passed to a <code>ResultConsumer</code> one by one, no objects are created per pair.
+ */
+public class IntersectionEngine {
+
+	/**
+	 * the number of lines and planes of a tile
+	 */
+	private static final int TILE_LINES = 256, TILE_PLANES = 64;
+
+	/**
+	 * the number of tiles below which a task is not split anymore
+	 */
+	private static final int SEQUENTIAL_TILES = 2;
+
+	private static final IntersectionType[] TYPES = IntersectionType.values();
+
+	/**
+	 * Receives the results of the intersections. The methods are called from several threads at once
+	 * if the engine runs in parallel.
+	 */
+	public interface ResultConsumer {
+
+		/**
+		 * Called for every pair of a line and a plane.
+		 *
+		 * @param line - the index of the line
+		 * @param plane - the index of the plane
+		 * @param type - the kind of the result
+		 * @param x, y, z - the intersection point, only valid if type is <code>POINT</code>
+		 */
+		public void accept(int line, int plane, IntersectionType type, double x, double y, double z);
+	}
+
+	private final double[] lines;
+	private final int numLines;
+	private final double[] planes;
+	private final int numPlanes;
+
+	private boolean parallel = true;
+
+	/**
+	 * Creates an engine for the given lines and planes. The arrays are not copied.
+	 *
+	 * @param lines - the packed line parameters, 6 values per line
+	 * @param numLines - the number of lines
+	 * @param planes - the packed plane parameters, 4 values per plane
+	 * @param numPlanes - the number of planes
+	 */
+	public IntersectionEngine(double[] lines, int numLines, double[] planes, int numPlanes) {
+		if(numLines < 0 || numPlanes < 0) {
+			throw new IllegalArgumentException("negative number of lines or planes");
+		}
+		if(lines.length < (long) numLines * GeometryStore.LINE_COLUMNS || planes.length < (long) numPlanes * GeometryStore.PLANE_COLUMNS) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+		this.lines = lines;
+		this.numLines = numLines;
+		this.planes = planes;
+		this.numPlanes = numPlanes;
+	}
+
+	/**
+	 * Packs the parameters of the given lines.
+	 *
+	 * @param the lines
+	 * @return a new array with 6 values per line
+	 */
+	public static double[] packLines(Collection<? extends Line> lines) {
+		double[] packed = new double[lines.size() * GeometryStore.LINE_COLUMNS];
+		int o = 0;
+		for(Line line : lines) {
+			for(int j = 0; j < GeometryStore.LINE_COLUMNS; j++) {
+				packed[o++] = line.getLineParameter(j);
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * Packs the parameters of the given planes.
+	 *
+	 * @param the planes
+	 * @return a new array with 4 values per plane
+	 */
+	public static double[] packPlanes(Collection<? extends Plane> planes) {
+		double[] packed = new double[planes.size() * GeometryStore.PLANE_COLUMNS];
+		int o = 0;
+		for(Plane plane : planes) {
+			for(int j = 0; j < GeometryStore.PLANE_COLUMNS; j++) {
+				packed[o++] = plane.getPlaneParameter(j);
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * Packs the parameters of all lines of the store, the line with store index i is line i.
+	 *
+	 * @param the store
+	 * @return a new array with 6 values per line
+	 */
+	public static double[] packLines(GeometryStore store) {
+		synchronized(store) {
+			int n = store.getNumLines();
+			double[] packed = new double[n * GeometryStore.LINE_COLUMNS];
+			for(int j = 0; j < GeometryStore.LINE_COLUMNS; j++) {
+				double[] column = store.getLineColumn(j);
+				for(int i = 0; i < n; i++) {
+					packed[i * GeometryStore.LINE_COLUMNS + j] = column[i];
+				}
+			}
+			return packed;
+		}
+	}
+
+	/**
+	 * Packs the parameters of all planes of the store, the plane with store index i is plane i.
+	 *
+	 * @param the store
+	 * @return a new array with 4 values per plane
+	 */
+	public static double[] packPlanes(GeometryStore store) {
+		synchronized(store) {
+			int n = store.getNumPlanes();
+			double[] packed = new double[n * GeometryStore.PLANE_COLUMNS];
+			for(int j = 0; j < GeometryStore.PLANE_COLUMNS; j++) {
+				double[] column = store.getPlaneColumn(j);
+				for(int i = 0; i < n; i++) {
+					packed[i * GeometryStore.PLANE_COLUMNS + j] = column[i];
+				}
+			}
+			return packed;
+		}
+	}
+
+	/**
+	 * Returns the type stored in the result array of <code>intersect(double[], byte[])</code>.
+	 *
+	 * @param the value of the result array
+	 * @return the kind of the result
+	 */
+	public static IntersectionType getType(byte type) {
+		return TYPES[type];
+	}
+
+	public int getNumLines() {
+		return numLines;
+	}
+
+	public int getNumPlanes() {
+		return numPlanes;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether the tiles are processed in parallel, default is true.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Intersects all lines with all planes. The result of line i and plane j is stored at index
+	 * k = i * numPlanes + j: the ordinal of the <code>IntersectionType</code> in types[k] and in case of
+	 * <code>POINT</code> the coordinates in points[3 * k] .. points[3 * k + 2].
+	 *
+	 * @param points - the array for the intersection points, at least 3 * N * M long
+	 * @param types - the array for the kinds of the results, at least N * M long
+	 * @throws IllegalArgumentException if the arrays are too small or 3 * N * M is larger than an array
+	 * can be, then use a <code>ResultConsumer</code>
+	 */
+	public void intersect(double[] points, byte[] types) {
+		long count = (long) numLines * numPlanes;
+		if(3 * count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many results for an array: " + numLines + " lines, " + numPlanes + " planes");
+		}
+		if(types.length < count || points.length < 3 * count) {
+			throw new IllegalArgumentException("the result arrays are too small");
+		}
+		run(points, types, null);
+	}
+
+	/**
+	 * Intersects all lines with all planes and passes the results to the consumer.
+	 *
+	 * @param the consumer of the results
+	 */
+	public void intersect(ResultConsumer consumer) {
+		run(null, null, consumer);
+	}
+
+	private void run(double[] points, byte[] types, ResultConsumer consumer) {
+
+		int tilesX = (numLines + TILE_LINES - 1) / TILE_LINES;
+		int tilesY = (numPlanes + TILE_PLANES - 1) / TILE_PLANES;
+		if((long) tilesX * tilesY > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many tiles: " + numLines + " lines, " + numPlanes + " planes");
+		}
+
+		TileTask task = new TileTask(0, tilesX * tilesY, tilesY, points, types, consumer);
+
+		if(parallel && tilesX * tilesY > SEQUENTIAL_TILES) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.intersectTiles();
+		}
+	}
+
+	/**
+	 * intersects the lines [fromLine, toLine) with the planes [fromPlane, toPlane)
+	 */
+	private void intersectTile(int fromLine, int toLine, int fromPlane, int toPlane,
+							   double[] points, byte[] types, ResultConsumer consumer, double[] buffer) {
+
+		for(int i = fromLine; i < toLine; i++) {
+
+			int l = i * GeometryStore.LINE_COLUMNS;
+			double x = lines[l], y = lines[l + 1], z = lines[l + 2];
+			double rx = lines[l + 3], ry = lines[l + 4], rz = lines[l + 5];
+
+			for(int j = fromPlane; j < toPlane; j++) {
+
+				int p = j * GeometryStore.PLANE_COLUMNS;
+
+				if(consumer == null) {
+					// fits, intersect(points, types) checked that 3 * N * M is an int
+					int k = i * numPlanes + j;
+					IntersectionType type = IntersectionKernel.linePlane(x, y, z, rx, ry, rz,
+							planes[p], planes[p + 1], planes[p + 2], planes[p + 3], points, 3 * k);
+					types[k] = (byte) type.ordinal();
+				} else {
+					IntersectionType type = IntersectionKernel.linePlane(x, y, z, rx, ry, rz,
+							planes[p], planes[p + 1], planes[p + 2], planes[p + 3], buffer, 0);
+					consumer.accept(i, j, type, buffer[0], buffer[1], buffer[2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * processes the tiles [fromTile, toTile), tile t covers the line tile t / tilesY and the plane
+	 * tile t % tilesY
+	 */
+	private class TileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int fromTile;
+		private final int toTile;
+		private final int tilesY;
+		private final double[] points;
+		private final byte[] types;
+		private final ResultConsumer consumer;
+
+		TileTask(int fromTile, int toTile, int tilesY, double[] points, byte[] types, ResultConsumer consumer) {
+			this.fromTile = fromTile;
+			this.toTile = toTile;
+			this.tilesY = tilesY;
+			this.points = points;
+			this.types = types;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected void compute() {
+			if(toTile - fromTile <= SEQUENTIAL_TILES) {
+				intersectTiles();
+			} else {
+				int middle = (fromTile + toTile) >>> 1;
+				invokeAll(new TileTask(fromTile, middle, tilesY, points, types, consumer),
+						new TileTask(middle, toTile, tilesY, points, types, consumer));
+			}
+		}
+
+		void intersectTiles() {
+			double[] buffer = new double[3];
+			for(int t = fromTile; t < toTile; t++) {
+				int fromLine = (t / tilesY) * TILE_LINES;
+				int fromPlane = (t % tilesY) * TILE_PLANES;
+				intersectTile(fromLine, Math.min(fromLine + TILE_LINES, numLines),
+						fromPlane, Math.min(fromPlane + TILE_PLANES, numPlanes),
+						points, types, consumer, buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import ch.hsr.i.jvector.exceptions.NoIntersectionException.StateNoIntersection;
+import ch.hsr.i.jvector.util.Tolerance;
+
+/**
+ * Intersection calculations on plain parameters. Instead of throwing a <code>NoIntersectionException</code>
+ * the methods return the kind of the result and write the coordinates of the intersection into a buffer
+ * given by the caller. Lines are given as [x, y, z, rx, ry, rz] and planes as [A, B, C, D]. Whether
+ * components are parallel, skew or congruent is decided with the default <code>Tolerance</code>.
+ * The intersections are solved with closed formulas (cross products and Cramer's rule), so no
+ * objects are created.
+ */
+public class IntersectionKernel {
+
+	/**
+	 * defines the kinds of results of an intersection
+	 */
+	public static enum IntersectionType {
+		POINT, LINE, PARALLEL, SKEW, COLLINEAR, LINE_IN_PLANE, CONGRUENT;
+
+		/**
+		 * Returns true if the components intersect in a single point or line.
+		 *
+		 * @return true if the result buffer was written
+		 */
+		public boolean isIntersection() {
+			return this == POINT || this == LINE;
+		}
+
+		/**
+		 * Returns the reason of a <code>NoIntersectionException</code> for this result.
+		 *
+		 * @return the state or null if the components intersect
+		 */
+		public StateNoIntersection getState() {
+			switch (this) {
+			case PARALLEL:
+				return StateNoIntersection.PARALLEL;
+			case SKEW:
+				return StateNoIntersection.SKEW;
+			case COLLINEAR:
+				return StateNoIntersection.COLLINEAR;
+			case LINE_IN_PLANE:
+				return StateNoIntersection.LINE_IN_PLANE;
+			case CONGRUENT:
+				return StateNoIntersection.CONGRUENT;
+			default:
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Computes the intersection of two lines. In case of <code>POINT</code> the coordinates are written to
+	 * result[offset] .. result[offset + 2].
+	 *
+	 * @return the kind of the result
+	 */
+	public static IntersectionType lineLine(double x1, double y1, double z1, double rx1, double ry1, double rz1,
+											double x2, double y2, double z2, double rx2, double ry2, double rz2,
+											double[] result, int offset) {
+
+		// vector between the two points on the lines
+		double wx = x2 - x1;
+		double wy = y2 - y1;
+		double wz = z2 - z1;
+
+		// cross product of the directions
+		double cx = ry1 * rz2 - rz1 * ry2;
+		double cy = rz1 * rx2 - rx1 * rz2;
+		double cz = rx1 * ry2 - ry1 * rx2;
+
+		Tolerance tolerance = Tolerance.getDefault();
+
+		double length1 = Math.sqrt(rx1 * rx1 + ry1 * ry1 + rz1 * rz1);
+		double length2 = Math.sqrt(rx2 * rx2 + ry2 * ry2 + rz2 * rz2);
+		double lengthC = Math.sqrt(cx * cx + cy * cy + cz * cz);
+		double lengthW = Math.sqrt(wx * wx + wy * wy + wz * wz);
+
+		if(tolerance.isZero(lengthC, length1 * length2)) {
+			// the lines are collinear if the vector between them is parallel to the direction too
+			double ex = wy * rz1 - wz * ry1;
+			double ey = wz * rx1 - wx * rz1;
+			double ez = wx * ry1 - wy * rx1;
+
+			if(tolerance.isZero(Math.sqrt(ex * ex + ey * ey + ez * ez), lengthW * length1)) {
+				return IntersectionType.COLLINEAR;
+			} else {
+				return IntersectionType.PARALLEL;
+			}
+		}
+
+		if(!tolerance.isZero(wx * cx + wy * cy + wz * cz, lengthW * lengthC)) {
+			return IntersectionType.SKEW;
+		}
+
+		// p1 + t * r1 = p2 + s * r2 > t = ((w x r2) . c) / |c|^2
+		double qx = wy * rz2 - wz * ry2;
+		double qy = wz * rx2 - wx * rz2;
+		double qz = wx * ry2 - wy * rx2;
+
+		double factor = (qx * cx + qy * cy + qz * cz) / (cx * cx + cy * cy + cz * cz);
+
+		result[offset] = x1 + factor * rx1;
+		result[offset + 1] = y1 + factor * ry1;
+		result[offset + 2] = z1 + factor * rz1;
+
+		return IntersectionType.POINT;
+	}
+
+	/**
+	 * Computes the intersection of a line and a plane. In case of <code>POINT</code> the coordinates are
+	 * written to result[offset] .. result[offset + 2].
+	 *
+	 * @return the kind of the result
+	 */
+	public static IntersectionType linePlane(double x, double y, double z, double rx, double ry, double rz,
+											 double a, double b, double c, double d,
+											 double[] result, int offset) {
+
+		Tolerance tolerance = Tolerance.getDefault();
+
+		double numerator = -d - (x * a + y * b + z * c);
+		double denominator = rx * a + ry * b + rz * c;
+
+		double lengthN = Math.sqrt(a * a + b * b + c * c);
+		double lengthR = Math.sqrt(rx * rx + ry * ry + rz * rz);
+		double lengthP = Math.sqrt(x * x + y * y + z * z);
+
+		if(tolerance.isZero(denominator, lengthR * lengthN)) {
+			if(tolerance.isZero(numerator, lengthP * lengthN + Math.abs(d))) {
+				return IntersectionType.LINE_IN_PLANE;
+			} else {
+				return IntersectionType.PARALLEL;
+			}
+		}
+
+		double t = numerator / denominator;
+
+		result[offset] = x + t * rx;
+		result[offset + 1] = y + t * ry;
+		result[offset + 2] = z + t * rz;
+
+		return IntersectionType.POINT;
+	}
+
+	/**
+	 * Computes the line of intersection of two planes. In case of <code>LINE</code> the line parameters
+	 * [x, y, z, rx, ry, rz] are written to result[offset] .. result[offset + 5].
+	 *
+	 * @return the kind of the result
+	 */
+	public static IntersectionType planePlane(double a1, double b1, double c1, double d1,
+											  double a2, double b2, double c2, double d2,
+											  double[] result, int offset) {
+
+		// direction of the intersection line
+		double rx = b1 * c2 - c1 * b2;
+		double ry = c1 * a2 - a1 * c2;
+		double rz = a1 * b2 - b1 * a2;
+
+		Tolerance tolerance = Tolerance.getDefault();
+
+		double length1 = Math.sqrt(a1 * a1 + b1 * b1 + c1 * c1);
+		double length2 = Math.sqrt(a2 * a2 + b2 * b2 + c2 * c2);
+
+		if(tolerance.isZero(Math.sqrt(rx * rx + ry * ry + rz * rz), length1 * length2)) {
+			// compare the signed distances of the planes to the origin along the same normal
+			double distance1 = d1 / length1;
+			double distance2 = d2 / length2;
+
+			if(a1 * a2 + b1 * b2 + c1 * c2 < 0) {
+				distance2 = -distance2;
+			}
+
+			if(tolerance.isEqual(distance1, distance2)) {
+				return IntersectionType.CONGRUENT;
+			} else {
+				return IntersectionType.PARALLEL;
+			}
+		}
+
+		// point on the intersection line closest to the origin > (-d1 * (n2 x r) - d2 * (r x n1)) / |r|^2
+		double lengthR = rx * rx + ry * ry + rz * rz;
+
+		double ux = b2 * rz - c2 * ry;
+		double uy = c2 * rx - a2 * rz;
+		double uz = a2 * ry - b2 * rx;
+
+		double vx = ry * c1 - rz * b1;
+		double vy = rz * a1 - rx * c1;
+		double vz = rx * b1 - ry * a1;
+
+		result[offset] = (-d1 * ux - d2 * vx) / lengthR;
+		result[offset + 1] = (-d1 * uy - d2 * vy) / lengthR;
+		result[offset + 2] = (-d1 * uz - d2 * vz) / lengthR;
+		result[offset + 3] = rx;
+		result[offset + 4] = ry;
+		result[offset + 5] = rz;
+
+		return IntersectionType.LINE;
+	}
+
+	/**
+	 * Computes the intersection of three planes. In case of <code>POINT</code> the coordinates are written to
+	 * result[offset] .. result[offset + 2]. If the three planes share a line the result is <code>LINE</code>
+	 * and the line parameters are written to result[offset] .. result[offset + 5], so the buffer should
+	 * always have room for six values. <code>CONGRUENT</code> means that all three planes are the same and
+	 * <code>PARALLEL</code> that they have no common point.
+	 *
+	 * @return the kind of the result
+	 */
+	public static IntersectionType threePlanes(double a1, double b1, double c1, double d1,
+											   double a2, double b2, double c2, double d2,
+											   double a3, double b3, double c3, double d3,
+											   double[] result, int offset) {
+
+		// n2 x n3, n3 x n1 and n1 x n2
+		double x23 = b2 * c3 - c2 * b3;
+		double y23 = c2 * a3 - a2 * c3;
+		double z23 = a2 * b3 - b2 * a3;
+
+		double x31 = b3 * c1 - c3 * b1;
+		double y31 = c3 * a1 - a3 * c1;
+		double z31 = a3 * b1 - b3 * a1;
+
+		double x12 = b1 * c2 - c1 * b2;
+		double y12 = c1 * a2 - a1 * c2;
+		double z12 = a1 * b2 - b1 * a2;
+
+		double det = a1 * x23 + b1 * y23 + c1 * z23;
+
+		double length1 = Math.sqrt(a1 * a1 + b1 * b1 + c1 * c1);
+		double length2 = Math.sqrt(a2 * a2 + b2 * b2 + c2 * c2);
+		double length3 = Math.sqrt(a3 * a3 + b3 * b3 + c3 * c3);
+
+		if(!Tolerance.getDefault().isZero(det, length1 * length2 * length3)) {
+			// Cramer's rule > (-d1 * (n2 x n3) - d2 * (n3 x n1) - d3 * (n1 x n2)) / det
+			result[offset] = (-d1 * x23 - d2 * x31 - d3 * x12) / det;
+			result[offset + 1] = (-d1 * y23 - d2 * y31 - d3 * y12) / det;
+			result[offset + 2] = (-d1 * z23 - d2 * z31 - d3 * z12) / det;
+
+			return IntersectionType.POINT;
+		}
+
+		// the normals are linear dependent, reduce to the intersection of two planes
+		IntersectionType type = planePlane(a1, b1, c1, d1, a2, b2, c2, d2, result, offset);
+
+		switch (type) {
+		case LINE:
+			type = linePlane(result[offset], result[offset + 1], result[offset + 2],
+							 result[offset + 3], result[offset + 4], result[offset + 5],
+							 a3, b3, c3, d3, result, offset);
+
+			if(type == IntersectionType.LINE_IN_PLANE) {
+				return IntersectionType.LINE;
+			}
+			return type;
+		case CONGRUENT:
+			return planePlane(a1, b1, c1, d1, a3, b3, c3, d3, result, offset);
+		default:
+			return type;
+		}
+	}
+}
@@ -0,0 +1,488 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+
+/**
+ * Keeps the intersections of the lines and planes of a <code>ComponentsList</code> up to date while
+ * components are added and removed. A new line or plane is only intersected with the components the
+ * spatial index of the list returns as touching it, so an edit costs O(k) for k touching components
+ * instead of O(n^2) for a new sweep. Every derived intersection remembers the ids of the pairs it was
+ * computed from, and it is retracted as soon as the last of these pairs loses a component. A transformed
+ * source is handled as if it was removed and added again.
+ * <p>
+ * Derived components are not intersected again. If the same point is the intersection of several
+ * pairs it is derived once and supported by all of them. Intersections which are equal to a component
+ * of the list which is not derived are not added, their pairs are kept and the intersection is derived
+ * as soon as that component is removed or transformed.
+ */
+public class IntersectionMaintainer implements Observer {
+
+	/**
+	 * Adds the derived components to the scene and removes them again. Both methods are called while the
+	 * maintainer handles a change of the list, the derived components must be added to or removed from
+	 * the same list. The components retracted by one change are removed at once, so the list is compacted
+	 * once per change and not once per component.
+	 */
+	public interface Listener {
+
+		public void intersectionAdded(Component comp);
+
+		public void intersectionsRemoved(List<Component> comps);
+	}
+
+	/**
+	 * a derived component and the pairs of source ids it is the intersection of
+	 */
+	private static class Derived {
+		Component comp;
+		ArrayList<long[]> pairs = new ArrayList<long[]>(1);
+
+		/**
+		 * the component of the list which is equal to the intersection, null if the intersection is derived
+		 */
+		Component equal;
+
+		boolean dependsOn(long id) {
+			for(int i = 0; i < pairs.size(); i++) {
+				if(pairs.get(i)[0] == id || pairs.get(i)[1] == id) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private final ComponentsList list;
+	private final Listener listener;
+	private final double radius;
+
+	/**
+	 * the derived components by their id
+	 */
+	private final HashMap<Long, Derived> derived = new HashMap<Long, Derived>();
+
+	/**
+	 * the derived components which depend on a source component, by the id of the source
+	 */
+	private final HashMap<Long, ArrayList<Derived>> dependents = new HashMap<Long, ArrayList<Derived>>();
+
+	/**
+	 * the intersections which are not added because they are equal to a component of the list, by the id
+	 * of that component
+	 */
+	private final HashMap<Long, Derived> hidden = new HashMap<Long, Derived>();
+
+	/**
+	 * finds a derived component equal to a new intersection
+	 */
+	private final CanonicalIndex derivedIndex = new CanonicalIndex();
+
+	private final double[] buffer = new double[GeometryStore.LINE_COLUMNS];
+
+	/**
+	 * Creates a maintainer and computes the intersections of the components which are already in the list.
+	 *
+	 * @param list - the components
+	 * @param radius - the radius of the bounding sphere, intersections outside are ignored
+	 * @param listener - adds and removes the derived components
+	 */
+	public IntersectionMaintainer(ComponentsList list, double radius, Listener listener) {
+		this.list = list;
+		this.radius = radius;
+		this.listener = listener;
+
+		list.addObserver(this);
+		addAll(list.deepClone());
+	}
+
+	/**
+	 * Stops maintaining the intersections. The derived components stay in the list.
+	 */
+	public void dispose() {
+		list.deleteObserver(this);
+		clear();
+	}
+
+	/**
+	 * Returns true if the component was derived by this maintainer and is still maintained.
+	 */
+	public boolean isDerived(Component comp) {
+		return derived.containsKey(comp.getId());
+	}
+
+	public int getNumDerived() {
+		return derived.size();
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+
+		if(!(arg instanceof ComponentsList.Change)) {
+			return;
+		}
+
+		ComponentsList.Change change = (ComponentsList.Change) arg;
+		List<Component> comps = change.getComponents();
+
+		switch(change.getType()) {
+		case ADDED:
+			addAll(comps);
+			break;
+		case REMOVED:
+			ArrayList<Component> retracted = new ArrayList<Component>();
+			for(int i = 0; i < comps.size(); i++) {
+				removed(comps.get(i), retracted);
+			}
+			if(!retracted.isEmpty()) {
+				listener.intersectionsRemoved(retracted);
+			}
+			break;
+		case CLEARED:
+			clear();
+			break;
+		case REPLACED:
+			// start over, all components of the new content are sources
+			clear();
+			addAll(new ArrayList<Component>(comps));
+			break;
+		case TRANSFORMED:
+			transformed(comps);
+			break;
+		}
+	}
+
+	private void clear() {
+		for(Derived h : hidden.values()) {
+			h.comp.release();
+		}
+		hidden.clear();
+		derived.clear();
+		dependents.clear();
+		derivedIndex.clear();
+	}
+
+	/**
+	 * handles new components which are all in the list already, every pair is intersected once by the
+	 * component which comes later
+	 */
+	private void addAll(List<Component> comps) {
+		HashSet<Long> pending = new HashSet<Long>();
+		for(int i = 0; i < comps.size(); i++) {
+			pending.add(comps.get(i).getId());
+		}
+		for(int i = 0; i < comps.size(); i++) {
+			pending.remove(comps.get(i).getId());
+			added(comps.get(i), pending);
+		}
+	}
+
+	/**
+	 * intersects a new source with the components touching it, except with the pending ones
+	 */
+	private void added(Component comp, HashSet<Long> pending) {
+
+		if(comp.getType() == ComponentType.POINT || derived.containsKey(comp.getId())) {
+			return;
+		}
+
+		List<Component> touching = list.getSpatialIndex().findTouching(comp);
+		for(int i = 0; i < touching.size(); i++) {
+			Component other = touching.get(i);
+			if(derived.containsKey(other.getId()) || pending.contains(other.getId())) {
+				continue;
+			}
+			Component intersection = intersect(comp, other);
+			if(intersection != null) {
+				addDerived(intersection, comp.getId(), other.getId());
+			}
+		}
+	}
+
+	/**
+	 * handles a removed component, the derived components it retracts are collected
+	 */
+	private void removed(Component comp, List<Component> retracted) {
+
+		Derived d = derived.remove(comp.getId());
+		if(d != null) {
+			// a derived component was removed from the list directly
+			derivedIndex.remove(d.comp);
+			for(int i = 0; i < d.pairs.size(); i++) {
+				removeDependent(d.pairs.get(i)[0], d);
+				removeDependent(d.pairs.get(i)[1], d);
+			}
+			return;
+		}
+
+		Derived h = hidden.remove(comp.getId());
+		if(h != null) {
+			show(h);
+		}
+
+		ArrayList<Derived> depending = dependents.remove(comp.getId());
+		if(depending == null) {
+			return;
+		}
+
+		long id = comp.getId();
+		for(int i = 0; i < depending.size(); i++) {
+			Derived dependent = depending.get(i);
+
+			for(int j = dependent.pairs.size() - 1; j >= 0; j--) {
+				long[] pair = dependent.pairs.get(j);
+				if(pair[0] == id || pair[1] == id) {
+					dependent.pairs.remove(j);
+					long other = pair[0] == id ? pair[1] : pair[0];
+					if(!dependent.dependsOn(other)) {
+						removeDependent(other, dependent);
+					}
+				}
+			}
+
+			if(dependent.pairs.isEmpty() && dependent.equal != null) {
+				hidden.remove(dependent.equal.getId());
+				dependent.comp.release();
+			} else if(dependent.pairs.isEmpty()) {
+				derived.remove(dependent.comp.getId());
+				derivedIndex.remove(dependent.comp);
+				retracted.add(dependent.comp);
+			}
+		}
+	}
+
+	/**
+	 * retracts the derived components which were transformed or depend on a transformed source, then
+	 * derives the intersections which were equal to a transformed source and intersects the transformed
+	 * sources again
+	 */
+	private void transformed(List<Component> comps) {
+
+		LinkedHashSet<Derived> stale = new LinkedHashSet<Derived>();
+		ArrayList<Component> sources = new ArrayList<Component>();
+		ArrayList<Derived> shown = new ArrayList<Derived>();
+		for(int i = 0; i < comps.size(); i++) {
+			Component comp = comps.get(i);
+			Derived d = derived.get(comp.getId());
+			if(d != null) {
+				stale.add(d);
+				continue;
+			}
+			sources.add(comp);
+			Derived h = hidden.get(comp.getId());
+			if(h != null) {
+				shown.add(h);
+			}
+			ArrayList<Derived> depending = dependents.get(comp.getId());
+			if(depending != null) {
+				stale.addAll(depending);
+			}
+		}
+
+		for(Derived d : stale) {
+			if(d.equal != null) {
+				hidden.remove(d.equal.getId());
+				d.comp.release();
+			} else {
+				derived.remove(d.comp.getId());
+			}
+			for(int i = 0; i < d.pairs.size(); i++) {
+				removeDependent(d.pairs.get(i)[0], d);
+				removeDependent(d.pairs.get(i)[1], d);
+			}
+		}
+
+		// the keys of transformed derived components are out of date
+		derivedIndex.clear();
+		for(Derived d : derived.values()) {
+			derivedIndex.add(d.comp);
+		}
+
+		ArrayList<Component> retracted = new ArrayList<Component>(stale.size());
+		for(Derived d : stale) {
+			if(d.equal == null) {
+				retracted.add(d.comp);
+			}
+		}
+		if(!retracted.isEmpty()) {
+			listener.intersectionsRemoved(retracted);
+		}
+
+		// the intersections no longer equal the transformed sources, unless they were transformed as well
+		for(int i = 0; i < shown.size(); i++) {
+			Derived h = shown.get(i);
+			if(!stale.contains(h)) {
+				hidden.remove(h.equal.getId());
+				show(h);
+			}
+		}
+		addAll(sources);
+	}
+
+	/**
+	 * adds an intersection of the pair, it is derived unless it is equal to a component which exists
+	 * already
+	 *
+	 * @return the record the pair was added to
+	 */
+	private Derived addDerived(Component intersection, long id1, long id2) {
+
+		Component equal = derivedIndex.find(intersection);
+		if(equal != null) {
+			intersection.release();
+			Derived d = derived.get(equal.getId());
+			addPair(d, id1, id2);
+			return d;
+		}
+
+		equal = list.findEqual(intersection);
+		if(equal != null) {
+			// the pair is kept, the intersection is derived once the equal component is gone
+			Derived h = hidden.get(equal.getId());
+			if(h == null) {
+				h = new Derived();
+				h.comp = intersection;
+				h.equal = equal;
+				hidden.put(equal.getId(), h);
+			} else {
+				intersection.release();
+			}
+			addPair(h, id1, id2);
+			return h;
+		}
+
+		Derived d = new Derived();
+		d.comp = intersection;
+		derived.put(intersection.getId(), d);
+		derivedIndex.add(intersection);
+		addPair(d, id1, id2);
+
+		listener.intersectionAdded(intersection);
+		return d;
+	}
+
+	/**
+	 * adds an intersection which was equal to a component of the list again, with all of its pairs
+	 */
+	private void show(Derived h) {
+		for(int i = 0; i < h.pairs.size(); i++) {
+			removeDependent(h.pairs.get(i)[0], h);
+			removeDependent(h.pairs.get(i)[1], h);
+		}
+		Derived d = addDerived(h.comp, h.pairs.get(0)[0], h.pairs.get(0)[1]);
+		for(int i = 1; i < h.pairs.size(); i++) {
+			addPair(d, h.pairs.get(i)[0], h.pairs.get(i)[1]);
+		}
+	}
+
+	private void addPair(Derived d, long id1, long id2) {
+		d.pairs.add(new long[] { id1, id2 });
+		addDependent(id1, d);
+		addDependent(id2, d);
+	}
+
+	private void addDependent(long source, Derived d) {
+		ArrayList<Derived> depending = dependents.get(source);
+		if(depending == null) {
+			depending = new ArrayList<Derived>(2);
+			dependents.put(source, depending);
+		}
+		if(!depending.contains(d)) {
+			depending.add(d);
+		}
+	}
+
+	private void removeDependent(long source, Derived d) {
+		ArrayList<Derived> depending = dependents.get(source);
+		if(depending != null) {
+			depending.remove(d);
+			if(depending.isEmpty()) {
+				dependents.remove(source);
+			}
+		}
+	}
+
+	/**
+	 * the intersection of two lines or planes inside the sphere as a new component or null
+	 */
+	private Component intersect(Component comp1, Component comp2) {
+
+		if(comp1.getType() == ComponentType.PLANE && comp2.getType() == ComponentType.LINE) {
+			return intersect(comp2, comp1);
+		}
+
+		IntersectionType type;
+		if(comp1.getType() == ComponentType.LINE && comp2.getType() == ComponentType.LINE) {
+			Line l = (Line) comp1, m = (Line) comp2;
+			type = IntersectionKernel.lineLine(
+					l.getLineParameter(0), l.getLineParameter(1), l.getLineParameter(2),
+					l.getLineParameter(3), l.getLineParameter(4), l.getLineParameter(5),
+					m.getLineParameter(0), m.getLineParameter(1), m.getLineParameter(2),
+					m.getLineParameter(3), m.getLineParameter(4), m.getLineParameter(5), buffer, 0);
+		} else if(comp1.getType() == ComponentType.LINE) {
+			Line l = (Line) comp1;
+			Plane p = (Plane) comp2;
+			type = IntersectionKernel.linePlane(
+					l.getLineParameter(0), l.getLineParameter(1), l.getLineParameter(2),
+					l.getLineParameter(3), l.getLineParameter(4), l.getLineParameter(5),
+					p.getPlaneParameter(0), p.getPlaneParameter(1), p.getPlaneParameter(2), p.getPlaneParameter(3), buffer, 0);
+		} else {
+			Plane p = (Plane) comp1, q = (Plane) comp2;
+			type = IntersectionKernel.planePlane(
+					p.getPlaneParameter(0), p.getPlaneParameter(1), p.getPlaneParameter(2), p.getPlaneParameter(3),
+					q.getPlaneParameter(0), q.getPlaneParameter(1), q.getPlaneParameter(2), q.getPlaneParameter(3), buffer, 0);
+		}
+
+		if(type != IntersectionType.POINT && type != IntersectionType.LINE) {
+			return null;
+		}
+
+		// the point of an intersection line is the one closest to the origin
+		if(buffer[0] * buffer[0] + buffer[1] * buffer[1] + buffer[2] * buffer[2] > radius * radius) {
+			return null;
+		}
+
+		GeometryStore store = GeometryStore.getDefault();
+		if(type == IntersectionType.POINT) {
+			return new Point3D(buffer[0], buffer[1], buffer[2], store);
+		}
+		try {
+			return new Line3D(buffer[0], buffer[1], buffer[2], buffer[3], buffer[4], buffer[5], store);
+		} catch(NoLineException e) {
+			// the direction of an intersection line is never zero
+			return null;
+		}
+	}
+}
@@ -0,0 +1,564 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+import ch.hsr.i.jvector.util.Tolerance;
+
+/**
+ * Finds all line-line, line-plane and plane-plane intersections of a scene which lie inside the bounding
+ * sphere. The parameters of the components are copied when the sweep is created, so it can run in a
+ * background thread while the scene is used. Pairs are culled in several steps:
+ * <ul>
+ * <li>lines which miss the sphere and planes which do not cut it take part in no pair</li>
+ * <li>two lines are only tested if their segments inside the sphere meet in a cell of a uniform grid</li>
+ * <li>a line and a plane are only tested if the ends of the segment are not on the same side</li>
+ * </ul>
+ * The rows of the pair matrix are processed in parallel. The sweep reports its progress in pairs and
+ * can be cancelled from any thread.
+ */
+public class IntersectionSweep {
+
+	/**
+	 * the number of rows a task processes in the current thread
+	 */
+	private static final int ROWS_PER_TASK = 16;
+
+	/**
+	 * the maximal number of grid cells along an axis
+	 */
+	private static final int MAX_CELLS = 64;
+
+	/**
+	 * how often the progress is reported over the whole sweep
+	 */
+	private static final int PROGRESS_STEPS = 1000;
+
+	/**
+	 * Receives the progress of a sweep. The method is called from the threads of the sweep.
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * @param done - the number of pairs processed so far
+		 * @param total - the number of all pairs
+		 */
+		public void progress(long done, long total);
+	}
+
+	/**
+	 * The intersections found by a sweep, the points as [x, y, z] and the lines as
+	 * [x, y, z, rx, ry, rz] one after the other.
+	 */
+	public static class Result {
+
+		private final double[] points;
+		private final int numPoints;
+		private final double[] lines;
+		private final int numLines;
+
+		Result(double[] points, int numPoints, double[] lines, int numLines) {
+			this.points = points;
+			this.numPoints = numPoints;
+			this.lines = lines;
+			this.numLines = numLines;
+		}
+
+		public double[] getPoints() {
+			return points;
+		}
+
+		public int getNumPoints() {
+			return numPoints;
+		}
+
+		public double[] getLines() {
+			return lines;
+		}
+
+		public int getNumLines() {
+			return numLines;
+		}
+	}
+
+	private final double radius;
+
+	private final double[] lines;
+	private final int numLines;
+	private final double[] planes;
+	private final int numPlanes;
+
+	/**
+	 * the ends of the line segments inside the sphere, [ax, ay, az, bx, by, bz] per line, and whether the
+	 * line reaches into the sphere at all
+	 */
+	private final double[] segments;
+	private final boolean[] lineActive;
+	private final boolean[] planeActive;
+
+	/**
+	 * the grid of the lines, the lines in cell c are cellLines[cellStart[c]] .. cellLines[cellStart[c + 1] - 1]
+	 */
+	private int cells;
+	private double cellSize;
+	private int[] cellStart;
+	private int[] cellLines;
+
+	/**
+	 * the cells of line i are lineCells[lineStart[i]] .. lineCells[lineStart[i + 1] - 1]
+	 */
+	private int[] lineStart;
+	private int[] lineCells;
+
+	private boolean parallel = true;
+	private ProgressListener listener;
+
+	private volatile boolean cancelled;
+	private final AtomicLong done = new AtomicLong();
+	private long total;
+
+	/**
+	 * Creates a sweep over the lines and planes of the given components, other components are ignored.
+	 *
+	 * @param components - the components of the scene
+	 * @param radius - the radius of the bounding sphere around the origin
+	 */
+	public IntersectionSweep(Collection<? extends Component> components, double radius) {
+
+		this.radius = radius;
+
+		int l = 0, p = 0;
+		for(Component comp : components) {
+			if(comp.getType() == ComponentType.LINE) {
+				l++;
+			} else if(comp.getType() == ComponentType.PLANE) {
+				p++;
+			}
+		}
+
+		numLines = l;
+		numPlanes = p;
+		lines = new double[numLines * GeometryStore.LINE_COLUMNS];
+		planes = new double[numPlanes * GeometryStore.PLANE_COLUMNS];
+
+		l = 0;
+		p = 0;
+		for(Component comp : components) {
+			if(comp.getType() == ComponentType.LINE) {
+				for(int j = 0; j < GeometryStore.LINE_COLUMNS; j++) {
+					lines[l++] = ((Line) comp).getLineParameter(j);
+				}
+			} else if(comp.getType() == ComponentType.PLANE) {
+				for(int j = 0; j < GeometryStore.PLANE_COLUMNS; j++) {
+					planes[p++] = ((Plane) comp).getPlaneParameter(j);
+				}
+			}
+		}
+
+		segments = new double[6 * numLines];
+		lineActive = new boolean[numLines];
+		planeActive = new boolean[numPlanes];
+	}
+
+	public int getNumLines() {
+		return numLines;
+	}
+
+	public int getNumPlanes() {
+		return numPlanes;
+	}
+
+	/**
+	 * Returns the number of all pairs, this is the total of the progress.
+	 */
+	public long getNumPairs() {
+		long n = numLines, m = numPlanes;
+		return n * (n - 1) / 2 + n * m + m * (m - 1) / 2;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether the rows are processed in parallel, default is true.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public void setProgressListener(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Stops a running sweep as soon as possible, <code>run</code> returns null then.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Finds all intersections. Points are only returned if they lie inside the sphere and lines only if
+	 * they pass through it. Two intersections may be the same point if more than two components meet there.
+	 *
+	 * @return the intersections or null if the sweep was cancelled
+	 */
+	public Result run() {
+
+		total = getNumPairs();
+		done.set(0);
+
+		clipLines();
+		clipPlanes();
+		buildGrid();
+
+		// the rows of the lines first, then the rows of the planes
+		int rows = numLines + numPlanes;
+		int tasks = (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+		DoubleList[] points = new DoubleList[tasks];
+		DoubleList[] found = new DoubleList[tasks];
+
+		RowTask task = new RowTask(0, tasks, points, found);
+		if(parallel && tasks > 1) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+
+		if(cancelled) {
+			return null;
+		}
+
+		// join the results of the tasks in the order of the rows
+		return new Result(join(points), size(points) / 3, join(found), size(found) / GeometryStore.LINE_COLUMNS);
+	}
+
+	/**
+	 * computes the part of every line inside the sphere
+	 */
+	private void clipLines() {
+		for(int i = 0; i < numLines; i++) {
+			int o = i * GeometryStore.LINE_COLUMNS;
+			double x = lines[o], y = lines[o + 1], z = lines[o + 2];
+			double rx = lines[o + 3], ry = lines[o + 4], rz = lines[o + 5];
+
+			// closest point c to the origin and the half length h of the chord
+			double length = Math.sqrt(rx * rx + ry * ry + rz * rz);
+			double ux = rx / length, uy = ry / length, uz = rz / length;
+			double t = x * ux + y * uy + z * uz;
+			double cx = x - t * ux, cy = y - t * uy, cz = z - t * uz;
+			double h2 = radius * radius - (cx * cx + cy * cy + cz * cz);
+
+			if(h2 < 0) {
+				continue;
+			}
+
+			double h = Math.sqrt(h2);
+			lineActive[i] = true;
+			segments[6 * i] = cx - h * ux;
+			segments[6 * i + 1] = cy - h * uy;
+			segments[6 * i + 2] = cz - h * uz;
+			segments[6 * i + 3] = cx + h * ux;
+			segments[6 * i + 4] = cy + h * uy;
+			segments[6 * i + 5] = cz + h * uz;
+		}
+	}
+
+	private void clipPlanes() {
+		for(int j = 0; j < numPlanes; j++) {
+			int o = j * GeometryStore.PLANE_COLUMNS;
+			double a = planes[o], b = planes[o + 1], c = planes[o + 2], d = planes[o + 3];
+			planeActive[j] = Math.abs(d) <= radius * Math.sqrt(a * a + b * b + c * c);
+		}
+	}
+
+	/**
+	 * puts every segment into the cells of the grid it may touch. A segment is cut into pieces no longer
+	 * than a cell, and a piece goes into all cells its box touches, so two segments which meet always
+	 * share a cell.
+	 */
+	private void buildGrid() {
+
+		cells = Math.max(1, Math.min(MAX_CELLS, (int) Math.cbrt(8.0 * numLines)));
+		cellSize = 2 * radius / cells;
+
+		lineStart = new int[numLines + 1];
+		IntList list = new IntList();
+		int[] marks = new int[cells * cells * cells];
+		Arrays.fill(marks, -1);
+
+		for(int i = 0; i < numLines; i++) {
+			lineStart[i] = list.size;
+			if(lineActive[i]) {
+				addCells(i, list, marks);
+			}
+		}
+		lineStart[numLines] = list.size;
+		lineCells = list.toArray();
+
+		// count the lines of every cell and fill the cells in the order of the lines
+		cellStart = new int[cells * cells * cells + 1];
+		for(int k = 0; k < lineCells.length; k++) {
+			cellStart[lineCells[k] + 1]++;
+		}
+		for(int c = 0; c < cells * cells * cells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		int[] next = Arrays.copyOf(cellStart, cells * cells * cells);
+		cellLines = new int[lineCells.length];
+		for(int i = 0; i < numLines; i++) {
+			for(int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+				cellLines[next[lineCells[k]]++] = i;
+			}
+		}
+	}
+
+	private void addCells(int i, IntList list, int[] marks) {
+
+		double ax = segments[6 * i], ay = segments[6 * i + 1], az = segments[6 * i + 2];
+		double dx = segments[6 * i + 3] - ax, dy = segments[6 * i + 4] - ay, dz = segments[6 * i + 5] - az;
+		double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		int pieces = Math.max(1, (int) Math.ceil(length / cellSize));
+		double epsilon = Tolerance.getDefault().getAbsolute() + Tolerance.getDefault().getRelative() * radius;
+
+		for(int k = 0; k < pieces; k++) {
+			double t0 = (double) k / pieces, t1 = (double) (k + 1) / pieces;
+			int x0 = getCell(Math.min(ax + t0 * dx, ax + t1 * dx) - epsilon);
+			int x1 = getCell(Math.max(ax + t0 * dx, ax + t1 * dx) + epsilon);
+			int y0 = getCell(Math.min(ay + t0 * dy, ay + t1 * dy) - epsilon);
+			int y1 = getCell(Math.max(ay + t0 * dy, ay + t1 * dy) + epsilon);
+			int z0 = getCell(Math.min(az + t0 * dz, az + t1 * dz) - epsilon);
+			int z1 = getCell(Math.max(az + t0 * dz, az + t1 * dz) + epsilon);
+
+			for(int x = x0; x <= x1; x++) {
+				for(int y = y0; y <= y1; y++) {
+					for(int z = z0; z <= z1; z++) {
+						int c = (x * cells + y) * cells + z;
+						// neighbouring pieces share cells
+						if(marks[c] != i) {
+							marks[c] = i;
+							list.add(c);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private int getCell(double value) {
+		return Math.max(0, Math.min(cells - 1, (int) Math.floor((value + radius) / cellSize)));
+	}
+
+	/**
+	 * intersects line i with the lines after it and with all planes
+	 */
+	private void lineRow(int i, int[] seen, double[] buffer, DoubleList points) {
+
+		if(!lineActive[i]) {
+			return;
+		}
+
+		int o = i * GeometryStore.LINE_COLUMNS;
+		double x = lines[o], y = lines[o + 1], z = lines[o + 2];
+		double rx = lines[o + 3], ry = lines[o + 4], rz = lines[o + 5];
+
+		// the lines after i which share a cell with it
+		for(int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+			int c = lineCells[k];
+			for(int m = cellStart[c]; m < cellStart[c + 1]; m++) {
+				int j = cellLines[m];
+				if(j <= i || seen[j] == i) {
+					continue;
+				}
+				seen[j] = i;
+
+				int q = j * GeometryStore.LINE_COLUMNS;
+				IntersectionType type = IntersectionKernel.lineLine(x, y, z, rx, ry, rz,
+						lines[q], lines[q + 1], lines[q + 2], lines[q + 3], lines[q + 4], lines[q + 5], buffer, 0);
+				if(type == IntersectionType.POINT) {
+					addPoint(buffer, points);
+				}
+			}
+		}
+
+		Tolerance tolerance = Tolerance.getDefault();
+		int s = 6 * i;
+
+		for(int j = 0; j < numPlanes; j++) {
+			if(!planeActive[j]) {
+				continue;
+			}
+			int p = j * GeometryStore.PLANE_COLUMNS;
+			double a = planes[p], b = planes[p + 1], c = planes[p + 2], d = planes[p + 3];
+
+			// both ends of the segment clearly on the same side
+			double da = a * segments[s] + b * segments[s + 1] + c * segments[s + 2] + d;
+			double db = a * segments[s + 3] + b * segments[s + 4] + c * segments[s + 5] + d;
+			double scale = Math.sqrt(a * a + b * b + c * c) * radius;
+			if(da * db > 0 && !tolerance.isZero(da, scale) && !tolerance.isZero(db, scale)) {
+				continue;
+			}
+
+			if(IntersectionKernel.linePlane(x, y, z, rx, ry, rz, a, b, c, d, buffer, 0) == IntersectionType.POINT) {
+				addPoint(buffer, points);
+			}
+		}
+	}
+
+	/**
+	 * intersects plane i with the planes after it
+	 */
+	private void planeRow(int i, double[] buffer, DoubleList found) {
+
+		if(!planeActive[i]) {
+			return;
+		}
+
+		int o = i * GeometryStore.PLANE_COLUMNS;
+		double a = planes[o], b = planes[o + 1], c = planes[o + 2], d = planes[o + 3];
+
+		for(int j = i + 1; j < numPlanes; j++) {
+			if(!planeActive[j]) {
+				continue;
+			}
+			int p = j * GeometryStore.PLANE_COLUMNS;
+			IntersectionType type = IntersectionKernel.planePlane(a, b, c, d,
+					planes[p], planes[p + 1], planes[p + 2], planes[p + 3], buffer, 0);
+
+			// the point of the line is the one closest to the origin
+			if(type == IntersectionType.LINE && isInside(buffer)) {
+				for(int k = 0; k < GeometryStore.LINE_COLUMNS; k++) {
+					found.add(buffer[k]);
+				}
+			}
+		}
+	}
+
+	private void addPoint(double[] buffer, DoubleList points) {
+		if(isInside(buffer)) {
+			points.add(buffer[0]);
+			points.add(buffer[1]);
+			points.add(buffer[2]);
+		}
+	}
+
+	private boolean isInside(double[] p) {
+		return p[0] * p[0] + p[1] * p[1] + p[2] * p[2] <= radius * radius;
+	}
+
+	/**
+	 * the number of pairs of a row, row i is line i for i < numLines and plane i - numLines otherwise
+	 */
+	private long getPairs(int row) {
+		if(row < numLines) {
+			return numLines - row - 1 + numPlanes;
+		}
+		return numPlanes - (row - numLines) - 1;
+	}
+
+	private void report(long pairs) {
+		long after = done.addAndGet(pairs);
+		if(listener != null && total > 0 && (after - pairs) * PROGRESS_STEPS / total != after * PROGRESS_STEPS / total) {
+			listener.progress(after, total);
+		}
+	}
+
+	private static double[] join(DoubleList[] lists) {
+		double[] joined = new double[size(lists)];
+		int start = 0;
+		for(DoubleList list : lists) {
+			System.arraycopy(list.values, 0, joined, start, list.size);
+			start += list.size;
+		}
+		return joined;
+	}
+
+	private static int size(DoubleList[] lists) {
+		int size = 0;
+		for(DoubleList list : lists) {
+			size += list.size;
+		}
+		return size;
+	}
+
+	/**
+	 * processes the row blocks [from, to), block t covers the rows [t * ROWS_PER_TASK, (t + 1) * ROWS_PER_TASK)
+	 */
+	private class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final DoubleList[] points;
+		private final DoubleList[] found;
+
+		RowTask(int from, int to, DoubleList[] points, DoubleList[] found) {
+			this.from = from;
+			this.to = to;
+			this.points = points;
+			this.found = found;
+		}
+
+		@Override
+		protected void compute() {
+			if(parallel && to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(from, middle, points, found), new RowTask(middle, to, points, found));
+				return;
+			}
+
+			int[] seen = new int[numLines];
+			Arrays.fill(seen, -1);
+			double[] buffer = new double[GeometryStore.LINE_COLUMNS];
+
+			for(int t = from; t < to; t++) {
+				points[t] = new DoubleList();
+				found[t] = new DoubleList();
+				int end = Math.min((t + 1) * ROWS_PER_TASK, numLines + numPlanes);
+				for(int row = t * ROWS_PER_TASK; row < end; row++) {
+					if(cancelled) {
+						return;
+					}
+					if(row < numLines) {
+						lineRow(row, seen, buffer, points[t]);
+					} else {
+						planeRow(row - numLines, buffer, found[t]);
+					}
+					report(getPairs(row));
+				}
+			}
+		}
+	}
+}
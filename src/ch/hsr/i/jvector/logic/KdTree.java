@@ -0,0 +1,612 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Static k-d tree over a set of points for nearest neighbour, k nearest neighbours and fixed radius
+ * queries. The points are copied once and reordered in place so that every range [from, to) is a subtree
+ * whose root is the median at (from + to) / 2, split along the axis where the box of the subtree is
+ * widest. No node objects are created, which keeps trees of millions of points compact. The tree is
+ * built in parallel and cannot be changed afterwards. Results are the indices of the points in the
+ * arrays the tree was built from.
+ */
+public class KdTree {
+
+	/**
+	 * ranges of this size are not split anymore but searched linearly
+	 */
+	private static final int LEAF_SIZE = 8;
+
+	/**
+	 * ranges below this size are built in the current thread
+	 */
+	private static final int SEQUENTIAL_BUILD = 1 << 14;
+
+	/**
+	 * the number of queries below which a batch is not split anymore
+	 */
+	private static final int SEQUENTIAL_QUERIES = 256;
+
+	/**
+	 * the points as [x, y, z] one after the other, in tree order
+	 */
+	private final double[] coords;
+
+	/**
+	 * the original index of each point in tree order
+	 */
+	private final int[] ids;
+
+	/**
+	 * the split axis of the node at each position, only set for inner nodes
+	 */
+	private final byte[] axes;
+
+	private final int size;
+
+	private boolean parallel = true;
+
+	/**
+	 * Builds a tree over the first n points of the given columns. The arrays are copied.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 */
+	public KdTree(double[] xs, double[] ys, double[] zs, int n) {
+		this(xs, ys, zs, n, true);
+	}
+
+	/**
+	 * Builds a tree over the first n points of the given columns. The arrays are copied.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param parallel - whether the tree is built and the batches are queried in parallel
+	 */
+	public KdTree(double[] xs, double[] ys, double[] zs, int n, boolean parallel) {
+
+		if(xs.length < n || ys.length < n || zs.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		this.size = n;
+		this.parallel = parallel;
+		this.coords = new double[3 * n];
+		this.ids = new int[n];
+		this.axes = new byte[n];
+
+		double[] bounds = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+		for(int i = 0; i < n; i++) {
+			double x = xs[i], y = ys[i], z = zs[i];
+			coords[3 * i] = x;
+			coords[3 * i + 1] = y;
+			coords[3 * i + 2] = z;
+			ids[i] = i;
+			bounds[0] = Math.min(bounds[0], x);
+			bounds[1] = Math.min(bounds[1], y);
+			bounds[2] = Math.min(bounds[2], z);
+			bounds[3] = Math.max(bounds[3], x);
+			bounds[4] = Math.max(bounds[4], y);
+			bounds[5] = Math.max(bounds[5], z);
+		}
+
+		BuildTask task = new BuildTask(0, n, bounds);
+		if(parallel && n > SEQUENTIAL_BUILD) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+	}
+
+	/**
+	 * Builds a tree over all points of the store, the result i is the point with store index i.
+	 *
+	 * @param the store
+	 */
+	public KdTree(GeometryStore store) {
+		this(store.getPointColumn(GeometryStore.X), store.getPointColumn(GeometryStore.Y),
+				store.getPointColumn(GeometryStore.Z), store.getNumPoints());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether batch queries are processed in parallel, default is true.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Returns the point closest to the given point.
+	 *
+	 * @return the index of the closest point or -1 if the tree is empty
+	 */
+	public int findNearest(double x, double y, double z) {
+		Search search = new Search(1);
+		search.start(x, y, z);
+		search(0, size, search);
+		return search.size == 0 ? -1 : ids[search.positions[0]];
+	}
+
+	/**
+	 * Finds the k points closest to the given point, the closest first.
+	 *
+	 * @param x, y, z - the point
+	 * @param k - the number of points, not negative
+	 * @param indices - the indices of the points, at least k long
+	 * @param distances - the distances of the points or null, at least k long
+	 * @return the number of points found, k unless the tree has less points
+	 */
+	public int findNearest(double x, double y, double z, int k, int[] indices, double[] distances) {
+		if(k < 0) {
+			throw new IllegalArgumentException("negative number of points: " + k);
+		}
+		if(indices.length < k || (distances != null && distances.length < k)) {
+			throw new IllegalArgumentException("the result arrays are too small");
+		}
+		if(k == 0) {
+			return 0;
+		}
+		Search search = new Search(k);
+		search.start(x, y, z);
+		search(0, size, search);
+		return search.write(ids, indices, distances, 0);
+	}
+
+	/**
+	 * Returns all points whose distance to the given point is at most <code>radius</code>.
+	 *
+	 * @return a new array with the indices of the points in no particular order
+	 */
+	public int[] findWithin(double x, double y, double z, double radius) {
+		IntList result = new IntList();
+		findWithin(0, size, x, y, z, radius * radius, result);
+		return result.toArray();
+	}
+
+	/**
+	 * Finds the k nearest points of many query points at once. The results of query i are stored at
+	 * [i * k, (i + 1) * k) in the closest first order, missing results are -1 with distance infinity.
+	 *
+	 * @param qx, qy, qz - the query points
+	 * @param n - the number of query points
+	 * @param k - the number of points per query, not negative
+	 * @param indices - the indices of the points, at least n * k long
+	 * @param distances - the distances of the points or null, at least n * k long
+	 */
+	public void findNearest(final double[] qx, final double[] qy, final double[] qz, int n, final int k,
+							final int[] indices, final double[] distances) {
+
+		if(k < 0) {
+			throw new IllegalArgumentException("negative number of points: " + k);
+		}
+		long count = (long) n * k;
+		if(indices.length < count || (distances != null && distances.length < count)) {
+			throw new IllegalArgumentException("the result arrays are too small");
+		}
+		if(k == 0) {
+			return;
+		}
+
+		runBatch(n, new Batch() {
+			public void run(int from, int to) {
+				Search search = new Search(k);
+				for(int i = from; i < to; i++) {
+					search.start(qx[i], qy[i], qz[i]);
+					search(0, size, search);
+					int found = search.write(ids, indices, distances, i * k);
+					for(int j = found; j < k; j++) {
+						indices[i * k + j] = -1;
+						if(distances != null) {
+							distances[i * k + j] = Double.POSITIVE_INFINITY;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finds the points within the radius of many query points at once. The indices of query i are
+	 * stored at [offsets[i], offsets[i + 1]) of the returned array.
+	 *
+	 * @param qx, qy, qz - the query points
+	 * @param n - the number of query points
+	 * @param radius - the maximal distance
+	 * @param offsets - the start of the results of each query, at least n + 1 long
+	 * @return a new array with the indices of all queries
+	 */
+	public int[] findWithin(final double[] qx, final double[] qy, final double[] qz, int n, double radius, final int[] offsets) {
+
+		if(offsets.length < n + 1) {
+			throw new IllegalArgumentException("the offsets array is too small");
+		}
+
+		final double radius2 = radius * radius;
+		final int chunks = (n + SEQUENTIAL_QUERIES - 1) / SEQUENTIAL_QUERIES;
+		final IntList[] results = new IntList[chunks];
+
+		// every chunk of queries collects its own results, they are joined afterwards
+		runBatch(n, new Batch() {
+			public void run(int from, int to) {
+				for(int c = from / SEQUENTIAL_QUERIES; c * SEQUENTIAL_QUERIES < to; c++) {
+					IntList result = new IntList();
+					int end = Math.min((c + 1) * SEQUENTIAL_QUERIES, to);
+					for(int i = c * SEQUENTIAL_QUERIES; i < end; i++) {
+						offsets[i] = result.size;
+						findWithin(0, size, qx[i], qy[i], qz[i], radius2, result);
+					}
+					results[c] = result;
+				}
+			}
+		});
+
+		int total = 0;
+		for(int c = 0; c < chunks; c++) {
+			total += results[c].size;
+		}
+		int[] indices = new int[total];
+
+		int start = 0;
+		for(int c = 0; c < chunks; c++) {
+			System.arraycopy(results[c].values, 0, indices, start, results[c].size);
+			int end = Math.min((c + 1) * SEQUENTIAL_QUERIES, n);
+			for(int i = c * SEQUENTIAL_QUERIES; i < end; i++) {
+				offsets[i] += start;
+			}
+			start += results[c].size;
+		}
+		offsets[n] = total;
+
+		return indices;
+	}
+
+	/**
+	 * runs the batch over the query ranges, the ranges start at multiples of SEQUENTIAL_QUERIES
+	 */
+	private void runBatch(int n, Batch batch) {
+		BatchTask task = new BatchTask(0, n, batch);
+		if(parallel && n > SEQUENTIAL_QUERIES) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			batch.run(0, n);
+		}
+	}
+
+	private void search(int from, int to, Search s) {
+
+		if(to - from <= LEAF_SIZE) {
+			for(int i = from; i < to; i++) {
+				s.offer(i, getDistanceSquared(i, s.x, s.y, s.z));
+			}
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		s.offer(middle, getDistanceSquared(middle, s.x, s.y, s.z));
+
+		double difference = s.get(axes[middle]) - coords[3 * middle + axes[middle]];
+		if(difference < 0) {
+			search(from, middle, s);
+			if(difference * difference <= s.getWorst()) {
+				search(middle + 1, to, s);
+			}
+		} else {
+			search(middle + 1, to, s);
+			if(difference * difference <= s.getWorst()) {
+				search(from, middle, s);
+			}
+		}
+	}
+
+	private void findWithin(int from, int to, double x, double y, double z, double radius2, IntList result) {
+
+		if(to - from <= LEAF_SIZE) {
+			for(int i = from; i < to; i++) {
+				if(getDistanceSquared(i, x, y, z) <= radius2) {
+					result.add(ids[i]);
+				}
+			}
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		if(getDistanceSquared(middle, x, y, z) <= radius2) {
+			result.add(ids[middle]);
+		}
+
+		int axis = axes[middle];
+		double difference = (axis == 0 ? x : axis == 1 ? y : z) - coords[3 * middle + axis];
+		if(difference <= 0 || difference * difference <= radius2) {
+			findWithin(from, middle, x, y, z, radius2, result);
+		}
+		if(difference >= 0 || difference * difference <= radius2) {
+			findWithin(middle + 1, to, x, y, z, radius2, result);
+		}
+	}
+
+	private double getDistanceSquared(int i, double x, double y, double z) {
+		double dx = coords[3 * i] - x, dy = coords[3 * i + 1] - y, dz = coords[3 * i + 2] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * reorders [from, to) so that the point at k is the one of rank k along the axis, the points before
+	 * are not greater and the points after are not smaller
+	 */
+	private void select(int from, int to, int k, int axis) {
+
+		while(to - from > 1) {
+
+			double pivot = median(coords[3 * from + axis], coords[3 * k + axis], coords[3 * (to - 1) + axis]);
+			int i = from, j = to - 1;
+
+			while(i <= j) {
+				while(coords[3 * i + axis] < pivot) {
+					i++;
+				}
+				while(coords[3 * j + axis] > pivot) {
+					j--;
+				}
+				if(i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if(k <= j) {
+				to = j + 1;
+			} else if(k >= i) {
+				from = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		for(int a = 0; a < 3; a++) {
+			double t = coords[3 * i + a];
+			coords[3 * i + a] = coords[3 * j + a];
+			coords[3 * j + a] = t;
+		}
+		int t = ids[i];
+		ids[i] = ids[j];
+		ids[j] = t;
+	}
+
+	private static double median(double a, double b, double c) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	/**
+	 * builds the subtree of [from, to) within the given bounds [minX, minY, minZ, maxX, maxY, maxZ]
+	 */
+	private class BuildTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final double[] bounds;
+
+		BuildTask(int from, int to, double[] bounds) {
+			this.from = from;
+			this.to = to;
+			this.bounds = bounds;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from <= LEAF_SIZE) {
+				return;
+			}
+
+			int axis = 0;
+			for(int a = 1; a < 3; a++) {
+				if(bounds[a + 3] - bounds[a] > bounds[axis + 3] - bounds[axis]) {
+					axis = a;
+				}
+			}
+
+			int middle = (from + to) >>> 1;
+			select(from, to, middle, axis);
+			axes[middle] = (byte) axis;
+
+			double split = coords[3 * middle + axis];
+			double[] lower = bounds.clone();
+			double[] upper = bounds.clone();
+			lower[axis + 3] = split;
+			upper[axis] = split;
+
+			BuildTask left = new BuildTask(from, middle, lower);
+			BuildTask right = new BuildTask(middle + 1, to, upper);
+
+			if(parallel && to - from > SEQUENTIAL_BUILD) {
+				invokeAll(left, right);
+			} else {
+				left.compute();
+				right.compute();
+			}
+		}
+	}
+
+	private interface Batch {
+		public void run(int from, int to);
+	}
+
+	private static class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final Batch batch;
+
+		BatchTask(int from, int to, Batch batch) {
+			this.from = from;
+			this.to = to;
+			this.batch = batch;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= SEQUENTIAL_QUERIES) {
+				batch.run(from, to);
+			} else {
+				// split at a multiple of SEQUENTIAL_QUERIES
+				int middle = from + ((to - from) / SEQUENTIAL_QUERIES / 2) * SEQUENTIAL_QUERIES;
+				if(middle == from) {
+					middle += SEQUENTIAL_QUERIES;
+				}
+				invokeAll(new BatchTask(from, middle, batch), new BatchTask(middle, to, batch));
+			}
+		}
+	}
+
+	/**
+	 * the k best positions found so far, kept as a max heap on the squared distance
+	 */
+	private static class Search {
+
+		final int k;
+		final int[] positions;
+		final double[] distances;
+		int size;
+		double x, y, z;
+
+		Search(int k) {
+			this.k = k;
+			this.positions = new int[k];
+			this.distances = new double[k];
+		}
+
+		void start(double x, double y, double z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.size = 0;
+		}
+
+		double get(int axis) {
+			return axis == 0 ? x : axis == 1 ? y : z;
+		}
+
+		/**
+		 * the squared distance a point must not exceed to be added
+		 */
+		double getWorst() {
+			return size < k ? Double.POSITIVE_INFINITY : distances[0];
+		}
+
+		void offer(int position, double distance) {
+			if(size < k) {
+				int i = size++;
+				// sift up
+				while(i > 0) {
+					int parent = (i - 1) >>> 1;
+					if(distances[parent] >= distance) {
+						break;
+					}
+					positions[i] = positions[parent];
+					distances[i] = distances[parent];
+					i = parent;
+				}
+				positions[i] = position;
+				distances[i] = distance;
+			} else if(distance < distances[0]) {
+				// replace the worst and sift down
+				int i = 0;
+				while(true) {
+					int child = 2 * i + 1;
+					if(child >= size) {
+						break;
+					}
+					if(child + 1 < size && distances[child + 1] > distances[child]) {
+						child++;
+					}
+					if(distances[child] <= distance) {
+						break;
+					}
+					positions[i] = positions[child];
+					distances[i] = distances[child];
+					i = child;
+				}
+				positions[i] = position;
+				distances[i] = distance;
+			}
+		}
+
+		/**
+		 * writes the found points in the closest first order and returns their number
+		 */
+		int write(int[] ids, int[] indices, double[] out, int offset) {
+			int n = size;
+			// take the worst from the heap until it is empty
+			for(int i = n - 1; i >= 0; i--) {
+				indices[offset + i] = ids[positions[0]];
+				if(out != null) {
+					out[offset + i] = Math.sqrt(distances[0]);
+				}
+				removeWorst();
+			}
+			return n;
+		}
+
+		private void removeWorst() {
+			size--;
+			int position = positions[size];
+			double distance = distances[size];
+			int i = 0;
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= size) {
+					break;
+				}
+				if(child + 1 < size && distances[child + 1] > distances[child]) {
+					child++;
+				}
+				if(distances[child] <= distance) {
+					break;
+				}
+				positions[i] = positions[child];
+				distances[i] = distances[child];
+				i = child;
+			}
+			if(size > 0) {
+				positions[i] = position;
+				distances[i] = distance;
+			}
+		}
+	}
+}
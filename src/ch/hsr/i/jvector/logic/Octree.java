@@ -0,0 +1,267 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ch.hsr.i.jvector.interfaces.Component;
+
+/**
+ * Octree over the points of a <code>SpatialIndex</code>. A leaf holds up to <code>MAX_ENTRIES</code>
+ * points before it is split, and a node is merged back into a leaf when its subtree becomes small
+ * enough. If a point lies outside the root cube the tree grows upwards.
+ */
+class Octree {
+
+	private static final int MAX_ENTRIES = 16;
+
+	/**
+	 * nodes with a smaller half size are not split anymore, so equal points do not split forever
+	 */
+	private static final double MIN_HALF_SIZE = 1e-6;
+
+	static class Entry {
+		Component comp;
+		double x, y, z;
+	}
+
+	static class Node {
+		double cx, cy, cz, half;
+		Node[] children;
+		ArrayList<Entry> entries = new ArrayList<Entry>();
+		int count;
+
+		Node(double cx, double cy, double cz, double half) {
+			this.cx = cx;
+			this.cy = cy;
+			this.cz = cz;
+			this.half = half;
+		}
+
+		boolean contains(double x, double y, double z) {
+			return Math.abs(x - cx) <= half && Math.abs(y - cy) <= half && Math.abs(z - cz) <= half;
+		}
+
+		int getOctant(double x, double y, double z) {
+			return (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0) | (z >= cz ? 4 : 0);
+		}
+
+		/**
+		 * squared distance of the point to the cube of this node
+		 */
+		double getDistanceSquared(double x, double y, double z) {
+			double dx = Math.max(0, Math.abs(x - cx) - half);
+			double dy = Math.max(0, Math.abs(y - cy) - half);
+			double dz = Math.max(0, Math.abs(z - cz) - half);
+			return dx * dx + dy * dy + dz * dz;
+		}
+	}
+
+	private Node root;
+	private final IdentityHashMap<Component, Entry> entries = new IdentityHashMap<Component, Entry>();
+
+	/**
+	 * @param the half size of the initial root cube around the origin
+	 */
+	Octree(double half) {
+		root = new Node(0, 0, 0, half);
+	}
+
+	Node getRoot() {
+		return root;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	void clear() {
+		root = new Node(0, 0, 0, root.half);
+		entries.clear();
+	}
+
+	void add(Component comp, double x, double y, double z) {
+
+		if(entries.containsKey(comp)) {
+			return;
+		}
+
+		while(!root.contains(x, y, z)) {
+			grow(x, y, z);
+		}
+
+		Entry entry = new Entry();
+		entry.comp = comp;
+		entry.x = x;
+		entry.y = y;
+		entry.z = z;
+		entries.put(comp, entry);
+
+		Node node = root;
+		while(true) {
+			node.count++;
+			if(node.children == null) {
+				node.entries.add(entry);
+				if(node.entries.size() > MAX_ENTRIES && node.half > MIN_HALF_SIZE) {
+					split(node);
+				}
+				return;
+			}
+			node = node.children[node.getOctant(x, y, z)];
+		}
+	}
+
+	boolean remove(Component comp) {
+
+		Entry entry = entries.remove(comp);
+		if(entry == null) {
+			return false;
+		}
+
+		Node node = root;
+		while(true) {
+			node.count--;
+			if(node.children != null && node.count <= MAX_ENTRIES / 2) {
+				merge(node);
+			}
+			if(node.children == null) {
+				node.entries.remove(entry);
+				return true;
+			}
+			node = node.children[node.getOctant(entry.x, entry.y, entry.z)];
+		}
+	}
+
+	void findWithin(double x, double y, double z, double radius, List<Component> result) {
+		findWithin(root, x, y, z, radius * radius, result);
+	}
+
+	private void findWithin(Node node, double x, double y, double z, double radius2, List<Component> result) {
+		if(node.count == 0 || node.getDistanceSquared(x, y, z) > radius2) {
+			return;
+		}
+		if(node.children == null) {
+			for(int i = 0; i < node.entries.size(); i++) {
+				Entry e = node.entries.get(i);
+				double dx = e.x - x, dy = e.y - y, dz = e.z - z;
+				if(dx * dx + dy * dy + dz * dz <= radius2) {
+					result.add(e.comp);
+				}
+			}
+		} else {
+			for(int i = 0; i < 8; i++) {
+				findWithin(node.children[i], x, y, z, radius2, result);
+			}
+		}
+	}
+
+	void findInBox(double[] box, List<Component> result) {
+		findInBox(root, box, result);
+	}
+
+	private void findInBox(Node node, double[] box, List<Component> result) {
+		if(node.count == 0
+				|| node.cx + node.half < box[0] || node.cx - node.half > box[3]
+				|| node.cy + node.half < box[1] || node.cy - node.half > box[4]
+				|| node.cz + node.half < box[2] || node.cz - node.half > box[5]) {
+			return;
+		}
+		if(node.children == null) {
+			for(int i = 0; i < node.entries.size(); i++) {
+				Entry e = node.entries.get(i);
+				if(e.x >= box[0] && e.x <= box[3] && e.y >= box[1] && e.y <= box[4] && e.z >= box[2] && e.z <= box[5]) {
+					result.add(e.comp);
+				}
+			}
+		} else {
+			for(int i = 0; i < 8; i++) {
+				findInBox(node.children[i], box, result);
+			}
+		}
+	}
+
+	/**
+	 * creates a root of double size which contains the old root as one of its octants
+	 */
+	private void grow(double x, double y, double z) {
+
+		double half = root.half;
+		Node grown = new Node(root.cx + (x >= root.cx ? half : -half),
+							  root.cy + (y >= root.cy ? half : -half),
+							  root.cz + (z >= root.cz ? half : -half), 2 * half);
+
+		grown.children = new Node[8];
+		for(int i = 0; i < 8; i++) {
+			grown.children[i] = createChild(grown, i);
+		}
+		grown.children[grown.getOctant(root.cx, root.cy, root.cz)] = root;
+		grown.count = root.count;
+		grown.entries = null;
+
+		root = grown;
+	}
+
+	private void split(Node node) {
+		node.children = new Node[8];
+		for(int i = 0; i < 8; i++) {
+			node.children[i] = createChild(node, i);
+		}
+		for(int i = 0; i < node.entries.size(); i++) {
+			Entry e = node.entries.get(i);
+			Node child = node.children[node.getOctant(e.x, e.y, e.z)];
+			child.entries.add(e);
+			child.count++;
+		}
+		node.entries = null;
+
+		// all points in the same octant > split further
+		for(int i = 0; i < 8; i++) {
+			Node child = node.children[i];
+			if(child.entries.size() > MAX_ENTRIES && child.half > MIN_HALF_SIZE) {
+				split(child);
+			}
+		}
+	}
+
+	private void merge(Node node) {
+		ArrayList<Entry> merged = new ArrayList<Entry>(MAX_ENTRIES);
+		collect(node, merged);
+		node.children = null;
+		node.entries = merged;
+	}
+
+	private void collect(Node node, ArrayList<Entry> result) {
+		if(node.children == null) {
+			result.addAll(node.entries);
+		} else {
+			for(int i = 0; i < 8; i++) {
+				collect(node.children[i], result);
+			}
+		}
+	}
+
+	private static Node createChild(Node parent, int octant) {
+		double q = parent.half / 2;
+		return new Node(parent.cx + ((octant & 1) != 0 ? q : -q),
+						parent.cy + ((octant & 2) != 0 ? q : -q),
+						parent.cz + ((octant & 4) != 0 ? q : -q), q);
+	}
+}
@@ -0,0 +1,437 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.vecmath.Vector3d;
+
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+
+/**
+ * Detects planes in a point cloud with RANSAC. Plane hypotheses through three random points are scored in
+ * batches, every batch is scored in one parallel pass which counts the inliers of all its hypotheses.
+ * Large clouds are scored on a random sample of the remaining points, only the best hypothesis is counted
+ * on all of them. Sampling stops as soon as enough hypotheses were tried to find the best plane with the
+ * configured confidence, given the inlier ratio of the best plane so far. The best plane is refined by a
+ * least squares fit to its inliers, the inliers are removed and the next plane is searched among the
+ * remaining points.
+ * <p>
+ * The coordinates are copied once into three columns, the points which are left are kept at the front of
+ * them, so the scoring loop runs over contiguous arrays and does not allocate.
+ */
+public class PlaneDetector {
+
+	/**
+	 * a detected plane and its inliers
+	 */
+	public static class Detection {
+
+		private final double[] plane;
+		private final int[] inliers;
+
+		Detection(double[] plane, int[] inliers) {
+			this.plane = plane;
+			this.inliers = inliers;
+		}
+
+		/**
+		 * Returns the plane as A, B, C, D with Ax + By + Cz + D = 0 and a normal of length one.
+		 */
+		public double[] getPlane() {
+			return plane.clone();
+		}
+
+		/**
+		 * Returns the indices of the points within the threshold of the plane.
+		 */
+		public int[] getInliers() {
+			return inliers.clone();
+		}
+
+		public int getNumInliers() {
+			return inliers.length;
+		}
+	}
+
+	/**
+	 * the number of hypotheses scored in one pass over the points
+	 */
+	private static final int HYPOTHESES = 16;
+
+	/**
+	 * the points of one block are scored against all hypotheses before the next block is read
+	 */
+	private static final int BLOCK = 2048;
+
+	/**
+	 * ranges below this size are scored in the current thread
+	 */
+	private static final int SEQUENTIAL_POINTS = 1 << 13;
+
+	/**
+	 * the number of points the hypotheses are scored on if more points are left
+	 */
+	private static final int SAMPLE_SIZE = 1 << 16;
+
+	/**
+	 * the remaining points, the points of the detected planes are dropped
+	 */
+	private final double[] xs, ys, zs;
+	private final int[] ids;
+
+	private final int size;
+	private int remaining;
+
+	/**
+	 * a random sample of the remaining points
+	 */
+	private final double[] sampleX, sampleY, sampleZ;
+
+	private final double threshold;
+	private int minInliers = 3;
+	private double confidence = 0.99;
+	private int maxIterations = 10000;
+	private long seed = 0;
+	private boolean parallel = true;
+
+	private int iterations;
+
+	/**
+	 * Creates a detector for the first n points of the given columns. The arrays are copied.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param threshold - the maximal distance of an inlier from its plane
+	 */
+	public PlaneDetector(double[] xs, double[] ys, double[] zs, int n, double threshold) {
+
+		if(xs.length < n || ys.length < n || zs.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.zs = new double[n];
+		System.arraycopy(xs, 0, this.xs, 0, n);
+		System.arraycopy(ys, 0, this.ys, 0, n);
+		System.arraycopy(zs, 0, this.zs, 0, n);
+		this.ids = new int[n];
+		for(int i = 0; i < n; i++) {
+			ids[i] = i;
+		}
+		this.size = n;
+		this.remaining = n;
+		this.threshold = threshold;
+
+		int samples = Math.min(n, SAMPLE_SIZE);
+		this.sampleX = new double[samples];
+		this.sampleY = new double[samples];
+		this.sampleZ = new double[samples];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of points which do not belong to a detected plane.
+	 */
+	public int getNumRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * Sets the minimal number of inliers of a plane, default is 3.
+	 */
+	public void setMinInliers(int minInliers) {
+		this.minInliers = Math.max(3, minInliers);
+	}
+
+	/**
+	 * Sets the probability with which the best plane is found before the sampling stops, default is 0.99.
+	 */
+	public void setConfidence(double confidence) {
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Sets the maximal number of hypotheses per plane, default is 10000.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Sets the seed of the random samples, the same seed gives the same planes.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether the hypotheses are scored in parallel, default is true.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Returns the number of hypotheses scored by the last call of <code>detect</code>.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Detects up to maxPlanes planes among the remaining points, the plane with the most inliers first.
+	 * The detection stops early if no plane has the minimal number of inliers.
+	 *
+	 * @param the maximal number of planes
+	 * @return the detected planes
+	 */
+	public List<Detection> detect(int maxPlanes) {
+
+		ArrayList<Detection> detections = new ArrayList<Detection>();
+		Random random = new Random(seed);
+		double[] hypotheses = new double[GeometryStore.PLANE_COLUMNS * HYPOTHESES];
+		double[] best = new double[GeometryStore.PLANE_COLUMNS];
+		iterations = 0;
+
+		while(detections.size() < maxPlanes && remaining >= minInliers) {
+
+			// score on all points if they fit into the sample
+			double[] px = xs, py = ys, pz = zs;
+			int points = remaining;
+			if(remaining > sampleX.length) {
+				points = sampleX.length;
+				for(int s = 0; s < points; s++) {
+					int i = random.nextInt(remaining);
+					sampleX[s] = xs[i];
+					sampleY[s] = ys[i];
+					sampleZ[s] = zs[i];
+				}
+				px = sampleX;
+				py = sampleY;
+				pz = sampleZ;
+			}
+
+			int bestCount = 0;
+			int tried = 0;
+			double required = maxIterations;
+
+			while(tried < Math.min(required, maxIterations)) {
+				int batch = sample(random, hypotheses, (int) Math.min(HYPOTHESES, Math.ceil(Math.min(required, maxIterations) - tried)));
+				if(batch == 0) {
+					break;
+				}
+				tried += batch;
+
+				int[] counts = score(px, py, pz, points, hypotheses, batch);
+				for(int h = 0; h < batch; h++) {
+					if(counts[h] > bestCount) {
+						bestCount = counts[h];
+						System.arraycopy(hypotheses, GeometryStore.PLANE_COLUMNS * h, best, 0, GeometryStore.PLANE_COLUMNS);
+					}
+				}
+
+				// the number of samples after which an all inlier sample was drawn with the given confidence
+				double ratio = (double) bestCount / points;
+				double all = ratio * ratio * ratio;
+				if(all >= 1) {
+					required = 0;
+				} else if(all > 0) {
+					required = Math.log(1 - confidence) / Math.log(1 - all);
+				}
+			}
+			iterations += tried;
+
+			if((double) bestCount / points * remaining < minInliers) {
+				break;
+			}
+
+			refine(best);
+			Detection detection = extract(best);
+			if(detection.getNumInliers() < minInliers) {
+				break;
+			}
+			detections.add(detection);
+		}
+		return detections;
+	}
+
+	/**
+	 * writes up to count planes through three random remaining points into the hypotheses
+	 *
+	 * @return the number of planes, less if no plane was found among many samples
+	 */
+	private int sample(Random random, double[] hypotheses, int count) {
+
+		int found = 0;
+		for(int tries = 0; found < count && tries < 100 * count; tries++) {
+			int i = random.nextInt(remaining), j = random.nextInt(remaining), k = random.nextInt(remaining);
+
+			// the normal of the plane through the three points, as in Plane3D
+			double ux = xs[j] - xs[i], uy = ys[j] - ys[i], uz = zs[j] - zs[i];
+			double vx = xs[k] - xs[i], vy = ys[k] - ys[i], vz = zs[k] - zs[i];
+			double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if(length <= 1e-12 * (ux * ux + uy * uy + uz * uz + vx * vx + vy * vy + vz * vz)) {
+				continue;
+			}
+
+			int o = GeometryStore.PLANE_COLUMNS * found++;
+			hypotheses[o] = nx / length;
+			hypotheses[o + 1] = ny / length;
+			hypotheses[o + 2] = nz / length;
+			hypotheses[o + 3] = -(hypotheses[o] * xs[i] + hypotheses[o + 1] * ys[i] + hypotheses[o + 2] * zs[i]);
+		}
+		return found;
+	}
+
+	/**
+	 * the number of the first n points within the threshold of each hypothesis
+	 */
+	private int[] score(double[] px, double[] py, double[] pz, int n, double[] hypotheses, int count) {
+		ScoreTask task = new ScoreTask(px, py, pz, hypotheses, count, 0, n);
+		if(parallel && n > SEQUENTIAL_POINTS) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.compute();
+		}
+		return task.counts;
+	}
+
+	/**
+	 * replaces the plane by the least squares plane of its inliers if that one has at least as many
+	 */
+	private void refine(double[] plane) {
+
+		PointFit fit = new PointFit();
+		for(int i = 0; i < remaining; i++) {
+			if(Math.abs(plane[0] * xs[i] + plane[1] * ys[i] + plane[2] * zs[i] + plane[3]) <= threshold) {
+				fit.add(xs[i], ys[i], zs[i]);
+			}
+		}
+
+		double[] refined = new double[GeometryStore.PLANE_COLUMNS];
+		try {
+			Vector3d normal = fit.getPlaneNormal();
+			refined[0] = normal.x;
+			refined[1] = normal.y;
+			refined[2] = normal.z;
+			refined[3] = -(normal.x * fit.getMean().x + normal.y * fit.getMean().y + normal.z * fit.getMean().z);
+		} catch(NoPlaneException e) {
+			return;
+		}
+
+		int[] counts = score(xs, ys, zs, remaining, refined, 1);
+		if(counts[0] >= fit.getCount()) {
+			System.arraycopy(refined, 0, plane, 0, GeometryStore.PLANE_COLUMNS);
+		}
+	}
+
+	/**
+	 * removes the inliers of the plane from the remaining points
+	 */
+	private Detection extract(double[] plane) {
+
+		int kept = 0;
+		int removed = 0;
+		int[] inliers = new int[remaining];
+		for(int i = 0; i < remaining; i++) {
+			if(Math.abs(plane[0] * xs[i] + plane[1] * ys[i] + plane[2] * zs[i] + plane[3]) <= threshold) {
+				inliers[removed++] = ids[i];
+			} else {
+				xs[kept] = xs[i];
+				ys[kept] = ys[i];
+				zs[kept] = zs[i];
+				ids[kept] = ids[i];
+				kept++;
+			}
+		}
+		remaining = kept;
+		return new Detection(plane.clone(), Arrays.copyOf(inliers, removed));
+	}
+
+	private class ScoreTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] px, py, pz;
+		private final double[] hypotheses;
+		private final int count;
+		private final int from;
+		private final int to;
+
+		/**
+		 * the inliers of each hypothesis in [from, to)
+		 */
+		final int[] counts;
+
+		ScoreTask(double[] px, double[] py, double[] pz, double[] hypotheses, int count, int from, int to) {
+			this.px = px;
+			this.py = py;
+			this.pz = pz;
+			this.hypotheses = hypotheses;
+			this.count = count;
+			this.from = from;
+			this.to = to;
+			this.counts = new int[count];
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from > SEQUENTIAL_POINTS && parallel) {
+				int middle = (from + to) >>> 1;
+				ScoreTask left = new ScoreTask(px, py, pz, hypotheses, count, from, middle);
+				ScoreTask right = new ScoreTask(px, py, pz, hypotheses, count, middle, to);
+				invokeAll(left, right);
+				for(int h = 0; h < count; h++) {
+					counts[h] = left.counts[h] + right.counts[h];
+				}
+				return;
+			}
+
+			for(int block = from; block < to; block += BLOCK) {
+				int end = Math.min(block + BLOCK, to);
+				for(int h = 0; h < count; h++) {
+					int o = GeometryStore.PLANE_COLUMNS * h;
+					double a = hypotheses[o], b = hypotheses[o + 1], c = hypotheses[o + 2], d = hypotheses[o + 3];
+					int inliers = 0;
+					for(int i = block; i < end; i++) {
+						double distance = a * px[i] + b * py[i] + c * pz[i] + d;
+						inliers += Math.abs(distance) <= threshold ? 1 : 0;
+					}
+					counts[h] += inliers;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.exceptions.NoLineException.StateNoLine;
+import ch.hsr.i.jvector.exceptions.NoPlaneException.StateNoPlane;
+
+/**
+ * Least squares fit of a plane or a line to a set of points. The points are streamed through
+ * <code>add</code>, which updates the mean and the sums of the squared deviations with Welford's method,
+ * so any number of points is fitted in constant memory. Fits of parts of the points can be merged, which
+ * makes them a parallel reduction.
+ * <p>
+ * The best plane goes through the mean and is normal to the eigenvector of the covariance matrix with the
+ * smallest eigenvalue, the best line goes through the mean in the direction of the eigenvector with the
+ * largest eigenvalue. The eigenvalues of the symmetric 3x3 matrix are computed in closed form.
+ */
+public class PointFit {
+
+	/**
+	 * ranges below this size are accumulated in the current thread
+	 */
+	private static final int SEQUENTIAL_POINTS = 1 << 14;
+
+	/**
+	 * eigenvalues below this share of the total variance count as zero
+	 */
+	private static final double ZERO_VARIANCE = 1e-12;
+
+	private long count;
+	private double meanX, meanY, meanZ;
+
+	/**
+	 * the sums of the products of the deviations from the mean
+	 */
+	private double xx, xy, xz, yy, yz, zz;
+
+	/**
+	 * Fits the first n points of the given columns.
+	 *
+	 * @param xs, ys, zs - the coordinates of the points
+	 * @param n - the number of points
+	 * @param parallel - whether the points are accumulated in parallel
+	 * @return the fit of the points
+	 */
+	public static PointFit compute(double[] xs, double[] ys, double[] zs, int n, boolean parallel) {
+
+		if(xs.length < n || ys.length < n || zs.length < n) {
+			throw new IllegalArgumentException("the arrays are too small");
+		}
+
+		FitTask task = new FitTask(xs, ys, zs, 0, n);
+		if(parallel && n > SEQUENTIAL_POINTS) {
+			return ForkJoinPool.commonPool().invoke(task);
+		}
+		return task.compute();
+	}
+
+	public void add(double x, double y, double z) {
+		count++;
+		double dx = x - meanX, dy = y - meanY, dz = z - meanZ;
+		meanX += dx / count;
+		meanY += dy / count;
+		meanZ += dz / count;
+
+		// the deviation from the old mean times the deviation from the new one
+		double ex = x - meanX, ey = y - meanY, ez = z - meanZ;
+		xx += dx * ex;
+		xy += dx * ey;
+		xz += dx * ez;
+		yy += dy * ey;
+		yz += dy * ez;
+		zz += dz * ez;
+	}
+
+	/**
+	 * Adds the points of the other fit, as if they had been added to this one.
+	 *
+	 * @param the other fit, which is not changed
+	 */
+	public void merge(PointFit other) {
+
+		if(other.count == 0) {
+			return;
+		}
+
+		long n = count + other.count;
+		double dx = other.meanX - meanX, dy = other.meanY - meanY, dz = other.meanZ - meanZ;
+		double f = (double) count * other.count / n;
+
+		xx += other.xx + dx * dx * f;
+		xy += other.xy + dx * dy * f;
+		xz += other.xz + dx * dz * f;
+		yy += other.yy + dy * dy * f;
+		yz += other.yz + dy * dz * f;
+		zz += other.zz + dz * dz * f;
+
+		double share = (double) other.count / n;
+		meanX += dx * share;
+		meanY += dy * share;
+		meanZ += dz * share;
+		count = n;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Point3d getMean() {
+		return new Point3d(meanX, meanY, meanZ);
+	}
+
+	/**
+	 * Returns the covariance matrix of the points.
+	 *
+	 * @return the matrix as { xx, xy, xz, yy, yz, zz }
+	 */
+	public double[] getCovariance() {
+		double n = Math.max(count, 1);
+		return new double[] { xx / n, xy / n, xz / n, yy / n, yz / n, zz / n };
+	}
+
+	/**
+	 * Returns the unit normal of the best plane.
+	 *
+	 * @throws NoPlaneException if there are less than three points or all are on one line
+	 */
+	public Vector3d getPlaneNormal() throws NoPlaneException {
+		double[] values = getEigenvalues();
+		if(count < 3 || values[1] <= ZERO_VARIANCE * (values[0] + values[1] + values[2])) {
+			throw new NoPlaneException(StateNoPlane.NO_LINEAR_INDEP_DIR_VECTORS);
+		}
+		return getEigenvector(values[2]);
+	}
+
+	/**
+	 * Returns the unit direction of the best line.
+	 *
+	 * @throws NoLineException if there are less than two different points
+	 */
+	public Vector3d getLineDirection() throws NoLineException {
+		double[] values = getEigenvalues();
+		if(count < 2 || values[0] <= 0) {
+			throw new NoLineException(StateNoLine.SAME_POINT_TWICE);
+		}
+		return getEigenvector(values[0]);
+	}
+
+	/**
+	 * Returns the root mean square distance of the points to the best plane.
+	 */
+	public double getPlaneError() {
+		return Math.sqrt(Math.max(getEigenvalues()[2], 0) / Math.max(count, 1));
+	}
+
+	/**
+	 * Returns the root mean square distance of the points to the best line.
+	 */
+	public double getLineError() {
+		double[] values = getEigenvalues();
+		return Math.sqrt(Math.max(values[1] + values[2], 0) / Math.max(count, 1));
+	}
+
+	/**
+	 * Creates the best plane through the points.
+	 *
+	 * @param the store which holds the parameters of the plane
+	 * @throws NoPlaneException if there are less than three points or all are on one line
+	 */
+	public Plane3D fitPlane(GeometryStore store) throws NoPlaneException {
+		Vector3d normal = getPlaneNormal();
+		return new Plane3D(normal.x, normal.y, normal.z, -(normal.x * meanX + normal.y * meanY + normal.z * meanZ), store);
+	}
+
+	/**
+	 * Creates the best line through the points.
+	 *
+	 * @param the store which holds the parameters of the line
+	 * @throws NoLineException if there are less than two different points or the line misses the sphere
+	 */
+	public Line3D fitLine(GeometryStore store) throws NoLineException {
+		Vector3d direction = getLineDirection();
+		return new Line3D(meanX, meanY, meanZ, direction.x, direction.y, direction.z, store);
+	}
+
+	/**
+	 * the eigenvalues of the scatter matrix in descending order
+	 */
+	private double[] getEigenvalues() {
+
+		double p1 = xy * xy + xz * xz + yz * yz;
+		double q = (xx + yy + zz) / 3;
+		if(p1 == 0) {
+			double[] values = { xx, yy, zz };
+			Arrays.sort(values);
+			return new double[] { values[2], values[1], values[0] };
+		}
+
+		double p2 = (xx - q) * (xx - q) + (yy - q) * (yy - q) + (zz - q) * (zz - q) + 2 * p1;
+		double p = Math.sqrt(p2 / 6);
+
+		// B = (A - qI) / p, its determinant gives the angle of the roots
+		double bxx = (xx - q) / p, byy = (yy - q) / p, bzz = (zz - q) / p;
+		double bxy = xy / p, bxz = xz / p, byz = yz / p;
+		double r = (bxx * (byy * bzz - byz * byz) - bxy * (bxy * bzz - byz * bxz) + bxz * (bxy * byz - byy * bxz)) / 2;
+		double phi = Math.acos(Math.max(-1, Math.min(1, r))) / 3;
+
+		double largest = q + 2 * p * Math.cos(phi);
+		double smallest = q + 2 * p * Math.cos(phi + 2 * Math.PI / 3);
+		return new double[] { largest, 3 * q - largest - smallest, smallest };
+	}
+
+	/**
+	 * the unit eigenvector of the scatter matrix for the eigenvalue, the largest cross product of two rows
+	 * of A - value * I
+	 */
+	private Vector3d getEigenvector(double value) {
+
+		Vector3d r0 = new Vector3d(xx - value, xy, xz);
+		Vector3d r1 = new Vector3d(xy, yy - value, yz);
+		Vector3d r2 = new Vector3d(xz, yz, zz - value);
+
+		Vector3d c01 = new Vector3d(), c02 = new Vector3d(), c12 = new Vector3d();
+		c01.cross(r0, r1);
+		c02.cross(r0, r2);
+		c12.cross(r1, r2);
+
+		Vector3d best = c01;
+		if(c02.lengthSquared() > best.lengthSquared()) {
+			best = c02;
+		}
+		if(c12.lengthSquared() > best.lengthSquared()) {
+			best = c12;
+		}
+
+		if(best.lengthSquared() == 0) {
+			// the eigenvalue has multiplicity two or three, any vector normal to a nonzero row will do
+			Vector3d row = r0.lengthSquared() > 0 ? r0 : r1.lengthSquared() > 0 ? r1 : r2;
+			if(row.lengthSquared() == 0) {
+				return new Vector3d(1, 0, 0);
+			}
+			best.cross(row, Math.abs(row.x) < Math.abs(row.y) ? new Vector3d(1, 0, 0) : new Vector3d(0, 1, 0));
+		}
+		best.normalize();
+		return best;
+	}
+
+	private static class FitTask extends RecursiveTask<PointFit> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] xs, ys, zs;
+		private final int from;
+		private final int to;
+
+		FitTask(double[] xs, double[] ys, double[] zs, int from, int to) {
+			this.xs = xs;
+			this.ys = ys;
+			this.zs = zs;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected PointFit compute() {
+
+			if(to - from <= SEQUENTIAL_POINTS) {
+				PointFit fit = new PointFit();
+				for(int i = from; i < to; i++) {
+					fit.add(xs[i], ys[i], zs[i]);
+				}
+				return fit;
+			}
+
+			int middle = (from + to) >>> 1;
+			FitTask left = new FitTask(xs, ys, zs, from, middle);
+			FitTask right = new FitTask(xs, ys, zs, middle, to);
+			right.fork();
+			PointFit fit = left.compute();
+			fit.merge(right.join());
+			return fit;
+		}
+	}
+}
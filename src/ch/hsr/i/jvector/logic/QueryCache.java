@@ -0,0 +1,344 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import ch.hsr.i.jvector.exceptions.NoIntersectionException;
+import ch.hsr.i.jvector.exceptions.NoIntersectionException.StateNoIntersection;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.interfaces.Point;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+
+/**
+ * Remembers the results of distance, angle and intersection queries between two components. The results
+ * are kept by the operation and the ids of the two components, the least recently used result is evicted
+ * when the cache is full. As an observer of a <code>ComponentsList</code> the cache forgets the results of
+ * a component as soon as it is removed from the list. Queries for which no intersection exists are cached
+ * as well and throw the same exception again. The cache is not thread safe.
+ */
+public class QueryCache implements Observer {
+
+	public static enum Operation {
+		DISTANCE, ANGLE, INTERSECTION
+	}
+
+	/**
+	 * the operation and the ids of the components, all operations are symmetric so the smaller id comes first
+	 */
+	private static class Key {
+		final Operation operation;
+		final long id1, id2;
+
+		Key(Operation operation, Component comp1, Component comp2) {
+			this.operation = operation;
+			this.id1 = Math.min(comp1.getId(), comp2.getId());
+			this.id2 = Math.max(comp1.getId(), comp2.getId());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return operation == other.operation && id1 == other.id1 && id2 == other.id2;
+		}
+
+		@Override
+		public int hashCode() {
+			long hash = operation.ordinal() * 31 + id1;
+			hash = hash * 0x9E3779B97F4A7C15L + id2;
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Key, Object> results;
+
+	private long hits, misses, evictions;
+
+	/**
+	 * @param the maximal number of results
+	 */
+	public QueryCache(final int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("the capacity must be positive");
+		}
+		this.capacity = capacity;
+
+		// access order > the eldest entry is the least recently used one
+		this.results = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+				if(size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public double getDistance(Point p1, Point p2) {
+		Key key = new Key(Operation.DISTANCE, p1, p2);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = p1.getDistance(p2);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	public double getDistance(Point point, Line line) {
+		Key key = new Key(Operation.DISTANCE, point, line);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = point.getDistance(line);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	public double getDistance(Point point, Plane plane) {
+		Key key = new Key(Operation.DISTANCE, point, plane);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = point.getDistance(plane);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	public double getAngle(Line line1, Line line2) {
+		Key key = new Key(Operation.ANGLE, line1, line2);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = line1.getAngle(line2);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	public double getAngle(Line line, Plane plane) {
+		Key key = new Key(Operation.ANGLE, line, plane);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = line.getAngle(plane);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	public double getAngle(Plane plane1, Plane plane2) {
+		Key key = new Key(Operation.ANGLE, plane1, plane2);
+		Double value = (Double) lookup(key);
+		if(value == null) {
+			value = plane1.getAngle(plane2);
+			results.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the intersection point of two lines.
+	 *
+	 * @return a new point
+	 * @throws NoIntersectionException if the lines do not intersect in a point
+	 */
+	public Point3d getIntersection(Line line1, Line line2) throws NoIntersectionException {
+		Key key = new Key(Operation.INTERSECTION, line1, line2);
+		Object value = lookup(key);
+		if(value == null) {
+			double[] result = new double[3];
+			IntersectionType type = line1.intersect(line2, result);
+			value = type.isIntersection() ? new Point3d(result[0], result[1], result[2]) : type.getState();
+			results.put(key, value);
+		}
+		return new Point3d((Point3d) getResult(value));
+	}
+
+	/**
+	 * Returns the intersection point of a line and a plane.
+	 *
+	 * @return a new point
+	 * @throws NoIntersectionException if the line is parallel to the plane or lies in it
+	 */
+	public Point3d getIntersection(Line line, Plane plane) throws NoIntersectionException {
+		Key key = new Key(Operation.INTERSECTION, line, plane);
+		Object value = lookup(key);
+		if(value == null) {
+			double[] result = new double[3];
+			IntersectionType type = line.intersect(plane, result);
+			value = type.isIntersection() ? new Point3d(result[0], result[1], result[2]) : type.getState();
+			results.put(key, value);
+		}
+		return new Point3d((Point3d) getResult(value));
+	}
+
+	/**
+	 * Returns the intersection line of two planes as a point on the line and the direction.
+	 *
+	 * @return two new vectors > { point, direction }
+	 * @throws NoIntersectionException if the planes are parallel or congruent
+	 */
+	public Vector3d[] getIntersection(Plane plane1, Plane plane2) throws NoIntersectionException {
+		Key key = new Key(Operation.INTERSECTION, plane1, plane2);
+		Object value = lookup(key);
+		if(value == null) {
+			double[] result = new double[6];
+			IntersectionType type = plane1.intersect(plane2, result);
+			if(type.isIntersection()) {
+				value = new Vector3d[] { new Vector3d(result[0], result[1], result[2]), new Vector3d(result[3], result[4], result[5]) };
+			} else {
+				value = type.getState();
+			}
+			results.put(key, value);
+		}
+		Vector3d[] line = (Vector3d[]) getResult(value);
+		return new Vector3d[] { new Vector3d(line[0]), new Vector3d(line[1]) };
+	}
+
+	/**
+	 * Forgets all results of the component.
+	 *
+	 * @param the component
+	 */
+	public void invalidate(Component comp) {
+		HashSet<Long> ids = new HashSet<Long>();
+		ids.add(comp.getId());
+		invalidate(ids);
+	}
+
+	private void invalidate(HashSet<Long> ids) {
+		Iterator<Key> keys = results.keySet().iterator();
+		while(keys.hasNext()) {
+			Key key = keys.next();
+			if(ids.contains(key.id1) || ids.contains(key.id2)) {
+				keys.remove();
+			}
+		}
+	}
+
+	public void clear() {
+		results.clear();
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+
+		if(!(arg instanceof ComponentsList.Change)) {
+			return;
+		}
+
+		ComponentsList.Change change = (ComponentsList.Change) arg;
+		switch(change.getType()) {
+		case REMOVED:
+		case TRANSFORMED:
+			List<Component> comps = change.getComponents();
+			HashSet<Long> ids = new HashSet<Long>();
+			for(int i = 0; i < comps.size(); i++) {
+				ids.add(comps.get(i).getId());
+			}
+			invalidate(ids);
+			break;
+		case CLEARED:
+		case REPLACED:
+			clear();
+			break;
+		default:
+			break;
+		}
+	}
+
+	public int size() {
+		return results.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the share of the queries which were answered from the cache.
+	 *
+	 * @return the hit rate between 0 and 1, 0 if there was no query
+	 */
+	public double getHitRate() {
+		long queries = hits + misses;
+		return queries == 0 ? 0 : (double) hits / queries;
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryCache[size=" + size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+				+ ", evictions=" + evictions + ", hitRate=" + getHitRate() + "]";
+	}
+
+	private Object lookup(Key key) {
+		Object value = results.get(key);
+		if(value == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return value;
+	}
+
+	/**
+	 * the cached result or the cached reason why there is none
+	 */
+	private static Object getResult(Object value) throws NoIntersectionException {
+		if(value instanceof StateNoIntersection) {
+			throw new NoIntersectionException((StateNoIntersection) value);
+		}
+		return value;
+	}
+}
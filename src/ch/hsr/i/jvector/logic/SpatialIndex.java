@@ -0,0 +1,416 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.interfaces.Point;
+import ch.hsr.i.jvector.util.Tolerance;
+
+/**
+ * Answers spatial queries on the components of a scene without looking at every component. Points
+ * are kept in an <code>Octree</code>. Lines and planes are infinite, so they are reduced to the part
+ * inside the bounding sphere of the scene - a segment for a line and a disk for a plane - and kept
+ * in a <code>BoundingVolumeTree</code>. Segments are split into pieces of at most a quarter of the radius,
+ * so that their boxes do not cover large empty regions. All distances are measured to these parts.
+ * The index is updated with every <code>add</code> and <code>remove</code>, it is not thread safe.
+ */
+public class SpatialIndex {
+
+	/**
+	 * the number of pieces per radius a segment is split into
+	 */
+	private static final int PIECES_PER_RADIUS = 4;
+
+	private final double radius;
+
+	private final Octree points;
+	private final BoundingVolumeTree shapes = new BoundingVolumeTree();
+
+	private final double[] box = new double[6];
+	private final double[] key = new double[6];
+
+	/**
+	 * Creates an index for a scene within the given bounding sphere around the origin.
+	 *
+	 * @param the radius of the bounding sphere
+	 */
+	public SpatialIndex(double radius) {
+		this.radius = radius;
+		this.points = new Octree(radius);
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public int size() {
+		return points.size() + shapes.size();
+	}
+
+	public void add(Component comp) {
+
+		if(comp.getType() == ComponentType.POINT) {
+			Point point = (Point) comp;
+			points.add(comp, point.getX(), point.getY(), point.getZ());
+			return;
+		}
+
+		if(shapes.contains(comp)) {
+			return;
+		}
+
+		List<double[]> pieces = getPieces(comp);
+		for(int i = 0; i < pieces.size(); i++) {
+			getBounds(pieces.get(i), box);
+			shapes.add(comp, box, pieces.get(i));
+		}
+	}
+
+	public boolean remove(Component comp) {
+		if(comp.getType() == ComponentType.POINT) {
+			return points.remove(comp);
+		}
+		return shapes.remove(comp);
+	}
+
+	/**
+	 * Re-inserts a component whose parameters have changed.
+	 *
+	 * @param the component
+	 */
+	public void update(Component comp) {
+		if(remove(comp)) {
+			add(comp);
+		}
+	}
+
+	public void clear() {
+		points.clear();
+		shapes.clear();
+	}
+
+	/**
+	 * Returns all components whose distance to the given point is at most <code>distance</code>.
+	 *
+	 * @param x, y, z - the point
+	 * @param distance - the maximal distance
+	 * @return a new list with the components
+	 */
+	public List<Component> findWithin(double x, double y, double z, double distance) {
+		List<Component> result = new ArrayList<Component>();
+		points.findWithin(x, y, z, distance, result);
+		findWithin(shapes.getRoot(), x, y, z, distance, result, createSet());
+		return result;
+	}
+
+	/**
+	 * Returns all components which have a part in the given box.
+	 *
+	 * @return a new list with the components
+	 */
+	public List<Component> findInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		double[] query = { minX, minY, minZ, maxX, maxY, maxZ };
+		List<Component> result = new ArrayList<Component>();
+		points.findInBox(query, result);
+		findInBox(shapes.getRoot(), query, result, createSet());
+		return result;
+	}
+
+	/**
+	 * Returns the component closest to the given point.
+	 *
+	 * @return the closest component or null if the index is empty
+	 */
+	public Component findNearest(double x, double y, double z) {
+		List<Component> result = findNearest(x, y, z, 1);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	/**
+	 * Returns the k components closest to the given point, the closest first. The trees are searched
+	 * best first, so only the nodes closer than the k-th component are visited.
+	 *
+	 * @return a new list with at most k components
+	 */
+	public List<Component> findNearest(double x, double y, double z, int k) {
+
+		List<Component> result = new ArrayList<Component>(k);
+		Set<Component> found = createSet();
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+
+		if(points.size() > 0) {
+			queue.add(new Candidate(points.getRoot().getDistanceSquared(x, y, z), points.getRoot(), null));
+		}
+		if(shapes.getRoot() != null) {
+			queue.add(new Candidate(shapes.getRoot().getDistanceSquared(x, y, z), shapes.getRoot(), null));
+		}
+
+		while(!queue.isEmpty() && result.size() < k) {
+
+			Candidate candidate = queue.poll();
+
+			if(candidate.comp != null) {
+				// the first piece of a segment found is the closest one
+				if(found.add(candidate.comp)) {
+					result.add(candidate.comp);
+				}
+			} else if(candidate.node instanceof Octree.Node) {
+				Octree.Node node = (Octree.Node) candidate.node;
+				if(node.children == null) {
+					for(int i = 0; i < node.entries.size(); i++) {
+						Octree.Entry e = node.entries.get(i);
+						double dx = e.x - x, dy = e.y - y, dz = e.z - z;
+						queue.add(new Candidate(dx * dx + dy * dy + dz * dz, null, e.comp));
+					}
+				} else {
+					for(int i = 0; i < 8; i++) {
+						Octree.Node child = node.children[i];
+						if(child.count > 0) {
+							queue.add(new Candidate(child.getDistanceSquared(x, y, z), child, null));
+						}
+					}
+				}
+			} else {
+				BoundingVolumeTree.Node node = (BoundingVolumeTree.Node) candidate.node;
+				if(node.isLeaf()) {
+					double d = getDistance(node.shape, x, y, z);
+					queue.add(new Candidate(d * d, null, node.comp));
+				} else {
+					queue.add(new Candidate(node.left.getDistanceSquared(x, y, z), node.left, null));
+					queue.add(new Candidate(node.right.getDistanceSquared(x, y, z), node.right, null));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private void findWithin(BoundingVolumeTree.Node node, double x, double y, double z, double distance,
+							List<Component> result, Set<Component> found) {
+		if(node == null || node.getDistanceSquared(x, y, z) > distance * distance) {
+			return;
+		}
+		if(node.isLeaf()) {
+			if(!found.contains(node.comp) && getDistance(node.shape, x, y, z) <= distance) {
+				found.add(node.comp);
+				result.add(node.comp);
+			}
+		} else {
+			findWithin(node.left, x, y, z, distance, result, found);
+			findWithin(node.right, x, y, z, distance, result, found);
+		}
+	}
+
+	private void findInBox(BoundingVolumeTree.Node node, double[] query, List<Component> result, Set<Component> found) {
+		if(node == null || !node.overlaps(query)) {
+			return;
+		}
+		if(node.isLeaf()) {
+			if(!found.contains(node.comp) && intersectsBox(node.shape, query)) {
+				found.add(node.comp);
+				result.add(node.comp);
+			}
+		} else {
+			findInBox(node.left, query, result, found);
+			findInBox(node.right, query, result, found);
+		}
+	}
+
+	/**
+	 * Returns the lines and planes whose parts inside the sphere may touch the part of the given line or
+	 * plane. Every line or plane of the index which intersects it inside the sphere is returned, but the
+	 * result may contain some more. The component itself is not returned.
+	 *
+	 * @param the line or plane
+	 * @return a new list with the lines and planes
+	 */
+	public List<Component> findTouching(Component comp) {
+
+		List<Component> result = new ArrayList<Component>();
+		if(comp.getType() == ComponentType.POINT) {
+			return result;
+		}
+
+		Set<Component> found = createSet();
+		found.add(comp);
+
+		Tolerance tolerance = Tolerance.getDefault();
+		double epsilon = tolerance.getAbsolute() + tolerance.getRelative() * radius;
+
+		List<double[]> pieces = getPieces(comp);
+		for(int i = 0; i < pieces.size(); i++) {
+			double[] query = new double[6];
+			getBounds(pieces.get(i), query);
+			for(int j = 0; j < 3; j++) {
+				query[j] -= epsilon;
+				query[j + 3] += epsilon;
+			}
+			findInBox(shapes.getRoot(), query, result, found);
+		}
+		return result;
+	}
+
+	private static Set<Component> createSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Component, Boolean>());
+	}
+
+	// **********
+	// * SHAPES *
+	// **********
+
+	/**
+	 * the shape of a line or plane, a segment is split into pieces of at most radius / PIECES_PER_RADIUS
+	 */
+	private List<double[]> getPieces(Component comp) {
+
+		double[] shape = getShape(comp);
+		List<double[]> pieces = new ArrayList<double[]>();
+
+		if(shape.length == 6) {
+			double dx = shape[3] - shape[0], dy = shape[4] - shape[1], dz = shape[5] - shape[2];
+			double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			int n = Math.max(1, (int) Math.ceil(length * PIECES_PER_RADIUS / radius));
+
+			for(int i = 0; i < n; i++) {
+				double t0 = (double) i / n, t1 = (double) (i + 1) / n;
+				pieces.add(new double[] {
+						shape[0] + t0 * dx, shape[1] + t0 * dy, shape[2] + t0 * dz,
+						shape[0] + t1 * dx, shape[1] + t1 * dy, shape[2] + t1 * dz });
+			}
+		} else {
+			pieces.add(shape);
+		}
+		return pieces;
+	}
+
+	/**
+	 * a segment [ax, ay, az, bx, by, bz] for a line and a disk [cx, cy, cz, nx, ny, nz, r] for a plane
+	 */
+	private double[] getShape(Component comp) {
+
+		if(comp.getType() == ComponentType.LINE) {
+			CanonicalIndex.canonicalLine((Line) comp, key);
+			double h = Math.sqrt(Math.max(0, radius * radius - (key[3] * key[3] + key[4] * key[4] + key[5] * key[5])));
+			return new double[] {
+					key[3] - h * key[0], key[4] - h * key[1], key[5] - h * key[2],
+					key[3] + h * key[0], key[4] + h * key[1], key[5] + h * key[2] };
+		}
+
+		CanonicalIndex.canonicalPlane((Plane) comp, key);
+		double r = Math.sqrt(Math.max(0, radius * radius - key[3] * key[3]));
+		return new double[] { -key[3] * key[0], -key[3] * key[1], -key[3] * key[2], key[0], key[1], key[2], r };
+	}
+
+	private static void getBounds(double[] shape, double[] box) {
+		if(shape.length == 6) {
+			for(int i = 0; i < 3; i++) {
+				box[i] = Math.min(shape[i], shape[i + 3]);
+				box[i + 3] = Math.max(shape[i], shape[i + 3]);
+			}
+		} else {
+			// extent of a disk along axis i > r * sqrt(1 - n_i^2)
+			for(int i = 0; i < 3; i++) {
+				double extent = shape[6] * Math.sqrt(Math.max(0, 1 - shape[i + 3] * shape[i + 3]));
+				box[i] = shape[i] - extent;
+				box[i + 3] = shape[i] + extent;
+			}
+		}
+	}
+
+	private static double getDistance(double[] shape, double x, double y, double z) {
+
+		if(shape.length == 6) {
+			double dx = shape[3] - shape[0], dy = shape[4] - shape[1], dz = shape[5] - shape[2];
+			double wx = x - shape[0], wy = y - shape[1], wz = z - shape[2];
+			double length2 = dx * dx + dy * dy + dz * dz;
+			double t = length2 > 0 ? Math.max(0, Math.min(1, (wx * dx + wy * dy + wz * dz) / length2)) : 0;
+			wx -= t * dx;
+			wy -= t * dy;
+			wz -= t * dz;
+			return Math.sqrt(wx * wx + wy * wy + wz * wz);
+		}
+
+		double wx = x - shape[0], wy = y - shape[1], wz = z - shape[2];
+		double height = wx * shape[3] + wy * shape[4] + wz * shape[5];
+		double vx = wx - height * shape[3], vy = wy - height * shape[4], vz = wz - height * shape[5];
+		double outside = Math.max(0, Math.sqrt(vx * vx + vy * vy + vz * vz) - shape[6]);
+		return Math.sqrt(height * height + outside * outside);
+	}
+
+	private static boolean intersectsBox(double[] shape, double[] query) {
+
+		if(shape.length == 6) {
+			// slab test of the segment
+			double t0 = 0, t1 = 1;
+			for(int i = 0; i < 3; i++) {
+				double origin = shape[i];
+				double direction = shape[i + 3] - shape[i];
+				if(direction == 0) {
+					if(origin < query[i] || origin > query[i + 3]) {
+						return false;
+					}
+				} else {
+					double ta = (query[i] - origin) / direction;
+					double tb = (query[i + 3] - origin) / direction;
+					t0 = Math.max(t0, Math.min(ta, tb));
+					t1 = Math.min(t1, Math.max(ta, tb));
+					if(t0 > t1) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		// the plane passes through the box if the corners are not all on one side
+		double distance = 0, extent = 0;
+		for(int i = 0; i < 3; i++) {
+			double center = (query[i] + query[i + 3]) / 2;
+			distance += (center - shape[i]) * shape[i + 3];
+			extent += (query[i + 3] - query[i]) / 2 * Math.abs(shape[i + 3]);
+		}
+		return Math.abs(distance) <= extent;
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+		double distance;
+		Object node;
+		Component comp;
+
+		Candidate(double distance, Object node, Component comp) {
+			this.distance = distance;
+			this.node = node;
+			this.comp = comp;
+		}
+
+		public int compareTo(Candidate other) {
+			return Double.compare(distance, other.distance);
+		}
+	}
+}
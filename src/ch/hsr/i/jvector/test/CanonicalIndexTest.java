@@ -0,0 +1,184 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.logic.CanonicalIndex;
+import ch.hsr.i.jvector.logic.ComponentsList;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public class CanonicalIndexTest {
+	
+	private GeometryStore store = new GeometryStore();
+	private CanonicalIndex index = new CanonicalIndex();
+	
+	@Test
+	public void testSameLineWithOtherRepresentation() throws NoLineException {
+		Line3D line = new Line3D(1, 2, 3, 1, 1, 0, store);
+		// another point on the line and the opposite, scaled direction
+		Line3D same = new Line3D(4, 5, 3, -2, -2, 0, store);
+		Line3D parallel = new Line3D(1, 2, 4, 1, 1, 0, store);
+		
+		index.add(line);
+		assertSame(line, index.find(same));
+		assertNull(index.find(parallel));
+		assertNull(index.find(line));
+		
+		assertTrue(line.equals(same));
+		assertFalse(line.equals(parallel));
+	}
+	
+	@Test
+	public void testCanonicalLine() throws NoLineException {
+		double[] key = new double[6];
+		CanonicalIndex.canonicalLine(new Line3D(5, 1, 0, 0, -3, 0, store), key);
+		
+		assertEquals(0, key[0], 0);
+		assertEquals(1, key[1], 0);
+		assertEquals(5, key[3], 1e-12);
+		assertEquals(0, key[4], 1e-12);
+	}
+	
+	@Test
+	public void testSamePlaneWithScaledNormal() throws NoPlaneException {
+		Plane3D plane = new Plane3D(1, 2, 2, -3, store);
+		Plane3D same = new Plane3D(-2, -4, -4, 6, store);
+		Plane3D other = new Plane3D(1, 2, 2, 3, store);
+		
+		index.add(plane);
+		assertSame(plane, index.find(same));
+		assertNull(index.find(other));
+		assertTrue(plane.equals(same));
+		
+		double[] key = new double[4];
+		CanonicalIndex.canonicalPlane(same, key);
+		assertEquals(1.0 / 3.0, key[0], 1e-12);
+		assertEquals(-1, key[3], 1e-12);
+	}
+	
+	@Test
+	public void testPointsOnBucketBorder() {
+		// the points are equal within the tolerance but fall into different buckets
+		Point3D point = new Point3D(1e-3 - 1e-13, 0, 0, store);
+		Point3D same = new Point3D(1e-3 + 1e-13, 0, 0, store);
+		
+		index.add(point);
+		assertSame(point, index.find(same));
+		assertNull(index.find(new Point3D(2e-3, 0, 0, store)));
+	}
+	
+	@Test
+	public void testLargeValues() {
+		// the tolerance grows with the value, so do the buckets
+		Point3D point = new Point3D(1e6, -3e7, 0.5, store);
+		index.add(point);
+		assertSame(point, index.find(new Point3D(1e6 + 1e-4, -3e7 - 1e-2, 0.5, store)));
+		assertNull(index.find(new Point3D(1e6 + 1e-2, -3e7, 0.5, store)));
+		assertNull(index.find(new Point3D(-1e6, -3e7, 0.5, store)));
+	}
+	
+	@Test
+	public void testHashCodeAgreesWithEquals() throws NoLineException, NoPlaneException {
+		Line3D line = new Line3D(1, 2, 3, 1, 1, 0, store);
+		Line3D same = new Line3D(4, 5, 3, -2, -2, 0, store);
+		assertTrue(line.equals(same));
+		assertEquals(line.hashCode(), same.hashCode());
+		
+		Plane3D plane = new Plane3D(1, 2, 2, -3, store);
+		Plane3D samePlane = new Plane3D(-2, -4, -4, 6, store);
+		assertTrue(plane.equals(samePlane));
+		assertEquals(plane.hashCode(), samePlane.hashCode());
+		
+		Point3D point = new Point3D(1, -0.5, 7, store);
+		Point3D samePoint = new Point3D(1, -0.5, 7 + 1e-13, store);
+		assertTrue(point.equals(samePoint));
+		assertEquals(point.hashCode(), samePoint.hashCode());
+		
+		// different components are spread over the hash codes
+		HashSet<Integer> hashes = new HashSet<Integer>();
+		for(int i = 0; i < 100; i++) {
+			hashes.add(new Line3D(i, 0, 0, 0, 1, 1, store).hashCode());
+			hashes.add(new Plane3D(0, 1, 0, i, store).hashCode());
+			hashes.add(new Point3D(0, 0, i, store).hashCode());
+		}
+		assertEquals(300, hashes.size());
+		
+		HashSet<Component> set = new HashSet<Component>();
+		set.add(line);
+		set.add(plane);
+		set.add(point);
+		assertTrue(set.contains(same));
+		assertTrue(set.contains(samePlane));
+		assertTrue(set.contains(samePoint));
+	}
+	
+	@Test
+	public void testRemove() {
+		Point3D point = new Point3D(1, 2, 3, store);
+		index.add(point);
+		assertEquals(1, index.size());
+		
+		assertTrue(index.remove(point));
+		assertFalse(index.remove(point));
+		assertNull(index.find(new Point3D(1, 2, 3, store)));
+	}
+	
+	@Test
+	public void testComponentsList() throws NoLineException {
+		ComponentsList list = new ComponentsList();
+		Line3D line = new Line3D(0, 0, 0, 0, 0, 1, store);
+		list.add(new Point3D(1, 1, 1, store));
+		list.add(line);
+		
+		assertSame(line, list.findEqual(new Line3D(0, 0, 7, 0, 0, 2, store)));
+		
+		list.remove(1);
+		assertNull(list.findEqual(new Line3D(0, 0, 7, 0, 0, 2, store)));
+		
+		list.removeAll();
+		assertNull(list.findEqual(new Point3D(1, 1, 1, store)));
+		
+		// the indices of replaced components are built by the first query
+		ArrayList<Component> comps = new ArrayList<Component>();
+		Point3D point = new Point3D(2, 2, 2, store);
+		comps.add(point);
+		comps.add(line);
+		list.addAll(comps);
+		assertSame(point, list.findEqual(new Point3D(2, 2, 2, store)));
+		assertSame(point, list.getSpatialIndex().findNearest(2, 2, 3));
+		list.add(new Point3D(5, 5, 5, store));
+		assertSame(line, list.findEqual(new Line3D(0, 0, 7, 0, 0, 2, store)));
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import javax.media.j3d.Appearance;
+import javax.vecmath.Color3f;
+import javax.vecmath.Color4f;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.ComponentAppearance;
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+
+public class ComponentAppearanceTest {
+
+	@Test
+	public void testAppearancesAreShared() {
+		for(ComponentType cType : ComponentType.values()) {
+			for(AppearanceType aType : AppearanceType.values()) {
+				assertSame(ComponentAppearance.getAppearance(cType, aType), ComponentAppearance.getAppearance(cType, aType));
+			}
+			assertNotSame(ComponentAppearance.getAppearance(cType, AppearanceType.NORMAL),
+					ComponentAppearance.getAppearance(cType, AppearanceType.HIGHLIGHTED1));
+		}
+		assertNotSame(ComponentAppearance.getAppearance(ComponentType.POINT, AppearanceType.NORMAL),
+				ComponentAppearance.getAppearance(ComponentType.LINE, AppearanceType.NORMAL));
+	}
+
+	@Test
+	public void testColor() {
+		Color4f color = ComponentAppearance.getColor(ComponentType.POINT, AppearanceType.INTERSECTION);
+		assertEquals(new Color4f(1, 0, 0, 0.8f), color);
+		assertEquals(1, ComponentAppearance.getColor(ComponentType.LINE, AppearanceType.HIGHLIGHTED2).w, 0);
+	}
+
+	@Test
+	public void testStyles() {
+		assertNull(ComponentAppearance.getStyle("testStyles"));
+
+		Color3f color = new Color3f(0.5f, 0.25f, 1);
+		Appearance style = ComponentAppearance.registerStyle("testStyles", ComponentType.LINE, color, 0.5f, 3);
+		assertSame(style, ComponentAppearance.getStyle("testStyles"));
+		assertEquals(3, style.getLineAttributes().getLineWidth(), 0);
+		assertEquals(0.5f, style.getTransparencyAttributes().getTransparency(), 0);
+
+		// the style keeps its colour if the argument is changed
+		color.set(0, 0, 0);
+		Color3f registered = new Color3f();
+		style.getColoringAttributes().getColor(registered);
+		assertEquals(new Color3f(0.5f, 0.25f, 1), registered);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStyleRegisteredTwice() {
+		ComponentAppearance.registerStyle("testStyleRegisteredTwice", ComponentType.POINT, new Color3f(1, 1, 1), 0, 5);
+		ComponentAppearance.registerStyle("testStyleRegisteredTwice", ComponentType.POINT, new Color3f(0, 0, 0), 0, 5);
+	}
+}
@@ -23,7 +23,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses(Line3DTest.class)
+@SuiteClasses({Line3DTest.class, GeometryStoreTest.class, ComponentAppearanceTest.class, LineRendererTest.class, PointRendererTest.class})
 public class ComponentsTests {
 	
 }
@@ -0,0 +1,162 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.logic.ConvexHull;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public class ConvexHullTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * checks that the hull is a closed triangulated surface containing all points
+	 */
+	private static void assertValidHull(ConvexHull hull, double[] xs, double[] ys, double[] zs, int n) {
+
+		int[] facets = hull.getFacets();
+		double[] planes = hull.getPlanes();
+		int numFacets = hull.getNumFacets();
+		assertEquals(2 * hull.getVertices().length - 4, numFacets);
+
+		// every edge is used once in each direction
+		HashSet<Long> edges = new HashSet<Long>();
+		for(int f = 0; f < numFacets; f++) {
+			for(int k = 0; k < 3; k++) {
+				assertTrue(edges.add(((long) facets[3 * f + k] << 32) | facets[3 * f + (k + 1) % 3]));
+			}
+		}
+		for(int f = 0; f < numFacets; f++) {
+			for(int k = 0; k < 3; k++) {
+				assertTrue(edges.contains(((long) facets[3 * f + (k + 1) % 3] << 32) | facets[3 * f + k]));
+			}
+		}
+
+		for(int f = 0; f < numFacets; f++) {
+			double a = planes[4 * f], b = planes[4 * f + 1], c = planes[4 * f + 2];
+			assertEquals(1, a * a + b * b + c * c, DELTA);
+		}
+		for(int i = 0; i < n; i++) {
+			assertTrue(hull.contains(xs[i], ys[i], zs[i]));
+		}
+	}
+
+	@Test
+	public void testCube() {
+		Random random = new Random(16);
+		int n = 1000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < 8; i++) {
+			xs[i] = (i & 1) == 0 ? -10 : 10;
+			ys[i] = (i & 2) == 0 ? -10 : 10;
+			zs[i] = (i & 4) == 0 ? -10 : 10;
+		}
+		for(int i = 8; i < n; i++) {
+			xs[i] = random.nextDouble() * 20 - 10;
+			ys[i] = random.nextDouble() * 20 - 10;
+			zs[i] = random.nextDouble() * 20 - 10;
+		}
+
+		ConvexHull hull = new ConvexHull(xs, ys, zs, n);
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7 }, hull.getVertices());
+		assertEquals(12, hull.getNumFacets());
+		assertValidHull(hull, xs, ys, zs, n);
+
+		// every facet lies in one of the faces of the cube
+		double[] planes = hull.getPlanes();
+		for(int f = 0; f < hull.getNumFacets(); f++) {
+			assertEquals(10, -planes[4 * f + 3], DELTA);
+		}
+		assertFalse(hull.contains(10.1, 0, 0));
+		assertEquals(-10, hull.getCoordinate(0, GeometryStore.Z), 0);
+	}
+
+	@Test
+	public void testParallelEqualsSequential() {
+		Random random = new Random(17);
+		int n = 100000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			// a ball, so the chunks keep some of their points
+			double x = random.nextGaussian(), y = random.nextGaussian(), z = random.nextGaussian();
+			double r = 50 * Math.cbrt(random.nextDouble()) / Math.sqrt(x * x + y * y + z * z);
+			xs[i] = x * r;
+			ys[i] = y * r;
+			zs[i] = z * r;
+		}
+
+		ConvexHull sequential = new ConvexHull(xs, ys, zs, n, false);
+		ConvexHull parallel = new ConvexHull(xs, ys, zs, n, true);
+		assertValidHull(parallel, xs, ys, zs, n);
+		assertArrayEquals(sequential.getVertices(), parallel.getVertices());
+		assertEquals(sequential.getNumFacets(), parallel.getNumFacets());
+	}
+
+	@Test
+	public void testPointsOnSphere() {
+		Random random = new Random(18);
+		int n = 2000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			double x = random.nextGaussian(), y = random.nextGaussian(), z = random.nextGaussian();
+			double r = 30 / Math.sqrt(x * x + y * y + z * z);
+			xs[i] = x * r;
+			ys[i] = y * r;
+			zs[i] = z * r;
+		}
+
+		ConvexHull hull = new ConvexHull(xs, ys, zs, n);
+		assertEquals(n, hull.getVertices().length);
+		assertValidHull(hull, xs, ys, zs, n);
+	}
+
+	@Test
+	public void testStore() {
+		GeometryStore store = new GeometryStore();
+		new Point3D(0, 0, 0, store);
+		new Point3D(1, 0, 0, store);
+		new Point3D(0, 1, 0, store);
+		new Point3D(0, 0, 1, store);
+		new Point3D(0.1, 0.1, 0.1, store);
+
+		ConvexHull hull = new ConvexHull(store);
+		assertEquals(5, hull.size());
+		assertEquals(4, hull.getNumFacets());
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, hull.getVertices());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCoplanarPoints() {
+		double[] xs = { 0, 1, 0, 1, 0.5 };
+		double[] ys = { 0, 0, 1, 1, 0.5 };
+		double[] zs = { 2, 2, 2, 2, 2 };
+		new ConvexHull(xs, ys, zs, 5);
+	}
+}
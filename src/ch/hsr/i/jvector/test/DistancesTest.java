@@ -0,0 +1,118 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.logic.Distances;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public class DistancesTest {
+	
+	private static final double DELTA = 1e-12;
+	
+	private GeometryStore store = new GeometryStore();
+	
+	private double[] xs = { 1, 1, -3, 0 };
+	private double[] ys = { 2, 0, 4, 0 };
+	private double[] zs = { 5, 0, 7, -2 };
+	private double[] out = new double[4];
+	
+	@Test
+	public void testPlaneDistances() throws NoPlaneException {
+		// 2z - 4 = 0 > z = 2
+		Plane3D plane = new Plane3D(0, 0, 2, -4, store);
+		Distances.distances(plane, xs, ys, zs, xs.length, out);
+		
+		assertEquals(3, out[0], DELTA);
+		assertEquals(2, out[1], DELTA);
+		assertEquals(5, out[2], DELTA);
+		assertEquals(4, out[3], DELTA);
+		
+		for(int i = 0; i < xs.length; i++) {
+			assertEquals(plane.getDistance(new Point3D(xs[i], ys[i], zs[i], store)), out[i], DELTA);
+		}
+		
+		Distances.signedDistances(0, 0, 2, -4, xs, ys, zs, 0, xs.length, out);
+		assertEquals(3, out[0], DELTA);
+		assertEquals(-4, out[3], DELTA);
+	}
+	
+	@Test
+	public void testLineDistances() throws NoLineException {
+		// parallel to the z axis through (1, 0, 0)
+		Line3D line = new Line3D(1, 0, 0, 0, 0, 3, store);
+		Distances.distances(line, xs, ys, zs, xs.length, out);
+		
+		assertEquals(2, out[0], DELTA);
+		assertEquals(0, out[1], DELTA);
+		assertEquals(Math.sqrt(32), out[2], DELTA);
+		assertEquals(1, out[3], DELTA);
+		
+		for(int i = 0; i < xs.length; i++) {
+			assertEquals(line.getDistance(new Point3D(xs[i], ys[i], zs[i], store)), out[i], DELTA);
+		}
+	}
+	
+	@Test
+	public void testRange() {
+		out[0] = -1;
+		Distances.distances(0, 0, 1, 0, xs, ys, zs, 1, 3, out);
+		
+		assertEquals(-1, out[0], 0);
+		assertEquals(0, out[1], DELTA);
+		assertEquals(7, out[2], DELTA);
+		assertEquals(0, out[3], 0);
+	}
+	
+	@Test
+	public void testStoreColumns() throws NoLineException, NoPlaneException {
+		GeometryStore points = new GeometryStore();
+		new Point3D(0, 0, 5, points);
+		new Point3D(3, 4, 0, points);
+		
+		// the columns are longer than the number of points, the rest is left alone
+		double[] xs = points.getPointColumn(GeometryStore.X);
+		double[] out = new double[xs.length];
+		out[2] = -1;
+		Plane3D plane = new Plane3D(0, 0, 1, 0, store);
+		Distances.distances(plane, xs, points.getPointColumn(GeometryStore.Y), points.getPointColumn(GeometryStore.Z), points.getNumPoints(), out);
+		assertEquals(5, out[0], DELTA);
+		assertEquals(0, out[1], DELTA);
+		assertEquals(-1, out[2], 0);
+		
+		Line3D line = new Line3D(0, 0, 0, 0, 0, 1, store);
+		Distances.distances(line, xs, points.getPointColumn(GeometryStore.Y), points.getPointColumn(GeometryStore.Z), points.getNumPoints(), out);
+		assertEquals(0, out[0], DELTA);
+		assertEquals(5, out[1], DELTA);
+		assertEquals(-1, out[2], 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyPoints() throws NoPlaneException {
+		Distances.distances(new Plane3D(0, 0, 1, 0, store), xs, ys, zs, xs.length + 1, out);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoIntersectionException;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public class GeometryStoreTest {
+	
+	@Test
+	public void testPointsArePacked() {
+		GeometryStore store = new GeometryStore();
+		
+		Point3D p1 = new Point3D(1, 2, 3, store);
+		Point3D p2 = new Point3D(4, 5, 6, store);
+		
+		assertEquals(2, store.getNumPoints());
+		assertEquals(1.0, store.getPointColumn(GeometryStore.X)[p1.getStoreIndex()], 0.0);
+		assertEquals(6.0, store.getPointColumn(GeometryStore.Z)[p2.getStoreIndex()], 0.0);
+	}
+	
+	@Test
+	public void testReleaseMovesLastEntry() {
+		GeometryStore store = new GeometryStore();
+		
+		Point3D p1 = new Point3D(1, 2, 3, store);
+		new Point3D(4, 5, 6, store);
+		Point3D p3 = new Point3D(7, 8, 9, store);
+		
+		p1.release();
+		
+		assertEquals(2, store.getNumPoints());
+		assertEquals(-1, p1.getStoreIndex());
+		assertEquals(0, p3.getStoreIndex());
+		assertEquals(7.0, p3.getX(), 0.0);
+		assertEquals(9.0, p3.getZ(), 0.0);
+	}
+	
+	@Test
+	public void testGrow() {
+		GeometryStore store = new GeometryStore();
+		
+		Point3D[] points = new Point3D[100];
+		for(int i = 0; i < points.length; i++) {
+			points[i] = new Point3D(i, -i, 2 * i, store);
+		}
+		
+		assertEquals(100, store.getNumPoints());
+		assertEquals(99.0, points[99].getX(), 0.0);
+		assertEquals(-50.0, points[50].getY(), 0.0);
+	}
+	
+	@Test
+	public void testLineAndPlaneParameters() {
+		GeometryStore store = new GeometryStore();
+		
+		try {
+			Line3D line = new Line3D(2, 7, 1, 4, -5, -3, store);
+			Plane3D plane = new Plane3D(2, 3, 4, -7, store);
+			
+			assertEquals(1, store.getNumLines());
+			assertEquals(1, store.getNumPlanes());
+			assertEquals(-5.0, line.getLineParameter(GeometryStore.RY), 0.0);
+			assertEquals(-7.0, plane.getPlaneParameter(GeometryStore.D), 0.0);
+			
+			line.release();
+			plane.release();
+			
+			assertEquals(0, store.getNumLines());
+			assertEquals(0, store.getNumPlanes());
+		} catch (NoLineException e) {
+			fail(e.getMessage());
+		} catch (NoPlaneException e) {
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testIntersectionsStayOutOfTheDefaultStore() {
+		GeometryStore store = new GeometryStore();
+		GeometryStore defaultStore = GeometryStore.getDefault();
+		int numPoints = defaultStore.getNumPoints();
+		int numLines = defaultStore.getNumLines();
+		
+		try {
+			Line3D line1 = new Line3D(0, 0, 0, 1, 0, 0, store);
+			Line3D line2 = new Line3D(0, 1, 0, 0, 1, 0, store);
+			Plane3D plane1 = new Plane3D(0, 1, 0, -2, store);
+			Plane3D plane2 = new Plane3D(1, 0, 0, -3, store);
+			
+			for(int i = 0; i < 10; i++) {
+				assertEquals(0.0, line1.getIntersection(line2).getX(), 1e-9);
+				assertEquals(2.0, plane1.getIntersection(line2).getY(), 1e-9);
+				plane1.getIntersection(plane2);
+			}
+			
+			assertEquals(numPoints, defaultStore.getNumPoints());
+			assertEquals(numLines, defaultStore.getNumLines());
+			assertEquals(2, store.getNumLines());
+		} catch (NoLineException e) {
+			fail(e.getMessage());
+		} catch (NoPlaneException e) {
+			fail(e.getMessage());
+		} catch (NoIntersectionException e) {
+			fail(e.getMessage());
+		}
+	}
+}
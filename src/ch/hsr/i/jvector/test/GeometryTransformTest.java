@@ -0,0 +1,256 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.awt.GraphicsEnvironment;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.media.j3d.BranchGroup;
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.Locale;
+import javax.media.j3d.Shape3D;
+import javax.media.j3d.VirtualUniverse;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.logic.ComponentsList;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.GeometryTransform;
+import ch.hsr.i.jvector.logic.IntersectionMaintainer;
+import ch.hsr.i.jvector.logic.QueryCache;
+
+public class GeometryTransformTest {
+
+	private static final double DELTA = 1e-9;
+
+	private GeometryStore store = new GeometryStore();
+
+	/**
+	 * a rotation about z, a scaling along x and a translation
+	 */
+	private static Matrix4d createMatrix() {
+		Matrix4d matrix = new Matrix4d();
+		matrix.rotZ(0.3);
+		Matrix4d scale = new Matrix4d();
+		scale.setIdentity();
+		scale.m00 = 2;
+		matrix.mul(scale);
+		matrix.setTranslation(new Vector3d(5, -3, 7));
+		return matrix;
+	}
+
+	private static Point3d transform(Matrix4d matrix, double x, double y, double z) {
+		Point3d p = new Point3d(x, y, z);
+		matrix.transform(p);
+		return p;
+	}
+
+	@Test
+	public void testStore() throws NoLineException, NoPlaneException, NoMatrixException {
+		Matrix4d matrix = createMatrix();
+		Point3D point = new Point3D(1, 2, 3, store);
+		Line3D line = new Line3D(1, 0, 0, 0, 1, 1, store);
+		Plane3D plane = new Plane3D(0, 0, 3, -6, store);
+
+		new GeometryTransform(matrix).apply(store);
+
+		assertTrue(transform(matrix, 1, 2, 3).epsilonEquals(point.getPoint(), DELTA));
+
+		// two points of the line are on the transformed line
+		Point3d p1 = transform(matrix, 1, 0, 0), p2 = transform(matrix, 1, 5, 5);
+		assertEquals(0, line.getDistance(new Point3D(p1.x, p1.y, p1.z, store)), DELTA);
+		assertEquals(0, line.getDistance(new Point3D(p2.x, p2.y, p2.z, store)), DELTA);
+
+		// three points of the plane are on the transformed plane, the normal keeps its length
+		double[][] points = { { 0, 0, 2 }, { 4, 1, 2 }, { -3, 5, 2 } };
+		for(int i = 0; i < points.length; i++) {
+			Point3d p = transform(matrix, points[i][0], points[i][1], points[i][2]);
+			double[] e = plane.getPlaneParameters();
+			assertEquals(0, e[0] * p.x + e[1] * p.y + e[2] * p.z + e[3], DELTA);
+		}
+		assertEquals(3, plane.getNormalVector().length(), DELTA);
+	}
+
+	@Test
+	public void testParallelEqualsSequential() throws NoMatrixException, NoPlaneException {
+		Random random = new Random(19);
+		GeometryStore other = new GeometryStore();
+		for(int i = 0; i < 100000; i++) {
+			double x = random.nextGaussian(), y = random.nextGaussian(), z = random.nextGaussian();
+			new Point3D(x, y, z, store);
+			new Point3D(x, y, z, other);
+			new Plane3D(x, y, z, random.nextGaussian(), store);
+			new Plane3D(x, y, z, store.getPlaneValue(i, GeometryStore.D), other);
+		}
+
+		GeometryTransform transform = new GeometryTransform(createMatrix());
+		transform.apply(store);
+		transform.setParallel(false);
+		transform.apply(other);
+
+		for(int column = 0; column < GeometryStore.POINT_COLUMNS; column++) {
+			assertArrayEquals(Arrays.copyOf(other.getPointColumn(column), other.getNumPoints()),
+					Arrays.copyOf(store.getPointColumn(column), store.getNumPoints()), 0);
+		}
+		for(int column = 0; column < GeometryStore.PLANE_COLUMNS; column++) {
+			assertArrayEquals(Arrays.copyOf(other.getPlaneColumn(column), other.getNumPlanes()),
+					Arrays.copyOf(store.getPlaneColumn(column), store.getNumPlanes()), 0);
+		}
+	}
+
+	@Test
+	public void testSelectedComponents() throws NoMatrixException {
+		Point3D p1 = new Point3D(1, 1, 1, store);
+		Point3D p2 = new Point3D(2, 2, 2, store);
+		Point3D p3 = new Point3D(3, 3, 3, new GeometryStore());
+
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setTranslation(new Vector3d(10, 0, 0));
+		new GeometryTransform(matrix).apply(Arrays.asList(p1, p3));
+
+		assertEquals(new Point3d(11, 1, 1), p1.getPoint());
+		assertEquals(new Point3d(2, 2, 2), p2.getPoint());
+		assertEquals(new Point3d(13, 3, 3), p3.getPoint());
+	}
+
+	@Test(expected = NoMatrixException.class)
+	public void testSingularMatrix() throws NoMatrixException {
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.m22 = 0;
+		new GeometryTransform(matrix);
+	}
+
+	@Test
+	public void testListIsUpdated() throws NoLineException, NoMatrixException {
+		ComponentsList list = new ComponentsList();
+		QueryCache cache = new QueryCache(10);
+		list.addObserver(cache);
+
+		Point3D p1 = new Point3D(0, 0, 0, store);
+		Point3D p2 = new Point3D(3, 4, 0, store);
+		Line3D line = new Line3D(0, 0, 0, 1, 0, 0, store);
+		list.add(p1);
+		list.add(p2);
+		list.add(line);
+		assertEquals(5, cache.getDistance(p1, p2), DELTA);
+
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setScale(2);
+		list.transform(new GeometryTransform(matrix), Arrays.<Component>asList(p2));
+
+		assertEquals(10, cache.getDistance(p1, p2), DELTA);
+		assertSame(p2, list.getSpatialIndex().findNearest(6, 8, 0));
+		assertSame(p2, list.findEqual(new Point3D(6, 8, 0, store)));
+		assertNull(list.findEqual(new Point3D(3, 4, 0, store)));
+
+		matrix.setScale(1);
+		matrix.setTranslation(new Vector3d(0, 1, 0));
+		list.transform(new GeometryTransform(matrix));
+		assertSame(line, list.findEqual(new Line3D(5, 1, 0, -1, 0, 0, store)));
+		assertSame(p1, list.getSpatialIndex().findNearest(0, 1, 0));
+	}
+
+	@Test
+	public void testIntersectionsAreMaintained() throws NoLineException, NoMatrixException {
+		final ComponentsList list = new ComponentsList();
+		Line3D l1 = new Line3D(0, 0, 0, 1, 0, 0, store);
+		Line3D l2 = new Line3D(0, 0, 0, 0, 1, 0, store);
+		list.add(l1);
+		list.add(l2);
+
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, 800, new IntersectionMaintainer.Listener() {
+			public void intersectionAdded(Component comp) {
+				list.add(comp);
+			}
+
+			public void intersectionsRemoved(List<Component> comps) {
+				list.removeBatch(comps);
+			}
+		});
+		assertEquals(3, list.size());
+
+		// move the second line along x, the intersection moves with it
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setTranslation(new Vector3d(4, 0, 0));
+		list.transform(new GeometryTransform(matrix), Arrays.<Component>asList(l2));
+
+		assertEquals(3, list.size());
+		assertEquals(1, maintainer.getNumDerived());
+		Component derived = list.findEqual(new Point3D(4, 0, 0, store));
+		assertTrue(maintainer.isDerived(derived));
+
+		// moving everything keeps exactly one intersection
+		matrix.setTranslation(new Vector3d(0, 0, 9));
+		list.transform(new GeometryTransform(matrix));
+		assertEquals(3, list.size());
+		assertTrue(maintainer.isDerived(list.findEqual(new Point3D(4, 0, 9, store))));
+	}
+
+	/**
+	 * the shape of a drawn plane is live, its corners are written in place
+	 */
+	@Test
+	public void testLivePlaneShape() throws NoPlaneException, NoMatrixException {
+		assumeFalse(GraphicsEnvironment.isHeadless());
+		Plane3D plane = new Plane3D(0, 0, 1, -2, store);
+		Shape3D shape = plane.getShape(AppearanceType.NORMAL);
+		BranchGroup group = new BranchGroup();
+		group.addChild(shape);
+		new Locale(new VirtualUniverse()).addBranchGraph(group);
+		Geometry geometry = shape.getGeometry();
+
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setTranslation(new Vector3d(0, 0, 3));
+		new GeometryTransform(matrix).apply(Arrays.asList(plane));
+		plane.updateShape();
+
+		assertTrue(shape.isLive());
+		assertSame(geometry, shape.getGeometry());
+		float[] coords = ((GeometryArray) geometry).getCoordRefFloat();
+		for(int i = 0; i < 4; i++) {
+			assertEquals(5, coords[3 * i + 2], 1e-6);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.awt.GraphicsEnvironment;
+
+import javax.media.j3d.GeometryArray;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.CoordinateSystem;
+import ch.hsr.i.jvector.logic.GridLevelOfDetail;
+
+public class GridLevelOfDetailTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testLevels() {
+		GridLevelOfDetail detail = new GridLevelOfDetail(1);
+		assertTrue(detail.update(140, 0, 0, 0));
+		assertEquals(0, detail.getLevel());
+		assertEquals(1, detail.getSpacing(), DELTA);
+		assertEquals(GridLevelOfDetail.WINDOW_LINES, detail.getExtent(), DELTA);
+
+		assertTrue(detail.update(10000, 0, 0, 0));
+		assertEquals(2, detail.getLevel());
+		assertEquals(100, detail.getSpacing(), DELTA);
+
+		assertTrue(detail.update(1, 0, 0, 0));
+		assertEquals(-2, detail.getLevel());
+		assertEquals(0.01, detail.getSpacing(), DELTA);
+
+		// the offset scales all levels
+		detail.setOffset(5);
+		assertEquals(-2, detail.getLevel());
+		assertEquals(0.05, detail.getSpacing(), DELTA);
+		detail.update(1000, 0, 0, 0);
+		assertEquals(1, detail.getLevel());
+	}
+
+	@Test
+	public void testHysteresis() {
+		GridLevelOfDetail detail = new GridLevelOfDetail(1);
+		detail.update(150, 0, 0, 0);
+		assertEquals(0, detail.getLevel());
+
+		// the border to level 1 is at 200, the level changes a bit later
+		assertFalse(detail.update(210, 0, 0, 0));
+		assertEquals(0, detail.getLevel());
+		assertTrue(detail.update(300, 0, 0, 0));
+		assertEquals(1, detail.getLevel());
+
+		// and changes back a bit below the border
+		assertFalse(detail.update(190, 0, 0, 0));
+		assertEquals(1, detail.getLevel());
+		assertTrue(detail.update(130, 0, 0, 0));
+		assertEquals(0, detail.getLevel());
+	}
+
+	@Test
+	public void testWindow() {
+		GridLevelOfDetail detail = new GridLevelOfDetail(1);
+		detail.update(100, 0.4, 0, 0);
+		assertEquals(0, detail.getCenterX(), DELTA);
+
+		// the window follows once the view has moved a quarter of the extent
+		assertFalse(detail.update(100, 30, -30, 20));
+		assertEquals(0, detail.getCenterX(), DELTA);
+		assertTrue(detail.update(100, 50.3, -30, 20));
+		assertEquals(50, detail.getCenterX(), DELTA);
+		assertEquals(-30, detail.getCenterY(), DELTA);
+		assertEquals(20, detail.getCenterZ(), DELTA);
+	}
+
+	@Test
+	public void testGridVertexCount() {
+		CoordinateSystem cs = new CoordinateSystem();
+
+		// the positive half of every axis, 799 lines in two planes each
+		cs.prepareGrid(1);
+		cs.updateGrid();
+		assertEquals(3 * 4 * 799, cs.getGridVertexCount());
+
+		// 160 lines on both sides, the axes are not part of the grid
+		cs.prepareGrid(1, 0, 0, 0, 160);
+		cs.updateGrid();
+		assertEquals(3 * 4 * 320, cs.getGridVertexCount());
+
+		// a window at the border of the scene is clipped and does not reach the yz plane
+		cs.prepareGrid(10, 790, 0, 0, 100);
+		cs.updateGrid();
+		assertEquals(2 * 2 * ((80 - 69 + 1) + 20), cs.getGridVertexCount());
+
+		cs.prepareGrid(1, 2000, 0, 0, 100);
+		cs.updateGrid();
+		assertEquals(0, cs.getGridVertexCount());
+	}
+
+	/**
+	 * the renderer may still read an array after the geometry no longer references it
+	 */
+	@Test
+	public void testDrawnArraysAreNotOverwritten() {
+		assumeFalse(GraphicsEnvironment.isHeadless());
+		CoordinateSystem cs = new CoordinateSystem();
+		GeometryArray grid = (GeometryArray) cs.getGridShape().getGeometry();
+		float[] first = grid.getCoordRefFloat();
+		float[] firstCopy = first.clone();
+
+		cs.prepareGrid(2);
+		cs.updateGrid();
+		float[] second = grid.getCoordRefFloat();
+		float[] secondCopy = second.clone();
+		assertNotSame(first, second);
+
+		cs.prepareGrid(5);
+		assertArrayEquals(firstCopy, first, 0f);
+		assertArrayEquals(secondCopy, second, 0f);
+		cs.updateGrid();
+		assertNotSame(first, grid.getCoordRefFloat());
+		assertArrayEquals(secondCopy, second, 0f);
+	}
+}
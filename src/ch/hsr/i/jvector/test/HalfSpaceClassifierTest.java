@@ -0,0 +1,162 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.logic.ConvexHull;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.HalfSpaceClassifier;
+import ch.hsr.i.jvector.logic.HalfSpaceClassifier.Classification;
+
+public class HalfSpaceClassifierTest {
+
+	/**
+	 * the faces of the cube [-1, 1]^3 with outward normals
+	 */
+	private static final double[] CUBE = { 1, 0, 0, -1, -1, 0, 0, -1, 0, 1, 0, -1, 0, -1, 0, -1, 0, 0, 1, -1, 0, 0, -1, -1 };
+
+	@Test
+	public void testCube() {
+		Random random = new Random(20);
+		int n = 1000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			xs[i] = random.nextDouble() * 4 - 2;
+			ys[i] = random.nextDouble() * 4 - 2;
+			zs[i] = random.nextDouble() * 4 - 2;
+		}
+
+		Classification result = new HalfSpaceClassifier(xs, ys, zs, n).classify(CUBE, 6);
+		long[] inside = result.insideAll();
+		long[] any = result.insideAny();
+
+		int expected = 0;
+		for(int i = 0; i < n; i++) {
+			boolean in = Math.abs(xs[i]) <= 1 && Math.abs(ys[i]) <= 1 && Math.abs(zs[i]) <= 1;
+			assertEquals(in, HalfSpaceClassifier.isSet(inside, i));
+			// every point is inside one of the opposite faces
+			assertEquals(true, HalfSpaceClassifier.isSet(any, i));
+			assertEquals(xs[i] > 1 ? 1 : -1, result.getSign(i, 0));
+			if(in) {
+				expected++;
+			}
+		}
+		assertEquals(expected, HalfSpaceClassifier.count(inside));
+		assertEquals(n, HalfSpaceClassifier.count(any));
+		assertEquals(HalfSpaceClassifier.count(result.getInside(0)), n - HalfSpaceClassifier.count(result.getAbove(0)));
+	}
+
+	@Test
+	public void testPointsOnPlane() throws NoPlaneException {
+		GeometryStore store = new GeometryStore();
+		new Point3D(1, 5, 3, store);
+		new Point3D(0.1 + 0.2, 0, 0, store);
+		new Point3D(-2, 0, 0, store);
+		new Point3D(4, 0, 0, store);
+
+		ArrayList<Plane3D> planes = new ArrayList<Plane3D>();
+		planes.add(new Plane3D(1, 0, 0, -1, store));
+		planes.add(new Plane3D(10, 0, 0, -3, store));
+
+		Classification result = new HalfSpaceClassifier(store).classify(planes);
+		assertEquals(0, result.getSign(0, 0));
+		assertEquals(-1, result.getSign(1, 0));
+		// 10 * (0.1 + 0.2) - 3 is not exactly zero
+		assertEquals(0, result.getSign(1, 1));
+		assertEquals(-1, result.getSign(2, 1));
+		assertEquals(1, result.getSign(3, 1));
+
+		assertArrayEquals(new int[] { 1, 2 }, HalfSpaceClassifier.toIndices(result.insideAll()));
+		assertArrayEquals(new int[] { 0, 1, 2 }, HalfSpaceClassifier.toIndices(result.insideAll(0)));
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, HalfSpaceClassifier.toIndices(result.insideAll(new int[0])));
+		assertArrayEquals(new int[] { 0, 1, 2 }, HalfSpaceClassifier.toIndices(result.insideAny()));
+		assertArrayEquals(new int[0], HalfSpaceClassifier.toIndices(result.insideAny(new int[0])));
+	}
+
+	@Test
+	public void testParallelEqualsSequential() {
+		Random random = new Random(21);
+		int n = 100003, m = 20;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			xs[i] = random.nextGaussian() * 10;
+			ys[i] = random.nextGaussian() * 10;
+			zs[i] = random.nextGaussian() * 10;
+		}
+		double[] planes = new double[4 * m];
+		for(int i = 0; i < planes.length; i++) {
+			planes[i] = random.nextGaussian();
+		}
+
+		HalfSpaceClassifier classifier = new HalfSpaceClassifier(xs, ys, zs, n);
+		Classification parallel = classifier.classify(planes, m);
+		classifier.setParallel(false);
+		Classification sequential = classifier.classify(planes, m);
+
+		for(int p = 0; p < m; p++) {
+			assertArrayEquals(sequential.getAbove(p), parallel.getAbove(p));
+			assertArrayEquals(sequential.getBelow(p), parallel.getBelow(p));
+		}
+		assertArrayEquals(sequential.insideAll(), parallel.insideAll());
+		assertArrayEquals(sequential.insideAny(), parallel.insideAny());
+
+		for(int i = 0; i < n; i += 97) {
+			for(int p = 0; p < m; p++) {
+				double value = planes[4 * p] * xs[i] + planes[4 * p + 1] * ys[i] + planes[4 * p + 2] * zs[i] + planes[4 * p + 3];
+				assertEquals((int) Math.signum(value), parallel.getSign(i, p));
+			}
+		}
+	}
+
+	@Test
+	public void testConvexHull() {
+		Random random = new Random(22);
+		int n = 5000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			xs[i] = random.nextGaussian();
+			ys[i] = random.nextGaussian();
+			zs[i] = random.nextGaussian();
+		}
+		ConvexHull hull = new ConvexHull(xs, ys, zs, n / 2);
+
+		// the first half spans the hull, the second half is tested against its facets
+		HalfSpaceClassifier classifier = new HalfSpaceClassifier(xs, ys, zs, n);
+		long[] inside = classifier.classify(hull.getPlanes(), hull.getNumFacets()).insideAll();
+		for(int i = 0; i < n; i++) {
+			assertEquals(i < n / 2 || hull.contains(xs[i], ys[i], zs[i]), HalfSpaceClassifier.isSet(inside, i));
+		}
+
+		long[] firstHalf = Arrays.copyOf(inside, (n / 2) / 64);
+		for(int w = 0; w < firstHalf.length; w++) {
+			assertEquals(~0L, firstHalf[w]);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import java.util.Random;
+
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.util.Matrix;
+import ch.hsr.i.jvector.util.Utils;
+
+/**
+ * Compares the closed formulas of <code>IntersectionKernel</code> with solving the same systems with
+ * <code>Matrix</code> and <code>Utils.rref</code>, the way the intersections were calculated before.
+ * Run it as application, the optional argument is the number of intersections per round.
+ */
+public class IntersectionBenchmark {
+
+	private static final int ROUNDS = 10;
+
+	private static double sink = 0;
+
+	public static void main(String[] args) throws NoMatrixException {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		double[] lines = createIntersectingLines(n, new Random(42));
+		double[] planes = createPlanes(2 * n, new Random(43));
+		double[] result = new double[6];
+
+		for(int round = 0; round < ROUNDS; round++) {
+
+			long start = System.nanoTime();
+			for(int i = 0; i < n; i++) {
+				int o = 12 * i;
+				IntersectionKernel.lineLine(lines[o], lines[o + 1], lines[o + 2], lines[o + 3], lines[o + 4], lines[o + 5],
+						lines[o + 6], lines[o + 7], lines[o + 8], lines[o + 9], lines[o + 10], lines[o + 11], result, 0);
+				sink += result[0];
+			}
+			long closedLineLine = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < n; i++) {
+				sink += lineLineRref(lines, 12 * i);
+			}
+			long rrefLineLine = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < n; i++) {
+				int o = 8 * i;
+				IntersectionKernel.planePlane(planes[o], planes[o + 1], planes[o + 2], planes[o + 3],
+						planes[o + 4], planes[o + 5], planes[o + 6], planes[o + 7], result, 0);
+				sink += result[0];
+			}
+			long closedPlanePlane = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < n; i++) {
+				sink += planePlaneRref(planes, 8 * i);
+			}
+			long rrefPlanePlane = System.nanoTime() - start;
+
+			System.out.println("round " + round
+					+ "\tline-line: closed " + (closedLineLine / n) + " ns, rref " + (rrefLineLine / n) + " ns"
+					+ " (x" + ratio(rrefLineLine, closedLineLine) + ")"
+					+ "\tplane-plane: closed " + (closedPlanePlane / n) + " ns, rref " + (rrefPlanePlane / n) + " ns"
+					+ " (x" + ratio(rrefPlanePlane, closedPlanePlane) + ")");
+		}
+
+		System.out.println("checksum " + sink);
+	}
+
+	/**
+	 * the parameter of the intersection point on the first line, calculated as before with rref
+	 */
+	private static double lineLineRref(double[] l, int o) throws NoMatrixException {
+		double[][] system = {
+				{ l[o + 3], -l[o + 9], l[o + 6] - l[o] },
+				{ l[o + 4], -l[o + 10], l[o + 7] - l[o + 1] },
+				{ l[o + 5], -l[o + 11], l[o + 8] - l[o + 2] } };
+
+		Matrix m = Utils.rref(new Matrix(system));
+		return l[o] + m.getValue(0, 2) * l[o + 3];
+	}
+
+	/**
+	 * a point on the line of intersection, calculated as before with rref
+	 */
+	private static double planePlaneRref(double[] p, int o) throws NoMatrixException {
+		double[][] system = {
+				{ p[o], p[o + 1], p[o + 2], -p[o + 3] },
+				{ p[o + 4], p[o + 5], p[o + 6], -p[o + 7] } };
+
+		Matrix m = Utils.rref(new Matrix(system));
+		return m.getValue(0, 3);
+	}
+
+	/**
+	 * pairs of lines through a common random point > [x, y, z, rx, ry, rz] * 2
+	 */
+	private static double[] createIntersectingLines(int n, Random random) {
+		double[] lines = new double[12 * n];
+		for(int i = 0; i < n; i++) {
+			double sx = random.nextDouble() * 100, sy = random.nextDouble() * 100, sz = random.nextDouble() * 100;
+			for(int j = 0; j < 2; j++) {
+				int o = 12 * i + 6 * j;
+				double t = random.nextDouble() * 10 + 1;
+				lines[o + 3] = random.nextDouble() - 0.5;
+				lines[o + 4] = random.nextDouble() - 0.5;
+				lines[o + 5] = random.nextDouble() - 0.5;
+				lines[o] = sx - t * lines[o + 3];
+				lines[o + 1] = sy - t * lines[o + 4];
+				lines[o + 2] = sz - t * lines[o + 5];
+			}
+		}
+		return lines;
+	}
+
+	private static double[] createPlanes(int n, Random random) {
+		double[] planes = new double[4 * n];
+		for(int i = 0; i < planes.length; i++) {
+			planes[i] = random.nextDouble() * 2 - 1;
+		}
+		return planes;
+	}
+
+	private static String ratio(long a, long b) {
+		return String.valueOf(Math.round(10.0 * a / b) / 10.0);
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.logic.IntersectionEngine;
+import ch.hsr.i.jvector.logic.IntersectionEngine.ResultConsumer;
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+
+public class IntersectionEngineTest {
+	
+	@Test
+	public void testSmallGrid() {
+		// a line along the z axis and a line parallel to the x axis at z = 1
+		double[] lines = { 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0 };
+		// z = 1 and x = 2
+		double[] planes = { 0, 0, 1, -1, 1, 0, 0, -2 };
+		
+		IntersectionEngine engine = new IntersectionEngine(lines, 2, planes, 2);
+		double[] points = new double[12];
+		byte[] types = new byte[4];
+		engine.intersect(points, types);
+		
+		assertEquals(IntersectionType.POINT, IntersectionEngine.getType(types[0]));
+		assertEquals(1, points[2], 1e-12);
+		assertEquals(IntersectionType.PARALLEL, IntersectionEngine.getType(types[1]));
+		assertEquals(IntersectionType.LINE_IN_PLANE, IntersectionEngine.getType(types[2]));
+		assertEquals(IntersectionType.POINT, IntersectionEngine.getType(types[3]));
+		assertEquals(2, points[9], 1e-12);
+		assertEquals(1, points[11], 1e-12);
+	}
+	
+	@Test
+	public void testLargeGridMatchesKernel() {
+		final int n = 700, m = 150;
+		Random random = new Random(3);
+		
+		final double[] lines = new double[6 * n];
+		final double[] planes = new double[4 * m];
+		for(int i = 0; i < lines.length; i++) {
+			lines[i] = random.nextDouble() * 2 - 1;
+		}
+		for(int i = 0; i < planes.length; i++) {
+			planes[i] = random.nextDouble() * 2 - 1;
+		}
+		
+		IntersectionEngine engine = new IntersectionEngine(lines, n, planes, m);
+		double[] points = new double[3 * n * m];
+		byte[] types = new byte[n * m];
+		engine.intersect(points, types);
+		
+		double[] expected = new double[3];
+		for(int i = 0; i < n; i += 7) {
+			for(int j = 0; j < m; j += 3) {
+				int k = i * m + j;
+				IntersectionType type = IntersectionKernel.linePlane(lines[6 * i], lines[6 * i + 1], lines[6 * i + 2],
+						lines[6 * i + 3], lines[6 * i + 4], lines[6 * i + 5],
+						planes[4 * j], planes[4 * j + 1], planes[4 * j + 2], planes[4 * j + 3], expected, 0);
+				assertEquals(type, IntersectionEngine.getType(types[k]));
+				if(type == IntersectionType.POINT) {
+					assertEquals(expected[0], points[3 * k], 0);
+					assertEquals(expected[2], points[3 * k + 2], 0);
+				}
+			}
+		}
+		
+		// streaming visits every pair exactly once
+		final AtomicInteger count = new AtomicInteger();
+		final AtomicLong sum = new AtomicLong();
+		engine.intersect(new ResultConsumer() {
+			public void accept(int line, int plane, IntersectionType type, double x, double y, double z) {
+				count.incrementAndGet();
+				sum.addAndGet(line * m + plane);
+			}
+		});
+		assertEquals(n * m, count.get());
+		assertEquals((n * m - 1L) * (n * m) / 2, sum.get());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyResultsForAnArray() {
+		// 3 * N * M does not fit into an int, the results must be streamed
+		int n = 40000, m = 20000;
+		IntersectionEngine engine = new IntersectionEngine(new double[6 * n], n, new double[4 * m], m);
+		engine.intersect(new double[12], new byte[4]);
+	}
+}
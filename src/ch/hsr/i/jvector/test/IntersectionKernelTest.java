@@ -0,0 +1,122 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+
+public class IntersectionKernelTest {
+	
+	private double[] result = new double[6];
+	
+	@Test
+	public void testLineLinePoint() {
+		IntersectionType type = IntersectionKernel.lineLine(2, 7, 1, 4, -5, -3, 4, 4, 4, -1, 2, -6, result, 0);
+		
+		assertEquals(IntersectionType.POINT, type);
+		assertEquals(10.0 / 3.0, result[0], 1e-9);
+		assertEquals(16.0 / 3.0, result[1], 1e-9);
+		assertEquals(0.0, result[2], 1e-9);
+	}
+	
+	@Test
+	public void testLineLineSkew() {
+		assertEquals(IntersectionType.SKEW, IntersectionKernel.lineLine(3, 5, 4, 4, 6, 4, 8, 2, 7, 3, 1, 5, result, 0));
+	}
+	
+	@Test
+	public void testLineLineParallel() {
+		assertEquals(IntersectionType.PARALLEL, IntersectionKernel.lineLine(3, 5, 4, 4, 6, 4, 8, 2, 7, 4, 6, 4, result, 0));
+	}
+	
+	@Test
+	public void testLineLineCollinearWithDifferentPoints() {
+		assertEquals(IntersectionType.COLLINEAR, IntersectionKernel.lineLine(3, 5, 4, 4, 6, 4, 7, 11, 8, 8, 12, 8, result, 0));
+	}
+	
+	@Test
+	public void testLinePlane() {
+		// z = 5
+		IntersectionType type = IntersectionKernel.linePlane(1, 2, 0, 0, 0, 1, 0, 0, 1, -5, result, 0);
+		
+		assertEquals(IntersectionType.POINT, type);
+		assertEquals(1.0, result[0], 0.0);
+		assertEquals(2.0, result[1], 0.0);
+		assertEquals(5.0, result[2], 0.0);
+		
+		assertEquals(IntersectionType.LINE_IN_PLANE, IntersectionKernel.linePlane(1, 2, 5, 1, 1, 0, 0, 0, 1, -5, result, 0));
+		assertEquals(IntersectionType.PARALLEL, IntersectionKernel.linePlane(1, 2, 4, 1, 1, 0, 0, 0, 1, -5, result, 0));
+	}
+	
+	@Test
+	public void testPlanePlaneCongruentWithScaledNormal() {
+		assertEquals(IntersectionType.CONGRUENT, IntersectionKernel.planePlane(1, 2, 3, -4, 2, 4, 6, -8, result, 0));
+		assertEquals(IntersectionType.PARALLEL, IntersectionKernel.planePlane(1, 2, 3, -4, 2, 4, 6, -4, result, 0));
+	}
+	
+	@Test
+	public void testPlanePlaneLine() {
+		assertEquals(IntersectionType.LINE, IntersectionKernel.planePlane(0, 0, 1, -5, 1, 0, 0, -2, result, 0));
+		
+		// the direction is the cross product of the normals
+		assertEquals(0.0, result[3], 0.0);
+		assertEquals(1.0, result[4], 0.0);
+		assertEquals(0.0, result[5], 0.0);
+	}
+	
+	@Test
+	public void testPlanePlanePointOnBothPlanes() {
+		// 2x + 3y + 4z - 7 = 0 and x - y + 2z + 1 = 0
+		assertEquals(IntersectionType.LINE, IntersectionKernel.planePlane(2, 3, 4, -7, 1, -1, 2, 1, result, 0));
+		
+		assertEquals(0.0, 2 * result[0] + 3 * result[1] + 4 * result[2] - 7, 1e-9);
+		assertEquals(0.0, result[0] - result[1] + 2 * result[2] + 1, 1e-9);
+	}
+	
+	@Test
+	public void testThreePlanesPoint() {
+		// x = 1, y = 2, z = 3
+		assertEquals(IntersectionType.POINT, IntersectionKernel.threePlanes(1, 0, 0, -1, 0, 1, 0, -2, 0, 0, 1, -3, result, 0));
+		assertEquals(1.0, result[0], 1e-12);
+		assertEquals(2.0, result[1], 1e-12);
+		assertEquals(3.0, result[2], 1e-12);
+	}
+	
+	@Test
+	public void testThreePlanesDegenerate() {
+		// three planes through the z axis
+		assertEquals(IntersectionType.LINE, IntersectionKernel.threePlanes(1, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, result, 0));
+		assertEquals(0.0, result[3], 0.0);
+		assertEquals(0.0, result[4], 0.0);
+		assertEquals(0.0, result[0], 1e-12);
+		assertEquals(0.0, result[1], 1e-12);
+		
+		// a prism has no common point
+		assertEquals(IntersectionType.PARALLEL, IntersectionKernel.threePlanes(1, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, -1, result, 0));
+		
+		// x = 1 twice and z = 0
+		assertEquals(IntersectionType.LINE, IntersectionKernel.threePlanes(1, 0, 0, -1, 2, 0, 0, -2, 0, 0, 1, 0, result, 0));
+		
+		assertEquals(IntersectionType.CONGRUENT, IntersectionKernel.threePlanes(1, 0, 0, -1, 2, 0, 0, -2, -1, 0, 0, 1, result, 0));
+	}
+}
@@ -0,0 +1,295 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.logic.CanonicalIndex;
+import ch.hsr.i.jvector.logic.ComponentsList;
+import ch.hsr.i.jvector.logic.DrawComponents;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.GeometryTransform;
+import ch.hsr.i.jvector.logic.IntersectionMaintainer;
+
+public class IntersectionMaintainerTest {
+
+	private GeometryStore store = new GeometryStore();
+
+	/**
+	 * adds and removes the derived components without drawing them
+	 */
+	private static class ListListener implements IntersectionMaintainer.Listener {
+
+		ComponentsList list;
+		int added, removed;
+
+		ListListener(ComponentsList list) {
+			this.list = list;
+		}
+
+		public void intersectionAdded(Component comp) {
+			added++;
+			list.add(comp);
+		}
+
+		public void intersectionsRemoved(List<Component> comps) {
+			removed += comps.size();
+			list.removeBatch(comps);
+		}
+	}
+
+	private ArrayList<Component> createSources(Random random) throws NoLineException, NoPlaneException {
+		ArrayList<Component> sources = new ArrayList<Component>();
+		double[][] hubs = { { 0, 0, 0 }, { 100, -50, 20 }, { -300, 200, 10 } };
+		for(int i = 0; i < 30; i++) {
+			double[] hub = hubs[i % hubs.length];
+			sources.add(new Line3D(hub[0], hub[1], hub[2], random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), store));
+		}
+		for(int i = 0; i < 8; i++) {
+			sources.add(new Plane3D(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), random.nextDouble() * 400 - 200, store));
+		}
+		return sources;
+	}
+
+	/**
+	 * the components of the list which the maintainer derived
+	 */
+	private static ArrayList<Component> getDerived(ComponentsList list, IntersectionMaintainer maintainer) {
+		ArrayList<Component> derived = new ArrayList<Component>();
+		for(int i = 0; i < list.size(); i++) {
+			if(maintainer.isDerived(list.get(i))) {
+				derived.add(list.get(i));
+			}
+		}
+		return derived;
+	}
+
+	private static void assertSameComponents(ArrayList<Component> expected, ArrayList<Component> actual) {
+		assertEquals(expected.size(), actual.size());
+		CanonicalIndex index = new CanonicalIndex();
+		for(Component comp : expected) {
+			index.add(comp);
+		}
+		for(Component comp : actual) {
+			assertTrue(index.contains(comp));
+		}
+	}
+
+	@Test
+	public void testIds() {
+		Point3D p1 = new Point3D(1, 2, 3, store);
+		Point3D p2 = new Point3D(1, 2, 3, store);
+		assertTrue(p1.getId() != p2.getId());
+		assertEquals(p1.getId(), p1.getId());
+	}
+
+	@Test
+	public void testAddAndRemove() throws NoLineException, NoPlaneException {
+		ComponentsList list = new ComponentsList();
+		ListListener listener = new ListListener(list);
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, DrawComponents.RADIUS, listener);
+
+		// three lines through one point give one point supported by three pairs
+		Line3D l1 = new Line3D(0, 0, 0, 1, 0, 0, store);
+		Line3D l2 = new Line3D(0, 0, 0, 0, 1, 0, store);
+		Line3D l3 = new Line3D(0, 0, 0, 1, 1, 1, store);
+		list.add(l1);
+		list.add(l2);
+		list.add(l3);
+		assertEquals(1, maintainer.getNumDerived());
+		assertEquals(4, list.size());
+
+		// the point stays as long as two of the lines are left
+		list.remove(list.indexOf(l1));
+		assertEquals(1, maintainer.getNumDerived());
+		list.remove(list.indexOf(l2));
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(1, list.size());
+		assertEquals(1, listener.removed);
+
+		// two planes give a line, a plane through the origin cuts l3 in the origin
+		Plane3D p1 = new Plane3D(0, 0, 1, -10, store);
+		Plane3D p2 = new Plane3D(1, 0, 0, -20, store);
+		list.add(p1);
+		list.add(p2);
+		assertEquals(3, maintainer.getNumDerived());
+
+		Plane3D p3 = new Plane3D(1, -2, 0, 0, store);
+		list.add(p3);
+		assertNotNull(list.findEqual(new Point3D(0, 0, 0, store)));
+
+		// a derived component removed by hand is forgotten
+		Component derived = getDerived(list, maintainer).get(0);
+		list.remove(list.indexOf(derived));
+		assertFalse(maintainer.isDerived(derived));
+
+		list.clear();
+		assertEquals(0, maintainer.getNumDerived());
+	}
+
+	@Test
+	public void testEditsEqualFreshComputation() throws NoLineException, NoPlaneException {
+		Random random = new Random(14);
+		ArrayList<Component> sources = createSources(random);
+
+		ComponentsList list = new ComponentsList();
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, DrawComponents.RADIUS, new ListListener(list));
+
+		for(Component comp : sources) {
+			list.add(comp);
+		}
+		assertTrue(maintainer.getNumDerived() > 0);
+
+		// remove a third of the sources
+		ArrayList<Component> left = new ArrayList<Component>();
+		for(int i = 0; i < sources.size(); i++) {
+			if(i % 3 == 1) {
+				list.remove(list.indexOf(sources.get(i)));
+			} else {
+				left.add(sources.get(i));
+			}
+		}
+
+		ComponentsList fresh = new ComponentsList();
+		fresh.addBatch(left);
+		IntersectionMaintainer expected = new IntersectionMaintainer(fresh, DrawComponents.RADIUS, new ListListener(fresh));
+
+		assertEquals(left.size() + maintainer.getNumDerived(), list.size());
+		assertSameComponents(getDerived(fresh, expected), getDerived(list, maintainer));
+
+		// removing all sources retracts everything
+		for(Component comp : left) {
+			list.remove(list.indexOf(comp));
+		}
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testBatchRemoval() throws NoLineException {
+		ComponentsList list = new ComponentsList();
+		ListListener listener = new ListListener(list);
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, DrawComponents.RADIUS, listener);
+
+		// one line crossing three parallel lines
+		Line3D cross = new Line3D(0, 0, 0, 1, 0, 0, store);
+		list.add(cross);
+		ArrayList<Component> parallels = new ArrayList<Component>();
+		for(int i = 1; i <= 3; i++) {
+			Line3D line = new Line3D(10 * i, 0, 0, 0, 1, 0, store);
+			parallels.add(line);
+			list.add(line);
+		}
+		assertEquals(3, maintainer.getNumDerived());
+
+		// the three intersections are retracted together and the order of the rest is kept
+		list.remove(list.indexOf(cross));
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(3, listener.removed);
+		assertEquals(parallels, list.deepClone());
+
+		// components which are not in the list are ignored
+		assertEquals(1, list.removeBatch(Arrays.asList(parallels.get(1), cross)).size());
+		assertEquals(2, list.size());
+		assertSame(parallels.get(2), list.get(1));
+	}
+
+	@Test
+	public void testDispose() throws NoLineException {
+		ComponentsList list = new ComponentsList();
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, DrawComponents.RADIUS, new ListListener(list));
+		maintainer.dispose();
+
+		list.add(new Line3D(0, 0, 0, 1, 0, 0, store));
+		list.add(new Line3D(0, 0, 0, 0, 1, 0, store));
+		assertEquals(2, list.size());
+	}
+
+	@Test
+	public void testIntersectionEqualToASource() throws NoLineException, NoMatrixException {
+		ComponentsList list = new ComponentsList();
+		ListListener listener = new ListListener(list);
+		IntersectionMaintainer maintainer = new IntersectionMaintainer(list, DrawComponents.RADIUS, listener);
+
+		// the intersection of the lines is the point which was drawn before
+		Point3D point = new Point3D(0, 0, 0, store);
+		Line3D l1 = new Line3D(0, 0, 0, 1, 0, 0, store);
+		Line3D l2 = new Line3D(0, 0, 0, 0, 1, 0, store);
+		Line3D l3 = new Line3D(0, 0, 0, 1, 1, 1, store);
+		list.add(point);
+		list.add(l1);
+		list.add(l2);
+		list.add(l3);
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(4, list.size());
+
+		// without the point the intersection is derived with all of its pairs
+		list.remove(list.indexOf(point));
+		assertEquals(1, maintainer.getNumDerived());
+		assertEquals(4, list.size());
+		assertTrue(maintainer.isDerived(list.findEqual(new Point3D(0, 0, 0, store))));
+		list.remove(list.indexOf(l1));
+		assertEquals(1, maintainer.getNumDerived());
+		list.remove(list.indexOf(l2));
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(1, list.size());
+
+		// the pair is forgotten with its lines
+		list.add(point);
+		list.add(l1);
+		list.remove(list.indexOf(l1));
+		list.remove(list.indexOf(point));
+		assertEquals(0, maintainer.getNumDerived());
+		assertEquals(1, list.size());
+
+		// a transformed point no longer hides the intersection
+		list.add(point);
+		list.add(l1);
+		assertEquals(0, maintainer.getNumDerived());
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setTranslation(new Vector3d(5, 5, 5));
+		list.transform(new GeometryTransform(matrix), Arrays.asList(point));
+		assertEquals(1, maintainer.getNumDerived());
+		assertEquals(4, list.size());
+		assertTrue(maintainer.isDerived(list.findEqual(new Point3D(0, 0, 0, store))));
+		assertFalse(maintainer.isDerived(point));
+	}
+}
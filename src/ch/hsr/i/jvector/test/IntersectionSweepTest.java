@@ -0,0 +1,230 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.IntersectionKernel;
+import ch.hsr.i.jvector.logic.IntersectionKernel.IntersectionType;
+import ch.hsr.i.jvector.logic.IntersectionSweep;
+
+public class IntersectionSweepTest {
+
+	private static final double RADIUS = 100;
+
+	private GeometryStore store = new GeometryStore();
+	private ArrayList<Component> scene = new ArrayList<Component>();
+	private ArrayList<Line3D> lines = new ArrayList<Line3D>();
+	private ArrayList<Plane3D> planes = new ArrayList<Plane3D>();
+
+	@Before
+	public void setUp() throws NoLineException, NoPlaneException {
+		Random random = new Random(13);
+
+		// lines through a few common points, so many pairs intersect
+		double[][] hubs = { { 0, 0, 0 }, { 50, -20, 10 }, { -30, 60, -40 }, { 90, 90, 90 } };
+		for(int i = 0; i < 120; i++) {
+			double[] hub = hubs[i % hubs.length];
+			Line3D line = new Line3D(hub[0], hub[1], hub[2], random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), store);
+			lines.add(line);
+		}
+		// lines far away or in general position
+		for(int i = 0; i < 80; i++) {
+			double offset = i % 4 == 0 ? 500 : 0;
+			Line3D line = new Line3D(random.nextDouble() * 200 - 100 + offset, random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+					random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), store);
+			lines.add(line);
+		}
+		for(int i = 0; i < 60; i++) {
+			double d = i % 5 == 0 ? 400 : random.nextDouble() * 200 - 100;
+			Plane3D plane = new Plane3D(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), d, store);
+			planes.add(plane);
+		}
+		// two parallel planes and a plane with a line in it
+		planes.add(new Plane3D(0, 0, 1, 5, store));
+		planes.add(new Plane3D(0, 0, 2, -20, store));
+		lines.add(new Line3D(0, 0, -5, 1, 1, 0, store));
+
+		scene.addAll(lines);
+		scene.addAll(planes);
+		scene.add(new Point3D(1, 2, 3, store));
+	}
+
+	/**
+	 * all intersections inside the sphere by testing every pair
+	 */
+	private double[][] bruteForce() {
+		ArrayList<Double> points = new ArrayList<Double>();
+		ArrayList<Double> found = new ArrayList<Double>();
+		double[] buffer = new double[6];
+
+		for(int i = 0; i < lines.size(); i++) {
+			double[] l = parameters(lines.get(i));
+			for(int j = i + 1; j < lines.size(); j++) {
+				double[] m = parameters(lines.get(j));
+				if(IntersectionKernel.lineLine(l[0], l[1], l[2], l[3], l[4], l[5], m[0], m[1], m[2], m[3], m[4], m[5], buffer, 0) == IntersectionType.POINT) {
+					addInside(buffer, 3, points);
+				}
+			}
+			for(Plane3D plane : planes) {
+				if(IntersectionKernel.linePlane(l[0], l[1], l[2], l[3], l[4], l[5], plane.getPlaneParameter(0), plane.getPlaneParameter(1),
+						plane.getPlaneParameter(2), plane.getPlaneParameter(3), buffer, 0) == IntersectionType.POINT) {
+					addInside(buffer, 3, points);
+				}
+			}
+		}
+		for(int i = 0; i < planes.size(); i++) {
+			Plane3D p = planes.get(i);
+			for(int j = i + 1; j < planes.size(); j++) {
+				Plane3D q = planes.get(j);
+				if(IntersectionKernel.planePlane(p.getPlaneParameter(0), p.getPlaneParameter(1), p.getPlaneParameter(2), p.getPlaneParameter(3),
+						q.getPlaneParameter(0), q.getPlaneParameter(1), q.getPlaneParameter(2), q.getPlaneParameter(3), buffer, 0) == IntersectionType.LINE) {
+					addInside(buffer, 6, found);
+				}
+			}
+		}
+		return new double[][] { toArray(points), toArray(found) };
+	}
+
+	private static double[] parameters(Line3D line) {
+		double[] l = new double[6];
+		for(int k = 0; k < 6; k++) {
+			l[k] = line.getLineParameter(k);
+		}
+		return l;
+	}
+
+	private static void addInside(double[] buffer, int n, ArrayList<Double> list) {
+		if(buffer[0] * buffer[0] + buffer[1] * buffer[1] + buffer[2] * buffer[2] <= RADIUS * RADIUS) {
+			for(int k = 0; k < n; k++) {
+				list.add(buffer[k]);
+			}
+		}
+	}
+
+	private static double[] toArray(ArrayList<Double> list) {
+		double[] array = new double[list.size()];
+		for(int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * sorts the tuples of n values, so results in another order can be compared
+	 */
+	private static double[] sortTuples(double[] values, int count, int n) {
+		double[][] tuples = new double[count][];
+		for(int i = 0; i < count; i++) {
+			tuples[i] = Arrays.copyOfRange(values, i * n, (i + 1) * n);
+		}
+		Arrays.sort(tuples, new java.util.Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				for(int k = 0; k < a.length; k++) {
+					int c = Double.compare(a[k], b[k]);
+					if(c != 0) {
+						return c;
+					}
+				}
+				return 0;
+			}
+		});
+		double[] sorted = new double[count * n];
+		for(int i = 0; i < count; i++) {
+			System.arraycopy(tuples[i], 0, sorted, i * n, n);
+		}
+		return sorted;
+	}
+
+	@Test
+	public void testEqualsBruteForce() {
+		double[][] expected = bruteForce();
+
+		IntersectionSweep sweep = new IntersectionSweep(scene, RADIUS);
+		sweep.setParallel(false);
+		IntersectionSweep.Result result = sweep.run();
+
+		assertEquals(expected[0].length / 3, result.getNumPoints());
+		assertEquals(expected[1].length / 6, result.getNumLines());
+		assertArrayEquals(sortTuples(expected[0], expected[0].length / 3, 3), sortTuples(result.getPoints(), result.getNumPoints(), 3), 0);
+		assertArrayEquals(sortTuples(expected[1], expected[1].length / 6, 6), sortTuples(result.getLines(), result.getNumLines(), 6), 0);
+	}
+
+	@Test
+	public void testParallelEqualsSequential() {
+		IntersectionSweep sequential = new IntersectionSweep(scene, RADIUS);
+		sequential.setParallel(false);
+		IntersectionSweep.Result expected = sequential.run();
+
+		IntersectionSweep parallel = new IntersectionSweep(scene, RADIUS);
+		IntersectionSweep.Result result = parallel.run();
+
+		// the results are joined in the order of the rows
+		assertArrayEquals(expected.getPoints(), result.getPoints(), 0);
+		assertArrayEquals(expected.getLines(), result.getLines(), 0);
+	}
+
+	@Test
+	public void testProgress() {
+		final IntersectionSweep sweep = new IntersectionSweep(scene, RADIUS);
+		final AtomicLong last = new AtomicLong();
+		sweep.setProgressListener(new IntersectionSweep.ProgressListener() {
+			public void progress(long done, long total) {
+				assertEquals(sweep.getNumPairs(), total);
+				assertTrue(done <= total);
+				last.set(Math.max(last.get(), done));
+			}
+		});
+		sweep.run();
+
+		long n = lines.size(), m = planes.size();
+		assertEquals(n * (n - 1) / 2 + n * m + m * (m - 1) / 2, sweep.getNumPairs());
+		assertEquals(sweep.getNumPairs(), last.get());
+	}
+
+	@Test
+	public void testCancel() {
+		final IntersectionSweep sweep = new IntersectionSweep(scene, RADIUS);
+		sweep.setProgressListener(new IntersectionSweep.ProgressListener() {
+			public void progress(long done, long total) {
+				sweep.cancel();
+			}
+		});
+		assertNull(sweep.run());
+		assertTrue(sweep.isCancelled());
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.logic.KdTree;
+
+public class KdTreeTest {
+
+	private static final double DELTA = 1e-12;
+	private static final int N = 50000;
+	private static final int QUERIES = 2000;
+
+	private double[] xs = new double[N];
+	private double[] ys = new double[N];
+	private double[] zs = new double[N];
+
+	private double[] qx = new double[QUERIES];
+	private double[] qy = new double[QUERIES];
+	private double[] qz = new double[QUERIES];
+
+	@Before
+	public void setUp() {
+		Random random = new Random(11);
+		for(int i = 0; i < N; i++) {
+			// some points on a coarse grid to get equal coordinates
+			if(i % 5 == 0) {
+				xs[i] = random.nextInt(20);
+				ys[i] = random.nextInt(20);
+				zs[i] = 0;
+			} else {
+				xs[i] = random.nextDouble() * 20;
+				ys[i] = random.nextDouble() * 20;
+				zs[i] = random.nextGaussian();
+			}
+		}
+		for(int i = 0; i < QUERIES; i++) {
+			qx[i] = random.nextDouble() * 24 - 2;
+			qy[i] = random.nextDouble() * 24 - 2;
+			qz[i] = random.nextGaussian() * 2;
+		}
+	}
+
+	private double distance(int i, double x, double y, double z) {
+		double dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	private double[] sortedDistances(double x, double y, double z) {
+		double[] d = new double[N];
+		for(int i = 0; i < N; i++) {
+			d[i] = distance(i, x, y, z);
+		}
+		Arrays.sort(d);
+		return d;
+	}
+
+	@Test
+	public void testNearest() {
+		KdTree tree = new KdTree(xs, ys, zs, N);
+		for(int q = 0; q < 200; q++) {
+			double[] expected = sortedDistances(qx[q], qy[q], qz[q]);
+			int nearest = tree.findNearest(qx[q], qy[q], qz[q]);
+			assertEquals(expected[0], distance(nearest, qx[q], qy[q], qz[q]), DELTA);
+		}
+	}
+
+	@Test
+	public void testKNearest() {
+		KdTree tree = new KdTree(xs, ys, zs, N, false);
+		int k = 7;
+		int[] indices = new int[k];
+		double[] distances = new double[k];
+		for(int q = 0; q < 200; q++) {
+			double[] expected = sortedDistances(qx[q], qy[q], qz[q]);
+			assertEquals(k, tree.findNearest(qx[q], qy[q], qz[q], k, indices, distances));
+			for(int j = 0; j < k; j++) {
+				assertEquals(expected[j], distances[j], DELTA);
+				assertEquals(distances[j], distance(indices[j], qx[q], qy[q], qz[q]), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testWithin() {
+		KdTree tree = new KdTree(xs, ys, zs, N);
+		double radius = 0.4;
+		for(int q = 0; q < 200; q++) {
+			int count = 0;
+			for(int i = 0; i < N; i++) {
+				if(distance(i, qx[q], qy[q], qz[q]) <= radius) {
+					count++;
+				}
+			}
+			int[] found = tree.findWithin(qx[q], qy[q], qz[q], radius);
+			assertEquals(count, found.length);
+			for(int i : found) {
+				assertEquals(true, distance(i, qx[q], qy[q], qz[q]) <= radius);
+			}
+		}
+	}
+
+	@Test
+	public void testBatchEqualsSingle() {
+		KdTree tree = new KdTree(xs, ys, zs, N);
+		int k = 3;
+		int[] indices = new int[QUERIES * k];
+		double[] distances = new double[QUERIES * k];
+		tree.findNearest(qx, qy, qz, QUERIES, k, indices, distances);
+
+		int[] offsets = new int[QUERIES + 1];
+		int[] within = tree.findWithin(qx, qy, qz, QUERIES, 0.3, offsets);
+		assertEquals(within.length, offsets[QUERIES]);
+
+		int[] single = new int[k];
+		double[] singleDistances = new double[k];
+		for(int q = 0; q < QUERIES; q++) {
+			tree.findNearest(qx[q], qy[q], qz[q], k, single, singleDistances);
+			for(int j = 0; j < k; j++) {
+				assertEquals(singleDistances[j], distances[q * k + j], 0);
+			}
+
+			int[] expected = tree.findWithin(qx[q], qy[q], qz[q], 0.3);
+			int[] actual = Arrays.copyOfRange(within, offsets[q], offsets[q + 1]);
+			Arrays.sort(expected);
+			Arrays.sort(actual);
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testSmallTrees() {
+		KdTree empty = new KdTree(new double[0], new double[0], new double[0], 0);
+		assertEquals(-1, empty.findNearest(1, 2, 3));
+		assertEquals(0, empty.findWithin(1, 2, 3, 10).length);
+
+		KdTree small = new KdTree(new double[] { 0, 1, 2 }, new double[] { 0, 0, 0 }, new double[] { 0, 0, 0 }, 3);
+		int[] indices = new int[5];
+		double[] distances = new double[5];
+		small.findNearest(new double[] { 1.9 }, new double[] { 0 }, new double[] { 0 }, 1, 5, indices, distances);
+		assertArrayEquals(new int[] { 2, 1, 0, -1, -1 }, indices);
+		assertEquals(Double.POSITIVE_INFINITY, distances[4], 0);
+	}
+
+	@Test
+	public void testNoNeighbours() {
+		KdTree small = new KdTree(new double[] { 0, 1, 2 }, new double[] { 0, 0, 0 }, new double[] { 0, 0, 0 }, 3);
+		assertEquals(0, small.findNearest(1, 0, 0, 0, new int[0], null));
+		small.findNearest(new double[] { 1 }, new double[] { 0 }, new double[] { 0 }, 1, 0, new int[0], null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeK() {
+		KdTree small = new KdTree(new double[] { 0, 1, 2 }, new double[] { 0, 0, 0 }, new double[] { 0, 0, 0 }, 3);
+		small.findNearest(1, 0, 0, -1, new int[1], null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeKBatch() {
+		KdTree small = new KdTree(new double[] { 0, 1, 2 }, new double[] { 0, 0, 0 }, new double[] { 0, 0, 0 }, 3);
+		small.findNearest(new double[] { 1 }, new double[] { 0 }, new double[] { 0 }, 1, -1, new int[1], null);
+	}
+}
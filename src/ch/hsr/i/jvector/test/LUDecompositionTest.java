@@ -0,0 +1,173 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.util.LUDecomposition;
+import ch.hsr.i.jvector.util.Matrix;
+import ch.hsr.i.jvector.util.Utils;
+
+public class LUDecompositionTest {
+	
+	private static final double DELTA = 1e-10;
+	
+	// x + y + z = 6, 2y + 5z = -4, 2x + 5y - z = 27 > (5, 3, -2)
+	private double[][] values = { { 1, 1, 1 }, { 0, 2, 5 }, { 2, 5, -1 } };
+	
+	@Test
+	public void testSolve() throws NoMatrixException {
+		LUDecomposition lu = new LUDecomposition(new Matrix(values));
+		
+		double[] x = lu.solve(new double[] { 6, -4, 27 });
+		assertEquals(5, x[0], DELTA);
+		assertEquals(3, x[1], DELTA);
+		assertEquals(-2, x[2], DELTA);
+		
+		// the factors are reused for another right hand side > (1, 0, 0)
+		lu.solve(new double[] { 1, 0, 2 }, x);
+		assertEquals(1, x[0], DELTA);
+		assertEquals(0, x[1], DELTA);
+		assertEquals(0, x[2], DELTA);
+		
+		assertEquals(1, values[0][0], 0);
+	}
+	
+	@Test
+	public void testSolveBlock() throws NoMatrixException {
+		LUDecomposition lu = new LUDecomposition(new Matrix(values));
+		
+		Matrix b = new Matrix(new double[][] { { 6, 1 }, { -4, 0 }, { 27, 2 } });
+		Matrix x = lu.solve(b);
+		
+		assertEquals(5, x.getValue(0, 0), DELTA);
+		assertEquals(3, x.getValue(1, 0), DELTA);
+		assertEquals(-2, x.getValue(2, 0), DELTA);
+		assertEquals(1, x.getValue(0, 1), DELTA);
+		assertEquals(0, x.getValue(1, 1), DELTA);
+		assertEquals(0, x.getValue(2, 1), DELTA);
+	}
+	
+	@Test
+	public void testDeterminantAndRank() throws NoMatrixException {
+		LUDecomposition lu = new LUDecomposition(new Matrix(values));
+		assertEquals(-21, lu.getDeterminant(), DELTA);
+		assertEquals(3, lu.getRank());
+		assertFalse(lu.isSingular());
+		
+		LUDecomposition singular = new LUDecomposition(new Matrix(new double[][] { { 1, 2, 3 }, { 2, 4, 6 }, { 1, 0, 1 } }));
+		assertTrue(singular.isSingular());
+		assertEquals(2, singular.getRank());
+		assertEquals(0, singular.getDeterminant(), 0);
+		assertEquals(Double.POSITIVE_INFINITY, singular.getConditionEstimate(), 0);
+		
+		try {
+			singular.solve(new double[] { 1, 2, 3 });
+			fail("singular matrix solved");
+		} catch (NoMatrixException e) {
+		}
+	}
+	
+	@Test
+	public void testConditionEstimate() throws NoMatrixException {
+		LUDecomposition identity = new LUDecomposition(new Matrix(new double[][] { { 1, 0 }, { 0, 1 } }));
+		assertEquals(1, identity.getConditionEstimate(), DELTA);
+		
+		LUDecomposition bad = new LUDecomposition(new Matrix(new double[][] { { 1, 0 }, { 0, 1e-6 } }));
+		assertEquals(1e6, bad.getConditionEstimate(), 1);
+	}
+	
+	@Test
+	public void testSolveSystem() {
+		double[][] sys = { { 1, 1, 1, 6 }, { 0, 2, 5, -4 }, { 2, 5, -1, 27 } };
+		double[] x = Utils.solveSystem(sys);
+		
+		assertEquals(5, x[0], DELTA);
+		assertEquals(3, x[1], DELTA);
+		assertEquals(-2, x[2], DELTA);
+		
+		// the system is not changed by the solver
+		assertEquals(1, sys[0][0], 0);
+		assertEquals(0, sys[1][0], 0);
+		
+		assertNull(Utils.solveSystem(new double[][] { { 1, 2, 3 }, { 2, 4, 6 } }));
+	}
+	
+	@Test
+	public void testBlockedMatchesUnblocked() throws NoMatrixException {
+		int n = 2 * LUDecomposition.BLOCKED_THRESHOLD + 17;
+		Matrix a = createMatrix(n, n, new Random(7));
+		double[] b = createMatrix(1, n, new Random(8)).getRowValues(0);
+		
+		LUDecomposition blocked = new LUDecomposition(a, true);
+		LUDecomposition unblocked = new LUDecomposition(a, false);
+		
+		assertArrayEquals(unblocked.getPivot(), blocked.getPivot());
+		assertEquals(n, blocked.getRank());
+		assertEquals(unblocked.getDeterminant(), blocked.getDeterminant(), Math.abs(unblocked.getDeterminant()) * 1e-12);
+		
+		double[] x1 = blocked.solve(b);
+		double[] x2 = unblocked.solve(b);
+		for(int i = 0; i < n; i++) {
+			assertEquals(x2[i], x1[i], 1e-9);
+		}
+	}
+	
+	@Test
+	public void testParallelRref() throws NoMatrixException {
+		int n = 300;
+		Matrix a = createMatrix(n, n, new Random(9));
+		double[] b = createMatrix(1, n, new Random(10)).getRowValues(0);
+		
+		Matrix augmented = new Matrix(n, n + 1);
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < n; j++) {
+				augmented.setValue(i, j, a.getValue(i, j));
+			}
+		}
+		augmented.setColumnValues(n, b);
+		augmented.rref();
+		
+		double[] x = new LUDecomposition(a).solve(b);
+		for(int i = 0; i < n; i++) {
+			assertEquals(1, augmented.getValue(i, i), 1e-12);
+			assertEquals(x[i], augmented.getValue(i, n), 1e-9);
+		}
+	}
+	
+	private static Matrix createMatrix(int rows, int columns, Random random) {
+		Matrix m = new Matrix(rows, columns);
+		for(int i = 0; i < rows; i++) {
+			for(int j = 0; j < columns; j++) {
+				m.setValue(i, j, random.nextDouble() * 2 - 1);
+			}
+		}
+		return m;
+	}
+}
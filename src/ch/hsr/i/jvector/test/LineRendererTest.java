@@ -0,0 +1,211 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.Shape3D;
+import javax.vecmath.Point3d;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.LineRenderer;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.logic.GeometryStore;
+
+public class LineRendererTest {
+
+	private GeometryStore store = new GeometryStore();
+	private LineRenderer renderer;
+
+	/**
+	 * Java3D refuses to create scene graph objects without a display
+	 */
+	@Before
+	public void setUp() {
+		assumeFalse(GraphicsEnvironment.isHeadless());
+		renderer = new LineRenderer();
+	}
+
+	/**
+	 * parallel lines along the z axis, one per unit of x
+	 */
+	private List<Line3D> createLines(int n) throws NoLineException {
+		List<Line3D> lines = new ArrayList<Line3D>();
+		for(int i = 0; i < n; i++) {
+			lines.add(new Line3D(i, 0, 0, 0, 0, 1, store));
+		}
+		return lines;
+	}
+
+	/**
+	 * the shape of the batch of the appearance type
+	 */
+	private Shape3D getShape(AppearanceType type) {
+		return (Shape3D) renderer.getBranchGroup().getChild(type.ordinal());
+	}
+
+	/**
+	 * checks that the batch draws exactly the given lines in this order
+	 */
+	private void assertBatch(AppearanceType type, Line3D... lines) {
+		assertEquals(lines.length, renderer.size(type));
+		GeometryArray array = (GeometryArray) getShape(type).getGeometry();
+		assertEquals(2 * lines.length, array.getValidVertexCount());
+		float[] coords = array.getCoordRefFloat();
+		for(int i = 0; i < lines.length; i++) {
+			assertSame(lines[i], renderer.getLine(type, i));
+			assertTrue(renderer.contains(lines[i]));
+			Point3d[] points = lines[i].getPoints();
+			assertEquals(points[0].x, coords[6 * i], 1e-3);
+			assertEquals(points[0].z, coords[6 * i + 2], 1e-3);
+			assertEquals(points[1].x, coords[6 * i + 3], 1e-3);
+			assertEquals(points[1].z, coords[6 * i + 5], 1e-3);
+		}
+	}
+
+	@Test
+	public void testAddAndRemove() throws NoLineException {
+		List<Line3D> lines = createLines(4);
+		Line3D a = lines.get(0), b = lines.get(1), c = lines.get(2), d = lines.get(3);
+		renderer.add(lines, AppearanceType.NORMAL);
+		assertBatch(AppearanceType.NORMAL, a, b, c, d);
+		assertEquals(4, renderer.size());
+
+		// the last line takes the place of the removed one
+		renderer.remove(b);
+		assertFalse(renderer.contains(b));
+		assertBatch(AppearanceType.NORMAL, a, d, c);
+
+		// the last line is removed without moving another
+		renderer.remove(c);
+		assertBatch(AppearanceType.NORMAL, a, d);
+
+		renderer.remove(a);
+		renderer.add(b, AppearanceType.NORMAL);
+		assertBatch(AppearanceType.NORMAL, d, b);
+
+		renderer.removeAll();
+		assertBatch(AppearanceType.NORMAL);
+		assertFalse(renderer.contains(d));
+		assertEquals(0, renderer.size());
+	}
+
+	@Test
+	public void testGrowthReplacesGeometry() throws NoLineException {
+		List<Line3D> lines = createLines(150);
+		Geometry initial = getShape(AppearanceType.NORMAL).getGeometry();
+		Geometry other = getShape(AppearanceType.HIGHLIGHTED1).getGeometry();
+
+		renderer.add(lines.subList(0, 10), AppearanceType.NORMAL);
+		assertSame(initial, getShape(AppearanceType.NORMAL).getGeometry());
+
+		// one line at a time past the initial capacity, then a batch past the doubled capacity
+		for(int i = 10; i < 70; i++) {
+			renderer.add(lines.get(i), AppearanceType.NORMAL);
+		}
+		Geometry grown = getShape(AppearanceType.NORMAL).getGeometry();
+		assertNotSame(initial, grown);
+		renderer.add(lines.subList(70, 150), AppearanceType.NORMAL);
+		assertNotSame(grown, getShape(AppearanceType.NORMAL).getGeometry());
+
+		assertBatch(AppearanceType.NORMAL, lines.toArray(new Line3D[lines.size()]));
+		assertTrue(((GeometryArray) getShape(AppearanceType.NORMAL).getGeometry()).getVertexCount() >= 300);
+		// the other batches keep their geometry
+		assertSame(other, getShape(AppearanceType.HIGHLIGHTED1).getGeometry());
+	}
+
+	@Test
+	public void testSetAppearanceMovesTheLine() throws NoLineException {
+		List<Line3D> lines = createLines(3);
+		Line3D a = lines.get(0), b = lines.get(1), c = lines.get(2);
+		renderer.add(lines, AppearanceType.NORMAL);
+
+		renderer.setAppearance(a, AppearanceType.HIGHLIGHTED1);
+		assertBatch(AppearanceType.NORMAL, c, b);
+		assertBatch(AppearanceType.HIGHLIGHTED1, a);
+
+		// the same appearance leaves the line where it is
+		renderer.setAppearance(a, AppearanceType.HIGHLIGHTED1);
+		assertBatch(AppearanceType.HIGHLIGHTED1, a);
+
+		renderer.setAppearance(b, AppearanceType.HIGHLIGHTED1);
+		renderer.setAppearance(a, AppearanceType.NORMAL);
+		assertBatch(AppearanceType.NORMAL, c, a);
+		assertBatch(AppearanceType.HIGHLIGHTED1, b);
+		assertEquals(3, renderer.size());
+
+		renderer.remove(b);
+		assertBatch(AppearanceType.HIGHLIGHTED1);
+		assertBatch(AppearanceType.NORMAL, c, a);
+	}
+
+	@Test
+	public void testPickedLine() throws NoLineException {
+		List<Line3D> lines = createLines(3);
+		renderer.add(lines.subList(0, 2), AppearanceType.NORMAL);
+		renderer.add(lines.get(2), AppearanceType.INTERSECTION);
+
+		Shape3D normal = getShape(AppearanceType.NORMAL);
+		assertSame(lines.get(0), renderer.getPickedLine(normal, 0));
+		assertSame(lines.get(0), renderer.getPickedLine(normal, 1));
+		assertSame(lines.get(1), renderer.getPickedLine(normal, 3));
+		assertNull(renderer.getPickedLine(normal, 4));
+		assertNull(renderer.getPickedLine(normal, -1));
+		assertSame(lines.get(2), renderer.getPickedLine(getShape(AppearanceType.INTERSECTION), 1));
+		assertNull(renderer.getPickedLine(new Shape3D(), 0));
+
+		// the picked vertex follows the line which took the place of a removed one
+		renderer.remove(lines.get(0));
+		assertSame(lines.get(1), renderer.getPickedLine(normal, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddTwice() throws NoLineException {
+		Line3D line = createLines(1).get(0);
+		renderer.add(line, AppearanceType.NORMAL);
+		renderer.add(line, AppearanceType.HIGHLIGHTED2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveNotDrawn() throws NoLineException {
+		renderer.remove(createLines(1).get(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfRange() throws NoLineException {
+		renderer.add(createLines(2), AppearanceType.NORMAL);
+		renderer.getLine(AppearanceType.NORMAL, 2);
+	}
+}
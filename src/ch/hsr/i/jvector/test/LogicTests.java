@@ -0,0 +1,29 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ IntersectionKernelTest.class, DistancesTest.class, IntersectionEngineTest.class, CanonicalIndexTest.class, SpatialIndexTest.class, KdTreeTest.class, IntersectionSweepTest.class, IntersectionMaintainerTest.class, QueryCacheTest.class, ConvexHullTest.class, PointFitTest.class, PlaneDetectorTest.class, GeometryTransformTest.class, HalfSpaceClassifierTest.class, GridLevelOfDetailTest.class })
+public class LogicTests {
+	
+}
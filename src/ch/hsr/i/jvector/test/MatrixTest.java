@@ -0,0 +1,105 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.util.Matrix;
+
+public class MatrixTest {
+	
+	private static final double DELTA = 1e-12;
+	
+	@Test
+	public void testRowOperations() throws NoMatrixException {
+		Matrix m = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+		
+		m.swapRows(0, 1);
+		assertEquals(4, m.getValue(0, 0), DELTA);
+		assertEquals(3, m.getValue(1, 2), DELTA);
+		
+		m.scaleRow(1, 2);
+		assertEquals(6, m.getValue(1, 2), DELTA);
+		
+		// row 0 += -2 * row 1
+		m.addScaledRow(0, 1, -2);
+		assertEquals(0, m.getValue(0, 0), DELTA);
+		assertEquals(-3, m.getValue(0, 1), DELTA);
+		assertEquals(-6, m.getValue(0, 2), DELTA);
+	}
+	
+	@Test
+	public void testViews() throws NoMatrixException {
+		Matrix m = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } });
+		
+		Matrix row = m.getRow(1);
+		row.setValue(0, 2, 60);
+		assertEquals(60, m.getValue(1, 2), DELTA);
+		
+		Matrix sub = m.getSubMatrix(1, 1, 2, 2);
+		assertEquals(2, sub.getNumRows());
+		assertEquals(60, sub.getValue(0, 1), DELTA);
+		assertEquals(8, sub.getValue(1, 0), DELTA);
+		
+		m.setValue(2, 2, 90);
+		assertEquals(90, sub.getValue(1, 1), DELTA);
+		
+		double[] column = sub.getColumnValues(0);
+		assertEquals(2, column.length);
+		assertEquals(5, column[0], DELTA);
+	}
+	
+	@Test
+	public void testRref() throws NoMatrixException {
+		// x + y + z = 6, 2y + 5z = -4, 2x + 5y - z = 27 > (5, 3, -2)
+		Matrix m = new Matrix(new double[][] { { 1, 1, 1, 6 }, { 0, 2, 5, -4 }, { 2, 5, -1, 27 } });
+		m.rref();
+		
+		for(int i = 0; i < 3; i++) {
+			for(int j = 0; j < 3; j++) {
+				assertEquals(i == j ? 1 : 0, m.getValue(i, j), DELTA);
+			}
+		}
+		assertEquals(5, m.getValue(0, 3), DELTA);
+		assertEquals(3, m.getValue(1, 3), DELTA);
+		assertEquals(-2, m.getValue(2, 3), DELTA);
+	}
+	
+	@Test
+	public void testRrefRankDeficient() throws NoMatrixException {
+		// the first column is zero, the pivots are in column 1 and 2
+		Matrix m = new Matrix(new double[][] { { 0, 2, 4 }, { 0, 1, 3 } });
+		m.rref();
+		
+		assertEquals(1, m.getValue(0, 1), DELTA);
+		assertEquals(0, m.getValue(0, 2), DELTA);
+		assertEquals(0, m.getValue(1, 1), DELTA);
+		assertEquals(1, m.getValue(1, 2), DELTA);
+	}
+	
+	@Test
+	public void testRrefLeavesInputUntouched() throws NoMatrixException {
+		double[][] values = { { 2, 4 }, { 1, 3 } };
+		new Matrix(values).rref();
+		assertEquals(2, values[0][0], DELTA);
+	}
+}
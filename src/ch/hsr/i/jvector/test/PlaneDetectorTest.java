@@ -0,0 +1,147 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.logic.PlaneDetector;
+
+public class PlaneDetectorTest {
+
+	private static final double THRESHOLD = 0.2;
+
+	private int n = 200000;
+	private double[] xs = new double[n], ys = new double[n], zs = new double[n];
+
+	/**
+	 * the index of the plane of each point or -1 for noise
+	 */
+	private int[] planes = new int[n];
+
+	@Before
+	public void setUp() {
+		// the planes z = 0, x = 20 and x + y - 2z = -20 with some noise in between
+		Random random = new Random(18);
+		for(int i = 0; i < n; i++) {
+			double u = random.nextDouble() * 100 - 50, v = random.nextDouble() * 100 - 50, e = random.nextGaussian() * 0.03;
+			planes[i] = i % 5 < 3 ? i % 5 : -1;
+			switch(i % 5) {
+			case 0:
+				xs[i] = u;
+				ys[i] = v;
+				zs[i] = e;
+				break;
+			case 1:
+				xs[i] = 20 + e;
+				ys[i] = u;
+				zs[i] = v;
+				break;
+			case 2:
+				xs[i] = u;
+				ys[i] = v;
+				zs[i] = (u + v) / 2 + 10 + e;
+				break;
+			default:
+				xs[i] = random.nextDouble() * 100 - 50;
+				ys[i] = random.nextDouble() * 100 - 50;
+				zs[i] = random.nextDouble() * 100 - 50;
+			}
+		}
+	}
+
+	@Test
+	public void testDetectsAllPlanes() {
+		PlaneDetector detector = new PlaneDetector(xs, ys, zs, n, THRESHOLD);
+		detector.setMinInliers(n / 20);
+		List<PlaneDetector.Detection> detections = detector.detect(5);
+		assertEquals(3, detections.size());
+
+		HashSet<Integer> found = new HashSet<Integer>();
+		for(PlaneDetector.Detection detection : detections) {
+			double[] plane = detection.getPlane();
+			assertEquals(1, plane[0] * plane[0] + plane[1] * plane[1] + plane[2] * plane[2], 1e-9);
+
+			// nearly all inliers belong to one of the planes, except noise close to it
+			int[] inliers = detection.getInliers();
+			int[] votes = new int[3];
+			for(int i : inliers) {
+				if(planes[i] >= 0) {
+					votes[planes[i]]++;
+				}
+				assertTrue(Math.abs(plane[0] * xs[i] + plane[1] * ys[i] + plane[2] * zs[i] + plane[3]) <= THRESHOLD);
+			}
+			int best = 0;
+			for(int p = 1; p < 3; p++) {
+				if(votes[p] > votes[best]) {
+					best = p;
+				}
+			}
+			assertTrue(found.add(best));
+			assertTrue(votes[best] > 0.99 * n / 5);
+			assertTrue(votes[best] > 0.95 * inliers.length);
+		}
+		assertEquals(n - detections.get(0).getNumInliers() - detections.get(1).getNumInliers() - detections.get(2).getNumInliers(),
+				detector.getNumRemaining());
+	}
+
+	@Test
+	public void testParallelEqualsSequential() {
+		PlaneDetector sequential = new PlaneDetector(xs, ys, zs, n, THRESHOLD);
+		sequential.setParallel(false);
+		sequential.setSeed(7);
+		List<PlaneDetector.Detection> expected = sequential.detect(2);
+
+		PlaneDetector parallel = new PlaneDetector(xs, ys, zs, n, THRESHOLD);
+		parallel.setSeed(7);
+		List<PlaneDetector.Detection> result = parallel.detect(2);
+
+		assertEquals(expected.size(), result.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i).getPlane(), result.get(i).getPlane(), 0);
+			assertArrayEquals(expected.get(i).getInliers(), result.get(i).getInliers());
+		}
+	}
+
+	@Test
+	public void testNoPlaneInNoise() {
+		Random random = new Random(19);
+		int m = 1000;
+		double[] x = new double[m], y = new double[m], z = new double[m];
+		for(int i = 0; i < m; i++) {
+			x[i] = random.nextDouble() * 100;
+			y[i] = random.nextDouble() * 100;
+			z[i] = random.nextDouble() * 100;
+		}
+		PlaneDetector detector = new PlaneDetector(x, y, z, m, 0.1);
+		detector.setMinInliers(m / 10);
+		detector.setMaxIterations(500);
+		assertEquals(0, detector.detect(3).size());
+		assertEquals(500, detector.getIterations());
+		assertEquals(m, detector.getNumRemaining());
+	}
+}
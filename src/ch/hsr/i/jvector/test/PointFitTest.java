@@ -0,0 +1,142 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.PointFit;
+
+public class PointFitTest {
+
+	private static final double DELTA = 1e-9;
+
+	private GeometryStore store = new GeometryStore();
+
+	@Test
+	public void testPlane() throws NoPlaneException {
+		// points on the plane 2x - y + 2z = 6 with a little noise, far away from the origin
+		Random random = new Random(17);
+		Vector3d normal = new Vector3d(2, -1, 2);
+		normal.normalize();
+		PointFit fit = new PointFit();
+		for(int i = 0; i < 10000; i++) {
+			double x = 1000 + random.nextDouble() * 100, y = random.nextDouble() * 100;
+			double z = (6 - 2 * x + y) / 2;
+			double noise = random.nextGaussian() * 0.01;
+			fit.add(x + noise * normal.x, y + noise * normal.y, z + noise * normal.z);
+		}
+
+		Vector3d fitted = fit.getPlaneNormal();
+		assertEquals(1, Math.abs(fitted.dot(normal)), 1e-6);
+		assertEquals(0.01, fit.getPlaneError(), 1e-3);
+
+		Plane3D plane = fit.fitPlane(store);
+		Point3d mean = fit.getMean();
+		assertEquals(0, plane.getPlaneParameter(0) * mean.x + plane.getPlaneParameter(1) * mean.y
+				+ plane.getPlaneParameter(2) * mean.z + plane.getPlaneParameter(3), DELTA);
+	}
+
+	@Test
+	public void testLine() throws NoLineException {
+		PointFit fit = new PointFit();
+		for(int i = -50; i <= 50; i++) {
+			fit.add(1 + i, 2 + 2 * i, 3 - i);
+		}
+		Vector3d direction = new Vector3d(1, 2, -1);
+		direction.normalize();
+		assertEquals(1, Math.abs(fit.getLineDirection().dot(direction)), DELTA);
+		assertEquals(0, fit.getLineError(), 1e-6);
+
+		Line3D line = fit.fitLine(store);
+		assertEquals(0, line.getDistance(new Point3D(1, 2, 3, store)), 1e-6);
+	}
+
+	@Test
+	public void testMergeEqualsSequential() {
+		Random random = new Random(18);
+		int n = 100000;
+		double[] xs = new double[n], ys = new double[n], zs = new double[n];
+		for(int i = 0; i < n; i++) {
+			xs[i] = random.nextGaussian() * 5 + 10;
+			ys[i] = random.nextGaussian() * 2 - 3;
+			zs[i] = xs[i] * 0.5 + random.nextGaussian();
+		}
+
+		PointFit sequential = new PointFit();
+		for(int i = 0; i < n; i++) {
+			sequential.add(xs[i], ys[i], zs[i]);
+		}
+		PointFit parallel = PointFit.compute(xs, ys, zs, n, true);
+
+		assertEquals(n, parallel.getCount());
+		assertEquals(sequential.getMean().x, parallel.getMean().x, DELTA);
+		assertEquals(sequential.getMean().z, parallel.getMean().z, DELTA);
+		assertArrayEquals(sequential.getCovariance(), parallel.getCovariance(), 1e-8);
+
+		// the covariance of two points
+		PointFit a = new PointFit(), b = new PointFit();
+		a.add(0, 0, 0);
+		b.add(2, 4, 0);
+		a.merge(b);
+		assertArrayEquals(new double[] { 1, 2, 0, 4, 0, 0 }, a.getCovariance(), DELTA);
+	}
+
+	@Test
+	public void testAxisAligned() throws NoPlaneException {
+		// a diagonal covariance matrix is handled without the closed form
+		PointFit fit = new PointFit();
+		fit.add(-1, 0, 5);
+		fit.add(1, 0, 5);
+		fit.add(0, -2, 5);
+		fit.add(0, 2, 5);
+		Vector3d normal = fit.getPlaneNormal();
+		assertEquals(1, Math.abs(normal.z), DELTA);
+	}
+
+	@Test(expected = NoPlaneException.class)
+	public void testCollinearPoints() throws NoPlaneException {
+		PointFit fit = new PointFit();
+		for(int i = 0; i < 10; i++) {
+			fit.add(i, 2 * i, 3 * i);
+		}
+		fit.getPlaneNormal();
+	}
+
+	@Test(expected = NoLineException.class)
+	public void testSamePoint() throws NoLineException {
+		PointFit fit = new PointFit();
+		fit.add(1, 2, 3);
+		fit.add(1, 2, 3);
+		fit.getLineDirection();
+	}
+}
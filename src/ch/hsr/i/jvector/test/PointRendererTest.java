@@ -0,0 +1,227 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.j3d.Geometry;
+import javax.media.j3d.GeometryArray;
+import javax.media.j3d.Shape3D;
+import javax.vecmath.Color4f;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.components.ComponentAppearance;
+import ch.hsr.i.jvector.components.ComponentAppearance.AppearanceType;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.components.PointRenderer;
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.GeometryTransform;
+
+public class PointRendererTest {
+
+	private GeometryStore store = new GeometryStore();
+	private PointRenderer renderer;
+
+	/**
+	 * Java3D refuses to create scene graph objects without a display
+	 */
+	@Before
+	public void setUp() {
+		assumeFalse(GraphicsEnvironment.isHeadless());
+		renderer = new PointRenderer();
+	}
+
+	/**
+	 * points on the x axis, one per unit
+	 */
+	private List<Point3D> createPoints(int n) {
+		List<Point3D> points = new ArrayList<Point3D>();
+		for(int i = 0; i < n; i++) {
+			points.add(new Point3D(i, 2, 3, store));
+		}
+		return points;
+	}
+
+	private Shape3D getShape() {
+		return (Shape3D) renderer.getBranchGroup().getChild(0);
+	}
+
+	/**
+	 * checks that the renderer draws exactly the given points in this order with the given colours
+	 */
+	private void assertDrawn(Point3D[] points, AppearanceType[] types) {
+		assertEquals(points.length, renderer.size());
+		GeometryArray array = (GeometryArray) getShape().getGeometry();
+		assertEquals(points.length, array.getValidVertexCount());
+		float[] coords = array.getCoordRefFloat();
+		float[] colors = array.getColorRefFloat();
+		for(int i = 0; i < points.length; i++) {
+			assertSame(points[i], renderer.getPoint(i));
+			assertTrue(renderer.contains(points[i]));
+			assertEquals(points[i].getX(), coords[3 * i], 1e-6);
+			assertEquals(points[i].getY(), coords[3 * i + 1], 1e-6);
+			assertEquals(points[i].getZ(), coords[3 * i + 2], 1e-6);
+
+			Color4f color = ComponentAppearance.getColor(ComponentType.POINT, types[i]);
+			assertEquals(color, new Color4f(colors[4 * i], colors[4 * i + 1], colors[4 * i + 2], colors[4 * i + 3]));
+		}
+	}
+
+	private static Point3D[] points(Point3D... points) {
+		return points;
+	}
+
+	private static AppearanceType[] types(AppearanceType... types) {
+		return types;
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		List<Point3D> points = createPoints(4);
+		Point3D a = points.get(0), b = points.get(1), c = points.get(2), d = points.get(3);
+		renderer.add(points.subList(0, 3), AppearanceType.NORMAL);
+		renderer.add(d, AppearanceType.INTERSECTION);
+		assertDrawn(points(a, b, c, d), types(AppearanceType.NORMAL, AppearanceType.NORMAL, AppearanceType.NORMAL, AppearanceType.INTERSECTION));
+
+		// the last point takes the place of the removed one together with its colour
+		renderer.remove(a);
+		assertFalse(renderer.contains(a));
+		assertDrawn(points(d, b, c), types(AppearanceType.INTERSECTION, AppearanceType.NORMAL, AppearanceType.NORMAL));
+
+		// the last point is removed without moving another
+		renderer.remove(c);
+		assertDrawn(points(d, b), types(AppearanceType.INTERSECTION, AppearanceType.NORMAL));
+
+		renderer.add(a, AppearanceType.NORMAL);
+		assertDrawn(points(d, b, a), types(AppearanceType.INTERSECTION, AppearanceType.NORMAL, AppearanceType.NORMAL));
+
+		renderer.removeAll();
+		assertDrawn(points(), types());
+		assertFalse(renderer.contains(d));
+	}
+
+	@Test
+	public void testHighlight() {
+		List<Point3D> points = createPoints(3);
+		Point3D a = points.get(0), b = points.get(1), c = points.get(2);
+		renderer.add(points, AppearanceType.NORMAL);
+
+		// highlighting changes the colour only, the point keeps its index
+		renderer.setAppearance(b, AppearanceType.HIGHLIGHTED1);
+		assertDrawn(points(a, b, c), types(AppearanceType.NORMAL, AppearanceType.HIGHLIGHTED1, AppearanceType.NORMAL));
+
+		renderer.setAppearance(c, AppearanceType.HIGHLIGHTED2);
+		renderer.setAppearance(b, AppearanceType.NORMAL);
+		assertDrawn(points(a, b, c), types(AppearanceType.NORMAL, AppearanceType.NORMAL, AppearanceType.HIGHLIGHTED2));
+
+		renderer.remove(a);
+		renderer.setAppearance(c, AppearanceType.HIGHLIGHTED1);
+		assertDrawn(points(c, b), types(AppearanceType.HIGHLIGHTED1, AppearanceType.NORMAL));
+	}
+
+	@Test
+	public void testGrowthReplacesGeometry() {
+		List<Point3D> points = createPoints(600);
+		Geometry initial = getShape().getGeometry();
+
+		renderer.add(points.subList(0, 200), AppearanceType.NORMAL);
+		assertSame(initial, getShape().getGeometry());
+
+		// one point at a time past the initial capacity, then a batch past the doubled capacity
+		for(int i = 200; i < 300; i++) {
+			renderer.add(points.get(i), AppearanceType.INTERSECTION);
+		}
+		Geometry grown = getShape().getGeometry();
+		assertNotSame(initial, grown);
+		renderer.add(points.subList(300, 600), AppearanceType.NORMAL);
+		assertNotSame(grown, getShape().getGeometry());
+
+		AppearanceType[] types = new AppearanceType[600];
+		for(int i = 0; i < types.length; i++) {
+			types[i] = i >= 200 && i < 300 ? AppearanceType.INTERSECTION : AppearanceType.NORMAL;
+		}
+		assertDrawn(points.toArray(new Point3D[points.size()]), types);
+		assertTrue(((GeometryArray) getShape().getGeometry()).getVertexCount() >= 600);
+	}
+
+	@Test
+	public void testPickedPoint() {
+		List<Point3D> points = createPoints(3);
+		renderer.add(points, AppearanceType.NORMAL);
+
+		assertSame(points.get(0), renderer.getPickedPoint(getShape(), 0));
+		assertSame(points.get(2), renderer.getPickedPoint(getShape(), 2));
+		assertNull(renderer.getPickedPoint(getShape(), 3));
+		assertNull(renderer.getPickedPoint(getShape(), -1));
+		assertNull(renderer.getPickedPoint(new Shape3D(), 0));
+
+		// the picked vertex follows the point which took the place of a removed one
+		renderer.remove(points.get(0));
+		assertSame(points.get(2), renderer.getPickedPoint(getShape(), 0));
+		assertNull(renderer.getPickedPoint(getShape(), 2));
+	}
+
+	@Test
+	public void testUpdate() throws NoMatrixException {
+		List<Point3D> points = createPoints(2);
+		renderer.add(points, AppearanceType.NORMAL);
+
+		Matrix4d matrix = new Matrix4d();
+		matrix.setIdentity();
+		matrix.setTranslation(new Vector3d(-8, 0, 0));
+		new GeometryTransform(matrix).apply(points.subList(1, 2));
+		renderer.update(points.get(1));
+		assertEquals(-7, ((GeometryArray) getShape().getGeometry()).getCoordRefFloat()[3], 1e-6);
+		assertDrawn(points(points.get(0), points.get(1)), types(AppearanceType.NORMAL, AppearanceType.NORMAL));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddTwice() {
+		Point3D point = createPoints(1).get(0);
+		renderer.add(point, AppearanceType.NORMAL);
+		renderer.add(point, AppearanceType.NORMAL);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetAppearanceNotDrawn() {
+		renderer.setAppearance(createPoints(1).get(0), AppearanceType.HIGHLIGHTED1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfRange() {
+		renderer.add(createPoints(2), AppearanceType.NORMAL);
+		renderer.getPoint(2);
+	}
+}
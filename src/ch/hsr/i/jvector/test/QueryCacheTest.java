@@ -0,0 +1,147 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoIntersectionException;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.exceptions.NoIntersectionException.StateNoIntersection;
+import ch.hsr.i.jvector.logic.ComponentsList;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.QueryCache;
+
+public class QueryCacheTest {
+
+	private static final double DELTA = 1e-12;
+
+	private GeometryStore store = new GeometryStore();
+	private Point3D p1, p2;
+	private Line3D l1, l2, l3;
+	private Plane3D e1, e2;
+
+	@Before
+	public void setUp() throws NoLineException, NoPlaneException {
+		p1 = new Point3D(1, 2, 3, store);
+		p2 = new Point3D(4, 6, 3, store);
+		l1 = new Line3D(0, 0, 0, 1, 0, 0, store);
+		l2 = new Line3D(0, 0, 0, 0, 1, 0, store);
+		l3 = new Line3D(0, 5, 0, 1, 0, 0, store);
+		e1 = new Plane3D(0, 0, 1, -2, store);
+		e2 = new Plane3D(1, 0, 0, -3, store);
+	}
+
+	@Test
+	public void testResultsAndStatistics() throws NoIntersectionException {
+		QueryCache cache = new QueryCache(100);
+
+		assertEquals(5, cache.getDistance(p1, p2), DELTA);
+		assertEquals(5, cache.getDistance(p2, p1), DELTA);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		assertEquals(l1.getAngle(l2), cache.getAngle(l1, l2), DELTA);
+		assertEquals(p1.getDistance(e1), cache.getDistance(p1, e1), DELTA);
+		assertEquals(p1.getDistance(l1), cache.getDistance(p1, l1), DELTA);
+
+		Point3d point = cache.getIntersection(l1, e2);
+		assertEquals(new Point3d(3, 0, 0), point);
+		// the returned point is a copy
+		point.x = 100;
+		assertEquals(new Point3d(3, 0, 0), cache.getIntersection(l1, e2));
+
+		Vector3d[] line = cache.getIntersection(e1, e2);
+		assertEquals(0, line[1].x, DELTA);
+		assertEquals(2, line[0].z, DELTA);
+		cache.getIntersection(e2, e1);
+
+		assertEquals(3, cache.getHits());
+		assertEquals(6, cache.getMisses());
+		assertEquals(3.0 / 9, cache.getHitRate(), DELTA);
+
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitRate(), 0);
+	}
+
+	@Test
+	public void testNoIntersectionIsCached() {
+		QueryCache cache = new QueryCache(10);
+		for(int i = 0; i < 3; i++) {
+			try {
+				cache.getIntersection(l1, l3);
+				fail();
+			} catch(NoIntersectionException e) {
+				assertEquals(StateNoIntersection.PARALLEL, e.getState());
+			}
+		}
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		QueryCache cache = new QueryCache(2);
+		cache.getDistance(p1, p2);
+		cache.getDistance(p1, l1);
+		// use p1-p2 again, so p1-l1 is the least recently used
+		cache.getDistance(p1, p2);
+		cache.getDistance(p1, e1);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+
+		cache.resetStatistics();
+		cache.getDistance(p1, p2);
+		cache.getDistance(p1, l1);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testRemovedComponentIsInvalidated() {
+		ComponentsList list = new ComponentsList();
+		QueryCache cache = new QueryCache(100);
+		list.addObserver(cache);
+
+		list.add(p1);
+		list.add(p2);
+		list.add(l1);
+		cache.getDistance(p1, p2);
+		cache.getDistance(p2, l1);
+		cache.getDistance(p1, l1);
+		assertEquals(3, cache.size());
+
+		list.remove(list.indexOf(p2));
+		assertEquals(1, cache.size());
+
+		list.clear();
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.hsr.i.jvector.components.Component3D.ComponentType;
+import ch.hsr.i.jvector.components.Line3D;
+import ch.hsr.i.jvector.components.Plane3D;
+import ch.hsr.i.jvector.components.Point3D;
+import ch.hsr.i.jvector.exceptions.NoLineException;
+import ch.hsr.i.jvector.exceptions.NoPlaneException;
+import ch.hsr.i.jvector.interfaces.Component;
+import ch.hsr.i.jvector.interfaces.Line;
+import ch.hsr.i.jvector.interfaces.Plane;
+import ch.hsr.i.jvector.interfaces.Point;
+import ch.hsr.i.jvector.logic.Distances;
+import ch.hsr.i.jvector.logic.GeometryStore;
+import ch.hsr.i.jvector.logic.SpatialIndex;
+
+public class SpatialIndexTest {
+	
+	private GeometryStore store = new GeometryStore();
+	private SpatialIndex index = new SpatialIndex(800);
+	private List<Component> components = new ArrayList<Component>();
+	private Random random = new Random(11);
+	
+	@Before
+	public void setUp() throws NoLineException, NoPlaneException {
+		for(int i = 0; i < 3000; i++) {
+			components.add(new Point3D(coordinate(), coordinate(), coordinate(), store));
+		}
+		for(int i = 0; i < 300; i++) {
+			components.add(new Line3D(coordinate(), coordinate(), coordinate(), direction(), direction(), direction(), store));
+		}
+		for(int i = 0; i < 100; i++) {
+			components.add(new Plane3D(direction(), direction(), direction(), coordinate(), store));
+		}
+		for(int i = 0; i < components.size(); i++) {
+			index.add(components.get(i));
+		}
+	}
+	
+	@Test
+	public void testFindWithin() {
+		for(int q = 0; q < 20; q++) {
+			double x = coordinate(), y = coordinate(), z = coordinate();
+			
+			HashSet<Component> expected = new HashSet<Component>();
+			for(int i = 0; i < components.size(); i++) {
+				if(distance(components.get(i), x, y, z) <= 10) {
+					expected.add(components.get(i));
+				}
+			}
+			
+			List<Component> result = index.findWithin(x, y, z, 10);
+			assertEquals(expected.size(), result.size());
+			assertTrue(expected.containsAll(result));
+		}
+	}
+	
+	@Test
+	public void testFindNearest() {
+		for(int q = 0; q < 20; q++) {
+			final double x = coordinate(), y = coordinate(), z = coordinate();
+			
+			List<Component> sorted = new ArrayList<Component>(components);
+			Collections.sort(sorted, new Comparator<Component>() {
+				public int compare(Component c1, Component c2) {
+					return Double.compare(distance(c1, x, y, z), distance(c2, x, y, z));
+				}
+			});
+			
+			List<Component> result = index.findNearest(x, y, z, 5);
+			assertEquals(5, result.size());
+			for(int i = 0; i < 5; i++) {
+				assertEquals(distance(sorted.get(i), x, y, z), distance(result.get(i), x, y, z), 1e-9);
+			}
+			assertEquals(distance(sorted.get(0), x, y, z), distance(index.findNearest(x, y, z), x, y, z), 1e-9);
+		}
+	}
+	
+	@Test
+	public void testFindInBox() throws NoLineException, NoPlaneException {
+		SpatialIndex small = new SpatialIndex(800);
+		Point3D inside = new Point3D(1, 1, 1, store);
+		Point3D outside = new Point3D(5, 1, 1, store);
+		Line3D crossing = new Line3D(0, 0, -10, 0, 0, 1, store);
+		Line3D passing = new Line3D(3, 3, 0, 0, 0, 1, store);
+		Plane3D cutting = new Plane3D(1, 1, 1, -3, store);
+		Plane3D missing = new Plane3D(0, 0, 1, -10, store);
+		
+		small.add(inside);
+		small.add(outside);
+		small.add(crossing);
+		small.add(passing);
+		small.add(cutting);
+		small.add(missing);
+		
+		List<Component> result = small.findInBox(-2, -2, -2, 2, 2, 2);
+		assertEquals(3, result.size());
+		assertTrue(result.contains(inside));
+		assertTrue(result.contains(crossing));
+		assertTrue(result.contains(cutting));
+	}
+	
+	@Test
+	public void testRemoveAndGrow() {
+		for(int i = 0; i < components.size(); i++) {
+			if(i % 2 == 0) {
+				index.remove(components.get(i));
+			}
+		}
+		assertEquals(components.size() / 2, index.size());
+		
+		for(int i = 0; i < 10; i++) {
+			double x = coordinate(), y = coordinate(), z = coordinate();
+			Component nearest = index.findNearest(x, y, z);
+			double best = Double.MAX_VALUE;
+			for(int j = 1; j < components.size(); j += 2) {
+				best = Math.min(best, distance(components.get(j), x, y, z));
+			}
+			assertEquals(best, distance(nearest, x, y, z), 1e-9);
+		}
+		
+		// far outside of the initial root cube
+		Point3D far = new Point3D(5000, -3000, 12000, store);
+		index.add(far);
+		assertSame(far, index.findNearest(5001, -3000, 12000));
+		
+		index.clear();
+		assertNull(index.findNearest(0, 0, 0));
+	}
+	
+	/**
+	 * distance to the component, the query points are close enough to the origin that the closest
+	 * points of lines and planes are inside the bounding sphere
+	 */
+	private static double distance(Component comp, double x, double y, double z) {
+		if(comp.getType() == ComponentType.POINT) {
+			Point p = (Point) comp;
+			double dx = p.getX() - x, dy = p.getY() - y, dz = p.getZ() - z;
+			return Math.sqrt(dx * dx + dy * dy + dz * dz);
+		} else if(comp.getType() == ComponentType.LINE) {
+			Line l = (Line) comp;
+			return Distances.pointLine(l.getLineParameter(0), l.getLineParameter(1), l.getLineParameter(2),
+					l.getLineParameter(3), l.getLineParameter(4), l.getLineParameter(5), x, y, z);
+		}
+		Plane p = (Plane) comp;
+		return Distances.pointPlane(p.getPlaneParameter(0), p.getPlaneParameter(1), p.getPlaneParameter(2), p.getPlaneParameter(3), x, y, z);
+	}
+	
+	private double coordinate() {
+		return random.nextDouble() * 200 - 100;
+	}
+	
+	private double direction() {
+		return random.nextDouble() * 2 - 1;
+	}
+}
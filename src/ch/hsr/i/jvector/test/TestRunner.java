@@ -23,7 +23,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses(ComponentsTests.class)
+@SuiteClasses({ComponentsTests.class, LogicTests.class, UtilTests.class})
 public class TestRunner {
 
 }
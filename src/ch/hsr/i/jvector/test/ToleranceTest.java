@@ -0,0 +1,57 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package ch.hsr.i.jvector.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+import ch.hsr.i.jvector.util.Tolerance;
+
+public class ToleranceTest {
+	
+	private Tolerance tolerance = new Tolerance(1e-12, 1e-9, 3, RoundingMode.HALF_UP);
+	
+	@Test
+	public void testIsZero() {
+		assertTrue(tolerance.isZero(1e-13));
+		assertFalse(tolerance.isZero(1e-6));
+		
+		// relative to the magnitude of the operands
+		assertTrue(tolerance.isZero(1e-6, 1e4));
+		assertFalse(tolerance.isZero(1e-6, 1.0));
+	}
+	
+	@Test
+	public void testIsEqual() {
+		assertTrue(tolerance.isEqual(1000.0, 1000.0 + 1e-8));
+		assertFalse(tolerance.isEqual(1.0, 1.0 + 1e-8));
+	}
+	
+	@Test
+	public void testFormat() {
+		assertEquals("12.346", tolerance.format(12.3456));
+		assertEquals("0.5", tolerance.format(0.5));
+		assertEquals("NaN", tolerance.format(Double.NaN));
+	}
+}
@@ -23,11 +23,13 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
 import org.jdesktop.swingx.JXTaskPane;
 import org.jdesktop.swingx.JXTaskPaneContainer;
@@ -37,6 +39,7 @@ import ch.hsr.i.jvector.logic.DrawComponents;
 import ch.hsr.i.jvector.ui.control.TextFieldContainer.Line;
 import ch.hsr.i.jvector.ui.control.TextFieldContainer.Plane;
 import ch.hsr.i.jvector.ui.main.JVector;
+import ch.hsr.i.jvector.ui.util.MessageBox;
 import ch.hsr.i.jvector.util.BrowserControl;
 
 public class ControlComponents {
@@ -379,9 +382,29 @@ public class ControlComponents {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				if (!gridTFC.isTextFieldEmpty()) {
-					drawcomp.removeGrid();
-					int offset = gridTFC.getGridOffset();
-					drawcomp.addGrid(offset);
+					final int offset = gridTFC.getGridOffset();
+					// the grid is written in the background and replaces the drawn grid when it is ready
+					new SwingWorker<Void, Void>() {
+						@Override
+						protected Void doInBackground() {
+							drawcomp.prepareGrid(offset);
+							return null;
+						}
+						
+						@Override
+						protected void done() {
+							try {
+								get();
+								drawcomp.addPreparedGrid();
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							} catch (ExecutionException e) {
+								// an invalid offset or running out of memory, the drawn grid is kept
+								Throwable cause = e.getCause();
+								MessageBox.InfoBox("Grid Setting", cause.getMessage() != null ? cause.getMessage() : cause.toString());
+							}
+						}
+					}.execute();
 				}
 			}
 		});
@@ -33,23 +33,38 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ImageIcon;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.border.LineBorder;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
 
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
 import ch.hsr.i.jvector.logic.ComponentsList;
+import ch.hsr.i.jvector.logic.ConvexHull;
 import ch.hsr.i.jvector.logic.DrawComponents;
+import ch.hsr.i.jvector.logic.GeometryTransform;
+import ch.hsr.i.jvector.logic.IntersectionSweep;
+import ch.hsr.i.jvector.logic.PlaneDetector;
 import ch.hsr.i.jvector.model.ComponentsManagerModel;
 import ch.hsr.i.jvector.ui.control.ControlComponents;
 import ch.hsr.i.jvector.ui.dialogs.AboutDialog;
 import ch.hsr.i.jvector.ui.universe.Universe;
+import ch.hsr.i.jvector.ui.universe.behavior.OrbitBehavior;
+import ch.hsr.i.jvector.ui.util.MessageBox;
 
 public class JVector extends JFrame {
 	
@@ -63,6 +78,12 @@ public class JVector extends JFrame {
 	public static final String UIIMAGELOCATION = "/ch/hsr/i/jvector/ui/images/";
 	public static final String PERSPECTIVE = "Perspective", TOP = "Top", LEFT = "Left", RIGHT = "Right";
 	
+	/**
+	 * the maximal distance of an inlier from its plane and the maximal number of planes of a detection
+	 */
+	public static final double DETECTION_THRESHOLD = 0.5;
+	public static final int DETECTION_PLANES = 8;
+	
 	DrawComponents drawcomp;
 	ComponentsManager compmanager;
 	ControlComponents controlcomp;
@@ -86,6 +107,16 @@ public class JVector extends JFrame {
 		ComponentsManagerModel destinationModel = new ComponentsManagerModel(destinationList);
 		
 		drawcomp = new DrawComponents(universe.getObjectRoot(), sourceList);
+		
+		// the grid follows the view which was changed last
+		universe.addViewListener(new OrbitBehavior.ViewListener() {
+			@Override
+			public void viewChanged(OrbitBehavior behavior) {
+				Point3d center = new Point3d();
+				behavior.getViewCenter(center);
+				drawcomp.updateGridView(behavior.getDistanceFromCenter(), center);
+			}
+		});
 		compmanager = new ComponentsManager(sourceModel, destinationModel, sourceList, destinationList, drawcomp);
 		controlcomp = new ControlComponents(drawcomp);
 		
@@ -244,10 +275,21 @@ public class JVector extends JFrame {
 	 * @param compMenu JMenu
 	 */
 	private void addComponentItems(JMenu compMenu) {
-		final String examples = "Draw Examples", manager = "Components Manager";
-		final String[] labels = { examples, manager };
+		final String examples = "Draw Examples", manager = "Components Manager", intersections = "Compute All Intersections";
+		final String hull = "Convex Hull of All Points", hullPlanes = "Convex Hull with Supporting Planes";
+		final String fitPlane = "Fit Plane to All Points", fitLine = "Fit Line to All Points", detect = "Detect Planes in All Points";
+		final String transform = "Transform All Components...", inside = "Count Points Inside All Planes";
+		final String[] labels = { examples, manager, intersections, hull, hullPlanes, fitPlane, fitLine, detect, transform, inside };
 		final KeyStroke[] keyStrokes = { KeyStroke.getKeyStroke(KeyEvent.VK_E, KeyEvent.CTRL_DOWN_MASK),
-										KeyStroke.getKeyStroke(KeyEvent.VK_M, KeyEvent.CTRL_DOWN_MASK) };
+										KeyStroke.getKeyStroke(KeyEvent.VK_M, KeyEvent.CTRL_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_I, KeyEvent.CTRL_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_H, KeyEvent.CTRL_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_H, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_P, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_L, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_D, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_T, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK),
+										KeyStroke.getKeyStroke(KeyEvent.VK_C, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK) };
 		
 		for (int i = 0; i < labels.length; i++) {
 			if (i == 1) {
@@ -263,11 +305,179 @@ public class JVector extends JFrame {
 						drawcomp.drawExamples();
 					} else if (e.getActionCommand() == manager) {
 						compmanager.setVisible(true);
+					} else if (e.getActionCommand() == intersections) {
+						computeAllIntersections();
+					} else if (e.getActionCommand() == hull) {
+						computeConvexHull(false);
+					} else if (e.getActionCommand() == hullPlanes) {
+						computeConvexHull(true);
+					} else if (e.getActionCommand() == fitPlane) {
+						drawcomp.fitPlane();
+					} else if (e.getActionCommand() == fitLine) {
+						drawcomp.fitLine();
+					} else if (e.getActionCommand() == detect) {
+						detectPlanes();
+					} else if (e.getActionCommand() == transform) {
+						transformAll();
+					} else if (e.getActionCommand() == inside) {
+						MessageBox.InfoBox("Half-Spaces", drawcomp.findPointsInside().size() + " points are inside all planes.");
 					}
 				}
 			});
 			compMenu.add(item);
 		}
+		
+		final JCheckBoxMenuItem maintainItem = new JCheckBoxMenuItem("Maintain Intersections");
+		maintainItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				drawcomp.setMaintainIntersections(maintainItem.isSelected());
+			}
+		});
+		compMenu.add(maintainItem);
+	}
+	
+	/**
+	 * compute all intersections of the scene in the background and add them in one batch,
+	 * the progress monitor shows the progress and cancels the sweep
+	 */
+	private void computeAllIntersections() {
+		final IntersectionSweep sweep = drawcomp.createIntersectionSweep();
+		final ProgressMonitor monitor = new ProgressMonitor(this, "Computing all intersections", sweep.getNumPairs() + " pairs", 0, 1000);
+		monitor.setMillisToDecideToPopup(200);
+		
+		sweep.setProgressListener(new IntersectionSweep.ProgressListener() {
+			@Override
+			public void progress(final long done, final long total) {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						monitor.setProgress((int) (1000 * done / total));
+						if (monitor.isCanceled()) {
+							sweep.cancel();
+						}
+					}
+				});
+			}
+		});
+		
+		new SwingWorker<IntersectionSweep.Result, Void>() {
+			@Override
+			protected IntersectionSweep.Result doInBackground() {
+				return sweep.run();
+			}
+			
+			@Override
+			protected void done() {
+				monitor.close();
+				try {
+					IntersectionSweep.Result result = get();
+					if (result != null) {
+						int added = drawcomp.addIntersections(result);
+						MessageBox.InfoBox("Intersections", added + " intersections were added.");
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					MessageBox.InfoBox("Intersections", "The intersections could not be computed.");
+				}
+			}
+		}.execute();
+	}
+	
+	/**
+	 * compute the convex hull of the points of the scene in the background and draw it
+	 * 
+	 * @param true to add the supporting planes of the facets as well
+	 */
+	private void computeConvexHull(final boolean planes) {
+		final double[][] points = drawcomp.getPointCoordinates();
+		
+		new SwingWorker<ConvexHull, Void>() {
+			@Override
+			protected ConvexHull doInBackground() {
+				return new ConvexHull(points[0], points[1], points[2], points[0].length);
+			}
+			
+			@Override
+			protected void done() {
+				try {
+					ConvexHull hull = get();
+					drawcomp.addConvexHull(hull);
+					String message = "The hull has " + hull.getNumFacets() + " facets.";
+					if (planes) {
+						message += " " + drawcomp.addSupportingPlanes(hull) + " planes were added.";
+					}
+					MessageBox.InfoBox("Convex Hull", message);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					MessageBox.InfoBox("Convex Hull", "The points do not span a volume.");
+				}
+			}
+		}.execute();
+	}
+	
+	/**
+	 * detect the planes in the points of the scene in the background and add them with their inliers
+	 */
+	private void detectPlanes() {
+		final double[][] points = drawcomp.getPointCoordinates();
+		
+		new SwingWorker<List<PlaneDetector.Detection>, Void>() {
+			@Override
+			protected List<PlaneDetector.Detection> doInBackground() {
+				PlaneDetector detector = new PlaneDetector(points[0], points[1], points[2], points[0].length, DETECTION_THRESHOLD);
+				detector.setMinInliers(Math.max(3, points[0].length / 20));
+				return detector.detect(DETECTION_PLANES);
+			}
+			
+			@Override
+			protected void done() {
+				try {
+					List<PlaneDetector.Detection> detections = get();
+					int added = drawcomp.addDetectedPlanes(detections, points);
+					MessageBox.InfoBox("Plane Detection", detections.size() + " planes were detected, " + added + " were added.");
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					MessageBox.InfoBox("Plane Detection", "The planes could not be detected.");
+				}
+			}
+		}.execute();
+	}
+	
+	/**
+	 * ask for the rows of an affine matrix and apply it to all components of the scene
+	 */
+	private void transformAll() {
+		String input = JOptionPane.showInputDialog(this, "The three rows of the matrix, each as a b c t:", "1 0 0 0   0 1 0 0   0 0 1 0");
+		if (input == null) {
+			return;
+		}
+		
+		String[] values = input.trim().split("[\\s,;]+");
+		if (values.length != 12) {
+			MessageBox.InfoBox("Transform", "Please enter 12 numbers.");
+			return;
+		}
+		
+		Matrix4d matrix = new Matrix4d();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				matrix.setElement(i / 4, i % 4, Double.parseDouble(values[i]));
+			}
+		} catch (NumberFormatException e) {
+			MessageBox.InfoBox("Transform", "Please enter 12 numbers.");
+			return;
+		}
+		matrix.setElement(3, 3, 1);
+		
+		try {
+			drawcomp.transform(new GeometryTransform(matrix));
+		} catch (NoMatrixException e) {
+			MessageBox.InfoBox("Transform", e.getMessage());
+		}
 	}
 	
 	public static void main(String[] args) {
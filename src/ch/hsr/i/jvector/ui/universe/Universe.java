@@ -93,6 +93,18 @@ public class Universe {
 		}
 	}
 	
+	/**
+	 * Adds a listener to the behaviors of all views and informs it about their current view.
+	 * 
+	 * @param the listener
+	 */
+	public void addViewListener(OrbitBehavior.ViewListener listener) {
+		for (OrbitBehavior behavior : behaviors.values()) {
+			behavior.addViewListener(listener);
+			listener.viewChanged(behavior);
+		}
+	}
+	
 	/**
 	 * set view
 	 * 
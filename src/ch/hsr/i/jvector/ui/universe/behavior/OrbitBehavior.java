@@ -152,6 +152,8 @@ package ch.hsr.i.jvector.ui.universe.behavior;
 import java.awt.AWTEvent;
 import java.awt.Component;
 import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.media.j3d.BadTransformException;
 import javax.media.j3d.BoundingSphere;
@@ -267,6 +269,8 @@ public class OrbitBehavior extends ViewPlatformAWTBehavior {
     private boolean stopZoom = false;
     private boolean proportionalZoom = false;
     private double minRadius = 0.0;
+    private List<ViewListener> viewListeners = new CopyOnWriteArrayList<ViewListener>();
+    
     private int leftButton = ROTATE;
     private int rightButton = TRANSLATE;
     private int middleButton = ZOOM;
@@ -1136,6 +1140,9 @@ public class OrbitBehavior extends ViewPlatformAWTBehavior {
     	// reset yaw and pitch angles
     	longditude = 0.0;
 		latitude = 0.0;        
+		
+		for (ViewListener listener : viewListeners)
+			listener.viewChanged(this);
     }
     
     @Override
@@ -1398,6 +1405,56 @@ public class OrbitBehavior extends ViewPlatformAWTBehavior {
 		center.y = rotationCenter.y;
 		center.z = rotationCenter.z;
     }
+    
+    /**
+     * Returns the distance between the View and the center of rotation
+     * it orbits.
+     * @return the distance
+     */
+    public double getDistanceFromCenter() {
+    	return distanceFromCenter;
+    }
+    
+    /**
+     * Places the point the View looks at into the Point3d. It is the
+     * point at the distance from center in front of the View, which is
+     * the center of rotation unless the View has been translated.
+     * @param center The Point3d
+     */
+    public synchronized void getViewCenter(Point3d center) {
+    	Vector3d eye = new Vector3d();
+    	Matrix3d rotation = new Matrix3d();
+    	targetTransform.get(rotation, eye);
+    	// the View looks along its negative z axis
+		center.x = eye.x - rotation.m02 * distanceFromCenter;
+		center.y = eye.y - rotation.m12 * distanceFromCenter;
+		center.z = eye.z - rotation.m22 * distanceFromCenter;
+    }
+    
+    /**
+     * Is informed after the viewing transform of an OrbitBehavior has changed.
+     */
+    public static interface ViewListener {
+    	
+    	/**
+    	 * Called on the thread which changed the View, for example the
+    	 * behavior scheduler while the mouse is dragged.
+    	 * @param behavior the behavior whose View has changed
+    	 */
+    	void viewChanged(OrbitBehavior behavior);
+    }
+    
+    /**
+     * Adds a listener which is informed whenever the viewing transform changes.
+     * @param listener the listener
+     */
+    public void addViewListener(ViewListener listener) {
+    	viewListeners.add(listener);
+    }
+    
+    public void removeViewListener(ViewListener listener) {
+    	viewListeners.remove(listener);
+    }
 
     // 
     // Need to add key factors for Rotate, Translate and Zoom
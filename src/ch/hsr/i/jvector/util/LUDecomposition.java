@@ -0,0 +1,433 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.util;
+
+import java.util.Arrays;
+
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
+import ch.hsr.i.jvector.exceptions.NoMatrixException.StateNoMatrix;
+
+/**
+ * LU decomposition with partial pivoting of a square matrix > P * A = L * U. The factors are computed
+ * once by the constructor and can be used to solve the system for any number of right hand sides.
+ * L (unit lower triangular) and U are stored together in one <code>Matrix</code>, the given matrix is
+ * not changed. Whether a pivot is zero is decided relative to the largest value of the matrix with
+ * the default <code>Tolerance</code>.
+ * <p>
+ * Matrices from <code>BLOCKED_THRESHOLD</code> rows on are factorized in blocks of columns: a panel
+ * is factorized, the rows of U right of it are computed and then the remaining matrix is updated
+ * in parallel. Every element gets the same operations in the same order as with the unblocked
+ * algorithm, so the pivots and the factors are the same.
+ */
+public class LUDecomposition {
+
+	/**
+	 * the size from which on the blocked parallel factorization is used
+	 */
+	public static final int BLOCKED_THRESHOLD = 128;
+
+	/**
+	 * the number of columns of a panel
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private final Matrix lu;
+	private final double[] data;
+	private final int offset;
+	private final int stride;
+	private final int n;
+
+	/**
+	 * pivot[i] is the row of the original matrix which is row i of L * U
+	 */
+	private final int[] pivot;
+	private int pivotSign = 1;
+	private int rank;
+
+	/**
+	 * 1-norm of the original matrix for the condition estimate
+	 */
+	private final double norm1;
+
+	/**
+	 * Factorizes the given matrix, large matrices with the blocked parallel algorithm.
+	 *
+	 * @param the square matrix to be factorized
+	 * @throws NoMatrixException if the matrix is not square
+	 */
+	public LUDecomposition(Matrix matrix) throws NoMatrixException {
+		this(matrix, matrix.getNumRows() >= BLOCKED_THRESHOLD);
+	}
+
+	/**
+	 * Factorizes the given matrix.
+	 *
+	 * @param matrix - the square matrix to be factorized
+	 * @param blocked - true to use the blocked parallel algorithm
+	 * @throws NoMatrixException if the matrix is not square
+	 */
+	public LUDecomposition(Matrix matrix, boolean blocked) throws NoMatrixException {
+
+		if(!matrix.isSquare()) {
+			throw new NoMatrixException(StateNoMatrix.NOT_SQUARE, matrix.getNumRows() + "x" + matrix.getNumColumns());
+		}
+
+		n = matrix.getNumRows();
+		lu = new Matrix(n, n);
+		data = lu.getData();
+		offset = lu.getOffset();
+		stride = lu.getStride();
+		pivot = new int[n];
+
+		for(int i = 0; i < n; i++) {
+			System.arraycopy(matrix.getData(), matrix.getOffset() + i * matrix.getStride(), data, offset + i * stride, n);
+			pivot[i] = i;
+		}
+
+		double norm = 0;
+		for(int j = 0; j < n; j++) {
+			double sum = 0;
+			for(int i = 0; i < n; i++) {
+				sum += Math.abs(data[offset + i * stride + j]);
+			}
+			norm = Math.max(norm, sum);
+		}
+		norm1 = norm;
+
+		if(blocked) {
+			factorizeBlocked(lu.getMaxNorm());
+		} else {
+			factorize(lu.getMaxNorm());
+		}
+	}
+
+	/**
+	 * right looking elimination, row by row so the inner loop runs along the array
+	 */
+	private void factorize(double maxNorm) {
+
+		Tolerance tolerance = Tolerance.getDefault();
+
+		for(int k = 0; k < n; k++) {
+
+			swapPivot(k);
+
+			double p = data[offset + k * stride + k];
+
+			// no pivot in this column, the matrix is singular
+			if(tolerance.isZero(p, maxNorm)) {
+				continue;
+			}
+			rank++;
+
+			for(int i = k + 1; i < n; i++) {
+				int ik = offset + i * stride + k;
+				double factor = data[ik] / p;
+				data[ik] = factor;
+				if(factor != 0.0) {
+					lu.addScaledRow(i, k, -factor, k + 1);
+				}
+			}
+		}
+	}
+
+	private void factorizeBlocked(double maxNorm) {
+
+		Tolerance tolerance = Tolerance.getDefault();
+		boolean[] zeroPivot = new boolean[n];
+
+		for(int block = 0; block < n; block += BLOCK_SIZE) {
+
+			int end = Math.min(block + BLOCK_SIZE, n);
+
+			// factorize the panel, only the columns of the panel are updated
+			for(int k = block; k < end; k++) {
+
+				swapPivot(k);
+
+				double p = data[offset + k * stride + k];
+
+				if(tolerance.isZero(p, maxNorm)) {
+					zeroPivot[k] = true;
+					continue;
+				}
+				rank++;
+
+				for(int i = k + 1; i < n; i++) {
+					int row = offset + i * stride;
+					double factor = data[row + k] / p;
+					data[row + k] = factor;
+					if(factor != 0.0) {
+						int pivotRow = offset + k * stride;
+						for(int j = k + 1; j < end; j++) {
+							data[row + j] -= factor * data[pivotRow + j];
+						}
+					}
+				}
+			}
+
+			if(end == n) {
+				break;
+			}
+
+			// rows of U right of the panel
+			for(int k = block; k < end; k++) {
+				if(zeroPivot[k]) {
+					continue;
+				}
+				for(int i = k + 1; i < end; i++) {
+					double factor = data[offset + i * stride + k];
+					if(factor != 0.0) {
+						lu.addScaledRow(i, k, -factor, end);
+					}
+				}
+			}
+
+			// update the remaining matrix with the panel
+			new RowEliminationTask(lu, end, n, block, block, end - block, end, -1, zeroPivot).execute();
+		}
+	}
+
+	private void swapPivot(int k) {
+		int max = lu.getIndexMaxValueInColumn(k, k);
+		if(max != k) {
+			lu.swapRows(k, max);
+			int tmp = pivot[k];
+			pivot[k] = pivot[max];
+			pivot[max] = tmp;
+			pivotSign = -pivotSign;
+		}
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	/**
+	 * Returns the number of nonzero pivots. This is the rank of the matrix if it is not badly
+	 * conditioned.
+	 *
+	 * @return the rank of the matrix
+	 */
+	public int getRank() {
+		return rank;
+	}
+
+	public boolean isSingular() {
+		return rank < n;
+	}
+
+	/**
+	 * Returns a copy of the row permutation, element i is the row of the original matrix which was
+	 * moved to row i.
+	 *
+	 * @return the pivot vector
+	 */
+	public int[] getPivot() {
+		return pivot.clone();
+	}
+
+	public double getDeterminant() {
+		if(isSingular()) {
+			return 0.0;
+		}
+		double det = pivotSign;
+		for(int i = 0; i < n; i++) {
+			det *= data[offset + i * stride + i];
+		}
+		return det;
+	}
+
+	/**
+	 * Returns an estimate of the condition number in the 1-norm > ||A|| * ||A^-1||. The norm of the
+	 * inverse is estimated with Hager's method which needs only a few solves with the factors.
+	 *
+	 * @return the estimated condition number or infinity if the matrix is singular
+	 */
+	public double getConditionEstimate() {
+
+		if(isSingular()) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		double[] work = new double[n];
+
+		Arrays.fill(x, 1.0 / n);
+		double estimate = 0;
+
+		for(int iteration = 0; iteration < 5; iteration++) {
+
+			solve(x, y);
+
+			estimate = 0;
+			for(int i = 0; i < n; i++) {
+				estimate += Math.abs(y[i]);
+				work[i] = y[i] >= 0 ? 1.0 : -1.0;
+			}
+
+			solveTransposed(work, z);
+
+			int j = 0;
+			double zx = 0;
+			for(int i = 0; i < n; i++) {
+				if(Math.abs(z[i]) > Math.abs(z[j])) {
+					j = i;
+				}
+				zx += z[i] * x[i];
+			}
+
+			if(iteration > 0 && Math.abs(z[j]) <= zx) {
+				break;
+			}
+
+			Arrays.fill(x, 0.0);
+			x[j] = 1.0;
+		}
+
+		return norm1 * estimate;
+	}
+
+	/**
+	 * Solves A * x = b.
+	 *
+	 * @param the right hand side
+	 * @return a new array with the solution
+	 * @throws NoMatrixException if the matrix is singular or b has the wrong length
+	 */
+	public double[] solve(double[] b) throws NoMatrixException {
+		checkSolvable(b.length);
+		double[] x = new double[n];
+		solve(b, x);
+		return x;
+	}
+
+	/**
+	 * Solves A * x = b without creating objects. b and x must be different arrays.
+	 *
+	 * @param b - the right hand side
+	 * @param x - the array the solution is written to
+	 */
+	public void solve(double[] b, double[] x) {
+
+		// forward substitution with the permuted right hand side > L * y = P * b
+		for(int i = 0; i < n; i++) {
+			double sum = b[pivot[i]];
+			int row = offset + i * stride;
+			for(int j = 0; j < i; j++) {
+				sum -= data[row + j] * x[j];
+			}
+			x[i] = sum;
+		}
+
+		// back substitution > U * x = y
+		for(int i = n - 1; i >= 0; i--) {
+			double sum = x[i];
+			int row = offset + i * stride;
+			for(int j = i + 1; j < n; j++) {
+				sum -= data[row + j] * x[j];
+			}
+			x[i] = sum / data[row + i];
+		}
+	}
+
+	/**
+	 * Solves A * X = B for all columns of B at once.
+	 *
+	 * @param the right hand sides as columns of a matrix with n rows
+	 * @return a new matrix with the solutions as columns
+	 * @throws NoMatrixException if the matrix is singular or B has the wrong number of rows
+	 */
+	public Matrix solve(Matrix b) throws NoMatrixException {
+
+		checkSolvable(b.getNumRows());
+
+		int k = b.getNumColumns();
+		Matrix x = new Matrix(n, k);
+
+		// permuted copy of B, then the substitutions work with whole rows of X
+		for(int i = 0; i < n; i++) {
+			System.arraycopy(b.getData(), b.getOffset() + pivot[i] * b.getStride(), x.getData(), i * k, k);
+		}
+
+		for(int i = 0; i < n; i++) {
+			int row = offset + i * stride;
+			for(int j = 0; j < i; j++) {
+				double l = data[row + j];
+				if(l != 0.0) {
+					x.addScaledRow(i, j, -l);
+				}
+			}
+		}
+
+		for(int i = n - 1; i >= 0; i--) {
+			int row = offset + i * stride;
+			for(int j = i + 1; j < n; j++) {
+				double u = data[row + j];
+				if(u != 0.0) {
+					x.addScaledRow(i, j, -u);
+				}
+			}
+			x.scaleRow(i, 1.0 / data[row + i]);
+		}
+
+		return x;
+	}
+
+	/**
+	 * solves A^T * x = b > U^T * L^T * P * x = b
+	 */
+	private void solveTransposed(double[] b, double[] x) {
+
+		double[] w = new double[n];
+
+		// U^T is lower triangular
+		for(int i = 0; i < n; i++) {
+			double sum = b[i];
+			for(int j = 0; j < i; j++) {
+				sum -= data[offset + j * stride + i] * w[j];
+			}
+			w[i] = sum / data[offset + i * stride + i];
+		}
+
+		// L^T is unit upper triangular
+		for(int i = n - 1; i >= 0; i--) {
+			double sum = w[i];
+			for(int j = i + 1; j < n; j++) {
+				sum -= data[offset + j * stride + i] * w[j];
+			}
+			w[i] = sum;
+		}
+
+		for(int i = 0; i < n; i++) {
+			x[pivot[i]] = w[i];
+		}
+	}
+
+	private void checkSolvable(int rows) throws NoMatrixException {
+		if(rows != n) {
+			throw new NoMatrixException(StateNoMatrix.DIMENSION_MISMATCH, rows + " != " + n);
+		}
+		if(isSingular()) {
+			throw new NoMatrixException(StateNoMatrix.SINGULAR);
+		}
+	}
+}
@@ -1,107 +1,345 @@
+/**
+ * This file is part of JVector.
+ * 
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
 package ch.hsr.i.jvector.util;
 
 import ch.hsr.i.jvector.exceptions.NoMatrixException;
 import ch.hsr.i.jvector.exceptions.NoMatrixException.StateNoMatrix;
 
+/**
+ * A matrix stored row by row in a single <code>double[]</code>. Element (row, column) is found at
+ * <code>offset + row * stride + column</code>. Views created by <code>getRow()</code> and
+ * <code>getSubMatrix()</code> share the array with this matrix, so changes of a view are visible
+ * in the matrix and vice versa. The row operations work in place and do not create objects.
+ */
 public class Matrix {
 
-	private double[][] matrix;
-	
+	/**
+	 * the number of elements of the remaining columns from which on <code>rref()</code> eliminates
+	 * in parallel
+	 */
+	private static final int PARALLEL_WORK = 1 << 16;
+
+	private double[] data;
+	private int rows;
+	private int columns;
+	private int offset;
+	private int stride;
+
+	/**
+	 * Creates a matrix with a copy of the given values.
+	 *
+	 * @param the values, every row must have the same number of elements
+	 * @throws NoMatrixException in case the rows have a different number of elements
+	 */
 	public Matrix(double[][] matrix) throws NoMatrixException {
-		
+
 		for(int i = 0; i < matrix.length; i++) {
 			if(matrix[i].length != matrix[0].length) {
 				throw new NoMatrixException(StateNoMatrix.NUM_ROW_ELEMENTS_DIFF, "column " + i);
 			}
 		}
-		
-		this.matrix = matrix;
+
+		this.rows = matrix.length;
+		this.columns = matrix[0].length;
+		this.stride = columns;
+		this.data = new double[rows * columns];
+
+		for(int i = 0; i < rows; i++) {
+			System.arraycopy(matrix[i], 0, data, i * stride, columns);
+		}
+	}
+
+	/**
+	 * Creates a matrix of zeros.
+	 *
+	 * @param rows - the number of rows
+	 * @param columns - the number of columns
+	 */
+	public Matrix(int rows, int columns) {
+		this(new double[rows * columns], 0, rows, columns, columns);
+	}
+
+	/**
+	 * Creates a matrix on the given array without copying it.
+	 *
+	 * @param data - the array which holds the values
+	 * @param offset - the index of element (0, 0)
+	 * @param rows - the number of rows
+	 * @param columns - the number of columns
+	 * @param stride - the distance between the first elements of two rows
+	 */
+	public Matrix(double[] data, int offset, int rows, int columns, int stride) {
+		if(rows > 0 && offset + (rows - 1) * stride + columns > data.length) {
+			throw new IllegalArgumentException("the array is too small for the matrix");
+		}
+		this.data = data;
+		this.offset = offset;
+		this.rows = rows;
+		this.columns = columns;
+		this.stride = stride;
 	}
 
 	public int getNumRows() {
-		return matrix.length;
+		return rows;
 	}
 
 	public int getNumColumns() {
-		return matrix[0].length;
+		return columns;
+	}
+
+	/**
+	 * Returns the array which holds the values of this matrix. Use it together with
+	 * <code>getOffset()</code> and <code>getStride()</code>.
+	 *
+	 * @return the array of this matrix
+	 */
+	public double[] getData() {
+		return data;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getStride() {
+		return stride;
 	}
 
 	public double getValue(int row, int column) {
-		return matrix[row][column];
+		return data[offset + row * stride + column];
 	}
-	
+
+	/**
+	 * Returns a copy of the values in the given row.
+	 *
+	 * @param the row
+	 * @return a new array with the values
+	 */
 	public double[] getRowValues(int row) {
-		
-		double[] rowValues = new double[getNumColumns()];
-		
-		for(int i = 0; i < getNumColumns(); i++) {
-			rowValues[i] = matrix[row][i]; 
-		}
+		double[] rowValues = new double[columns];
+		System.arraycopy(data, offset + row * stride, rowValues, 0, columns);
 		return rowValues;
 	}
-	
+
+	/**
+	 * Returns a copy of the values in the given column.
+	 *
+	 * @param the column
+	 * @return a new array with the values
+	 */
 	public double[] getColumnValues(int column) {
-		
-		double[] colValues = new double[getNumRows()];
-		
-		for(int i = 0; i < getNumColumns(); i++) {
-			colValues[i] = matrix[i][column]; 
+		double[] colValues = new double[rows];
+		for(int i = 0, k = offset + column; i < rows; i++, k += stride) {
+			colValues[i] = data[k];
 		}
 		return colValues;
 	}
-	
+
+	/**
+	 * Returns a view of the given row as matrix with one row.
+	 *
+	 * @param the row
+	 * @return the view of the row
+	 */
+	public Matrix getRow(int row) {
+		return getSubMatrix(row, 0, 1, columns);
+	}
+
+	/**
+	 * Returns a view of a part of this matrix.
+	 *
+	 * @param row - the first row of the view
+	 * @param column - the first column of the view
+	 * @param numRows - the number of rows of the view
+	 * @param numColumns - the number of columns of the view
+	 * @return the view
+	 */
+	public Matrix getSubMatrix(int row, int column, int numRows, int numColumns) {
+		if(row < 0 || column < 0 || row + numRows > rows || column + numColumns > columns) {
+			throw new IndexOutOfBoundsException("sub matrix out of bounds");
+		}
+		return new Matrix(data, offset + row * stride + column, numRows, numColumns, stride);
+	}
+
+	/**
+	 * Returns the index of the row with the largest absolute value in the given column, starting at
+	 * row <code>fromRow</code>.
+	 *
+	 * @param column - the column to search
+	 * @param fromRow - the first row to search
+	 * @return the index of the row
+	 */
 	public int getIndexMaxValueInColumn(int column, int fromRow) {
-		
-		double max = 0;
-		int index = 0;
-		
-		for(int i = fromRow; i < getNumRows(); i++) {
-			if(Math.abs(matrix[i][column]) > max) {
-				max = Math.abs(matrix[i][column]);
+
+		double max = -1;
+		int index = fromRow;
+
+		for(int i = fromRow, k = offset + fromRow * stride + column; i < rows; i++, k += stride) {
+			double value = Math.abs(data[k]);
+			if(value > max) {
+				max = value;
 				index = i;
 			}
 		}
-		
+
 		return index;
 	}
-	
+
 	public void setValue(int row, int column, double value) {
-		matrix[row][column] = value;
+		data[offset + row * stride + column] = value;
 	}
 
 	public void setRowValues(int row, double[] values) {
-		for (int i = 0; i < getNumColumns(); i++) {
-			matrix[row][i] = values[i];
-		}
+		System.arraycopy(values, 0, data, offset + row * stride, columns);
 	}
 
 	public void setColumnValues(int column, double[] values) {
-		for (int i = 0; i < getNumRows(); i++) {
-			matrix[i][column] = values[i];
+		for(int i = 0, k = offset + column; i < rows; i++, k += stride) {
+			data[k] = values[i];
 		}
 	}
 
+	/**
+	 * Swaps two rows in place.
+	 */
+	public void swapRows(int row1, int row2) {
+		if(row1 == row2) {
+			return;
+		}
+		int k1 = offset + row1 * stride;
+		int k2 = offset + row2 * stride;
+		for(int j = 0; j < columns; j++, k1++, k2++) {
+			double tmp = data[k1];
+			data[k1] = data[k2];
+			data[k2] = tmp;
+		}
+	}
+
+	/**
+	 * Multiplies a row with a factor in place.
+	 */
+	public void scaleRow(int row, double factor) {
+		int k = offset + row * stride;
+		for(int j = 0; j < columns; j++, k++) {
+			data[k] *= factor;
+		}
+	}
+
+	/**
+	 * Adds the multiple of a row to another row in place > row(target) += factor * row(source).
+	 */
+	public void addScaledRow(int target, int source, double factor) {
+		addScaledRow(target, source, factor, 0);
+	}
+
+	/**
+	 * Adds the multiple of a row to another row in place, starting at the given column. The columns
+	 * before are left as they are, which saves work if they are known to be zero in the source row.
+	 */
+	public void addScaledRow(int target, int source, double factor, int fromColumn) {
+		int kt = offset + target * stride + fromColumn;
+		int ks = offset + source * stride + fromColumn;
+		for(int j = fromColumn; j < columns; j++, kt++, ks++) {
+			data[kt] += factor * data[ks];
+		}
+	}
+
+	/**
+	 * Returns the largest absolute value of this matrix.
+	 *
+	 * @return the max norm
+	 */
+	public double getMaxNorm() {
+		double max = 0;
+		for(int i = 0; i < rows; i++) {
+			for(int j = 0, k = offset + i * stride; j < columns; j++, k++) {
+				max = Math.max(max, Math.abs(data[k]));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Transforms this matrix in place into the row reduced echelon form (Gauss-Jordan elimination
+	 * with partial pivoting). A pivot is treated as zero if it is zero relative to the largest value
+	 * of the matrix according to the default <code>Tolerance</code>. The rows of large matrices are
+	 * eliminated in parallel, the result is the same as with one thread.
+	 *
+	 * @return this matrix
+	 */
+	public Matrix rref() {
+
+		Tolerance tolerance = Tolerance.getDefault();
+		double norm = getMaxNorm();
+
+		int pivotRow = 0;
+
+		for(int column = 0; column < columns && pivotRow < rows; column++) {
+
+			// pivoting
+			int max = getIndexMaxValueInColumn(column, pivotRow);
+			double pivot = data[offset + max * stride + column];
+
+			// no pivot in this column > continue with the next column in the same row
+			if(tolerance.isZero(pivot, norm)) {
+				continue;
+			}
+
+			swapRows(pivotRow, max);
+			scaleRow(pivotRow, 1.0 / pivot);
+
+			// eliminate above and below the pivot, large matrices in parallel
+			if((long) rows * (columns - column) > PARALLEL_WORK) {
+				new RowEliminationTask(this, 0, rows, pivotRow, column, 1, column, pivotRow, null).execute();
+			} else {
+				for(int i = 0; i < rows; i++) {
+					double factor = data[offset + i * stride + column];
+					if(i != pivotRow && factor != 0.0) {
+						addScaledRow(i, pivotRow, -factor, column);
+					}
+				}
+			}
+
+			pivotRow++;
+		}
+
+		return this;
+	}
+
 	public boolean isSquare() {
 		return getNumRows() == getNumColumns();
 	}
 
 	public String toString() {
-		
-		String s = "";
-		boolean first = true;
-		
-		s = s.concat("\n ");
-		for(int i = 0; i < matrix.length; i++) {
-			if(first) {
-				first = false;
-			} else {
-				s = s.concat("\n ");
+
+		StringBuilder s = new StringBuilder();
+
+		s.append("\n ");
+		for(int i = 0; i < rows; i++) {
+			if(i > 0) {
+				s.append("\n ");
 			}
-			for(int j = 0; j < matrix[0].length; j++) {
-				s = s.concat(matrix[i][j] + "\t");
+			for(int j = 0; j < columns; j++) {
+				s.append(getValue(i, j)).append("\t");
 			}
 		}
-		s = s.concat("\n");
-		return s;
+		s.append("\n");
+		return s.toString();
 	}
 }
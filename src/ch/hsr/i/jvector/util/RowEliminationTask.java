@@ -0,0 +1,126 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Eliminates with a block of pivot rows in a range of rows of a matrix. For every row i of the range and
+ * every pivot row r = sourceRow + s the row is updated by row(i) -= a(i, factorColumn + s) * row(r),
+ * starting at <code>fromColumn</code>. The rows are independent of each other, so the range is split
+ * and updated in parallel. Every row gets the same operations in the same order as with a sequential
+ * loop, so the result does not depend on the number of threads.
+ */
+class RowEliminationTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * the number of multiply-adds below which a range is not split anymore
+	 */
+	private static final int SEQUENTIAL_WORK = 1 << 15;
+
+	private final Matrix matrix;
+	private final int fromRow;
+	private final int toRow;
+	private final int sourceRow;
+	private final int factorColumn;
+	private final int count;
+	private final int fromColumn;
+	private final int skipRow;
+	private final boolean[] skipPivot;
+
+	/**
+	 * @param matrix - the matrix to be updated in place
+	 * @param fromRow - the first row to be updated
+	 * @param toRow - the row after the last row to be updated
+	 * @param sourceRow - the first pivot row
+	 * @param factorColumn - the column of the factors for the first pivot row
+	 * @param count - the number of pivot rows
+	 * @param fromColumn - the first column to be updated
+	 * @param skipRow - a row which is not updated or -1
+	 * @param skipPivot - pivot rows to be ignored, indexed by row, or null
+	 */
+	RowEliminationTask(Matrix matrix, int fromRow, int toRow, int sourceRow, int factorColumn, int count,
+					   int fromColumn, int skipRow, boolean[] skipPivot) {
+		this.matrix = matrix;
+		this.fromRow = fromRow;
+		this.toRow = toRow;
+		this.sourceRow = sourceRow;
+		this.factorColumn = factorColumn;
+		this.count = count;
+		this.fromColumn = fromColumn;
+		this.skipRow = skipRow;
+		this.skipPivot = skipPivot;
+	}
+
+	/**
+	 * Runs the elimination in the common pool, or directly if there is too little work to split.
+	 */
+	void execute() {
+		if(isSmall(toRow - fromRow)) {
+			eliminate();
+		} else {
+			ForkJoinPool.commonPool().invoke(this);
+		}
+	}
+
+	@Override
+	protected void compute() {
+
+		int rows = toRow - fromRow;
+
+		if(isSmall(rows) || rows < 2) {
+			eliminate();
+			return;
+		}
+
+		int middle = fromRow + rows / 2;
+		invokeAll(new RowEliminationTask(matrix, fromRow, middle, sourceRow, factorColumn, count, fromColumn, skipRow, skipPivot),
+				new RowEliminationTask(matrix, middle, toRow, sourceRow, factorColumn, count, fromColumn, skipRow, skipPivot));
+	}
+
+	private boolean isSmall(int rows) {
+		return (long) rows * count * (matrix.getNumColumns() - fromColumn) <= SEQUENTIAL_WORK;
+	}
+
+	private void eliminate() {
+
+		double[] data = matrix.getData();
+		int offset = matrix.getOffset();
+		int stride = matrix.getStride();
+
+		for(int i = fromRow; i < toRow; i++) {
+			if(i == skipRow) {
+				continue;
+			}
+			for(int s = 0; s < count; s++) {
+				int r = sourceRow + s;
+				if(skipPivot != null && skipPivot[r]) {
+					continue;
+				}
+				double factor = data[offset + i * stride + factorColumn + s];
+				if(factor != 0.0) {
+					matrix.addScaledRow(i, r, -factor, fromColumn);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * This file is part of JVector.
+ *
+ * JVector is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JVector is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JVector.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package ch.hsr.i.jvector.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Defines when a value is treated as zero in the geometric calculations and how results are rounded
+ * for the output. A value is zero if its absolute value is not larger than
+ * <code>absolute + relative * magnitude</code>, whereas the magnitude is the size of the values the
+ * tested value was computed from. The tests only use double arithmetic, rounding is only done by
+ * <code>format()</code> when a result is shown to the user. Tolerance objects are immutable.
+ */
+public class Tolerance {
+
+	/**
+	 * the tolerance used by the geometry calculations
+	 */
+	private static volatile Tolerance defaultTolerance = new Tolerance(1e-12, 1e-9, 3, RoundingMode.HALF_UP);
+
+	private final double absolute;
+	private final double relative;
+
+	/**
+	 * the number of decimal places of the output
+	 */
+	private final int scale;
+	private final RoundingMode roundingMode;
+
+	/**
+	 * Creates a tolerance.
+	 *
+	 * @param absolute - the absolute epsilon
+	 * @param relative - the epsilon relative to the magnitude of the compared values
+	 * @param scale - the number of decimal places of the output
+	 * @param roundingMode - the rounding mode of the output
+	 */
+	public Tolerance(double absolute, double relative, int scale, RoundingMode roundingMode) {
+		if(absolute < 0 || relative < 0) {
+			throw new IllegalArgumentException("negative epsilon");
+		}
+		this.absolute = absolute;
+		this.relative = relative;
+		this.scale = scale;
+		this.roundingMode = roundingMode;
+	}
+
+	/**
+	 * Returns the tolerance used by the geometry calculations.
+	 *
+	 * @return the default tolerance
+	 */
+	public static Tolerance getDefault() {
+		return defaultTolerance;
+	}
+
+	/**
+	 * Sets the tolerance used by the geometry calculations.
+	 *
+	 * @param the new default tolerance
+	 */
+	public static void setDefault(Tolerance tolerance) {
+		defaultTolerance = tolerance;
+	}
+
+	public double getAbsolute() {
+		return absolute;
+	}
+
+	public double getRelative() {
+		return relative;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public RoundingMode getRoundingMode() {
+		return roundingMode;
+	}
+
+	/**
+	 * Returns true if the absolute value of the parameter is not larger than the absolute epsilon.
+	 *
+	 * @param the value to be checked
+	 * @return true if the value is zero
+	 */
+	public boolean isZero(double value) {
+		return Math.abs(value) <= absolute;
+	}
+
+	/**
+	 * Returns true if the value is zero relative to the magnitude it was computed from.
+	 *
+	 * @param value - the value to be checked
+	 * @param magnitude - the magnitude of the values the checked value was computed from
+	 * @return true if the value is zero
+	 */
+	public boolean isZero(double value, double magnitude) {
+		return Math.abs(value) <= absolute + relative * Math.abs(magnitude);
+	}
+
+	/**
+	 * Returns true if the two values are equal within this tolerance.
+	 *
+	 * @return true if the values are equal
+	 */
+	public boolean isEqual(double a, double b) {
+		return isZero(a - b, Math.max(Math.abs(a), Math.abs(b)));
+	}
+
+	/**
+	 * Returns the value rounded to the scale and rounding mode of this tolerance. This is meant for the
+	 * output only, do not use it in calculations.
+	 *
+	 * @param the value to be formatted
+	 * @return the rounded value as string
+	 */
+	public String format(double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			return String.valueOf(value);
+		}
+		return String.valueOf(BigDecimal.valueOf(value).setScale(scale, roundingMode).doubleValue());
+	}
+}
@@ -18,11 +18,10 @@
 
 package ch.hsr.i.jvector.util;
 
-import java.math.BigDecimal;
-
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
+import ch.hsr.i.jvector.exceptions.NoMatrixException;
 import ch.hsr.i.jvector.exceptions.NoPointOnSphereException;
 import ch.hsr.i.jvector.exceptions.NoPointOnSphereException.StateNoPointOnSphere;
 import ch.hsr.i.jvector.logic.DrawComponents;
@@ -30,176 +29,57 @@ import ch.hsr.i.jvector.logic.DrawComponents;
 public class Utils {
 	
 	/**
-	 * Returns a new <code>Matrix</code> object in the row reduced echelon form.
+	 * Transforms the given <code>Matrix</code> in place into the row reduced echelon form.
 	 * 
 	 * @param the matrix to be reduced
-	 * @return the row reduced form of the matrix
+	 * @return the same matrix in row reduced form
+	 * @see Matrix#rref()
 	 */
 	public static Matrix rref(Matrix matrix) {
-		
-		Matrix a = matrix;
-		
-		// matrix dimension
-		int m = a.getNumRows();
-		int n = a.getNumColumns();
-		int pivot = 0;
-		
-		// LOWER TRIANGULAR FORM
-		for(int i = 0, j = 0; i < n && i < m; i++) {
-			
-			pivot = i;
-						
-			// pivoting
-			j = i;			
-			j = a.getIndexMaxValueInColumn(i, i);
-			
-			// if the max value in column i is 0 then the pivot would be 0 > continue
-			if(isZero(j)) {
-				continue;
-			}
-			
-            // in case rows should be changed due to pivoting
-            if (i != j) {
-            	double[] currRowI = a.getRowValues(i);
-            	double[] currRowJ = a.getRowValues(j);
-            	
-            	a.setRowValues(i, currRowJ);
-            	a.setRowValues(j, currRowI);    	
-            }
-            
-            // eliminate
-			for (j = i + 1; j < m; j++) {
-				
-				double b = a.getValue(j, i) / a.getValue(i, i);
-				
-				for (int k = 0; k < n; k++) {
-					a.setValue(j, k, a.getValue(j, k) - b * a.getValue(i, k));
-				}
-			}
-		}
-			
-		// UPPER TRIANGULAR STEP
-		for(int i = pivot; i >= 0; i--) {
-			
-            // eliminate
-			for (int j = i - 1; j >= 0; j--) {
-				
-				// test if pivot position is 0
-				if(isZero(a.getValue(i, i))) {
-					continue;
-				} else { 
-					double b = a.getValue(j, i) / a.getValue(i, i);
-					
-					for (int k = 0; k < n; k++) {
-						a.setValue(j, k, a.getValue(j, k) - b * a.getValue(i, k));
-					}
-				}
-			}
-		}
-		
-		// MAKE 1's IN PIVOT POSITIONS
-		for(int i = 0; i < m && i < n; i++) {
-			
-			if(isZero(a.getValue(i, i))) {
-				continue;
-			} else {
-				double[] row = a.getRowValues(i);
-				for(int j = 0; j < n; j++) {
-					row[j] = row[j] / a.getValue(i, i);
-				}
-				a.setRowValues(i, row);
-			}
-		}
-		
-		return a;
+		return matrix.rref();
 	}
 	
-	/**
-	 * Returns true if the double parameter is 0 or almost zero. This method creates
-	 * a <code>BigDeciaml</code> object of the double parameter value and sets its scale
-	 * to 15, rounding mode ROUND_HALF_UP. The new double value is then checked for 0.
-	 * 
-	 * @param the double value to be checked
-	 * @return true if the parameter value is 0 else false
-	 */
-	private static boolean isZero(double d) {
-		BigDecimal bd = new BigDecimal(d);
-		bd = bd.setScale(15, BigDecimal.ROUND_HALF_UP);
-		
-		return bd.doubleValue() == 0.0;
-	}
-
 	/**
 	 * Solves the given system of linear equations an returns a solution vector.
 	 * Note that the matrix must be in augmented form for this reason the number
-	 * of rows + 1 must be equal to the number of columns.
+	 * of rows + 1 must be equal to the number of columns. The given array is not
+	 * changed. To solve the same coefficients for several right hand sides use
+	 * <code>LUDecomposition</code> directly.
 	 * 
 	 * @param the system to be solved
 	 * @return the solution vector or null in case that the system is not in the
-	 *         correct form
+	 *         correct form or has no unique solution
 	 */
 	public static double[] solveSystem(double sys[][]) {
 
-		if (sys.length + 1 == sys[0].length) {
-			
-			int n = sys.length;
-			double max, tmp;
-
-			for (int i = 0, j = 0; i < n - 1; i++) {
-				
-				// pivoting
-				j = i;
-	            max = Math.abs (sys[j][i]);
-	            for (int k = i + 1; k < n; k++) {
-	                tmp = Math.abs (sys[k][i]);
-	                if (tmp > max) {
-	                    j = k;
-	                    max = tmp;
-	                }
-	            }
-
-	            // in case rows should be changed
-	            if (i != j) {
-	                for (int k = i; k <= n; ++k)
-	                {
-	                    tmp = sys[i][k];
-	                    sys[i] [k] = sys[j][k];
-	                    sys[j] [k] = tmp;
-	                }
-	            }
-				
-	            // solve
-				for (j = i + 1; j < n; j++) {
-					double a = sys[j][i] / sys[i][i];
-					for (int k = 0; k < n + 1; k++) {
-						sys[j][k] = sys[j][k] - a * sys[i][k];
-					}
-				}
-			}
-
-			//printSystem(sys);
+		if (sys.length + 1 != sys[0].length) {
+			return null;
+		}
 
-			double[] res = new double[sys.length];
+		int n = sys.length;
+		Matrix a = new Matrix(n, n);
+		double[] b = new double[n];
 
-			for (int i = n - 1; i >= 0; i--) {
-				double b = sys[i][n];
-				for (int j = i + 1; j < n; j++) {
-					b = b - sys[i][j] * res[j];
-				}
-				// TODO: Check if this round method is ok!
-				res[i] = round(b / sys[i][i], 3);
+		for (int i = 0; i < n; i++) {
+			if (sys[i].length != n + 1) {
+				return null;
 			}
+			System.arraycopy(sys[i], 0, a.getData(), i * n, n);
+			b[i] = sys[i][n];
+		}
 
-			return res;
-		} else {
+		try {
+			return new LUDecomposition(a).solve(b);
+		} catch (NoMatrixException e) {
 			return null;
 		}
 	}
 	
 	/**
 	 * Returns true if the two vectors are linear dependent otherwise false. This method calculates the
-	 * vector product of the two given vectors and checks its length. In case the length is 0.0 the two
-	 * given vectors are linear dependent otherwise not.
+	 * vector product of the two given vectors and checks its length. In case the length is zero relative
+	 * to the lengths of the two vectors (see <code>Tolerance</code>) the two given vectors are linear
+	 * dependent otherwise not.
 	 * 
 	 * @param vector parameter 1
 	 * @param vector parameter 2
@@ -210,7 +90,7 @@ public class Utils {
 		Vector3d crossP = new Vector3d();	
 		crossP.cross(vector1, vector2);
 		
-		return crossP.length() == 0.0; 
+		return Tolerance.getDefault().isZero(crossP.length(), vector1.length() * vector2.length()); 
 	}
 
 	public static double round(double num, int significant) {